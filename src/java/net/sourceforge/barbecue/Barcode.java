@@ -32,18 +32,25 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
 import java.awt.Insets;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
 import java.awt.print.PrinterException;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
+import java.util.Arrays;
 
 import javax.swing.JComponent;
 
 import net.sourceforge.barbecue.env.EnvironmentFactory;
 import net.sourceforge.barbecue.env.HeadlessEnvironment;
+import net.sourceforge.barbecue.output.BuiltInFont;
 import net.sourceforge.barbecue.output.GraphicsOutput;
 import net.sourceforge.barbecue.output.Output;
 import net.sourceforge.barbecue.output.OutputException;
@@ -69,6 +76,15 @@ public abstract class Barcode extends JComponent implements Printable {
     private int              barHeight           = DEFAULT_BAR_HEIGHT;
     private int              resolution          = -1;
 
+    /** Incremented by every update, so that the caches notice changes made by subclasses */
+    private int              version;
+    private int              updateDepth;
+    private boolean          updatePending;
+    private transient Object[]      cachedSizeState;
+    private transient Dimension     cachedSize;
+    private transient Object[]      cachedImageState;
+    private transient BufferedImage cachedImage;
+
     protected Barcode(String data) throws BarcodeException {
         if (data == null || data.length() == 0) {
             throw new BarcodeException("Data to encode cannot be empty");
@@ -97,21 +113,56 @@ public abstract class Barcode extends JComponent implements Printable {
         if (data == null) {
             data = "";
         }
-        this.data = data;
-        update();
+        if (!data.equals(this.data)) {
+            this.data = data;
+            update();
+        }
     }
 
+    /**
+     * Tells the component that its appearance has changed. Inside a
+     * {@link #beginUpdate()} and {@link #endUpdate()} pair the update is
+     * deferred until the outermost endUpdate, so that setting several
+     * properties only lays out and repaints once.
+     */
     public void update() {
+        version++;
+        if (updateDepth > 0) {
+            updatePending = true;
+            return;
+        }
         invalidate();
         updateUI();
         repaint();
     }
 
+    /**
+     * Starts a batch of property changes. Calls may be nested; each must be
+     * matched by a call to {@link #endUpdate()}, usually in a finally block.
+     */
+    public void beginUpdate() {
+        updateDepth++;
+    }
+
+    /**
+     * Ends a batch of property changes, updating the component once if any
+     * of them changed it.
+     */
+    public void endUpdate() {
+        if (updateDepth > 0 && --updateDepth == 0 && updatePending) {
+            updatePending = false;
+            update();
+        }
+    }
+
     public void setPreferredBarHeight(int height) {
         if (height < MIN_BAR_HEIGHT) {
             height = MIN_BAR_HEIGHT;
         }
-        barHeight = height;
+        if (height != barHeight) {
+            barHeight = height;
+            update();
+        }
     }
 
     public int getPreferredBarHeight() {
@@ -129,8 +180,10 @@ public abstract class Barcode extends JComponent implements Printable {
      *            True if the text should be shown, false if not
      */
     public void setDrawingText(boolean drawingText) {
-        this.drawingText = drawingText;
-        update();
+        if (drawingText != this.drawingText) {
+            this.drawingText = drawingText;
+            update();
+        }
     }
 
     /**
@@ -155,8 +208,10 @@ public abstract class Barcode extends JComponent implements Printable {
      *            not
      */
     public void setDrawingQuietSection(boolean drawingQuietSection) {
-        this.drawingQuietSection = drawingQuietSection;
-        update();
+        if (drawingQuietSection != this.drawingQuietSection) {
+            this.drawingQuietSection = drawingQuietSection;
+            update();
+        }
     }
 
     /**
@@ -181,10 +236,131 @@ public abstract class Barcode extends JComponent implements Printable {
      *            The desired width of the thinnest bar in pixels
      */
     public void setBarWidth(int barWidth) {
-        if (barWidth >= 1) {
+        if (barWidth < 1) {
+            barWidth = 1;
+        }
+        if (barWidth != this.barWidth) {
             this.barWidth = barWidth;
-        } else {
-            this.barWidth = 1;
+            update();
+        }
+    }
+
+    /**
+     * Sets the bar width from a physical X-dimension (the width of the
+     * narrowest bar) and the resolution of the device the barcode will be
+     * printed on. The bar width is the largest whole number of device pixels
+     * that is no wider than the X-dimension, so bars are never resampled and
+     * never wider than specified; it is at least one pixel. The resolution is
+     * also set, see {@link #setResolution(int)}.
+     * 
+     * @param mils
+     *            The X-dimension in thousandths of an inch
+     * @param dpi
+     *            The resolution of the output device in dots per inch
+     */
+    public void setXDimensionInMils(double mils, int dpi) {
+        if (mils <= 0 || dpi <= 0) {
+            throw new IllegalArgumentException("X-dimension and resolution must be positive");
+        }
+        // Allow for rounding, so that 7.5 mils at 400 dpi is 3 pixels
+        setBarWidth((int) Math.floor(mils * dpi / 1000 + 1e-9));
+        setResolution(dpi);
+    }
+
+    /**
+     * Sets the bar width from a physical X-dimension in millimetres, see
+     * {@link #setXDimensionInMils(double, int)}.
+     * 
+     * @param millimetres
+     *            The X-dimension in millimetres
+     * @param dpi
+     *            The resolution of the output device in dots per inch
+     */
+    public void setXDimensionInMillimetres(double millimetres, int dpi) {
+        setXDimensionInMils(millimetres / 0.0254, dpi);
+    }
+
+    /**
+     * Sizes the barcode to fit in a box of the given size in pixels. The bar
+     * width is set to the largest whole number of pixels for which the
+     * barcode is no wider than the box, and no taller with one pixel high
+     * bars, and the bar height is set so that the barcode, including its
+     * text, fills the height of the box. Barcodes whose height grows with
+     * the bar width, such as two dimensional ones, are kept within the box.
+     * 
+     * @param width
+     *            The width of the box in pixels
+     * @param height
+     *            The height of the box in pixels
+     * @return True if the barcode fits, false if it is too large even with
+     *         one pixel bars, in which case the bar width is left at one
+     * @throws OutputException
+     *             If the barcode could not be sized, such as when the data is
+     *             too large for the symbol
+     */
+    public boolean fitToBox(int width, int height) throws OutputException {
+        Fit fit = fit(createSizingOutput(), width, height);
+        setBarWidth(fit.barWidth);
+        setPreferredBarHeight(fit.barHeight);
+        return fit.scale == 1 && fit.barHeight > 0;
+    }
+
+    /**
+     * Fits the barcode into a box, measuring it by drawing it to the given
+     * sizing output. The bar width is the largest whole number of pixels for
+     * which the barcode, with one pixel high bars, is no larger than the box;
+     * the height of the text and of two dimensional symbols depends on the
+     * bar width alone. The bar height is then whatever makes the barcode fill
+     * the height of the box.
+     * 
+     * @param sizing
+     *            The output to measure with, which must measure text as the
+     *            barcode will be drawn
+     * @param width
+     *            The width of the box in pixels
+     * @param height
+     *            The height of the box in pixels
+     * @return The fit, with a scale below one if even one pixel bars are too
+     *         large, in which case the bar height is in the shrunken pixels
+     * @throws OutputException
+     *             If the barcode could not be sized
+     */
+    Fit fit(Output sizing, int width, int height) throws OutputException {
+        Dimension size = draw(sizing, 0, 0, 1, 1);
+        if (size.width > width || size.height > height) {
+            // Too large even with one pixel bars, so it has to be shrunk
+            double scale = Math.min(1.0 * width / size.width, 1.0 * height / Math.max(1, size.height));
+            return new Fit(1, (int) Math.floor(height / scale) - (size.height - 1), scale);
+        }
+        // Size is very nearly proportional to bar width; check the estimate
+        int fitted = width / Math.max(1, size.width);
+        if (size.height > 0) {
+            fitted = Math.min(fitted, height / size.height);
+        }
+        while (fitted > 1) {
+            Dimension fittedSize = draw(sizing, 0, 0, fitted, 1);
+            if (fittedSize.width <= width && fittedSize.height <= height) {
+                size = fittedSize;
+                break;
+            }
+            fitted--;
+        }
+        return new Fit(Math.max(fitted, 1), height - (size.height - 1), 1);
+    }
+
+    /**
+     * The bar width and height with which a barcode fills a box, see
+     * {@link Barcode#fit(Output, int, int)}.
+     */
+    static final class Fit {
+        final int barWidth;
+        final int barHeight;
+        final double scale;
+
+        Fit(int barWidth, int barHeight, double scale) {
+            this.barWidth = barWidth;
+            this.barHeight = barHeight;
+            this.scale = scale;
         }
     }
 
@@ -201,10 +377,10 @@ public abstract class Barcode extends JComponent implements Printable {
      *            The desired output resolution (in dots per inch)
      */
     public void setResolution(int resolution) {
-        if (resolution > 0) {
+        if (resolution > 0 && resolution != this.resolution) {
             this.resolution = resolution;
+            update();
         }
-        update();
     }
 
     /**
@@ -214,7 +390,31 @@ public abstract class Barcode extends JComponent implements Printable {
      */
     @Override
     public Dimension getPreferredSize() {
-        return calculateSize();
+        Object[] state = getSizeState();
+        if (cachedSize == null || !Arrays.equals(state, cachedSizeState)) {
+            cachedSize = calculateSize();
+            cachedSizeState = state;
+        }
+        return new Dimension(cachedSize);
+    }
+
+    /**
+     * Returns the preferred size, but throws the exception that stopped the
+     * barcode from being sized instead of returning an empty size. Callers
+     * that go on to create an image of the barcode use this, so that data too
+     * large for the symbol fails with the encoder's message.
+     * 
+     * @return The preferred size of this barcode
+     * @throws OutputException
+     *             If the barcode could not be sized
+     */
+    Dimension getCheckedPreferredSize() throws OutputException {
+        Dimension size = getPreferredSize();
+        if (size.width <= 0 || size.height <= 0) {
+            // Sizing again rethrows whatever getPreferredSize swallowed
+            measure(barWidth, getPreferredBarHeight());
+        }
+        return size;
     }
 
     @Override
@@ -222,8 +422,10 @@ public abstract class Barcode extends JComponent implements Printable {
         if (font == null) {
             font = EnvironmentFactory.getEnvironment().getDefaultFont();
         }
-        super.setFont(font);
-        update();
+        if (font == null ? super.getFont() != null : !font.equals(super.getFont())) {
+            super.setFont(font);
+            update();
+        }
     }
 
     @Override
@@ -252,6 +454,13 @@ public abstract class Barcode extends JComponent implements Printable {
      *            bounding box
      */
     public void draw(Graphics2D g, int x, int y) throws OutputException {
+        draw(g, x, y, getWidth(), getHeight());
+    }
+
+    /**
+     * Draws the barcode as it would appear in a component of the given size.
+     */
+    private void draw(Graphics2D g, int x, int y, int width, int height) throws OutputException {
         g = (Graphics2D) g.create();
         Color bg = getBackground();
         Color fg = getForeground();
@@ -268,29 +477,36 @@ public abstract class Barcode extends JComponent implements Printable {
         }
 
         int text = 0;
-        if (isDrawingText()) {
+        if (isDrawingText() && BuiltInFont.isBuiltIn(getFont())) {
+            text = (int) Math.ceil(BuiltInFont.getBounds(getLabel(), getFont()).getHeight());
+        } else if (isDrawingText()) {
             FontMetrics fm = g.getFontMetrics();
             Rectangle2D r2d = fm.getStringBounds(getLabel(), g);
             text = (int) Math.ceil(r2d.getHeight());
         }
-        int bh = getHeight() - getInsets().top - getInsets().bottom - text;
+        int bh = height - getInsets().top - getInsets().bottom - text;
+        int bw = barWidth;
 
         {
-            // Scale if necessary
-            Dimension size = calculateSize();
-            if (getWidth() < size.width) {
-                double d = 1.0 * getWidth() / size.width;
-                g.translate(x, y);
-                g.scale(d, d);
-                g.translate(-x, -y);
-
-                bh = (int) Math.round(bh / d);
+            // Narrow the bars to a whole number of pixels that fits, and only
+            // scale if even one pixel bars are too large
+            Dimension size = measure(barWidth, 1);
+            if (width < size.width || height < size.height) {
+                Fit fit = fit(createSizingOutput(), width, height);
+                bw = fit.barWidth;
+                if (fit.scale < 1) {
+                    g.translate(x, y);
+                    g.scale(fit.scale, fit.scale);
+                    g.translate(-x, -y);
+
+                    bh = (int) Math.round(bh / fit.scale);
+                }
             }
         }
 
         Output output = new GraphicsOutput(g, g.getFont(), getForeground(),
                 getBackground());
-        draw(output, x, y, barWidth, bh);
+        draw(output, x, y, bw, bh);
     }
 
     protected String getPureLabel() {
@@ -334,8 +550,10 @@ public abstract class Barcode extends JComponent implements Printable {
      * @see #getLabel()
      */
     public void setLabel(String label) {
-        this.label = label;
-        update();
+        if (label == null ? this.label != null : !label.equals(this.label)) {
+            this.label = label;
+            update();
+        }
     }
 
     protected int calculateMinimumBarHeight(int resolution) {
@@ -349,15 +567,153 @@ public abstract class Barcode extends JComponent implements Printable {
      *            The graphics to paint the component onto
      */
     protected void paintComponent(Graphics g) {
-        Insets insets = getInsets();
         try {
-            draw((Graphics2D) g, insets.left, insets.top);
+            paintCached((Graphics2D) g, 0, 0, getWidth(), getHeight());
         } catch (OutputException e) {
             // Don't draw anything
         }
         super.paintComponent(g);
     }
 
+    /**
+     * Paints the barcode as it would appear in a component of the given size,
+     * with its top left corner at x,&nbsp;y. Screens and images get the cached
+     * image, rendered at the scale of the graphics so that the bars stay sharp
+     * on HiDPI screens. Printers, and graphics that are rotated or sheared,
+     * get the vectors.
+     * 
+     * @param g
+     *            The graphics to paint onto
+     * @param x
+     *            The left of the component
+     * @param y
+     *            The top of the component
+     * @param width
+     *            The width of the component
+     * @param height
+     *            The height of the component
+     * @throws OutputException
+     *             If the barcode could not be drawn
+     */
+    void paintCached(Graphics2D g, int x, int y, int width, int height) throws OutputException {
+        AffineTransform transform = g.getTransform();
+        int type = transform.getType();
+        GraphicsConfiguration config = g.getDeviceConfiguration();
+        if ((type & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_MASK_SCALE)) != 0
+                || transform.getScaleX() <= 0 || transform.getScaleY() <= 0
+                || (config != null && config.getDevice().getType() == GraphicsDevice.TYPE_PRINTER)) {
+            Insets insets = getInsets();
+            draw(g, x + insets.left, y + insets.top, width, height);
+            return;
+        }
+        double scaleX = transform.getScaleX();
+        double scaleY = transform.getScaleY();
+        BufferedImage image = getCachedImage(width, height, scaleX, scaleY);
+        Graphics2D device = (Graphics2D) g.create();
+        try {
+            // One image pixel to each device pixel
+            device.translate(x, y);
+            device.scale(1 / scaleX, 1 / scaleY);
+            device.drawImage(image, 0, 0, null);
+        } finally {
+            device.dispose();
+        }
+    }
+
+    /**
+     * Returns an image of the barcode as it would be painted in a component
+     * of the given size, including the component's insets. The image is
+     * rendered once and reused until the size or any property of the barcode
+     * changes, so repainting a barcode, or showing the same barcode in many
+     * table or list cells of the same size, does not encode and draw it
+     * again. The image is compatible with the screen where possible, so that
+     * Java2D can keep it in video memory.
+     * <p/>
+     * The image is owned by the barcode and must not be modified.
+     * 
+     * @param width
+     *            The width of the component in pixels
+     * @param height
+     *            The height of the component in pixels
+     * @return The image
+     * @throws OutputException
+     *             If the barcode could not be drawn
+     */
+    public BufferedImage getCachedImage(int width, int height) throws OutputException {
+        return getCachedImage(width, height, 1, 1);
+    }
+
+    /**
+     * Returns an image of the barcode as it would be painted in a component
+     * of the given size onto a device with the given scale, such as a HiDPI
+     * screen. The image has one pixel per device pixel, so it is the
+     * component's size times the scale, and is meant to be drawn with the
+     * inverse scale. It is cached like {@link #getCachedImage(int, int)}.
+     * 
+     * @param width
+     *            The width of the component
+     * @param height
+     *            The height of the component
+     * @param scaleX
+     *            The number of device pixels across each unit of width
+     * @param scaleY
+     *            The number of device pixels down each unit of height
+     * @return The image
+     * @throws OutputException
+     *             If the barcode could not be drawn
+     */
+    public BufferedImage getCachedImage(int width, int height, double scaleX, double scaleY)
+            throws OutputException {
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+        Object[] state = getImageState(width, height, scaleX, scaleY);
+        if (cachedImage != null && Arrays.equals(state, cachedImageState)) {
+            return cachedImage;
+        }
+        int imageWidth = Math.max(1, (int) Math.ceil(width * scaleX));
+        int imageHeight = Math.max(1, (int) Math.ceil(height * scaleY));
+        BufferedImage image;
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            image = config.createCompatibleImage(imageWidth, imageHeight, isOpaque() ? Transparency.OPAQUE
+                    : Transparency.TRANSLUCENT);
+        } else {
+            image = new BufferedImage(imageWidth, imageHeight, isOpaque() ? BufferedImage.TYPE_INT_RGB
+                    : BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D g = image.createGraphics();
+        try {
+            g.scale(scaleX, scaleY);
+            if (isOpaque()) {
+                g.setColor(getBackground() == null ? Color.WHITE : getBackground());
+                g.fillRect(0, 0, width, height);
+            }
+            Insets insets = getInsets();
+            draw(g, insets.left, insets.top, width, height);
+        } finally {
+            g.dispose();
+        }
+        cachedImage = image;
+        cachedImageState = state;
+        return image;
+    }
+
+    /**
+     * Returns everything the preferred size depends on. Properties inherited
+     * from JComponent do not go through {@link #update()}, so they are
+     * compared by value.
+     */
+    private Object[] getSizeState() {
+        return new Object[] {Integer.valueOf(version), Integer.valueOf(barWidth), Integer.valueOf(barHeight),
+                getFont(), getForeground(), getBackground()};
+    }
+
+    private Object[] getImageState(int width, int height, double scaleX, double scaleY) {
+        return new Object[] {Integer.valueOf(version), Integer.valueOf(barWidth), Integer.valueOf(barHeight),
+                getFont(), getForeground(), getBackground(), getInsets(), Boolean.valueOf(isOpaque()),
+                Integer.valueOf(width), Integer.valueOf(height), Double.valueOf(scaleX), Double.valueOf(scaleY)};
+    }
+
     // TODO: Move this to the output
     protected int getResolution() {
         if (resolution > 0) {
@@ -391,29 +747,31 @@ public abstract class Barcode extends JComponent implements Printable {
     // }
 
     private Dimension calculateSize() {
-        Dimension d = new Dimension();
-        if (EnvironmentFactory.getEnvironment() instanceof HeadlessEnvironment) {
-            try {
-                d = draw(new SizingOutput(getFont(), getForeground(),
-                        getBackground()), 0, 0, barWidth,
-                        getPreferredBarHeight());
-            } catch (OutputException e) {
-            }
-        } else {
-            try {
-                FontMetrics fontMetrics = null;
-                if (getFont() != null) {
-                    fontMetrics = getFontMetrics(getFont());
-                }
-                d = draw(new SizingOutput(getFont(), fontMetrics,
-                        getForeground(), getBackground()), 0, 0, barWidth,
-                        getPreferredBarHeight());
-            } catch (OutputException e) {
-                // Nothing to do
-            }
+        return calculateSize(barWidth, getPreferredBarHeight());
+    }
+
+    private Dimension calculateSize(int barWidth, int barHeight) {
+        try {
+            return measure(barWidth, barHeight);
+        } catch (OutputException e) {
+            // Nothing to do
+            return new Dimension();
         }
+    }
+
+    private Dimension measure(int barWidth, int barHeight) throws OutputException {
+        return draw(createSizingOutput(), 0, 0, barWidth, barHeight);
+    }
 
-        return d;
+    private Output createSizingOutput() {
+        if (EnvironmentFactory.getEnvironment() instanceof HeadlessEnvironment) {
+            return new SizingOutput(getFont(), getForeground(), getBackground());
+        }
+        FontMetrics fontMetrics = null;
+        if (getFont() != null) {
+            fontMetrics = getFontMetrics(getFont());
+        }
+        return new SizingOutput(getFont(), fontMetrics, getForeground(), getBackground());
     }
 
     public int print(Graphics g, PageFormat pageFormat, int pageIndex)
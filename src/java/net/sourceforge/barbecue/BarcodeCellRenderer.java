@@ -0,0 +1,121 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import net.sourceforge.barbecue.output.OutputException;
+
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.JTable;
+import javax.swing.ListCellRenderer;
+import javax.swing.table.TableCellRenderer;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+
+/**
+ * Renders {@link Barcode} values in JTable and JList cells.
+ * <p/>
+ * Each barcode caches its own image (see
+ * {@link Barcode#getCachedImage(int, int, double, double)}), at the scale of
+ * the screen, so once a row has been painted, repainting it while scrolling
+ * or on selection changes only copies the image. The barcode is centred in
+ * the cell on the cell's background, and values that are not barcodes are
+ * left blank.
+ */
+public class BarcodeCellRenderer extends JComponent implements TableCellRenderer, ListCellRenderer {
+    private Barcode barcode;
+
+    public BarcodeCellRenderer() {
+        setOpaque(true);
+    }
+
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+            boolean hasFocus, int row, int column) {
+        setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+        barcode = value instanceof Barcode ? (Barcode) value : null;
+        return this;
+    }
+
+    public Component getListCellRendererComponent(JList list, Object value, int index, boolean isSelected,
+            boolean cellHasFocus) {
+        setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+        barcode = value instanceof Barcode ? (Barcode) value : null;
+        return this;
+    }
+
+    /**
+     * Returns the barcode being rendered.
+     * 
+     * @return The barcode of the current cell, or null if it has none
+     */
+    public Barcode getBarcode() {
+        return barcode;
+    }
+
+    protected void paintComponent(Graphics g) {
+        Color background = getBackground();
+        if (background != null) {
+            g.setColor(background);
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        if (barcode == null) {
+            return;
+        }
+        try {
+            int width = Math.min(getWidth(), barcode.getPreferredSize().width);
+            barcode.paintCached((Graphics2D) g, (getWidth() - width) / 2, 0, width, getHeight());
+        } catch (OutputException e) {
+            // Leave the cell blank
+        }
+    }
+
+    /**
+     * Overridden for performance, as in DefaultTableCellRenderer.
+     */
+    public void invalidate() {
+    }
+
+    /**
+     * Overridden for performance, as in DefaultTableCellRenderer.
+     */
+    public void validate() {
+    }
+
+    /**
+     * Overridden for performance, as in DefaultTableCellRenderer.
+     */
+    public void revalidate() {
+    }
+
+    /**
+     * Overridden for performance, as in DefaultTableCellRenderer.
+     */
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+}
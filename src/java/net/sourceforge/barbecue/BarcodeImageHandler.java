@@ -31,7 +31,14 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.util.*;
+import net.sourceforge.barbecue.image.BMPWriter;
+import net.sourceforge.barbecue.image.GIFWriter;
+import net.sourceforge.barbecue.image.PNMWriter;
+import net.sourceforge.barbecue.output.Bitmap;
+import net.sourceforge.barbecue.output.BitmapOutput;
 import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.output.PixelTarget;
+import net.sourceforge.barbecue.output.RasterOutput;
 
 /**
  * Utility class to provide convenience methods for converting barcodes to
@@ -48,6 +55,7 @@ import net.sourceforge.barbecue.output.OutputException;
 public final class BarcodeImageHandler {
 
     private static Set formats;
+    private static Set bitmapFormats;
 
     static {
         Set<String> s = new HashSet<String>();
@@ -55,12 +63,29 @@ public final class BarcodeImageHandler {
         s.add("jpeg");
         s.add("png");
         formats = Collections.unmodifiableSet(s);
+
+        s = new HashSet<String>();
+        s.add("bmp");
+        s.add("gif");
+        s.add("pbm");
+        s.add("pgm");
+        bitmapFormats = Collections.unmodifiableSet(s);
     }
 
     static public Set getImageFormats() {
         return formats;
     }
 
+    /**
+     * Returns the formats that {@link #writeBitmap(Barcode, String, OutputStream)}
+     * can write.
+     * 
+     * @return The bitmap format names
+     */
+    static public Set getBitmapFormats() {
+        return bitmapFormats;
+    }
+
     private BarcodeImageHandler() {
     }
 
@@ -74,7 +99,7 @@ public final class BarcodeImageHandler {
      */
     public static BufferedImage getImage(Barcode barcode)
             throws OutputException {
-        Dimension size = barcode.getPreferredSize();
+        Dimension size = barcode.getCheckedPreferredSize();
         BufferedImage bi = new BufferedImage((int) size.getWidth(), (int) size
                 .getHeight(), BufferedImage.TYPE_BYTE_GRAY);
         Graphics2D g = bi.createGraphics();
@@ -87,6 +112,203 @@ public final class BarcodeImageHandler {
         return bi;
     }
 
+    /**
+     * Renders a barcode into a one bit per pixel bitmap, without going through
+     * Java2D for anything but the text.
+     * 
+     * @param barcode
+     *            The barcode to render
+     * @return The bitmap
+     */
+    public static Bitmap getBitmap(Barcode barcode) throws OutputException {
+        return getBitmap(barcode, 0, false);
+    }
+
+    /**
+     * Renders a barcode into a one bit per pixel bitmap, rotated clockwise by
+     * the given angle. The bars are written into the rotated bitmap directly,
+     * so the edges are as sharp as in an unrotated one.
+     * 
+     * @param barcode
+     *            The barcode to render
+     * @param rotation
+     *            0, 90, 180 or 270 degrees
+     * @return The bitmap
+     */
+    public static Bitmap getBitmap(Barcode barcode, int rotation) throws OutputException {
+        return getBitmap(barcode, rotation, false);
+    }
+
+    private static Bitmap getBitmap(Barcode barcode, int rotation, boolean reusingBuffer) throws OutputException {
+        BitmapOutput output = new BitmapOutput(barcode.isDrawingText() ? barcode.getFont() : null, 1);
+        output.setRotation(rotation);
+        output.setReusingBuffer(reusingBuffer);
+        barcode.output(output);
+        return output.getBitmap();
+    }
+
+    /**
+     * Draws a barcode directly into the given pixels, with no intermediate
+     * image. The barcode is drawn at its preferred size from the top left
+     * corner of the target and clipped to it.
+     * 
+     * @param barcode
+     *            The barcode to draw
+     * @param target
+     *            The pixels to draw into, see the <code>wrap</code> methods
+     *            of {@link PixelTarget}
+     */
+    public static void draw(Barcode barcode, PixelTarget target) throws OutputException {
+        barcode.output(new RasterOutput(target, barcode.isDrawingText() ? barcode.getFont() : null, 1));
+    }
+
+    /**
+     * Draws a barcode directly into a region of an existing image, such as a
+     * label being composed, in the barcode's foreground and background
+     * colours. The region is the barcode's preferred size, clipped to the
+     * image.
+     * 
+     * @param barcode
+     *            The barcode to draw
+     * @param image
+     *            The image to draw into
+     * @param x
+     *            The x coordinate of the barcode in the image
+     * @param y
+     *            The y coordinate of the barcode in the image
+     */
+    public static void drawImage(Barcode barcode, BufferedImage image, int x, int y) throws OutputException {
+        drawImage(barcode, image, x, y, 0);
+    }
+
+    /**
+     * Draws a barcode, rotated clockwise by the given angle, directly into a
+     * region of an existing image. With a rotation of 90 or 270 degrees the
+     * region is the barcode's preferred size turned on its side, and the
+     * bars are written as rows of the image with no intermediate image and
+     * no resampling. A rotated barcode must fit in the image; an unrotated
+     * one is clipped to it.
+     * 
+     * @param barcode
+     *            The barcode to draw
+     * @param image
+     *            The image to draw into
+     * @param x
+     *            The x coordinate of the rotated barcode in the image
+     * @param y
+     *            The y coordinate of the rotated barcode in the image
+     * @param rotation
+     *            0, 90, 180 or 270 degrees
+     */
+    public static void drawImage(Barcode barcode, BufferedImage image, int x, int y, int rotation)
+            throws OutputException {
+        Dimension size = rotate(barcode.getCheckedPreferredSize(), rotation);
+        if (rotation % 360 == 0) {
+            size.width = Math.min(size.width, image.getWidth() - x);
+            size.height = Math.min(size.height, image.getHeight() - y);
+            if (size.width <= 0 || size.height <= 0) {
+                return;
+            }
+        } else if (x + size.width > image.getWidth() || y + size.height > image.getHeight()) {
+            // Clipping the far edge would move the origin of a rotated barcode
+            throw new IllegalArgumentException("The rotated barcode does not fit in the image at " + x + "," + y);
+        }
+        Color fg = barcode.getForeground() == null ? Color.BLACK : barcode.getForeground();
+        Color bg = barcode.getBackground() == null ? Color.WHITE : barcode.getBackground();
+        draw(barcode, PixelTarget.wrap(image, x, y, size.width, size.height, fg, bg).rotate(rotation));
+    }
+
+    /**
+     * Creates a gray image of a barcode rotated clockwise by the given angle,
+     * drawn without Graphics2D transforms so the bar edges stay sharp.
+     * 
+     * @param barcode
+     *            The barcode to convert into an image
+     * @param rotation
+     *            0, 90, 180 or 270 degrees
+     * @return The image
+     */
+    public static BufferedImage getImage(Barcode barcode, int rotation) throws OutputException {
+        Dimension size = rotate(barcode.getCheckedPreferredSize(), rotation);
+        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_BYTE_GRAY);
+        drawImage(barcode, image, 0, 0, rotation);
+        return image;
+    }
+
+    private static Dimension rotate(Dimension size, int rotation) {
+        if (rotation % 180 == 0) {
+            return new Dimension(size);
+        }
+        return new Dimension(size.height, size.width);
+    }
+
+    /**
+     * Writes a black and white image of a barcode straight from its bitmap,
+     * bypassing ImageIO. This is much faster than writing the same format
+     * through {@link #saveImage(Barcode, String, File)} for the small images
+     * barcodes make.
+     * 
+     * @param barcode
+     *            The barcode to output
+     * @param format
+     *            One of the names returned by {@link #getBitmapFormats()}
+     * @param os
+     *            The output stream to write the image to
+     * @throws OutputException
+     *             If the barcode could not be rendered
+     */
+    public static void writeBitmap(Barcode barcode, String format, OutputStream os)
+            throws IOException, OutputException {
+        writeBitmap(barcode, format, 0, os);
+    }
+
+    /**
+     * Writes a black and white image of a barcode rotated clockwise by the
+     * given angle, see {@link #getBitmap(Barcode, int)}.
+     * 
+     * @param barcode
+     *            The barcode to output
+     * @param format
+     *            One of the names returned by {@link #getBitmapFormats()}
+     * @param rotation
+     *            0, 90, 180 or 270 degrees
+     * @param os
+     *            The output stream to write the image to
+     * @throws OutputException
+     *             If the barcode could not be rendered
+     */
+    public static void writeBitmap(Barcode barcode, String format, int rotation, OutputStream os)
+            throws IOException, OutputException {
+        if (!bitmapFormats.contains(format)) {
+            throw new IllegalArgumentException("Unsupported bitmap format: " + format);
+        }
+        // The bitmap is written out before this thread draws another one
+        Bitmap bitmap = getBitmap(barcode, rotation, true);
+        byte[] bits = bitmap.getBits();
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int stride = bitmap.getStride();
+        if (format.equals("pbm")) {
+            PNMWriter.writePBM(bits, width, height, stride, os);
+        } else if (format.equals("pgm")) {
+            PNMWriter.writePGM(bits, width, height, stride, os);
+        } else if (format.equals("bmp")) {
+            BMPWriter.write(bits, width, height, stride, barcode.getResolution(), os);
+        } else {
+            GIFWriter.write(bits, width, height, stride, os);
+        }
+    }
+
+    public static void saveBitmap(Barcode barcode, String format, File f)
+            throws IOException, OutputException {
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(f));
+        try {
+            writeBitmap(barcode, format, os);
+        } finally {
+            os.close();
+        }
+    }
+
     /**
      * write a JPEG image to an OutputStream
      * 
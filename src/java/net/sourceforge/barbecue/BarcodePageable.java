@@ -0,0 +1,317 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import net.sourceforge.barbecue.output.GraphicsOutput;
+import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.output.RecordingOutput;
+import net.sourceforge.barbecue.output.SheetLayout;
+import net.sourceforge.barbecue.output.SizingOutput;
+
+import javax.print.DocFlavor;
+import javax.print.PrintException;
+import javax.print.PrintService;
+import javax.print.SimpleDoc;
+import javax.print.StreamPrintService;
+import javax.print.StreamPrintServiceFactory;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.print.PageFormat;
+import java.awt.print.Pageable;
+import java.awt.print.Paper;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Prints a run of barcodes onto sheets of labels, one barcode per cell of a
+ * {@link SheetLayout} measured in points. Barcodes are taken from their source
+ * one page at a time as the printing system asks for pages, so a run of any
+ * length can be printed from an iterator without holding it all in memory.
+ * <p/>
+ * A pageable over a list can print any page any number of times. One over an
+ * iterator only keeps the last couple of pages, so it prints a single copy:
+ * when a printer cannot collate copies itself, the printing system prints
+ * each copy by starting again from the first page, which fails with a
+ * <code>PrinterException</code>. Print several copies from a list, or print
+ * from the iterator once per copy.
+ * <p/>
+ * Each barcode is drawn at the resolution of the printer: the bar width is
+ * the largest whole number of device pixels for which the barcode fits its
+ * cell, the bars fill the height of the cell and the barcode is centred in
+ * it. The barcodes themselves are not modified.
+ * <p/>
+ * The pages can be sent to any {@link PrintService}, or spooled to a
+ * PostScript file without a printer. For PDF, draw the barcodes to a
+ * {@link net.sourceforge.barbecue.output.PDFOutput} with the same sheet
+ * layout.
+ */
+public class BarcodePageable implements Pageable, Printable {
+    // Printing systems may ask for the current page more than once, and for
+    // the previous one while they finish it off
+    private static final int RETAINED_PAGES = 2;
+
+    private final List<? extends Barcode> list;
+    private final Iterator<? extends Barcode> barcodes;
+    private final SheetLayout sheet;
+    private final PageFormat pageFormat;
+    private final int numberOfPages;
+    private final List<Barcode[]> pages = new ArrayList<Barcode[]>();
+    private int firstPage;
+
+    /**
+     * Creates a pageable for a list of barcodes, the number of pages of which
+     * is known in advance.
+     * 
+     * @param barcodes
+     *            The barcodes to print, in order
+     * @param sheet
+     *            The label stock, in points
+     */
+    public BarcodePageable(List<? extends Barcode> barcodes, SheetLayout sheet) {
+        this(barcodes, null, sheet, (barcodes.size() + sheet.getCellsPerPage() - 1) / sheet.getCellsPerPage());
+    }
+
+    /**
+     * Creates a pageable for a stream of barcodes. The number of pages is
+     * unknown, so printing goes on until the iterator is exhausted. Each
+     * barcode is taken from the iterator when its page is first printed, and
+     * a pageable over an iterator can only be printed once, as a single copy.
+     * 
+     * @param barcodes
+     *            The barcodes to print, in order
+     * @param sheet
+     *            The label stock, in points
+     */
+    public BarcodePageable(Iterator<? extends Barcode> barcodes, SheetLayout sheet) {
+        this(null, barcodes, sheet, UNKNOWN_NUMBER_OF_PAGES);
+    }
+
+    private BarcodePageable(List<? extends Barcode> list, Iterator<? extends Barcode> barcodes, SheetLayout sheet,
+            int numberOfPages) {
+        this.list = list;
+        this.barcodes = barcodes;
+        this.sheet = sheet;
+        this.numberOfPages = numberOfPages;
+        Paper paper = new Paper();
+        paper.setSize(sheet.getPageWidth(), sheet.getPageHeight());
+        paper.setImageableArea(0, 0, sheet.getPageWidth(), sheet.getPageHeight());
+        pageFormat = new PageFormat();
+        pageFormat.setPaper(paper);
+    }
+
+    public SheetLayout getSheetLayout() {
+        return sheet;
+    }
+
+    /**
+     * From {@link Pageable}.
+     * 
+     * @return The number of pages, or {@link Pageable#UNKNOWN_NUMBER_OF_PAGES}
+     *         when printing from an iterator
+     */
+    public int getNumberOfPages() {
+        return numberOfPages;
+    }
+
+    /**
+     * From {@link Pageable}.
+     * 
+     * @param pageIndex
+     *            The page
+     * @return The page size of the sheet, with the whole page imageable
+     */
+    public PageFormat getPageFormat(int pageIndex) {
+        checkPageIndex(pageIndex);
+        return pageFormat;
+    }
+
+    /**
+     * From {@link Pageable}.
+     * 
+     * @param pageIndex
+     *            The page
+     * @return This pageable, which prints all of the pages
+     */
+    public Printable getPrintable(int pageIndex) {
+        checkPageIndex(pageIndex);
+        return this;
+    }
+
+    /**
+     * From {@link Printable} - draws the barcodes of one page.
+     * 
+     * @param g
+     *            The graphics of the page, in points
+     * @param format
+     *            The format of the page
+     * @param pageIndex
+     *            The page
+     * @return {@link Printable#PAGE_EXISTS}, or {@link Printable#NO_SUCH_PAGE}
+     *         once the barcodes have run out
+     * @throws PrinterException
+     *             If a barcode cannot be drawn, or the printing system asks
+     *             again for a page of an iterator that has been discarded,
+     *             such as to print a second copy
+     */
+    public int print(Graphics g, PageFormat format, int pageIndex) throws PrinterException {
+        Barcode[] page = getPage(pageIndex);
+        if (page == null) {
+            return NO_SUCH_PAGE;
+        }
+        Graphics2D g2 = (Graphics2D) g;
+        double pixelsPerPoint = getPixelsPerPoint(g2.getTransform());
+        for (int cell = 0; cell < page.length; cell++) {
+            Graphics2D cellGraphics = (Graphics2D) g2.create();
+            try {
+                cellGraphics.translate(sheet.getCellX(cell), sheet.getCellY(cell));
+                cellGraphics.scale(1 / pixelsPerPoint, 1 / pixelsPerPoint);
+                drawCell(page[cell], cellGraphics, (int) Math.floor(sheet.getCellWidth() * pixelsPerPoint),
+                        (int) Math.floor(sheet.getCellHeight() * pixelsPerPoint), pixelsPerPoint);
+            } catch (OutputException e) {
+                throw new PrinterException(e.getMessage());
+            } finally {
+                cellGraphics.dispose();
+            }
+        }
+        return PAGE_EXISTS;
+    }
+
+    /**
+     * Prints the pages on the given print service.
+     * 
+     * @param service
+     *            The printer
+     * @throws PrintException
+     *             If the pages could not be printed
+     */
+    public void print(PrintService service) throws PrintException {
+        service.createPrintJob().print(new SimpleDoc(this, DocFlavor.SERVICE_FORMATTED.PAGEABLE, null), null);
+    }
+
+    /**
+     * Spools the pages to a PostScript document, which can be sent to a
+     * printer later or checked without one.
+     * 
+     * @param out
+     *            The stream to write the document to; it is not closed
+     * @throws PrintException
+     *             If the pages could not be spooled, or this platform has no
+     *             PostScript spooler
+     */
+    public void writePostScript(OutputStream out) throws PrintException {
+        StreamPrintServiceFactory[] factories = StreamPrintServiceFactory.lookupStreamPrintServiceFactories(
+                DocFlavor.SERVICE_FORMATTED.PAGEABLE, DocFlavor.BYTE_ARRAY.POSTSCRIPT.getMimeType());
+        if (factories.length == 0) {
+            throw new PrintException("No PostScript spooler is available");
+        }
+        StreamPrintService service = factories[0].getPrintService(out);
+        try {
+            print(service);
+        } finally {
+            service.dispose();
+        }
+    }
+
+    private void drawCell(Barcode barcode, Graphics2D g, int width, int height, double pixelsPerPoint)
+            throws OutputException {
+        Font font = barcode.getFont();
+        if (font != null) {
+            // Text sizes are taken to be in points, like the page
+            font = font.deriveFont((float) (font.getSize2D() * pixelsPerPoint));
+        }
+        FontMetrics fontMetrics = font == null ? null : g.getFontMetrics(font);
+        Barcode.Fit fit = barcode.fit(new SizingOutput(font, fontMetrics, barcode.getForeground(),
+                barcode.getBackground()), width, height);
+        RecordingOutput recording = new RecordingOutput(font, g.getFontRenderContext());
+        barcode.draw(recording, 0, 0, fit.barWidth, Math.max(1, fit.barHeight));
+
+        g.clipRect(0, 0, width, height);
+        if (fit.scale < 1) {
+            // Too large even with one pixel bars, so shrink it rather than clip it
+            g.scale(fit.scale, fit.scale);
+            width = (int) Math.floor(width / fit.scale);
+            height = (int) Math.floor(height / fit.scale);
+        }
+        g.translate((width - recording.getWidth()) / 2, (height - recording.getHeight()) / 2);
+        recording.replay(new GraphicsOutput(g, font, barcode.getForeground(), barcode.getBackground()));
+    }
+
+    private synchronized Barcode[] getPage(int pageIndex) throws PrinterException {
+        if (list != null) {
+            int from = pageIndex * sheet.getCellsPerPage();
+            if (from >= list.size()) {
+                return null;
+            }
+            List<? extends Barcode> page = list.subList(from, Math.min(list.size(), from + sheet.getCellsPerPage()));
+            return page.toArray(new Barcode[page.size()]);
+        }
+        if (pageIndex < firstPage) {
+            throw new PrinterException("Page " + pageIndex + " has already been printed from the iterator;"
+                    + " print copies from a list, or one copy at a time");
+        }
+        while (firstPage + pages.size() <= pageIndex) {
+            Barcode[] page = nextPage();
+            if (page == null) {
+                return null;
+            }
+            pages.add(page);
+        }
+        while (pageIndex - firstPage >= RETAINED_PAGES) {
+            pages.remove(0);
+            firstPage++;
+        }
+        return pages.get(pageIndex - firstPage);
+    }
+
+    private Barcode[] nextPage() {
+        List<Barcode> page = new ArrayList<Barcode>(sheet.getCellsPerPage());
+        while (page.size() < sheet.getCellsPerPage() && barcodes.hasNext()) {
+            page.add(barcodes.next());
+        }
+        return page.isEmpty() ? null : page.toArray(new Barcode[page.size()]);
+    }
+
+    private void checkPageIndex(int pageIndex) {
+        if (pageIndex < 0 || (numberOfPages != UNKNOWN_NUMBER_OF_PAGES && pageIndex >= numberOfPages)) {
+            throw new IndexOutOfBoundsException("No such page: " + pageIndex);
+        }
+    }
+
+    private static double getPixelsPerPoint(AffineTransform transform) {
+        double scale = Math.sqrt(Math.abs(transform.getDeterminant()));
+        // Devices coarser than a point, and graphics that have no resolution
+        // of their own, get whole points
+        return scale < 1 ? 1 : scale;
+    }
+}
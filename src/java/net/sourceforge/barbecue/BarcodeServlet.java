@@ -29,13 +29,17 @@ package net.sourceforge.barbecue;
 import net.sourceforge.barbecue.env.*;
 import net.sourceforge.barbecue.linear.code39.Code39Barcode;
 import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.pack.BarcodePack;
+import net.sourceforge.barbecue.pack.BarcodePackWriter;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 
@@ -52,11 +56,19 @@ import java.lang.reflect.InvocationTargetException;
  * <li>height, optional, in pixels
  * <li>resolution, optional, in dpi
  * <li>headless, optional, set to "false" to force non-headless mode for the servlet - default is "true"
- * <li>drawText, optional and only takes effect if headless is "false", set to "false" for no text
+ * <li>drawText, optional, set to "true" to draw the human readable text - default is "false". In headless
+ * mode the text is drawn in the built-in bitmap font
  * </ol>
  *
  * <p>Example URL: <code>http://hostname:80/myapp/BarcodeServlet?data=12345&amp;type=Code128A</code>
  * </p>
+ *
+ * <p>If the servlet is given a <code>pack</code> init parameter naming a pack file built with
+ * {@link net.sourceforge.barbecue.pack.BarcodePackWriter}, requests that ask for the pack's barcode type
+ * with no width, height, resolution, text, checksum or application ID options, and not asking for
+ * non-headless mode, are served directly from the pack without rendering, since those options change the
+ * image or the data encoded and packs are always rendered headless.
+ * Data that is not in the pack is rendered as usual.</p>
  * 
  * <p>Contributed by Robert Chou &lt;rchou at users.sourceforge.net&gt;</p>
  *
@@ -66,6 +78,39 @@ import java.lang.reflect.InvocationTargetException;
  * 
  */
 public class BarcodeServlet extends HttpServlet {
+	private static final String DEFAULT_TYPE = "Code128B";
+
+	private BarcodePack pack;
+
+	/**
+	 * From GenericServlet. Opens the pre-rendered barcode pack if one is configured.
+	 * @throws ServletException If the configured pack cannot be opened
+	 */
+	public void init() throws ServletException {
+		String packFile = getInitParameter("pack");
+		if (packFile != null) {
+			try {
+				pack = new BarcodePack(new File(packFile));
+			} catch (IOException e) {
+				throw new ServletException("Could not open barcode pack " + packFile, e);
+			}
+		}
+	}
+
+	/**
+	 * From GenericServlet. Closes the pre-rendered barcode pack.
+	 */
+	public void destroy() {
+		if (pack != null) {
+			try {
+				pack.close();
+			} catch (IOException e) {
+				// Nothing to do
+			}
+			pack = null;
+		}
+	}
+
 	/**
 	 * From HttpServlet.
 	 * @return The literal string 'barbecue'
@@ -103,12 +148,25 @@ public class BarcodeServlet extends HttpServlet {
 		Integer resolution = getParameterAsInteger(req, "resolution");
 		boolean checksum = getParameterAsBoolean(req, "checksum", false);
 		boolean headless = getParameterAsBoolean(req, "headless", true);
-		boolean drawText = false;
+		boolean drawText = getParameterAsBoolean(req, "drawText", false);
 
 		if (headless) {
 			EnvironmentFactory.setHeadlessMode();
-		} else {
-			drawText = getParameterAsBoolean(req, "drawText", false);
+		}
+
+		if (pack != null && width == null && height == null && resolution == null && !drawText
+				&& !checksum && appId == null && headless
+				&& isType(type == null || type.length() == 0 ? DEFAULT_TYPE : type,
+						  new String[] {pack.getProperty(BarcodePackWriter.BARCODE_TYPE)})) {
+			try {
+				BarcodePack.Entry entry = pack.find(data);
+				if (entry != null) {
+					outputPackedImage(res, entry);
+					return;
+				}
+			} catch (IOException e) {
+				throw new ServletException("Could not output barcode", e);
+			}
 		}
 
 		Barcode barcode = getBarcode(type, data, appId, checksum);
@@ -237,6 +295,15 @@ public class BarcodeServlet extends HttpServlet {
 		return method.getName().startsWith("create") && method.getName().substring(6).equalsIgnoreCase(type);
 	}
 
+	private void outputPackedImage(HttpServletResponse res, BarcodePack.Entry entry) throws IOException {
+		res.setContentType(pack.getContentType());
+		res.setContentLength(entry.getLength());
+		ServletOutputStream out = res.getOutputStream();
+		pack.transferTo(entry, Channels.newChannel(out));
+		out.flush();
+		out.close();
+	}
+
 	private void outputBarcodeImage(HttpServletResponse res, Barcode barcode) throws IOException, OutputException {
 		res.setContentType("image/png");
 		ServletOutputStream out = res.getOutputStream();
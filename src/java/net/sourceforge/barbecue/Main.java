@@ -2,8 +2,9 @@
 package net.sourceforge.barbecue;
 
 import net.sourceforge.barbecue.env.DefaultEnvironment;
-import net.sourceforge.barbecue.output.SVGOutput;
+import net.sourceforge.barbecue.output.StreamingSVGOutput;
 import net.sourceforge.barbecue.output.EPSOutput;
+import net.sourceforge.barbecue.output.PDFOutput;
 
 import java.io.OutputStream;
 import java.io.FileOutputStream;
@@ -24,10 +25,23 @@ import java.io.OutputStreamWriter;
 		 </ul>
 	<li> -E. Write the output as Encapsulated Postscript (EPS). The default
 	output format is a PNG image.
+	<li> -P. Write the output as a PDF document.
 	<li> -label label_file. Write the human readable text output to the specified file.
 	This is useful for situations where barbecue calculates a check digit.
 	</ul>
 
+	<h2>Worker Mode</h2>
+	Barbecue can run as a worker that renders jobs from a spool directory shared by
+	any number of workers (see {@link SpoolWorker} for the job file format).
+	<ul>
+	<li> -spool directory. Claim jobs from the specified directory.
+	<li> -outdir directory. Write the rendered barcodes to the specified directory.
+	<li> -poll milliseconds. Keep polling the spool at this interval instead of
+	exiting once it is empty.
+	<li> -lease seconds. Recover jobs claimed by workers that have not touched their
+	lease for this long. Defaults to 300.
+	</ul>
+
 	<h2>EAN 128 Parsing</h2>
 	Barbecue will parse barcode data if the encoding is specified as ean128. The
 	application identifiers should be enclosed in round brackets. For example:<br>
@@ -37,6 +51,7 @@ import java.io.OutputStreamWriter;
 
 	<h2>Examples</h2>
 	<pre>java -jar barbecue.jar -e ean128 -b "(01)0941919600001(10)012004(21)000001" -E -o test.eps<pre>
+	<pre>java -jar barbecue.jar -spool /shared/spool -outdir /shared/out -poll 1000<pre>
 */
 public class Main
 {
@@ -46,8 +61,13 @@ public class Main
 		String encoding = null;
 		String outfile = null;
 		String label_outfile = null;
+		String spool_dir = null;
+		String output_dir = null;
+		long poll_interval = 0;
+		long lease_timeout = SpoolWorker.DEFAULT_LEASE_TIMEOUT;
 
 		boolean output_EPS = false;;
+		boolean output_PDF = false;
 
 		if (args.length == 0)
 		{
@@ -67,8 +87,24 @@ public class Main
 				outfile = args[i++];
 			if (command.equals("-E"))
 				output_EPS = true;
+			if (command.equals("-P"))
+				output_PDF = true;
 			if (command.equals("-label"))
 				label_outfile = args[i++];
+			if (command.equals("-spool"))
+				spool_dir = args[i++];
+			if (command.equals("-outdir"))
+				output_dir = args[i++];
+			if (command.equals("-poll"))
+				poll_interval = Long.parseLong(args[i++]);
+			if (command.equals("-lease"))
+				lease_timeout = Long.parseLong(args[i++]) * 1000;
+		}
+
+		if (null != spool_dir)
+		{
+			runWorker(spool_dir, output_dir, poll_interval, lease_timeout);
+			return;
 		}
 
 		if (null == barcode_text)
@@ -81,33 +117,13 @@ public class Main
 		{
 			Barcode barcode = null;
 
-			if (encoding.equals("ean128"))
-			{
-				barcode = BarcodeFactory.parseEAN128(barcode_text);
-			}
-			else if (encoding.equals("code128"))
-			{
-				barcode = BarcodeFactory.createCode128(barcode_text);
-			}
-			else if (encoding.equals("upca"))
-			{
-				barcode = BarcodeFactory.createUPCA(barcode_text);
-			}
-			else if (encoding.equals("codabar"))
-			{
-				barcode = BarcodeFactory.createCodabar(barcode_text);
-			}
-			else if (encoding.equals("ean13"))
-			{
-				barcode = BarcodeFactory.createEAN13(barcode_text);
-			}
-			else
+			try
 			{
-				System.err.println("Unknown encoding: " + encoding);
+				barcode = createBarcode(encoding, barcode_text);
 			}
-
-			if (null == barcode)
+			catch (BarcodeException e)
 			{
+				System.err.println(e.getMessage());
 				return;
 			}
 
@@ -125,6 +141,10 @@ public class Main
 			{
 				outputEPS(barcode, fos);
 			}
+			else if (output_PDF)
+			{
+				outputPDF(barcode, fos);
+			}
 			else
 			{
 				outputPNG(barcode, fos);
@@ -144,16 +164,83 @@ public class Main
 		}
 	}
 
+	/**
+	 * Creates a barcode for one of the encodings accepted by the -e option.
+	 * @param encoding The encoding name
+	 * @param data The data to encode
+	 * @return The barcode
+	 * @throws BarcodeException If the encoding is unknown or the data is invalid
+	 */
+	public static Barcode createBarcode(String encoding, String data) throws BarcodeException
+	{
+		if ("ean128".equals(encoding))
+		{
+			return BarcodeFactory.parseEAN128(data);
+		}
+		else if ("code128".equals(encoding))
+		{
+			return BarcodeFactory.createCode128(data);
+		}
+		else if ("upca".equals(encoding))
+		{
+			return BarcodeFactory.createUPCA(data);
+		}
+		else if ("codabar".equals(encoding))
+		{
+			return BarcodeFactory.createCodabar(data);
+		}
+		else if ("ean13".equals(encoding))
+		{
+			return BarcodeFactory.createEAN13(data);
+		}
+		throw new BarcodeException("Unknown encoding: " + encoding);
+	}
+
+	public static void runWorker(String spool_dir, String output_dir, long poll_interval, long lease_timeout)
+	{
+		if (null == output_dir)
+		{
+			System.err.println("An output directory must be specified with the -outdir option");
+			Usage();
+			return;
+		}
+
+		SpoolWorker worker = new SpoolWorker(new java.io.File(spool_dir), new java.io.File(output_dir));
+		worker.setLeaseTimeout(lease_timeout);
+
+		if (poll_interval > 0)
+		{
+			try
+			{
+				worker.run(poll_interval);
+			}
+			catch (InterruptedException e)
+			{
+				// Shutting down
+			}
+		}
+		else
+		{
+			int rendered = worker.drain();
+			System.err.println("Worker " + worker.getWorkerId() + " rendered " + rendered + " jobs");
+		}
+	}
+
 	public static void Usage()
 	{
 		System.err.println("Barbecue Barcode generator");
 		System.err.println("Usage:");
-		System.err.println("java -jar barbecue.jar -b <barcode text> -e <encoding> -o <outfile> {-E}");
+		System.err.println("java -jar barbecue.jar -b <barcode text> -e <encoding> -o <outfile> {-E|-P}");
 		System.err.println("\tAvailable Encodings are:");
 		System.err.println("\t\t \"ean128\"");
 		System.err.println("\t-E: Write output as EPS.");
+		System.err.println("\t-P: Write output as PDF.");
 		System.err.println("\t-label <filename>: Write human readable (including check digit) text to the file.");
 		System.err.println("\t-o <filename>: Write the barcode image to the file.");
+		System.err.println("Worker mode:");
+		System.err.println("java -jar barbecue.jar -spool <spool dir> -outdir <output dir> {-poll <ms>} {-lease <seconds>}");
+		System.err.println("\t-poll <ms>: Keep polling the spool instead of exiting when it is empty.");
+		System.err.println("\t-lease <seconds>: Recover jobs from workers that have been silent this long.");
 		System.err.println("Example:\n\tjava -jar barbecue.jar -E -e ean128 -o test.eps\\ \n\t\t-label test_label.txt  -b \"(01)0941919600001(10)012004(21)000123\"");
 	}
 
@@ -175,7 +262,7 @@ public class Main
 		{
 			// We need an output stream to write the image to...
 			OutputStreamWriter osw = new OutputStreamWriter(fos);
-			SVGOutput svg_out = new SVGOutput(osw, DefaultEnvironment.DEFAULT_FONT, java.awt.Color.black, java.awt.Color.white, 1, "in");
+			StreamingSVGOutput svg_out = new StreamingSVGOutput(osw, DefaultEnvironment.DEFAULT_FONT, java.awt.Color.black, java.awt.Color.white, 1, "in");
 
 			barcode.output(svg_out);
 		}
@@ -200,4 +287,18 @@ public class Main
 			e.printStackTrace();
 		}
 	}
+
+	public static void outputPDF(Barcode barcode, OutputStream fos)
+	{
+		try
+		{
+			PDFOutput pdf_out = new PDFOutput(fos);
+			barcode.output(pdf_out);
+			pdf_out.endDocument();
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+	}
 }
@@ -0,0 +1,141 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import net.sourceforge.barbecue.image.PNGWriter;
+import net.sourceforge.barbecue.output.Bitmap;
+import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.output.PixelTarget;
+import net.sourceforge.barbecue.output.RasterOutput;
+import net.sourceforge.barbecue.output.RecordingOutput;
+import net.sourceforge.barbecue.output.SheetLayout;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Rasterizes a sheet of barcodes, laid out in the cells of a
+ * {@link SheetLayout} measured in pixels, straight into a PNG file. The
+ * sheet is drawn one band at a time, each band holding one row of cells,
+ * and each band is handed to a {@link PNGWriter} as soon as it is drawn, so
+ * only a band's worth of pixels (and the few bands still being compressed)
+ * is ever held in memory. An A3 sheet at 600 DPI is over 8 MB even as one
+ * bit pixels, and hundreds of megabytes as a <code>BufferedImage</code>.
+ * <p/>
+ * Each barcode is drawn at its own bar width and height, centred in its
+ * cell and clipped to it.
+ */
+public class SheetRasterizer {
+    private final SheetLayout sheet;
+    private final Font font;
+
+    /**
+     * Creates a new sheet rasterizer.
+     * 
+     * @param sheet
+     *            The layout of the sheet, in pixels
+     * @param font
+     *            The font for the barcodes' text, or null for no text
+     */
+    public SheetRasterizer(SheetLayout sheet, Font font) {
+        this.sheet = sheet;
+        this.font = font;
+    }
+
+    public SheetLayout getSheetLayout() {
+        return sheet;
+    }
+
+    /**
+     * Draws one sheet of barcodes and writes it as a PNG file. Cells left
+     * over when the barcodes run out are blank; barcodes beyond the last
+     * cell are left in the iterator.
+     * 
+     * @param barcodes
+     *            The barcodes to draw, in cell order
+     * @param resolution
+     *            The resolution of the sheet in dots per inch, recorded in
+     *            the file, or zero
+     * @param out
+     *            The stream to write the file to; it is not closed
+     * @param executor
+     *            The executor to compress bands on, or null to compress
+     *            them on the calling thread
+     * @return The number of barcodes drawn
+     * @throws OutputException
+     *             If a barcode could not be drawn
+     * @throws IOException
+     *             If the file could not be written
+     */
+    public int writePNG(Iterator<? extends Barcode> barcodes, int resolution, OutputStream out,
+            ExecutorService executor) throws OutputException, IOException {
+        int width = (int) Math.ceil(sheet.getPageWidth());
+        int height = (int) Math.ceil(sheet.getPageHeight());
+        int stride = (width + 7) >> 3;
+        PNGWriter writer = new PNGWriter(out, width, height, resolution, executor);
+        RecordingOutput recording = new RecordingOutput(font);
+        byte[] bits = new byte[0];
+        int drawn = 0;
+        int top = 0;
+        for (int row = 0; row < sheet.getRows(); row++) {
+            // The band runs down to the next row of cells, or the bottom of the page
+            int bottom = row == sheet.getRows() - 1 ? height
+                    : (int) Math.floor(sheet.getCellY((row + 1) * sheet.getColumns()));
+            int bandHeight = bottom - top;
+            if (bits.length < stride * bandHeight) {
+                bits = new byte[stride * bandHeight];
+            } else {
+                Arrays.fill(bits, 0, stride * bandHeight, (byte) 0);
+            }
+            Bitmap band = new Bitmap(width, bandHeight, stride, bits);
+            for (int column = 0; column < sheet.getColumns() && barcodes.hasNext(); column++) {
+                int cell = row * sheet.getColumns() + column;
+                drawCell(barcodes.next(), recording, band.region((int) Math.round(sheet.getCellX(cell)),
+                        (int) Math.round(sheet.getCellY(cell)) - top, (int) Math.floor(sheet.getCellWidth()),
+                        (int) Math.floor(sheet.getCellHeight())));
+                drawn++;
+            }
+            writer.writeRows(bits, 0, stride, bandHeight);
+            top = bottom;
+        }
+        writer.finish();
+        return drawn;
+    }
+
+    private void drawCell(Barcode barcode, RecordingOutput recording, PixelTarget cell) throws OutputException {
+        recording.reset();
+        barcode.output(recording);
+        int w = recording.getWidth();
+        int h = recording.getHeight();
+        recording.replay(new RasterOutput(cell.region((cell.getWidth() - w) / 2, (cell.getHeight() - h) / 2, w, h),
+                font, 1));
+    }
+}
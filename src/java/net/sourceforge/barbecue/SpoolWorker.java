@@ -0,0 +1,360 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+import net.sourceforge.barbecue.output.EPSOutput;
+import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.output.PDFOutput;
+import net.sourceforge.barbecue.output.StreamingSVGOutput;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Renders barcode jobs that are dropped into a shared spool directory. Any
+ * number of workers, in one or many processes on one or many hosts, may share
+ * the same spool and output directories; the filesystem is the only point of
+ * coordination.
+ * <p/>
+ * A job is a properties file named <code>&lt;name&gt;.job</code> containing
+ * the keys <code>data</code> (required), <code>encoding</code> (as accepted by
+ * {@link Main}, default "code128"), <code>format</code> ("png", "eps", "pdf"
+ * or "svg", default "png") and optionally <code>label</code>.
+ * <p/>
+ * A worker claims a job by atomically renaming it to
+ * <code>&lt;name&gt;.job@&lt;worker id&gt;.lease</code>; only one worker can
+ * win that rename. The result is written to a temporary file in the output
+ * directory and renamed into place, after which the lease is deleted. Jobs
+ * that cannot be rendered are renamed to <code>&lt;name&gt;.failed</code> with
+ * the reason in <code>&lt;name&gt;.error</code>. A lease that has not been
+ * touched for longer than the lease timeout is assumed to belong to a crashed
+ * worker and is renamed back to <code>&lt;name&gt;.job</code> so that another
+ * worker can pick it up. A worker touches its lease when it claims a job and
+ * again before rendering and publishing it; a worker that finds its lease gone
+ * has lost the job to another worker and drops it without marking it failed.
+ * <p/>
+ * Since the output is only published by a rename, rendering a recovered job a
+ * second time is harmless. Where a rename cannot replace an existing file the
+ * old output is deleted first, so two workers publishing the same job at once
+ * may find that the other got there first; the job is then taken as
+ * published.
+ */
+public class SpoolWorker {
+    /** The suffix of job files waiting to be claimed */
+    public static final String JOB_SUFFIX = ".job";
+    /** The suffix of job files that have been claimed by a worker */
+    public static final String LEASE_SUFFIX = ".lease";
+    /** The suffix of job files that could not be rendered */
+    public static final String FAILED_SUFFIX = ".failed";
+    /** The suffix of the file describing why a job failed */
+    public static final String ERROR_SUFFIX = ".error";
+    /** The default time after which an untouched lease is recovered */
+    public static final long DEFAULT_LEASE_TIMEOUT = 5 * 60 * 1000L;
+
+    private static final char LEASE_SEPARATOR = '@';
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File spoolDir;
+    private final File outputDir;
+    private final String workerId;
+    private long leaseTimeout = DEFAULT_LEASE_TIMEOUT;
+
+    /**
+     * Creates a worker with an identifier derived from the host name and the
+     * process id of this VM.
+     * @param spoolDir The directory to claim jobs from
+     * @param outputDir The directory to write rendered barcodes to
+     */
+    public SpoolWorker(File spoolDir, File outputDir) {
+        this(spoolDir, outputDir, ManagementFactory.getRuntimeMXBean().getName());
+    }
+
+    /**
+     * Creates a worker with the given identifier. Identifiers must be unique
+     * amongst the workers sharing a spool directory.
+     * @param spoolDir The directory to claim jobs from
+     * @param outputDir The directory to write rendered barcodes to
+     * @param workerId The identifier for this worker
+     */
+    public SpoolWorker(File spoolDir, File outputDir, String workerId) {
+        if (!spoolDir.isDirectory()) {
+            throw new IllegalArgumentException("Spool directory does not exist: " + spoolDir);
+        }
+        outputDir.mkdirs();
+        this.spoolDir = spoolDir;
+        this.outputDir = outputDir;
+        this.workerId = sanitise(workerId);
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public long getLeaseTimeout() {
+        return leaseTimeout;
+    }
+
+    /**
+     * Sets how long a lease may go untouched before it is assumed that the
+     * worker holding it has crashed.
+     * @param leaseTimeout The timeout in milliseconds
+     */
+    public void setLeaseTimeout(long leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Processes jobs until the spool directory is empty.
+     * @return The number of jobs this worker rendered successfully
+     */
+    public int drain() {
+        int rendered = 0;
+        recoverExpiredLeases();
+        File lease;
+        while ((lease = claimNext()) != null) {
+            if (process(lease)) {
+                rendered++;
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Processes jobs forever, sleeping for the given interval whenever the
+     * spool directory is empty.
+     * @param pollInterval The time to sleep between polls, in milliseconds
+     * @throws InterruptedException If the worker thread is interrupted
+     */
+    public void run(long pollInterval) throws InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (drain() == 0) {
+                Thread.sleep(pollInterval);
+            }
+        }
+        throw new InterruptedException();
+    }
+
+    /**
+     * Returns any lease that has not been touched within the lease timeout to
+     * the queue.
+     * @return The number of leases recovered
+     */
+    public int recoverExpiredLeases() {
+        File[] leases = spoolDir.listFiles(new SuffixFilter(LEASE_SUFFIX));
+        if (leases == null) {
+            return 0;
+        }
+        long expiry = System.currentTimeMillis() - leaseTimeout;
+        int recovered = 0;
+        for (int i = 0; i < leases.length; i++) {
+            File lease = leases[i];
+            if (lease.lastModified() < expiry && lease.renameTo(new File(spoolDir, jobName(lease)))) {
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * Claims the next available job.
+     * @return The lease file for the claimed job, or null if there are no jobs
+     */
+    File claimNext() {
+        String[] jobs = spoolDir.list(new SuffixFilter(JOB_SUFFIX));
+        if (jobs == null) {
+            return null;
+        }
+        Arrays.sort(jobs);
+        for (int i = 0; i < jobs.length; i++) {
+            File job = new File(spoolDir, jobs[i]);
+            File lease = new File(spoolDir, jobs[i] + LEASE_SEPARATOR + workerId + LEASE_SUFFIX);
+            // The rename keeps the job's timestamp, so restart the lease clock
+            // first or a queued job could look expired the moment it is leased
+            job.setLastModified(System.currentTimeMillis());
+            if (job.renameTo(lease)) {
+                return lease;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders the job held by the given lease and releases the lease.
+     * @param lease The lease file of a claimed job
+     * @return True if the job was rendered, false if it failed or the lease
+     *         was lost to another worker
+     */
+    boolean process(File lease) {
+        String name = baseName(jobName(lease));
+        try {
+            if (!renew(lease)) {
+                return false;
+            }
+            Properties job = load(lease);
+            String format = job.getProperty("format", "png").toLowerCase();
+            Barcode barcode = Main.createBarcode(job.getProperty("encoding", "code128"), required(job, "data"));
+            if (job.getProperty("label") != null) {
+                barcode.setLabel(job.getProperty("label"));
+            }
+            if (!renew(lease)) {
+                return false;
+            }
+            publish(barcode, format, new File(outputDir, name + "." + format));
+            lease.delete();
+            return true;
+        } catch (Exception e) {
+            if (lease.exists()) {
+                fail(lease, name, e);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Touches the lease so that it is not taken for one of a crashed worker.
+     * @param lease The lease file
+     * @return False if the lease has been recovered by another worker
+     */
+    private boolean renew(File lease) {
+        return lease.setLastModified(System.currentTimeMillis()) && lease.exists();
+    }
+
+    private void publish(Barcode barcode, String format, File target) throws IOException, OutputException {
+        File temp = new File(outputDir, target.getName() + LEASE_SEPARATOR + workerId + TEMP_SUFFIX);
+        OutputStream out = new FileOutputStream(temp);
+        boolean written = false;
+        try {
+            if (format.equals("png")) {
+                BarcodeImageHandler.writePNG(barcode, out);
+            } else if (format.equals("eps")) {
+                barcode.output(new EPSOutput(new OutputStreamWriter(out)));
+            } else if (format.equals("pdf")) {
+                PDFOutput pdf = new PDFOutput(out);
+                barcode.output(pdf);
+                pdf.endDocument();
+            } else if (format.equals("svg")) {
+                barcode.output(new StreamingSVGOutput(new OutputStreamWriter(out, "UTF-8"), DefaultEnvironment.DEFAULT_FONT,
+                        Color.black, Color.white, 1, "in"));
+            } else {
+                throw new OutputException("Unknown format: " + format);
+            }
+            out.flush();
+            written = true;
+        } finally {
+            out.close();
+            if (!written) {
+                temp.delete();
+            }
+        }
+        // Not all platforms allow a rename over an existing file
+        target.delete();
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            // Another worker rendering a recovered copy of the job may have
+            // published between the delete and the rename
+            if (!target.exists()) {
+                throw new IOException("Could not publish " + target);
+            }
+        }
+    }
+
+    private void fail(File lease, String name, Exception cause) {
+        try {
+            PrintWriter writer = new PrintWriter(new FileOutputStream(new File(spoolDir, name + ERROR_SUFFIX)));
+            try {
+                writer.println(workerId);
+                cause.printStackTrace(writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException ignored) {
+            // The failed job file is still left behind
+        }
+        lease.renameTo(new File(spoolDir, name + FAILED_SUFFIX));
+    }
+
+    private Properties load(File file) throws IOException {
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            props.load(in);
+        } finally {
+            in.close();
+        }
+        return props;
+    }
+
+    private String required(Properties job, String key) throws BarcodeException {
+        String value = job.getProperty(key);
+        if (value == null) {
+            throw new BarcodeException("Job is missing the required property: " + key);
+        }
+        return value;
+    }
+
+    private static String jobName(File lease) {
+        String name = lease.getName();
+        return name.substring(0, name.lastIndexOf(LEASE_SEPARATOR));
+    }
+
+    private static String baseName(String jobName) {
+        return jobName.substring(0, jobName.length() - JOB_SUFFIX.length());
+    }
+
+    private static String sanitise(String id) {
+        StringBuffer buf = new StringBuffer();
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            buf.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+        }
+        return buf.toString();
+    }
+
+    private static class SuffixFilter implements FilenameFilter {
+        private final String suffix;
+
+        SuffixFilter(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public boolean accept(File dir, String name) {
+            return name.endsWith(suffix);
+        }
+    }
+}
@@ -26,6 +26,8 @@ POSSIBILITY OF SUCH DAMAGE.
 
 package net.sourceforge.barbecue.env;
 
+import net.sourceforge.barbecue.output.BuiltInFont;
+
 import java.awt.*;
 
 /**
@@ -50,10 +52,11 @@ public final class HeadlessEnvironment implements Environment {
 	}
 
     /**
-     * Returns the default font for the environment.
-     * @return null
+     * Returns the default font for the environment. This is the bundled
+     * bitmap font, which needs no fonts to be installed.
+     * @return The built-in font
      */
     public Font getDefaultFont() {
-        return null;
+        return BuiltInFont.DEFAULT_FONT;
     }
 }
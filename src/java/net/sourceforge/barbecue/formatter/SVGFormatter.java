@@ -1,7 +1,7 @@
 package net.sourceforge.barbecue.formatter;
 
 import net.sourceforge.barbecue.Barcode;
-import net.sourceforge.barbecue.output.SVGOutput;
+import net.sourceforge.barbecue.output.StreamingSVGOutput;
 import net.sourceforge.barbecue.output.OutputException;
 
 import java.io.Writer;
@@ -31,7 +31,7 @@ public class SVGFormatter implements BarcodeFormatter {
 
 	public void format(Barcode barcode) throws FormattingException {
 		try {
-			barcode.output(new SVGOutput(out, barcode.getFont(),
+			barcode.output(new StreamingSVGOutput(out, barcode.getFont(),
 										 barcode.getForeground(), barcode.getBackground(),
 										 scalar, units));
 		}
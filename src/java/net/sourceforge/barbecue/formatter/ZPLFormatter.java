@@ -0,0 +1,174 @@
+package net.sourceforge.barbecue.formatter;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeException;
+import net.sourceforge.barbecue.linear.code128.Code128Barcode;
+import net.sourceforge.barbecue.linear.ean.EAN13Barcode;
+import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.output.ZPLOutput;
+import net.sourceforge.barbecue.twod.pdf417.PDF417Barcode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Formats barcodes as ZPL labels for Zebra compatible thermal printers.
+ * <p/>
+ * Code 128, EAN-13 and PDF417 barcodes are sent as the printer's own barcode
+ * commands (<code>^BC</code>, <code>^BE</code> and <code>^B7</code>), which
+ * the printer renders at its full resolution from a few bytes of data. Any
+ * other barcode, or any barcode when native commands are turned off, is
+ * rasterized and sent as a compressed graphic field by {@link ZPLOutput}.
+ * Sizes are in printer dots; one barcode pixel becomes <code>scalar</code>
+ * dots.
+ */
+public class ZPLFormatter implements BarcodeFormatter {
+	private static final String HEX = "0123456789ABCDEF";
+
+	private final Writer out;
+	private final double scalar;
+	private boolean nativeCommands = true;
+	private int originX;
+	private int originY;
+
+	public static String formatAsZPL(Barcode barcode) throws FormattingException {
+		StringWriter writer = new StringWriter();
+		new ZPLFormatter(writer).format(barcode);
+		return writer.toString();
+	}
+
+	public ZPLFormatter(Writer out) {
+		this(out, 1.0);
+	}
+
+	public ZPLFormatter(Writer out, double scalar) {
+		this.out = out;
+		this.scalar = scalar;
+	}
+
+	/**
+	 * Sets whether barcodes the printer can render itself are sent as native
+	 * barcode commands rather than as graphics. This is the default.
+	 * @param nativeCommands False to always send graphics
+	 */
+	public void setNativeCommands(boolean nativeCommands) {
+		this.nativeCommands = nativeCommands;
+	}
+
+	/**
+	 * Sets the position of the barcode on the label.
+	 * @param x The distance from the left of the label, in dots
+	 * @param y The distance from the top of the label, in dots
+	 */
+	public void setOrigin(int x, int y) {
+		this.originX = x;
+		this.originY = y;
+	}
+
+	public void format(Barcode barcode) throws FormattingException {
+		String command = nativeCommands ? getNativeCommand(barcode) : null;
+		if (command == null) {
+			formatAsGraphic(barcode);
+			return;
+		}
+		StringBuffer buf = new StringBuffer();
+		buf.append("^XA\n^FO").append(originX).append(',').append(originY);
+		buf.append("^BY").append(dots(barcode.getBarWidth())).append('\n');
+		buf.append(command).append('\n');
+		appendFieldData(buf, barcode.getData());
+		buf.append("^XZ\n");
+		try {
+			out.write(buf.toString());
+			out.flush();
+		} catch (IOException e) {
+			throw new FormattingException(e.getMessage(), e);
+		}
+	}
+
+	private void formatAsGraphic(Barcode barcode) throws FormattingException {
+		ZPLOutput output = new ZPLOutput(out, barcode.isDrawingText() ? barcode.getFont() : null, scalar);
+		output.setOrigin(originX, originY);
+		try {
+			barcode.output(output);
+		} catch (OutputException e) {
+			throw new FormattingException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the printer command for the barcode, or null if the barcode has
+	 * to be sent as graphics. Subclasses are excluded since they may encode
+	 * their data differently, as are Macro PDF417 segments, whose control
+	 * blocks ^B7 cannot carry.
+	 */
+	private String getNativeCommand(Barcode barcode) throws FormattingException {
+		String data = barcode.getData();
+		String text = barcode.isDrawingText() ? "Y" : "N";
+		int height = dots(barcode.getPreferredBarHeight());
+		if (barcode.getClass() == Code128Barcode.class && isAscii(data)) {
+			// Mode A lets the printer choose the character sets
+			return "^BCN," + height + "," + text + ",N,N,A";
+		}
+		if (barcode.getClass() == EAN13Barcode.class) {
+			return "^BEN," + height + "," + text + ",N";
+		}
+		if (barcode.getClass() == PDF417Barcode.class && !((PDF417Barcode) barcode).isMacroSegment()) {
+			return getPDF417Command((PDF417Barcode) barcode);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the PDF417 command with the columns and rows of the encoded
+	 * symbol, so that the printer draws the same shape. ZPL security levels
+	 * are the PDF417 error correction levels.
+	 */
+	private String getPDF417Command(PDF417Barcode barcode) throws FormattingException {
+		try {
+			return "^B7N," + barcode.getRowHeight() * dots(barcode.getBarWidth()) + ","
+					+ barcode.getErrorCorrectionLevel() + "," + barcode.getEncodedColumns() + ","
+					+ barcode.getEncodedRows() + "," + (barcode.isCompact() ? "Y" : "N");
+		} catch (BarcodeException e) {
+			throw new FormattingException(e.getMessage(), e);
+		}
+	}
+
+	private int dots(int pixels) {
+		return Math.max(1, (int) Math.round(pixels * scalar));
+	}
+
+	/**
+	 * Appends the field data, using hex escapes for the characters that ZPL
+	 * reserves.
+	 */
+	private static void appendFieldData(StringBuffer buf, String data) {
+		boolean escape = false;
+		for (int i = 0; i < data.length() && !escape; i++) {
+			char c = data.charAt(i);
+			escape = c == '^' || c == '~' || c == '_' || c < 32;
+		}
+		if (escape) {
+			buf.append("^FH_");
+		}
+		buf.append("^FD");
+		for (int i = 0; i < data.length(); i++) {
+			char c = data.charAt(i);
+			if (escape && (c == '^' || c == '~' || c == '_' || c < 32)) {
+				buf.append('_').append(HEX.charAt(c >> 4)).append(HEX.charAt(c & 0xf));
+			} else {
+				buf.append(c);
+			}
+		}
+		buf.append("^FS\n");
+	}
+
+	private static boolean isAscii(String data) {
+		for (int i = 0; i < data.length(); i++) {
+			if (data.charAt(i) > 127) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
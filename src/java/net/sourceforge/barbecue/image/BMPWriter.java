@@ -0,0 +1,113 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes bilevel images as uncompressed one bit per pixel Windows BMP
+ * files, with a two entry palette of white and black.
+ * <p/>
+ * Rows are packed eight pixels to a byte, most significant bit first, and a
+ * set bit is black; this is also the BMP layout with that palette, so rows
+ * are copied as they are, only reordered bottom up and padded to a multiple
+ * of four bytes.
+ */
+public final class BMPWriter {
+    private static final int HEADER_SIZE = 14 + 40 + 8;
+    private static final double INCHES_PER_METRE = 1 / 0.0254;
+
+    private BMPWriter() {
+    }
+
+    /**
+     * Writes the image as a BMP file.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param width
+     *            The width of the image in pixels
+     * @param height
+     *            The height of the image in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param resolution
+     *            The resolution of the image, in dots per inch
+     * @param out
+     *            The stream to write to
+     * @throws IOException
+     *             If the stream could not be written
+     */
+    public static void write(byte[] bits, int width, int height, int stride, int resolution, OutputStream out)
+            throws IOException {
+        int rowBytes = (width + 7) >> 3;
+        int paddedBytes = ((width + 31) >> 5) << 2;
+        int imageSize = paddedBytes * height;
+        int pixelsPerMetre = (int) Math.round(resolution * INCHES_PER_METRE);
+
+        byte[] header = new byte[HEADER_SIZE];
+        header[0] = 'B';
+        header[1] = 'M';
+        putInt(header, 2, HEADER_SIZE + imageSize);
+        putInt(header, 10, HEADER_SIZE);
+        putInt(header, 14, 40);
+        putInt(header, 18, width);
+        putInt(header, 22, height);
+        putShort(header, 26, 1);               // Planes
+        putShort(header, 28, 1);               // Bits per pixel
+        putInt(header, 34, imageSize);
+        putInt(header, 38, pixelsPerMetre);
+        putInt(header, 42, pixelsPerMetre);
+        putInt(header, 46, 2);                 // Colours used
+        putInt(header, 50, 2);                 // Important colours
+        // Palette: 0 is white, 1 is black
+        header[54] = (byte) 0xff;
+        header[55] = (byte) 0xff;
+        header[56] = (byte) 0xff;
+        out.write(header);
+
+        byte[] row = new byte[paddedBytes];
+        int lastMask = 0xff << ((rowBytes << 3) - width);
+        for (int y = height - 1; y >= 0; y--) {
+            System.arraycopy(bits, y * stride, row, 0, rowBytes);
+            row[rowBytes - 1] &= lastMask;
+            out.write(row);
+        }
+        out.flush();
+    }
+
+    private static void putShort(byte[] buf, int p, int value) {
+        buf[p] = (byte) value;
+        buf[p + 1] = (byte) (value >> 8);
+    }
+
+    private static void putInt(byte[] buf, int p, int value) {
+        putShort(buf, p, value);
+        putShort(buf, p + 2, value >> 16);
+    }
+}
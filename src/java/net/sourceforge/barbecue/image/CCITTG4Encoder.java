@@ -0,0 +1,274 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encoder for CCITT T.6 (Group 4) two dimensional bilevel compression, as
+ * used by fax machines and by TIFF compression scheme 4.
+ * <p/>
+ * Every row is coded relative to the row above it, so each row of a
+ * barcode that repeats the row above costs just one bit per bar edge. Rows are given packed eight
+ * pixels to a byte, most significant bit first, with set bits black.
+ */
+final class CCITTG4Encoder {
+    private static final String[] WHITE_TERMINATING = {
+        "00110101", "000111", "0111", "1000", "1011", "1100", "1110", "1111",
+        "10011", "10100", "00111", "01000", "001000", "000011", "110100", "110101",
+        "101010", "101011", "0100111", "0001100", "0001000", "0010111", "0000011", "0000100",
+        "0101000", "0101011", "0010011", "0100100", "0011000", "00000010", "00000011", "00011010",
+        "00011011", "00010010", "00010011", "00010100", "00010101", "00010110", "00010111", "00101000",
+        "00101001", "00101010", "00101011", "00101100", "00101101", "00000100", "00000101", "00001010",
+        "00001011", "01010010", "01010011", "01010100", "01010101", "00100100", "00100101", "01011000",
+        "01011001", "01011010", "01011011", "01001010", "01001011", "00110010", "00110011", "00110100"
+    };
+
+    private static final String[] BLACK_TERMINATING = {
+        "0000110111", "010", "11", "10", "011", "0011", "0010", "00011",
+        "000101", "000100", "0000100", "0000101", "0000111", "00000100", "00000111", "000011000",
+        "0000010111", "0000011000", "0000001000", "00001100111", "00001101000", "00001101100", "00000110111", "00000101000",
+        "00000010111", "00000011000", "000011001010", "000011001011", "000011001100", "000011001101", "000001101000", "000001101001",
+        "000001101010", "000001101011", "000011010010", "000011010011", "000011010100", "000011010101", "000011010110", "000011010111",
+        "000001101100", "000001101101", "000011011010", "000011011011", "000001010100", "000001010101", "000001010110", "000001010111",
+        "000001100100", "000001100101", "000001010010", "000001010011", "000000100100", "000000110111", "000000111000", "000000100111",
+        "000000101000", "000001011000", "000001011001", "000000101011", "000000101100", "000001011010", "000001100110", "000001100111"
+    };
+
+    /** Make up codes for 64 to 1728 */
+    private static final String[] WHITE_MAKEUP = {
+        "11011", "10010", "010111", "0110111", "00110110", "00110111", "01100100", "01100101",
+        "01101000", "01100111", "011001100", "011001101", "011010010", "011010011", "011010100", "011010101",
+        "011010110", "011010111", "011011000", "011011001", "011011010", "011011011", "010011000", "010011001",
+        "010011010", "011000", "010011011"
+    };
+
+    /** Make up codes for 64 to 1728 */
+    private static final String[] BLACK_MAKEUP = {
+        "0000001111", "000011001000", "000011001001", "000001011011", "000000110011", "000000110100", "000000110101", "0000001101100",
+        "0000001101101", "0000001001010", "0000001001011", "0000001001100", "0000001001101", "0000001110010", "0000001110011", "0000001110100",
+        "0000001110101", "0000001110110", "0000001110111", "0000001010010", "0000001010011", "0000001010100", "0000001010101", "0000001011010",
+        "0000001011011", "0000001100100", "0000001100101"
+    };
+
+    /** Make up codes for 1792 to 2560, shared by both colours */
+    private static final String[] EXTENDED_MAKEUP = {
+        "00000001000", "00000001100", "00000001101", "000000010010", "000000010011", "000000010100", "000000010101",
+        "000000010110", "000000010111", "000000011100", "000000011101", "000000011110", "000000011111"
+    };
+
+    /** Vertical mode codes for a1 - b1 from -3 to 3 */
+    private static final String[] VERTICAL = {
+        "0000010", "000010", "010", "1", "011", "000011", "0000011"
+    };
+
+    private static final int[][] WHITE_CODES = codes(WHITE_TERMINATING, WHITE_MAKEUP);
+    private static final int[][] BLACK_CODES = codes(BLACK_TERMINATING, BLACK_MAKEUP);
+    private static final int[] VERTICAL_CODES = parse(VERTICAL);
+    private static final int PASS = 0x10000 | 4;
+    private static final int HORIZONTAL = 0x10000 | 3;
+    private static final int EOL = 0x10000 | 12;
+    private static final int MAX_RUN = 2560;
+
+    private final int width;
+    private int[] reference;
+    private int[] coding;
+    private byte[] out = new byte[1024];
+    private int length;
+    private int bitBuffer;
+    private int bitCount;
+
+    /**
+     * Creates an encoder for rows of the given width.
+     * 
+     * @param width
+     *            The number of pixels in each row
+     */
+    CCITTG4Encoder(int width) {
+        this.width = width;
+        this.reference = new int[width + 3];
+        this.coding = new int[width + 3];
+        // The row above the first is white
+        reference[0] = width;
+        reference[1] = width;
+        reference[2] = width;
+    }
+
+    /**
+     * Encodes the next row.
+     * 
+     * @param row
+     *            The buffer holding the packed row
+     * @param offset
+     *            The index of the first byte of the row
+     */
+    void encodeRow(byte[] row, int offset) {
+        findChanges(row, offset, coding);
+        int a0 = -1;
+        int colour = 0;
+        int i = 0;
+        int j = 0;
+        while (a0 < width) {
+            // a1 is the next change on this row, b1 the next change on the row
+            // above to the colour opposite the current one, b2 the change after
+            while (coding[i] <= a0) {
+                i++;
+            }
+            // b1 may lie left of the previous b1 when the colour has changed
+            while (j > 0 && reference[j - 1] > a0) {
+                j--;
+            }
+            while (reference[j] <= a0 || (j & 1) != colour) {
+                j++;
+            }
+            int a1 = coding[i];
+            int b1 = reference[j];
+            int b2 = reference[j + 1];
+            if (b2 < a1) {
+                writeCode(PASS);
+                a0 = b2;
+            } else if (a1 - b1 >= -3 && a1 - b1 <= 3) {
+                writeCode(VERTICAL_CODES[a1 - b1 + 3]);
+                a0 = a1;
+                colour ^= 1;
+            } else {
+                int a2 = coding[i + 1];
+                writeCode(HORIZONTAL);
+                writeRun(a1 - Math.max(a0, 0), colour);
+                writeRun(a2 - a1, colour ^ 1);
+                a0 = a2;
+            }
+        }
+        int[] swap = reference;
+        reference = coding;
+        coding = swap;
+    }
+
+    /**
+     * Writes the end of facsimile block and pads the data to a whole byte.
+     */
+    void finish() {
+        writeCode(EOL);
+        writeCode(EOL);
+        if (bitCount > 0) {
+            put(bitBuffer << (8 - bitCount));
+            bitCount = 0;
+        }
+    }
+
+    int size() {
+        return length;
+    }
+
+    void writeTo(OutputStream stream) throws IOException {
+        stream.write(out, 0, length);
+    }
+
+    /**
+     * Lists the positions at which the colour changes along the row, starting
+     * from white, followed by two entries of the row width.
+     */
+    private void findChanges(byte[] row, int offset, int[] changes) {
+        int count = 0;
+        int colour = 0;
+        int bytes = (width + 7) >> 3;
+        for (int b = 0; b < bytes; b++) {
+            int value = row[offset + b] & 0xff;
+            if (value == (colour == 0 ? 0 : 0xff)) {
+                continue;
+            }
+            for (int bit = 0; bit < 8; bit++) {
+                int x = (b << 3) + bit;
+                if (x >= width) {
+                    break;
+                }
+                int pixel = (value >> (7 - bit)) & 1;
+                if (pixel != colour) {
+                    changes[count++] = x;
+                    colour = pixel;
+                }
+            }
+        }
+        changes[count] = width;
+        changes[count + 1] = width;
+        changes[count + 2] = width;
+    }
+
+    private void writeRun(int run, int colour) {
+        int[][] codes = colour == 0 ? WHITE_CODES : BLACK_CODES;
+        while (run > MAX_RUN) {
+            writeCode(codes[1][MAX_RUN / 64 - 1]);
+            run -= MAX_RUN;
+        }
+        if (run >= 64) {
+            writeCode(codes[1][run / 64 - 1]);
+            run %= 64;
+        }
+        writeCode(codes[0][run]);
+    }
+
+    /**
+     * Writes a code packed as its length in the low 16 bits and its value in
+     * the high bits above a marker bit.
+     */
+    private void writeCode(int code) {
+        int bits = code & 0xffff;
+        int value = (code >>> 16) & ((1 << bits) - 1);
+        bitBuffer = (bitBuffer << bits) | value;
+        bitCount += bits;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            put(bitBuffer >>> bitCount);
+        }
+        bitBuffer &= (1 << bitCount) - 1;
+    }
+
+    private void put(int b) {
+        if (length == out.length) {
+            byte[] grown = new byte[out.length * 2];
+            System.arraycopy(out, 0, grown, 0, length);
+            out = grown;
+        }
+        out[length++] = (byte) b;
+    }
+
+    private static int[][] codes(String[] terminating, String[] makeup) {
+        String[] allMakeup = new String[makeup.length + EXTENDED_MAKEUP.length];
+        System.arraycopy(makeup, 0, allMakeup, 0, makeup.length);
+        System.arraycopy(EXTENDED_MAKEUP, 0, allMakeup, makeup.length, EXTENDED_MAKEUP.length);
+        return new int[][] {parse(terminating), parse(allMakeup)};
+    }
+
+    private static int[] parse(String[] bits) {
+        int[] codes = new int[bits.length];
+        for (int i = 0; i < bits.length; i++) {
+            codes[i] = (Integer.parseInt(bits[i], 2) << 16) | bits[i].length();
+        }
+        return codes;
+    }
+}
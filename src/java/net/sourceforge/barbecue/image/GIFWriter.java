@@ -0,0 +1,173 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes bilevel images as two colour GIF files, LZW compressed.
+ * <p/>
+ * With only two pixel values every string in the LZW dictionary has at most
+ * two extensions, so the dictionary is a plain array indexed by code and
+ * pixel rather than a hash table. Rows are packed eight pixels to a byte,
+ * most significant bit first, and a set bit is black.
+ */
+public final class GIFWriter {
+    /** The smallest code size the format allows, even for two colours */
+    private static final int MIN_CODE_SIZE = 2;
+    private static final int CLEAR = 1 << MIN_CODE_SIZE;
+    private static final int END = CLEAR + 1;
+    private static final int FIRST_CODE = CLEAR + 2;
+    private static final int MAX_CODE_SIZE = 12;
+    private static final int MAX_CODES = 1 << MAX_CODE_SIZE;
+
+    private final OutputStream out;
+    private final int[] dictionary = new int[MAX_CODES * 2];
+    private final byte[] block = new byte[256];
+    private int blockLength;
+    private int bitBuffer;
+    private int bitCount;
+    private int codeSize;
+    private int nextCode;
+
+    private GIFWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the image as a GIF file.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param width
+     *            The width of the image in pixels
+     * @param height
+     *            The height of the image in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param out
+     *            The stream to write to
+     * @throws IOException
+     *             If the stream could not be written
+     */
+    public static void write(byte[] bits, int width, int height, int stride, OutputStream out)
+            throws IOException {
+        if (width < 1 || height < 1 || width > 0xffff || height > 0xffff) {
+            throw new IllegalArgumentException("GIF images must be from 1x1 to 65535x65535, not " + width + "x" + height);
+        }
+        byte[] header = {
+            'G', 'I', 'F', '8', '9', 'a',
+            (byte) width, (byte) (width >> 8), (byte) height, (byte) (height >> 8),
+            (byte) 0x80, 0, 0,                                  // Two entry global colour table
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0,     // 0 is white, 1 is black
+            0x2c, 0, 0, 0, 0,                                   // Image descriptor at 0,0
+            (byte) width, (byte) (width >> 8), (byte) height, (byte) (height >> 8), 0,
+            MIN_CODE_SIZE
+        };
+        out.write(header);
+        new GIFWriter(out).compress(bits, width, height, stride);
+        out.write(0x3b);
+        out.flush();
+    }
+
+    private void compress(byte[] bits, int width, int height, int stride) throws IOException {
+        reset();
+        writeCode(CLEAR);
+        int prefix = -1;
+        for (int y = 0; y < height; y++) {
+            int offset = y * stride;
+            for (int x = 0; x < width; x++) {
+                int pixel = (bits[offset + (x >> 3)] >> (7 - (x & 7))) & 1;
+                if (prefix < 0) {
+                    prefix = pixel;
+                    continue;
+                }
+                int index = (prefix << 1) | pixel;
+                if (dictionary[index] != 0) {
+                    prefix = dictionary[index];
+                    continue;
+                }
+                writeCode(prefix);
+                if (nextCode < MAX_CODES) {
+                    dictionary[index] = nextCode++;
+                } else {
+                    writeCode(CLEAR);
+                    reset();
+                }
+                prefix = pixel;
+            }
+        }
+        writeCode(prefix);
+        writeCode(END);
+        if (bitCount > 0) {
+            putByte(bitBuffer);
+        }
+        if (blockLength > 0) {
+            writeBlock();
+        }
+        // Block terminator
+        out.write(0);
+    }
+
+    private void reset() {
+        Arrays.fill(dictionary, 0);
+        codeSize = MIN_CODE_SIZE + 1;
+        nextCode = FIRST_CODE;
+    }
+
+    /**
+     * Writes a code at the current code size, then widens the codes once the
+     * next entry to be added to the dictionary would no longer fit.
+     */
+    private void writeCode(int code) throws IOException {
+        bitBuffer |= code << bitCount;
+        bitCount += codeSize;
+        while (bitCount >= 8) {
+            putByte(bitBuffer);
+            bitBuffer >>>= 8;
+            bitCount -= 8;
+        }
+        if (code != CLEAR && nextCode >= 1 << codeSize && codeSize < MAX_CODE_SIZE) {
+            codeSize++;
+        }
+    }
+
+    private void putByte(int b) throws IOException {
+        block[1 + blockLength++] = (byte) b;
+        if (blockLength == 255) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        block[0] = (byte) blockLength;
+        out.write(block, 0, blockLength + 1);
+        blockLength = 0;
+    }
+}
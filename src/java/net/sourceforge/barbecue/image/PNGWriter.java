@@ -0,0 +1,338 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a bilevel image as a PNG file, one band of rows at a time, so that
+ * the image never needs to exist as a whole.
+ * <p/>
+ * Given an executor, bands are compressed in parallel the way pigz does it:
+ * each band is deflated on its own, primed with the last 32K of the band
+ * before it so that little compression is lost, and ended with a sync flush
+ * so that the compressed bands can simply be written one after the other
+ * as a single deflate stream. The checksum of the whole image is kept as
+ * the bands are given. Only a few bands are in flight at once, so memory
+ * use does not grow with the image. Sync flushes need Java 7; on earlier
+ * runtimes the bands are compressed one after another as a single stream.
+ * <p/>
+ * Rows are packed eight pixels to a byte, most significant bit first, and a
+ * set bit is black. The stream is flushed but never closed.
+ */
+public class PNGWriter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    // Deflate with a 32K window at the default level, no preset dictionary
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+    private static final int WINDOW_SIZE = 32 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SYNC_FLUSH = 2;
+    private static final Method DEFLATE_WITH_FLUSH = findDeflateWithFlush();
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final int resolution;
+    private final ExecutorService executor;
+    private final int maxPending = 2 * Runtime.getRuntime().availableProcessors();
+    private final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+    private final Adler32 adler = new Adler32();
+    private final CRC32 crc = new CRC32();
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private Deflater deflater;
+    private byte[] previous;
+    private int rows;
+
+    /**
+     * Creates a new PNG writer.
+     * 
+     * @param out
+     *            The stream to write the file to
+     * @param width
+     *            The width of the image in pixels
+     * @param height
+     *            The height of the image in pixels
+     * @param resolution
+     *            The resolution of the image in dots per inch, or zero to
+     *            leave it unspecified
+     * @param executor
+     *            The executor to compress bands on, or null to compress
+     *            them on the calling thread
+     */
+    public PNGWriter(OutputStream out, int width, int height, int resolution, ExecutorService executor) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.resolution = resolution;
+        this.executor = DEFLATE_WITH_FLUSH == null ? null : executor;
+    }
+
+    /**
+     * Writes a single image as a complete PNG file, compressed on the
+     * calling thread.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param width
+     *            The width of the image in pixels
+     * @param height
+     *            The height of the image in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param resolution
+     *            The resolution of the image in dots per inch, or zero
+     * @param out
+     *            The stream to write to
+     * @throws IOException
+     *             If the stream could not be written
+     */
+    public static void write(byte[] bits, int width, int height, int stride, int resolution, OutputStream out)
+            throws IOException {
+        PNGWriter writer = new PNGWriter(out, width, height, resolution, null);
+        writer.writeRows(bits, 0, stride, height);
+        writer.finish();
+    }
+
+    /**
+     * Writes the next band of rows. The rows are copied, so the buffer may
+     * be reused as soon as this returns.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param offset
+     *            The index of the first byte of the first row
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param count
+     *            The number of rows in the band
+     * @throws IOException
+     *             If the stream could not be written, or an earlier band
+     *             could not be compressed
+     */
+    public void writeRows(byte[] bits, int offset, int stride, int count) throws IOException {
+        if (count < 1 || rows + count > height) {
+            throw new IllegalStateException("The image has " + rows + " of its " + height + " rows, not room for "
+                    + count + " more");
+        }
+        if (rows == 0) {
+            writeHeader();
+        }
+        // Each row starts with its filter type, none; PNG's black is zero
+        int rowBytes = (width + 7) >> 3;
+        byte[] raw = new byte[count * (rowBytes + 1)];
+        for (int y = 0, p = 0; y < count; y++) {
+            raw[p++] = 0;
+            int src = offset + y * stride;
+            for (int i = 0; i < rowBytes; i++) {
+                raw[p++] = (byte) ~bits[src + i];
+            }
+        }
+        adler.update(raw);
+        rows += count;
+        boolean last = rows == height;
+
+        if (executor == null) {
+            if (deflater == null) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+            deflater.setInput(raw);
+            if (last) {
+                deflater.finish();
+            }
+            while (last ? !deflater.finished() : !deflater.needsInput()) {
+                int n = deflater.deflate(buf);
+                if (n > 0) {
+                    writeChunk("IDAT", buf, 0, n);
+                }
+            }
+        } else {
+            pending.add(executor.submit(new BandCompressor(raw, previous, last)));
+            previous = raw;
+            while (pending.size() > maxPending) {
+                writeNextBand();
+            }
+        }
+    }
+
+    /**
+     * Writes out the remaining bands and ends the file.
+     * 
+     * @throws IOException
+     *             If the file could not be written
+     */
+    public void finish() throws IOException {
+        if (rows != height) {
+            throw new IllegalStateException("The image has " + rows + " of its " + height + " rows");
+        }
+        while (!pending.isEmpty()) {
+            writeNextBand();
+        }
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        previous = null;
+        byte[] checksum = new byte[4];
+        putInt(checksum, 0, (int) adler.getValue());
+        writeChunk("IDAT", checksum, 0, checksum.length);
+        writeChunk("IEND", checksum, 0, 0);
+        out.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        // One bit greyscale, deflated, no interlacing
+        header[8] = 1;
+        writeChunk("IHDR", header, 0, header.length);
+        if (resolution > 0) {
+            byte[] physical = new byte[9];
+            int pixelsPerMetre = (int) Math.round(resolution / 0.0254);
+            putInt(physical, 0, pixelsPerMetre);
+            putInt(physical, 4, pixelsPerMetre);
+            physical[8] = 1;
+            writeChunk("pHYs", physical, 0, physical.length);
+        }
+        writeChunk("IDAT", ZLIB_HEADER, 0, ZLIB_HEADER.length);
+    }
+
+    private void writeNextBand() throws IOException {
+        byte[] compressed;
+        try {
+            compressed = pending.removeFirst().get();
+        } catch (InterruptedException e) {
+            throw (IOException) new IOException("Interrupted while compressing").initCause(e);
+        } catch (ExecutionException e) {
+            throw (IOException) new IOException("Could not compress a band").initCause(e.getCause());
+        }
+        writeChunk("IDAT", compressed, 0, compressed.length);
+    }
+
+    private void writeChunk(String type, byte[] data, int offset, int length) throws IOException {
+        byte[] header = new byte[8];
+        putInt(header, 0, length);
+        for (int i = 0; i < 4; i++) {
+            header[4 + i] = (byte) type.charAt(i);
+        }
+        crc.reset();
+        crc.update(header, 4, 4);
+        crc.update(data, offset, length);
+        out.write(header);
+        out.write(data, offset, length);
+        byte[] trailer = new byte[4];
+        putInt(trailer, 0, (int) crc.getValue());
+        out.write(trailer);
+    }
+
+    private static void putInt(byte[] b, int p, int value) {
+        b[p] = (byte) (value >>> 24);
+        b[p + 1] = (byte) (value >>> 16);
+        b[p + 2] = (byte) (value >>> 8);
+        b[p + 3] = (byte) value;
+    }
+
+    private static Method findDeflateWithFlush() {
+        try {
+            return Deflater.class.getMethod("deflate", new Class[] {byte[].class, int.class, int.class, int.class});
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deflates one band into a sequence of blocks that can be joined to
+     * those of the bands either side of it.
+     */
+    private static final class BandCompressor implements Callable<byte[]> {
+        private final byte[] raw;
+        private final byte[] previous;
+        private final boolean last;
+
+        BandCompressor(byte[] raw, byte[] previous, boolean last) {
+            this.raw = raw;
+            this.previous = previous;
+            this.last = last;
+        }
+
+        public byte[] call() throws IOException {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                if (previous != null) {
+                    int length = Math.min(previous.length, WINDOW_SIZE);
+                    deflater.setDictionary(previous, previous.length - length, length);
+                }
+                deflater.setInput(raw);
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 8 + 64);
+                byte[] buf = new byte[BUFFER_SIZE];
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        compressed.write(buf, 0, deflater.deflate(buf));
+                    }
+                } else {
+                    // A full buffer means there may be more to flush
+                    int n;
+                    do {
+                        n = syncFlush(deflater, buf);
+                        compressed.write(buf, 0, n);
+                    } while (n == buf.length);
+                }
+                return compressed.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private static int syncFlush(Deflater deflater, byte[] buf) throws IOException {
+            try {
+                return ((Integer) DEFLATE_WITH_FLUSH.invoke(deflater, new Object[] {buf, Integer.valueOf(0),
+                        Integer.valueOf(buf.length), Integer.valueOf(SYNC_FLUSH)})).intValue();
+            } catch (IllegalAccessException e) {
+                throw (IOException) new IOException("Could not flush the band").initCause(e);
+            } catch (InvocationTargetException e) {
+                throw (IOException) new IOException("Could not flush the band").initCause(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes bilevel images in the binary Netpbm formats: PBM, which stores the
+ * packed rows exactly as they are given, and PGM, with one grey byte per
+ * pixel for software that cannot read one bit images.
+ * <p/>
+ * Rows are packed eight pixels to a byte, most significant bit first, and a
+ * set bit is black.
+ */
+public final class PNMWriter {
+
+    private PNMWriter() {
+    }
+
+    /**
+     * Writes the image as a binary (P4) PBM file.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param width
+     *            The width of the image in pixels
+     * @param height
+     *            The height of the image in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param out
+     *            The stream to write to
+     * @throws IOException
+     *             If the stream could not be written
+     */
+    public static void writePBM(byte[] bits, int width, int height, int stride, OutputStream out)
+            throws IOException {
+        writeHeader("P4", width, height, null, out);
+        int rowBytes = (width + 7) >> 3;
+        if (stride == rowBytes) {
+            out.write(bits, 0, rowBytes * height);
+        } else {
+            for (int y = 0; y < height; y++) {
+                out.write(bits, y * stride, rowBytes);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the image as a binary (P5) PGM file with a maximum grey value of
+     * 255, black being 0.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param width
+     *            The width of the image in pixels
+     * @param height
+     *            The height of the image in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param out
+     *            The stream to write to
+     * @throws IOException
+     *             If the stream could not be written
+     */
+    public static void writePGM(byte[] bits, int width, int height, int stride, OutputStream out)
+            throws IOException {
+        writeHeader("P5", width, height, "255", out);
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++) {
+            int offset = y * stride;
+            for (int x = 0; x < width; x++) {
+                row[x] = (bits[offset + (x >> 3)] & (0x80 >> (x & 7))) != 0 ? 0 : (byte) 0xff;
+            }
+            out.write(row);
+        }
+        out.flush();
+    }
+
+    private static void writeHeader(String magic, int width, int height, String maxValue, OutputStream out)
+            throws IOException {
+        StringBuffer header = new StringBuffer(32);
+        header.append(magic).append('\n').append(width).append(' ').append(height).append('\n');
+        if (maxValue != null) {
+            header.append(maxValue).append('\n');
+        }
+        out.write(header.toString().getBytes("US-ASCII"));
+    }
+}
@@ -0,0 +1,283 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes bilevel images as a TIFF file compressed with CCITT Group 4, one
+ * page per image.
+ * <p/>
+ * Rows are compressed as they are given, so a page never needs to exist as
+ * an uncompressed raster. Each page is laid out as its directory followed by
+ * its data; since a directory holds the offset of the next one, the
+ * compressed data of the latest page is held back until the next page is
+ * started or the file is finished. Only that one compressed page is held in
+ * memory. The stream is flushed but never closed.
+ * <p/>
+ * Rows are packed eight pixels to a byte, most significant bit first, and a
+ * set bit is black.
+ */
+public class TIFFWriter {
+    private static final int TAG_COUNT = 13;
+    private static final int DIRECTORY_SIZE = 2 + TAG_COUNT * 12 + 4;
+    private static final int HEADER_SIZE = 8;
+
+    private final OutputStream out;
+    private final int resolution;
+    private final byte[] buf = new byte[DIRECTORY_SIZE + 16];
+    private long position;
+    private CCITTG4Encoder encoder;
+    private int width;
+    private int height;
+    private int rows;
+    private CCITTG4Encoder pending;
+    private int pendingWidth;
+    private int pendingHeight;
+    private int pages;
+
+    /**
+     * Creates a new TIFF writer.
+     * 
+     * @param out
+     *            The stream to write the file to
+     * @param resolution
+     *            The resolution of the images, in dots per inch
+     */
+    public TIFFWriter(OutputStream out, int resolution) {
+        this.out = out;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Writes a single image as a complete TIFF file.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param width
+     *            The width of the image in pixels
+     * @param height
+     *            The height of the image in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param resolution
+     *            The resolution of the image, in dots per inch
+     * @param out
+     *            The stream to write to
+     * @throws IOException
+     *             If the stream could not be written
+     */
+    public static void write(byte[] bits, int width, int height, int stride, int resolution, OutputStream out)
+            throws IOException {
+        TIFFWriter writer = new TIFFWriter(out, resolution);
+        writer.writePage(bits, width, height, stride);
+        writer.finish();
+    }
+
+    /**
+     * Returns the number of pages started so far.
+     * 
+     * @return The page count
+     */
+    public int getPageCount() {
+        return pages;
+    }
+
+    /**
+     * Writes a page from a buffer of packed rows.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param width
+     *            The width of the page in pixels
+     * @param height
+     *            The height of the page in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @throws IOException
+     *             If the previous page could not be written
+     */
+    public void writePage(byte[] bits, int width, int height, int stride) throws IOException {
+        beginPage(width, height);
+        for (int y = 0; y < height; y++) {
+            writeRow(bits, y * stride);
+        }
+        endPage();
+    }
+
+    /**
+     * Starts a new page, whose rows are then given one at a time with
+     * {@link #writeRow(byte[], int)}.
+     * 
+     * @param width
+     *            The width of the page in pixels
+     * @param height
+     *            The height of the page in pixels
+     * @throws IOException
+     *             If the previous page could not be written
+     */
+    public void beginPage(int width, int height) throws IOException {
+        if (encoder != null) {
+            throw new IllegalStateException("The previous page has not been ended");
+        }
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid page size " + width + "x" + height);
+        }
+        writePending(false);
+        this.encoder = new CCITTG4Encoder(width);
+        this.width = width;
+        this.height = height;
+        this.rows = 0;
+        pages++;
+    }
+
+    /**
+     * Compresses the next row of the current page.
+     * 
+     * @param row
+     *            The buffer holding the packed row
+     * @param offset
+     *            The index of the first byte of the row
+     */
+    public void writeRow(byte[] row, int offset) {
+        if (encoder == null || rows == height) {
+            throw new IllegalStateException("No page is expecting another row");
+        }
+        encoder.encodeRow(row, offset);
+        rows++;
+    }
+
+    /**
+     * Ends the current page.
+     */
+    public void endPage() {
+        if (encoder == null || rows != height) {
+            throw new IllegalStateException("The page has " + rows + " of its " + height + " rows");
+        }
+        encoder.finish();
+        pending = encoder;
+        pendingWidth = width;
+        pendingHeight = height;
+        encoder = null;
+    }
+
+    /**
+     * Writes out the last page. No further pages may be written, and a page
+     * that has been begun must have been ended.
+     * 
+     * @throws IOException
+     *             If the page could not be written
+     */
+    public void finish() throws IOException {
+        if (encoder != null) {
+            throw new IllegalStateException("The page has " + rows + " of its " + height
+                    + " rows and has not been ended");
+        }
+        if (pending == null) {
+            throw new IllegalStateException("A TIFF file must have at least one complete page");
+        }
+        writePending(true);
+        out.flush();
+    }
+
+    private void writePending(boolean last) throws IOException {
+        if (position == 0) {
+            // Little endian, with the first directory straight after the header
+            buf[0] = 'I';
+            buf[1] = 'I';
+            int p = putShort(2, 42);
+            putInt(p, HEADER_SIZE);
+            write(buf, HEADER_SIZE);
+        }
+        if (pending == null) {
+            return;
+        }
+        long directory = position;
+        long values = directory + DIRECTORY_SIZE;
+        long data = values + 16;
+        int length = pending.size();
+        long next = last ? 0 : data + length + (length & 1);
+
+        int p = putShort(0, TAG_COUNT);
+        p = putEntry(p, 256, 4, pendingWidth);          // ImageWidth
+        p = putEntry(p, 257, 4, pendingHeight);         // ImageLength
+        p = putEntry(p, 258, 3, 1);                     // BitsPerSample
+        p = putEntry(p, 259, 3, 4);                     // Compression: CCITT T.6
+        p = putEntry(p, 262, 3, 0);                     // Photometric: WhiteIsZero
+        p = putEntry(p, 273, 4, (int) data);            // StripOffsets
+        p = putEntry(p, 277, 3, 1);                     // SamplesPerPixel
+        p = putEntry(p, 278, 4, pendingHeight);         // RowsPerStrip
+        p = putEntry(p, 279, 4, length);                // StripByteCounts
+        p = putEntry(p, 282, 5, (int) values);          // XResolution
+        p = putEntry(p, 283, 5, (int) values + 8);      // YResolution
+        p = putEntry(p, 293, 4, 0);                     // T6Options
+        p = putEntry(p, 296, 3, 2);                     // ResolutionUnit: inch
+        p = putInt(p, (int) next);
+        p = putInt(p, resolution);
+        p = putInt(p, 1);
+        p = putInt(p, resolution);
+        p = putInt(p, 1);
+        write(buf, p);
+
+        pending.writeTo(out);
+        position += length;
+        if ((length & 1) != 0) {
+            // Directories must start on a word boundary
+            buf[0] = 0;
+            write(buf, 1);
+        }
+        pending = null;
+    }
+
+    private int putEntry(int p, int tag, int type, int value) {
+        p = putShort(p, tag);
+        p = putShort(p, type);
+        p = putInt(p, 1);
+        if (type == 3) {
+            p = putShort(p, value);
+            return putShort(p, 0);
+        }
+        return putInt(p, value);
+    }
+
+    private int putShort(int p, int value) {
+        buf[p] = (byte) value;
+        buf[p + 1] = (byte) (value >> 8);
+        return p + 2;
+    }
+
+    private int putInt(int p, int value) {
+        p = putShort(p, value);
+        return putShort(p, value >> 16);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        position += length;
+    }
+}
@@ -0,0 +1,146 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+
+/**
+ * Abstract outputter for vector formats that merges adjacent bars into runs.
+ * <p/>
+ * Bars drawn in the foreground colour that touch the previous bar and share
+ * its vertical extent are accumulated into a single run, so a symbol is
+ * emitted as one rectangle per contiguous dark area rather than one per
+ * module. Bars in the background colour are not emitted at all; subclasses
+ * are expected to paint the background once for the whole symbol.
+ * <p/>
+ * Subclasses must call {@link #flushRun()} before writing anything other
+ * than runs (text, epilogues) so that the pending run is emitted first.
+ */
+public abstract class BarRunOutput extends AbstractOutput {
+    private boolean inverted;
+    private boolean pending;
+    private int     runX;
+    private int     runY;
+    private int     runWidth;
+    private int     runHeight;
+
+    protected BarRunOutput(Font font, boolean painting, double scalar,
+            Color foregroundColour, Color backgroundColour) {
+        super(font, painting, scalar, foregroundColour, backgroundColour);
+    }
+
+    /**
+     * Adds the bar to the current run if it is dark and adjoins it, otherwise
+     * emits the current run and starts a new one.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width
+     * @param height
+     *            the height
+     * @param paintWithForegroundColor
+     *            if true, use the foreground color, otherwise use the
+     *            background color
+     * @return the width of the bar drawn
+     */
+    public int drawBar(int x, int y, int width, int height,
+            boolean paintWithForegroundColor) throws OutputException {
+        if (paintWithForegroundColor == inverted || width <= 0 || height <= 0) {
+            return width;
+        }
+        if (pending && y == runY && height == runHeight && x == runX + runWidth) {
+            runWidth += width;
+        } else {
+            flushRun();
+            pending = true;
+            runX = x;
+            runY = y;
+            runWidth = width;
+            runHeight = height;
+        }
+        return width;
+    }
+
+    /**
+     * Tracks blank modules, which draw their bars in the opposite colour. The
+     * colours themselves are left alone since runs are always painted in the
+     * foreground colour.
+     */
+    public void toggleDrawingColor() {
+        inverted = !inverted;
+    }
+
+    /**
+     * Emits the pending run, if there is one.
+     */
+    protected void flushRun() throws OutputException {
+        if (pending) {
+            pending = false;
+            drawRun(runX, runY, runWidth, runHeight);
+        }
+    }
+
+    /**
+     * Draws text in the {@link BuiltInFont} as runs, so vector formats need
+     * no font of their own for it.
+     * 
+     * @param text
+     *            The text to draw
+     * @param layout
+     *            The label layout to position the text with
+     * @return The height of the text background
+     */
+    protected int drawBuiltInText(String text, LabelLayout layout) throws OutputException {
+        flushRun();
+        layout.setTextBounds(BuiltInFont.getBounds(text, getFont()));
+        BuiltInFont.draw(text, Math.round(layout.getTextX()), Math.round(layout.getTextY()), getFont(),
+                new BuiltInFont.Painter() {
+                    public void fill(int x, int y, int width, int height) throws OutputException {
+                        drawRun(x, y, width, height);
+                    }
+                });
+        return layout.getBackgroundHeight();
+    }
+
+    /**
+     * Emits a run of merged bars in the foreground colour.
+     * 
+     * @param x
+     *            the x coordinate of the run
+     * @param y
+     *            the y coordinate of the run
+     * @param width
+     *            the total width of the run
+     * @param height
+     *            the height of the run
+     */
+    protected abstract void drawRun(int x, int y, int width, int height)
+            throws OutputException;
+}
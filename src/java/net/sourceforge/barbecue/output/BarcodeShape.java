@@ -0,0 +1,126 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+
+/**
+ * An immutable vector rendering of one barcode, as produced by
+ * {@link ShapeOutput}. The bars and the label glyphs are combined into a
+ * single shape, so painting the barcode is one fill call no matter how many
+ * bars it has. The same instance may be painted any number of times, onto
+ * any graphics and under any transform. The shapes it hands out are copies,
+ * so changing them does not change the barcode.
+ */
+public final class BarcodeShape {
+    private final Shape shape;
+    private final Shape bars;
+    private final Shape text;
+    private final double width;
+    private final double height;
+
+    BarcodeShape(Shape shape, Shape bars, Shape text, double width, double height) {
+        this.shape = shape;
+        this.bars = bars;
+        this.text = text;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns the bars and the label glyphs as a single shape, with the top
+     * left corner of the barcode at the origin.
+     * 
+     * @return A copy of the outline of everything drawn in the foreground
+     *         colour
+     */
+    public Shape getShape() {
+        return new GeneralPath(shape);
+    }
+
+    /**
+     * Returns the bars alone.
+     * 
+     * @return A copy of the outline of the bars
+     */
+    public Shape getBars() {
+        return new GeneralPath(bars);
+    }
+
+    /**
+     * Returns the label glyphs alone.
+     * 
+     * @return A copy of the outline of the text, which is empty if no text
+     *         was drawn
+     */
+    public Shape getText() {
+        return new GeneralPath(text);
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Paints the barcode with its top left corner at the given position. The
+     * graphics is left as it was found.
+     * 
+     * @param g
+     *            The graphics to paint onto
+     * @param x
+     *            The x coordinate of the top left corner
+     * @param y
+     *            The y coordinate of the top left corner
+     * @param foreground
+     *            The colour of the bars and text
+     * @param background
+     *            The colour to fill the barcode's bounds with first, or null
+     *            to leave the background alone
+     */
+    public void paint(Graphics2D g, double x, double y, Color foreground, Color background) {
+        AffineTransform transform = g.getTransform();
+        Paint paint = g.getPaint();
+        try {
+            g.translate(x, y);
+            if (background != null) {
+                g.setColor(background);
+                g.fill(new Rectangle.Double(0, 0, width, height));
+            }
+            g.setColor(foreground);
+            g.fill(shape);
+        } finally {
+            g.setTransform(transform);
+            g.setPaint(paint);
+        }
+    }
+}
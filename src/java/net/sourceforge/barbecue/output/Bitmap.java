@@ -0,0 +1,231 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * A one bit per pixel image. Rows are packed eight pixels to a byte, most
+ * significant bit first, and each row starts on a byte boundary. A set bit
+ * is a dark pixel, which is the convention of the thermal printer and fax
+ * formats the bitmap is written to.
+ * <p/>
+ * A bitmap is also a {@link PixelTarget}, so barcodes can be rendered into
+ * one directly with {@link RasterOutput}.
+ */
+public class Bitmap extends PixelTarget {
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final byte[] bits;
+
+    /**
+     * Creates a new, entirely light, bitmap.
+     * 
+     * @param width
+     *            The width in pixels
+     * @param height
+     *            The height in pixels
+     */
+    public Bitmap(int width, int height) {
+        this(width, height, (width + 7) >> 3, null);
+    }
+
+    /**
+     * Creates a bitmap over the given pixel data.
+     * 
+     * @param width
+     *            The width in pixels
+     * @param height
+     *            The height in pixels
+     * @param stride
+     *            The number of bytes from the start of one row to the next
+     * @param bits
+     *            The packed pixels, or null to allocate them
+     */
+    public Bitmap(int width, int height, int stride, byte[] bits) {
+        if (width < 0 || height < 0 || stride < (width + 7) >> 3) {
+            throw new IllegalArgumentException("Invalid bitmap size " + width + "x" + height + ", stride " + stride);
+        }
+        if (bits == null) {
+            bits = new byte[stride * height];
+        } else if (bits.length < stride * height) {
+            throw new IllegalArgumentException("Bitmap data is too short for its size");
+        }
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+        this.bits = bits;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Returns the packed pixels themselves, not a copy.
+     * 
+     * @return The pixel data
+     */
+    public byte[] getBits() {
+        return bits;
+    }
+
+    /**
+     * Returns whether the given pixel is dark.
+     * 
+     * @param x
+     *            The x coordinate
+     * @param y
+     *            The y coordinate
+     * @return True if the pixel is dark
+     */
+    public boolean get(int x, int y) {
+        return (bits[y * stride + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+    }
+
+    /**
+     * Fills a rectangle, clipped to the bitmap, with dark or light pixels.
+     * 
+     * @param x
+     *            The x coordinate
+     * @param y
+     *            The y coordinate
+     * @param w
+     *            The width
+     * @param h
+     *            The height
+     * @param dark
+     *            True to fill with dark pixels, false for light
+     */
+    public void fill(int x, int y, int w, int h, boolean dark) {
+        int x0 = Math.max(x, 0);
+        int x1 = Math.min(x + w, width);
+        int y0 = Math.max(y, 0);
+        int y1 = Math.min(y + h, height);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        int first = x0 >> 3;
+        int last = (x1 - 1) >> 3;
+        int firstMask = 0xff >> (x0 & 7);
+        int lastMask = 0xff << (7 - ((x1 - 1) & 7)) & 0xff;
+        if (first == last) {
+            firstMask &= lastMask;
+        }
+        for (int row = y0 * stride; row < y1 * stride; row += stride) {
+            fillByte(row + first, firstMask, dark);
+            if (first != last) {
+                byte value = dark ? (byte) 0xff : 0;
+                for (int i = row + first + 1; i < row + last; i++) {
+                    bits[i] = value;
+                }
+                fillByte(row + last, lastMask, dark);
+            }
+        }
+    }
+
+    /**
+     * Copies the dark pixels of another bitmap onto this one, clipped to this
+     * bitmap.
+     * 
+     * @param src
+     *            The bitmap to copy
+     * @param x
+     *            The x coordinate of the top left corner of the copy
+     * @param y
+     *            The y coordinate of the top left corner of the copy
+     */
+    public void draw(Bitmap src, int x, int y) {
+        int shift = x & 7;
+        int srcBytes = (src.width + 7) >> 3;
+        int lastMask = 0xff << ((srcBytes << 3) - src.width) & 0xff;
+        for (int row = Math.max(0, -y); row < src.height && row + y < height; row++) {
+            int srcRow = row * src.stride;
+            int dstRow = (row + y) * stride;
+            for (int i = 0; i < srcBytes; i++) {
+                int b = src.bits[srcRow + i] & (i == srcBytes - 1 ? lastMask : 0xff);
+                if (b == 0) {
+                    continue;
+                }
+                // The source byte straddles two destination bytes unless aligned
+                int dx = (x >> 3) + i;
+                orByte(dstRow, dx, b >> shift);
+                if (shift != 0) {
+                    orByte(dstRow, dx + 1, (b << (8 - shift)) & 0xff);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a binary image that shares this bitmap's pixels, so that it can
+     * be drawn on with Java2D.
+     * 
+     * @return The image
+     */
+    public BufferedImage toImage() {
+        byte[] light = {(byte) 0xff, 0};
+        IndexColorModel model = new IndexColorModel(1, 2, light, light, light);
+        WritableRaster raster = Raster.createWritableRaster(new MultiPixelPackedSampleModel(DataBuffer.TYPE_BYTE,
+                width, height, 1, stride, 0), new DataBufferByte(bits, bits.length), null);
+        return new BufferedImage(model, raster, false, null);
+    }
+
+    private void orByte(int row, int index, int b) {
+        if (index < 0 || index << 3 >= width) {
+            return;
+        }
+        if ((index + 1) << 3 > width) {
+            // Mask off the pixels past the right edge
+            b &= 0xff << (((index + 1) << 3) - width);
+        }
+        bits[row + index] |= b;
+    }
+
+    private void fillByte(int index, int mask, boolean dark) {
+        if (dark) {
+            bits[index] |= mask;
+        } else {
+            bits[index] &= ~mask;
+        }
+    }
+}
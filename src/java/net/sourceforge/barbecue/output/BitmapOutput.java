@@ -0,0 +1,263 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Outputter that renders a barcode into a one bit per pixel {@link Bitmap}.
+ * <p/>
+ * The size of a barcode is only known once it has been drawn, so the bars
+ * are recorded as they arrive and rasterized into a bitmap of the right size
+ * in {@link #endDraw(int, int)}. Bar edges are rounded to whole pixels after
+ * scaling, so neighbouring bars never overlap or leave gaps. Text is drawn
+ * without anti-aliasing, which would be lost in a bilevel image anyway.
+ */
+public class BitmapOutput extends AbstractOutput {
+    private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, false, false);
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>();
+
+    private int[] rects = new int[5 * 64];
+    private int rectCount;
+    private final List<Object[]> texts = new ArrayList<Object[]>();
+    private boolean inverted;
+    private boolean reusingBuffer;
+    private int rotation;
+    private Bitmap bitmap;
+
+    /**
+     * Creates a new instance of BitmapOutput.
+     * 
+     * @param font
+     *            The font for text rendering, or null for no text
+     * @param scalar
+     *            The number of pixels for each barcode unit
+     */
+    public BitmapOutput(Font font, double scalar) {
+        super(font, true, scalar, Color.black, Color.white);
+    }
+
+    /**
+     * Returns the bitmap of the barcode most recently drawn.
+     * 
+     * @return The bitmap, or null if no barcode has been drawn yet
+     */
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * Sets whether bitmaps are drawn into a buffer owned by the current
+     * thread instead of a newly allocated one. The buffer is reused for the
+     * next barcode drawn with a reusing output on the same thread, so this is
+     * only suitable when each bitmap is written out before the next barcode
+     * is drawn.
+     * 
+     * @param reusingBuffer
+     *            True to draw into the per-thread buffer
+     */
+    public void setReusingBuffer(boolean reusingBuffer) {
+        this.reusingBuffer = reusingBuffer;
+    }
+
+    /**
+     * Sets the clockwise rotation of the bitmaps drawn. The bars are written
+     * into the rotated bitmap directly, so a rotation of 90 or 270 degrees
+     * turns each bar into runs along the bitmap's rows with no intermediate
+     * bitmap and no resampling.
+     * 
+     * @param rotation
+     *            0, 90, 180 or 270 degrees
+     */
+    public void setRotation(int rotation) {
+        this.rotation = PixelTarget.normalizeRotation(rotation);
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * From AbstractOutput - starts a new barcode.
+     */
+    public void beginDraw() {
+        rectCount = 0;
+        texts.clear();
+        inverted = false;
+    }
+
+    /**
+     * From AbstractOutput - rasterizes the barcode.
+     * 
+     * @param width
+     *            The output width (in pixels) of the barcode
+     * @param height
+     *            The output height (in pixels) of the barcode
+     */
+    public void endDraw(int width, int height) throws OutputException {
+        double scalar = getScalar();
+        int pixelWidth = (int) Math.round(width * scalar);
+        int pixelHeight = (int) Math.round(height * scalar);
+        if (rotation % 180 == 0) {
+            bitmap = createBitmap(pixelWidth, pixelHeight);
+        } else {
+            bitmap = createBitmap(pixelHeight, pixelWidth);
+        }
+        PixelTarget target = bitmap.rotate(rotation);
+        for (int i = 0; i < rectCount * 5; i += 5) {
+            int x0 = (int) Math.round(rects[i] * scalar);
+            int y0 = (int) Math.round(rects[i + 1] * scalar);
+            int x1 = (int) Math.round((rects[i] + rects[i + 2]) * scalar);
+            int y1 = (int) Math.round((rects[i + 1] + rects[i + 3]) * scalar);
+            target.fill(x0, y0, x1 - x0, y1 - y0, rects[i + 4] != 0);
+        }
+        for (int i = 0; i < texts.size(); i++) {
+            Object[] text = texts.get(i);
+            RasterOutput.drawText(target, (TextLayout) text[0], ((Float) text[1]).floatValue(),
+                    ((Float) text[2]).floatValue(), scalar);
+        }
+        bitmap = completed(bitmap);
+    }
+
+    /**
+     * Called with each rasterized barcode. Subclasses override this to write
+     * the bitmap out.
+     * 
+     * @param bitmap
+     *            The bitmap of the barcode just drawn
+     * @return The bitmap to keep as the result
+     * @throws OutputException
+     *             If the bitmap could not be written
+     */
+    protected Bitmap completed(Bitmap bitmap) throws OutputException {
+        return bitmap;
+    }
+
+    /**
+     * From AbstractOutput - records a bar to be rasterized.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width
+     * @param height
+     *            the height
+     * @param paintWithForegroundColor
+     *            if true, use the foreground color, otherwise use the
+     *            background color
+     * @return the width of the bar drawn
+     */
+    public int drawBar(int x, int y, int width, int height, boolean paintWithForegroundColor) {
+        addRect(x, y, width, height, paintWithForegroundColor != inverted);
+        return width;
+    }
+
+    /**
+     * Tracks blank modules, which draw their bars in the opposite colour.
+     */
+    public void toggleDrawingColor() {
+        inverted = !inverted;
+    }
+
+    public int drawText(String text, LabelLayout layout) throws OutputException {
+        if (getFont() == null || text == null || text.length() == 0) {
+            return 0;
+        }
+        if (BuiltInFont.isBuiltIn(getFont())) {
+            layout.setTextBounds(BuiltInFont.getBounds(text, getFont()));
+            addRect(layout.getBackgroundX(), layout.getBackgroundY(), layout.getBackgroundWidth(),
+                    layout.getBackgroundHeight(), false);
+            // The glyphs are just more rectangles, so they need no AWT at all
+            BuiltInFont.draw(text, Math.round(layout.getTextX()), Math.round(layout.getTextY()), getFont(),
+                    new BuiltInFont.Painter() {
+                        public void fill(int x, int y, int width, int height) {
+                            addRect(x, y, width, height, true);
+                        }
+                    });
+            return layout.getBackgroundHeight();
+        }
+        TextLayout textLayout = new TextLayout(text, getFont(), FONT_RENDER_CONTEXT);
+        layout.setTextLayout(textLayout);
+        addRect(layout.getBackgroundX(), layout.getBackgroundY(), layout.getBackgroundWidth(),
+                layout.getBackgroundHeight(), false);
+        texts.add(new Object[] {textLayout, Float.valueOf(layout.getTextX()), Float.valueOf(layout.getTextY())});
+        return layout.getBackgroundHeight();
+    }
+
+    /**
+     * Paint the background the background colour, based on the height and the
+     * width.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width to be painted
+     * @param height
+     *            the height to be painted
+     */
+    public void paintBackground(int x, int y, int width, int height) {
+        addRect(x, y, width, height, false);
+    }
+
+    private Bitmap createBitmap(int width, int height) {
+        if (!reusingBuffer) {
+            return new Bitmap(width, height);
+        }
+        int stride = (width + 7) >> 3;
+        byte[] bits = BUFFERS.get();
+        if (bits == null || bits.length < stride * height) {
+            bits = new byte[stride * height];
+            BUFFERS.set(bits);
+        } else {
+            Arrays.fill(bits, 0, stride * height, (byte) 0);
+        }
+        return new Bitmap(width, height, stride, bits);
+    }
+
+    private void addRect(int x, int y, int width, int height, boolean dark) {
+        if (rectCount * 5 == rects.length) {
+            int[] grown = new int[rects.length * 2];
+            System.arraycopy(rects, 0, grown, 0, rects.length);
+            rects = grown;
+        }
+        int i = rectCount++ * 5;
+        rects[i] = x;
+        rects[i + 1] = y;
+        rects[i + 2] = width;
+        rects[i + 3] = height;
+        rects[i + 4] = dark ? 1 : 0;
+    }
+}
@@ -0,0 +1,296 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.Font;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A small bitmap font bundled with barbecue, so that human readable text can
+ * be drawn without the AWT font stack, for example on headless servers. The
+ * glyphs are monospaced in the manner of OCR-B, drawn on a five by seven grid
+ * with two further rows for descenders, and cover the printable ASCII
+ * characters; anything else is drawn as a question mark.
+ * <p/>
+ * The font is selected by passing an ordinary {@link Font} created with
+ * {@link #createFont(int)} to an output. Only its name and size are used, so
+ * the AWT never has to find or load the font. The glyphs are scaled up by a
+ * whole number of pixels, one for every ten units of font size, so that
+ * they stay sharp on rasters.
+ */
+public final class BuiltInFont {
+    /** The name of the fonts created by {@link #createFont(int)} */
+    public static final String NAME = "Barbecue OCR-B";
+    /** The built-in font at the same size as the default AWT font */
+    public static final Font DEFAULT_FONT = createFont(20);
+
+    private static final int WIDTH = 5;
+    private static final int ASCENT = 7;
+    private static final int ADVANCE = WIDTH + 1;
+    private static final int FIRST_CHAR = ' ';
+    private static final int MISSING_CHAR = '?';
+
+    // One entry per character from space to tilde, each a list of rows from
+    // the top of the cell; rows 7 and 8 fall below the baseline
+    private static final String[] GLYPHS = {
+        "",
+        "..#.. ..#.. ..#.. ..#.. ..#.. ..... ..#..",
+        ".#.#. .#.#.",
+        ".#.#. .#.#. ##### .#.#. ##### .#.#. .#.#.",
+        "..#.. .#### #.#.. .###. ..#.# ####. ..#..",
+        "##... ##..# ...#. ..#.. .#... #..## ...##",
+        ".##.. #..#. #.#.. .#... #.#.# #..#. .##.#",
+        "..#.. ..#..",
+        "...#. ..#.. .#... .#... .#... ..#.. ...#.",
+        ".#... ..#.. ...#. ...#. ...#. ..#.. .#...",
+        "..... ..#.. #.#.# .###. #.#.# ..#.. .....",
+        "..... ..#.. ..#.. ##### ..#.. ..#.. .....",
+        "..... ..... ..... ..... ..... ..#.. ..#.. .#...",
+        "..... ..... ..... ##### ..... ..... .....",
+        "..... ..... ..... ..... ..... ..... ..#..",
+        "..... ....# ...#. ..#.. .#... #.... .....",
+        ".###. #...# #..## #.#.# ##..# #...# .###.",
+        "..#.. .##.. #.#.. ..#.. ..#.. ..#.. ..#..",
+        ".###. #...# ....# ...#. ..#.. .#... #####",
+        "##### ...#. ..#.. ...#. ....# #...# .###.",
+        "...#. ..##. .#.#. #..#. ##### ...#. ...#.",
+        "##### #.... ####. ....# ....# #...# .###.",
+        "..##. .#... #.... ####. #...# #...# .###.",
+        "##### ....# ...#. ..#.. .#... .#... .#...",
+        ".###. #...# #...# .###. #...# #...# .###.",
+        ".###. #...# #...# .#### ....# ...#. .##..",
+        "..... ..#.. ..... ..... ..... ..#.. .....",
+        "..... ..#.. ..... ..... ..... ..#.. ..#.. .#...",
+        "...#. ..#.. .#... #.... .#... ..#.. ...#.",
+        "..... ..... ##### ..... ##### ..... .....",
+        ".#... ..#.. ...#. ....# ...#. ..#.. .#...",
+        ".###. #...# ....# ...#. ..#.. ..... ..#..",
+        ".###. #...# #.### #.#.# #.### #.... .####",
+        ".###. #...# #...# ##### #...# #...# #...#",
+        "####. #...# #...# ####. #...# #...# ####.",
+        ".###. #...# #.... #.... #.... #...# .###.",
+        "####. #...# #...# #...# #...# #...# ####.",
+        "##### #.... #.... ####. #.... #.... #####",
+        "##### #.... #.... ####. #.... #.... #....",
+        ".###. #...# #.... #.### #...# #...# .####",
+        "#...# #...# #...# ##### #...# #...# #...#",
+        ".###. ..#.. ..#.. ..#.. ..#.. ..#.. .###.",
+        "..### ...#. ...#. ...#. ...#. #..#. .##..",
+        "#...# #..#. #.#.. ##... #.#.. #..#. #...#",
+        "#.... #.... #.... #.... #.... #.... #####",
+        "#...# ##.## #.#.# #.#.# #...# #...# #...#",
+        "#...# #...# ##..# #.#.# #..## #...# #...#",
+        ".###. #...# #...# #...# #...# #...# .###.",
+        "####. #...# #...# ####. #.... #.... #....",
+        ".###. #...# #...# #...# #.#.# #..#. .##.#",
+        "####. #...# #...# ####. #.#.. #..#. #...#",
+        ".#### #.... #.... .###. ....# ....# ####.",
+        "##### ..#.. ..#.. ..#.. ..#.. ..#.. ..#..",
+        "#...# #...# #...# #...# #...# #...# .###.",
+        "#...# #...# #...# #...# #...# .#.#. ..#..",
+        "#...# #...# #...# #.#.# #.#.# #.#.# .#.#.",
+        "#...# #...# .#.#. ..#.. .#.#. #...# #...#",
+        "#...# #...# .#.#. ..#.. ..#.. ..#.. ..#..",
+        "##### ....# ...#. ..#.. .#... #.... #####",
+        ".###. .#... .#... .#... .#... .#... .###.",
+        "..... #.... .#... ..#.. ...#. ....# .....",
+        ".###. ...#. ...#. ...#. ...#. ...#. .###.",
+        "..#.. .#.#. #...#",
+        "..... ..... ..... ..... ..... ..... ..... #####",
+        ".#... ..#..",
+        "..... ..... .###. ....# .#### #...# .####",
+        "#.... #.... #.##. ##..# #...# #...# ####.",
+        "..... ..... .###. #.... #.... #...# .###.",
+        "....# ....# .##.# #..## #...# #...# .####",
+        "..... ..... .###. #...# ##### #.... .###.",
+        "..##. .#..# .#... ###.. .#... .#... .#...",
+        "..... ..... .#### #...# #...# #...# .#### ....# .###.",
+        "#.... #.... #.##. ##..# #...# #...# #...#",
+        "..#.. ..... .##.. ..#.. ..#.. ..#.. .###.",
+        "...#. ..... ..##. ...#. ...#. ...#. ...#. #..#. .##..",
+        "#.... #.... #..#. #.#.. ##... #.#.. #..#.",
+        ".##.. ..#.. ..#.. ..#.. ..#.. ..#.. .###.",
+        "..... ..... ##.#. #.#.# #.#.# #.#.# #.#.#",
+        "..... ..... #.##. ##..# #...# #...# #...#",
+        "..... ..... .###. #...# #...# #...# .###.",
+        "..... ..... ####. #...# #...# #...# ####. #.... #....",
+        "..... ..... .#### #...# #...# #...# .#### ....# ....#",
+        "..... ..... #.##. ##..# #.... #.... #....",
+        "..... ..... .###. #.... .###. ....# ####.",
+        ".#... .#... ###.. .#... .#... .#..# ..##.",
+        "..... ..... #...# #...# #...# #..## .##.#",
+        "..... ..... #...# #...# #...# .#.#. ..#..",
+        "..... ..... #...# #...# #.#.# #.#.# .#.#.",
+        "..... ..... #...# .#.#. ..#.. .#.#. #...#",
+        "..... ..... #...# #...# #...# #...# .#### ....# .###.",
+        "..... ..... ##### ...#. ..#.. .#... #####",
+        "...#. ..#.. ..#.. .#... ..#.. ..#.. ...#.",
+        "..#.. ..#.. ..#.. ..#.. ..#.. ..#.. ..#..",
+        ".#... ..#.. ..#.. ...#. ..#.. ..#.. .#...",
+        "..... ..... .#... #.#.# ...#. ..... ....."
+    };
+
+    // The horizontal runs of each glyph as (x, y, width) triples, and the
+    // first and last rows with any ink, worked out once from GLYPHS
+    private static final int[][] RUNS = new int[GLYPHS.length][];
+    private static final int[] TOPS = new int[GLYPHS.length];
+    private static final int[] BOTTOMS = new int[GLYPHS.length];
+
+    static {
+        for (int i = 0; i < GLYPHS.length; i++) {
+            String glyph = GLYPHS[i];
+            int[] runs = new int[0];
+            TOPS[i] = Integer.MAX_VALUE;
+            BOTTOMS[i] = Integer.MIN_VALUE;
+            for (int row = 0; row * (WIDTH + 1) < glyph.length(); row++) {
+                int start = row * (WIDTH + 1);
+                for (int x = 0; x < WIDTH; x++) {
+                    if (glyph.charAt(start + x) != '#' || (x > 0 && glyph.charAt(start + x - 1) == '#')) {
+                        continue;
+                    }
+                    int end = x;
+                    while (end < WIDTH && glyph.charAt(start + end) == '#') {
+                        end++;
+                    }
+                    int[] grown = new int[runs.length + 3];
+                    System.arraycopy(runs, 0, grown, 0, runs.length);
+                    grown[runs.length] = x;
+                    grown[runs.length + 1] = row;
+                    grown[runs.length + 2] = end - x;
+                    runs = grown;
+                    TOPS[i] = Math.min(TOPS[i], row);
+                    BOTTOMS[i] = Math.max(BOTTOMS[i], row + 1);
+                }
+            }
+            RUNS[i] = runs;
+        }
+    }
+
+    private BuiltInFont() {
+    }
+
+    /**
+     * Creates a font that selects the built-in glyphs.
+     * 
+     * @param size
+     *            The size of the font, as for an AWT font
+     * @return The font
+     */
+    public static Font createFont(int size) {
+        return new Font(NAME, Font.PLAIN, size);
+    }
+
+    /**
+     * Returns true if the given font selects the built-in glyphs.
+     * 
+     * @param font
+     *            The font, which may be null
+     * @return True if the font was created by {@link #createFont(int)}
+     */
+    public static boolean isBuiltIn(Font font) {
+        return font != null && NAME.equals(font.getName());
+    }
+
+    /**
+     * Returns the size in pixels of one dot of the glyphs.
+     * 
+     * @param font
+     *            The font
+     * @return The scale, at least one
+     */
+    public static int getScale(Font font) {
+        return Math.max(1, Math.round(font.getSize2D() / 10));
+    }
+
+    /**
+     * Returns the bounds of the ink of the given text, relative to the start
+     * of its baseline, as {@link java.awt.font.TextLayout#getBounds()} does
+     * for AWT fonts.
+     * 
+     * @param text
+     *            The text
+     * @param font
+     *            The font
+     * @return The bounds, which are empty for blank text
+     */
+    public static Rectangle2D getBounds(String text, Font font) {
+        int scale = getScale(font);
+        int top = Integer.MAX_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int i = 0; i < text.length(); i++) {
+            int glyph = getGlyph(text.charAt(i));
+            top = Math.min(top, TOPS[glyph]);
+            bottom = Math.max(bottom, BOTTOMS[glyph]);
+        }
+        if (top > bottom) {
+            return new Rectangle2D.Float();
+        }
+        return new Rectangle2D.Float(0, (top - ASCENT) * scale, (text.length() * ADVANCE - 1) * scale,
+                (bottom - top) * scale);
+    }
+
+    /**
+     * Draws the text as filled rectangles, one for each horizontal run of
+     * dots in each glyph.
+     * 
+     * @param text
+     *            The text
+     * @param x
+     *            The x coordinate of the start of the baseline
+     * @param y
+     *            The y coordinate of the baseline
+     * @param font
+     *            The font
+     * @param painter
+     *            The painter to fill the rectangles with
+     * @throws OutputException
+     *             If the painter cannot fill a rectangle
+     */
+    static void draw(String text, int x, int y, Font font, Painter painter) throws OutputException {
+        int scale = getScale(font);
+        int top = y - ASCENT * scale;
+        for (int i = 0; i < text.length(); i++) {
+            int[] runs = RUNS[getGlyph(text.charAt(i))];
+            int left = x + i * ADVANCE * scale;
+            for (int j = 0; j < runs.length; j += 3) {
+                painter.fill(left + runs[j] * scale, top + runs[j + 1] * scale, runs[j + 2] * scale, scale);
+            }
+        }
+    }
+
+    private static int getGlyph(char c) {
+        int glyph = c - FIRST_CHAR;
+        return glyph >= 0 && glyph < GLYPHS.length ? glyph : MISSING_CHAR - FIRST_CHAR;
+    }
+
+    /**
+     * Receives the rectangles that make up the drawn glyphs.
+     */
+    interface Painter {
+        void fill(int x, int y, int width, int height) throws OutputException;
+    }
+}
@@ -7,10 +7,10 @@ public class CenteredLabelLayout extends LabelLayout {
     }
 
     protected void calculate() {
-        int vgap = (int) Math.sqrt(textLayout.getBounds().getHeight());
-        textX = (float) ((((width - x) - textLayout.getBounds().getWidth()) / 2) + x);
-        textY = (float) (y + textLayout.getBounds().getHeight() + vgap);
-        int height = (int) (textLayout.getBounds().getHeight() + vgap + 1);
+        int vgap = (int) Math.sqrt(textBounds.getHeight());
+        textX = (float) ((((width - x) - textBounds.getWidth()) / 2) + x);
+        textY = (float) (y + textBounds.getHeight() + vgap);
+        int height = (int) (textBounds.getHeight() + vgap + 1);
         bgX = x;
         bgY = y;
         bgWidth = width - x;
@@ -7,8 +7,8 @@ public class DefaultLabelLayout extends LabelLayout {
 	}
 
 	protected void calculate() {
-		bgWidth = (int)textLayout.getBounds().getWidth();
-		bgHeight = (int)textLayout.getBounds().getHeight();
+		bgWidth = (int)textBounds.getWidth();
+		bgHeight = (int)textBounds.getHeight();
 		bgX = x;
 		bgY = y;
 		textX = x;
@@ -28,23 +28,37 @@ package net.sourceforge.barbecue.output;
 
 import net.sourceforge.barbecue.env.DefaultEnvironment;
 
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.awt.*;
 
 /**
  * EPS outputter to output barcodes as Encapsulated Postscript files.
+ * <p/>
+ * Bars are merged into runs and each run is drawn with a single call to a
+ * procedure defined once in the prologue. The barcode is drawn in unscaled
+ * barcode units with the y axis pointing down, as for the other outputs,
+ * and the scalar is applied with a single transformation. Each barcode is
+ * written to the Writer as soon as it is complete; the Writer is flushed
+ * but never closed, so several EPS files may be written to one stream.
+ * See {@link PostScriptOutput} for writing many barcodes as the pages of a
+ * single PostScript document.
  * 
  * Contributed by Tim Molteno.
  * 
  * @author <a href="mailto:tim@molteno.net">Tim Molteno</a>
  */
-public class EPSOutput extends AbstractOutput {
-    private StringBuffer epsHeader;
-    private StringBuffer epsBody;
+public class EPSOutput extends BarRunOutput {
+    private static final int DECIMALS = 4;
+    private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
     private final Writer writer;
-    private boolean      backgroundDrawing = false;
+    private final TextBuffer buf = new TextBuffer(1024);
+    private final TextBuffer body = new TextBuffer(1024);
+    private boolean fontSet;
 
     /**
      * Creates a new instance of EPSOutput.
@@ -53,136 +67,91 @@ public class EPSOutput extends AbstractOutput {
      *            The Writer to output the EPS text to
      */
     public EPSOutput(Writer writer) {
-        super(DefaultEnvironment.DEFAULT_FONT, true, 1.0, Color.black,
-                Color.white);
-        this.writer = new BufferedWriter(writer);
-        epsBody = new StringBuffer();
-        epsHeader = new StringBuffer();
-        backgroundDrawing = false;
+        this(writer, DefaultEnvironment.DEFAULT_FONT, Color.black, Color.white, 1.0);
     }
 
-    public void beginDraw() {
+    /**
+     * Creates a new instance of EPSOutput.
+     * 
+     * @param writer
+     *            The Writer to output the EPS text to
+     * @param font
+     *            The font for text rendering, mapped onto the nearest of the
+     *            standard PostScript fonts
+     * @param fgColor
+     *            Foreground color
+     * @param bgColor
+     *            Background color, used to clear areas beneath guard bars
+     * @param scalar
+     *            The size in points of one barcode unit
+     */
+    public EPSOutput(Writer writer, Font font, Color fgColor, Color bgColor, double scalar) {
+        super(font, true, scalar, fgColor, bgColor);
+        this.writer = new BufferedWriter(writer);
     }
 
     /**
-     * From AbstractOutput - finished up the EPS output.
+     * From AbstractOutput - starts a new barcode.
      */
-    public void endDraw(int width, int height) {
-        epsHeader.setLength(0);
-        epsHeader.append("%!PS-Adobe-2.0 EPSF-1.2\n");
-        epsHeader.append("%%Creator: barbeque\n");
-        epsHeader.append("%%BoundingBox: 0 0 ");
-        epsHeader.append((int) getScaledDimension(width));
-        epsHeader.append(" ");
-        epsHeader.append((int) getScaledDimension(height));
-        epsHeader.append("\n");
-        epsHeader.append("%%EndComments\n");
-        epsHeader.append("% Printing barcode for \"");
-        epsHeader.append("\", scaled  1.00\n");
-
-        try {
-            writer.write(epsHeader.toString());
-            writer.write(epsBody.toString());
-            writer.write("% End barcode\n");
-        } catch (java.io.IOException ex) {
-            System.err.println("IO Exception writing EPS epilogue: "
-                    + ex.toString());
-            ex.printStackTrace();
-        } finally {
-            try {
-                writer.flush();
-                writer.close();
-            } catch (IOException e) {
-                System.err.println("IO Exception closing EPS stream: "
-                        + e.toString());
-                e.printStackTrace();
-            }
-        }
+    public void beginDraw() {
+        body.clear();
+        fontSet = false;
     }
 
     /**
-     * From AbstractOutput - outputs the correct rectangle to the EPS output.
+     * From AbstractOutput - writes the barcode as a complete EPS file.
      * 
-     * @param x
-     *            the x coordinate
-     * @param y
-     *            the y coordinate
      * @param width
-     *            the width
+     *            The output width (in pixels) of the barcode
      * @param height
-     *            the height
-     * @param paintWithForegroundColor
-     *            if true, use the foreground color, otherwise use the
-     *            background color
+     *            The output height (in pixels) of the barcode
      */
-    public int drawBar(int x, int y, int width, int height,
-            boolean paintWithForegroundColor) {
-        return (int) drawBarEPS(x, y, width, height, paintWithForegroundColor);
+    public void endDraw(int width, int height) throws OutputException {
+        flushRun();
+        buf.clear();
+        buf.append("%!PS-Adobe-3.0 EPSF-3.0\n");
+        buf.append("%%Creator: barbecue\n");
+        appendBoundingBox("%%BoundingBox: ", "%%HiResBoundingBox: ", width, height);
+        buf.append("%%LanguageLevel: 2\n");
+        buf.append("%%EndComments\n");
+        appendPrologue();
+        appendBarcode(0, height * getScalar());
+        buf.append("%%EOF\n");
+        write(buf);
     }
 
     /**
-     * From AbstractOutput - outputs the correct rectangle to the EPS output.
-     * 
-     * @param x
-     *            the x coordinate
-     * @param y
-     *            the y coordinate
-     * @param width
-     *            the width
-     * @param height
-     *            the height
-     * @param paintWithForegroundColor
-     *            if true, use the foreground color, otherwise use the
-     *            background color
+     * Adds a run of bars to the current barcode.
      */
-    public double drawBarEPS(double x, double y, double width, double height,
-            boolean paintWithForegroundColor) {
-        // Put a postscript comment in for the moment.
-        //
-        {
-            epsBody.append("%");
-        }
-        epsBody.append("\t[");
-        epsBody.append(getScaledDimension(height));
-        epsBody.append("  ");
-        epsBody.append(getScaledDimension(x));
-        epsBody.append("  ");
-        epsBody.append(getScaledDimension(y));
-        epsBody.append("  ");
-        epsBody.append(getScaledDimension(width));
-        epsBody.append("]\n");
-
-        if (true == paintWithForegroundColor && (false == backgroundDrawing)) {
-            epsBody.append("newpath\n");
-            epsBody.append(x);
-            epsBody.append(" ");
-            epsBody.append(y);
-            epsBody.append(" moveto\n");
-            epsBody.append(0);
-            epsBody.append(" ");
-            epsBody.append(height);
-            epsBody.append(" rlineto\n");
-            epsBody.append(width);
-            epsBody.append(" ");
-            epsBody.append(0);
-            epsBody.append(" rlineto\n");
-            epsBody.append(0);
-            epsBody.append(" ");
-            epsBody.append(-height);
-            epsBody.append(" rlineto\n");
-            epsBody.append("closepath\n");
-            epsBody.append("fill\n\n");
-        }
-
-        return width;
+    protected void drawRun(int x, int y, int width, int height) {
+        body.append(x).append(' ').append(y).append(' ').append(width).append(' ').append(height).append(" B\n");
     }
 
+    /**
+     * Draws the text centred within the label background, measured by the
+     * PostScript interpreter in the font actually used.
+     */
     public int drawText(String text, LabelLayout layout) throws OutputException {
-        return 0;
-    }
-
-    public void toggleDrawingColor() {
-        backgroundDrawing = !backgroundDrawing;
+        Font font = getFont();
+        if (font == null || text == null || text.length() == 0) {
+            return 0;
+        }
+        if (BuiltInFont.isBuiltIn(font)) {
+            return drawBuiltInText(text, layout);
+        }
+        flushRun();
+        layout.setTextLayout(new TextLayout(text, font, FONT_RENDER_CONTEXT));
+        if (!fontSet) {
+            // Undo the flipped y axis for the glyphs
+            int size = font.getSize();
+            body.append('/').append(getPostScriptFontName(font)).append(" findfont [");
+            body.append(size).append(" 0 0 -").append(size).append(" 0 0] makefont setfont\n");
+            fontSet = true;
+        }
+        body.appendLiteral(text);
+        body.append(' ').append(layout.getBackgroundX() + layout.getBackgroundWidth() / 2.0, DECIMALS);
+        body.append(' ').append(layout.getTextY(), DECIMALS).append(" T\n");
+        return layout.getBackgroundHeight();
     }
 
     /**
@@ -199,9 +168,94 @@ public class EPSOutput extends AbstractOutput {
      *            the height to be painted
      */
     public void paintBackground(int x, int y, int width, int height) {
+        try {
+            flushRun();
+        } catch (OutputException e) {
+            // Runs are only appended to the body buffer
+        }
+        body.append("gsave ");
+        appendColour(body, getBackgroundColor());
+        body.append(' ').append(x).append(' ').append(y).append(' ').append(width).append(' ').append(height);
+        body.append(" B grestore\n");
+    }
+
+    /**
+     * Appends the bounding box comments for a barcode of the given size.
+     */
+    protected void appendBoundingBox(String comment, String hiResComment, int width, int height) {
+        double w = width * getScalar();
+        double h = height * getScalar();
+        buf.append(comment).append("0 0 ").append((long) Math.ceil(w)).append(' ').append((long) Math.ceil(h)).append('\n');
+        buf.append(hiResComment).append("0 0 ").append(w, DECIMALS).append(' ').append(h, DECIMALS).append('\n');
+    }
+
+    /**
+     * Appends the procedures shared by every barcode: <code>B</code> fills a
+     * run given x, y, width and height, and <code>T</code> shows a string
+     * centred on the given x, at the given baseline.
+     */
+    protected void appendPrologue() {
+        buf.append("%%BeginProlog\n");
+        buf.append("/B { rectfill } bind def\n");
+        buf.append("/T { moveto dup stringwidth pop 2 div neg 0 rmoveto show } bind def\n");
+        buf.append("%%EndProlog\n");
+    }
+
+    /**
+     * Appends the drawing commands for the barcode just completed.
+     * 
+     * @param left
+     *            The position in points of the left edge of the barcode
+     * @param top
+     *            The position in points of the top edge of the barcode
+     */
+    protected void appendBarcode(double left, double top) {
+        double scalar = getScalar();
+        buf.append("gsave\n[").append(scalar, DECIMALS).append(" 0 0 ").append(-scalar, DECIMALS);
+        buf.append(' ').append(left, DECIMALS).append(' ').append(top, DECIMALS).append("] concat\n");
+        appendColour(buf, getForegroundColor());
+        buf.append('\n').append(body).append("grestore\n");
+    }
+
+    /**
+     * Returns the buffer that {@link #endDraw(int, int)} assembles its output
+     * in before writing it.
+     */
+    TextBuffer getBuffer() {
+        return buf;
     }
 
-    private double getScaledDimension(double value) {
-        return getScalar() * value;
+    /**
+     * Writes the given text and flushes the Writer.
+     */
+    protected void write(TextBuffer text) throws OutputException {
+        try {
+            text.writeTo(writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        }
+    }
+
+    private void appendColour(TextBuffer target, Color c) {
+        target.append(c.getRed() / 255.0, 3).append(' ').append(c.getGreen() / 255.0, 3).append(' ');
+        target.append(c.getBlue() / 255.0, 3).append(" setrgbcolor");
+    }
+
+    /**
+     * Returns the name of the standard PostScript font closest to the given
+     * font.
+     */
+    static String getPostScriptFontName(Font font) {
+        String family = font.getFamily().toLowerCase();
+        boolean bold = font.isBold();
+        boolean italic = font.isItalic();
+        if (family.indexOf("courier") >= 0 || family.indexOf("mono") >= 0) {
+            return "Courier" + (bold ? (italic ? "-BoldOblique" : "-Bold") : (italic ? "-Oblique" : ""));
+        }
+        if (family.indexOf("times") >= 0 || family.indexOf("serif") >= 0 && family.indexOf("sans") < 0) {
+            return "Times" + (bold ? (italic ? "-BoldItalic" : "-Bold") : (italic ? "-Italic" : "-Roman"));
+        }
+        return "Helvetica" + (bold ? (italic ? "-BoldOblique" : "-Bold") : (italic ? "-Oblique" : ""));
     }
 }
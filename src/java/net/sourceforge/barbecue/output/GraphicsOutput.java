@@ -113,7 +113,23 @@ public class GraphicsOutput extends AbstractOutput {
             return 0;
         }
 
-        if (isPainting()) {
+        if (BuiltInFont.isBuiltIn(getFont())) {
+            labelLayout.setTextBounds(BuiltInFont.getBounds(text, getFont()));
+            if (isPainting()) {
+                g.setColor(getBackgroundColor());
+                g.fillRect(labelLayout.getBackgroundX(), labelLayout
+                        .getBackgroundY(), labelLayout.getBackgroundWidth(),
+                        labelLayout.getBackgroundHeight());
+                g.setColor(getForegroundColor());
+                BuiltInFont.draw(text, Math.round(labelLayout.getTextX()),
+                        Math.round(labelLayout.getTextY()), getFont(),
+                        new BuiltInFont.Painter() {
+                            public void fill(int x, int y, int width, int height) {
+                                g.fillRect(x, y, width, height);
+                            }
+                        });
+            }
+        } else if (isPainting()) {
             g.setFont(getFont());
             g.setColor(getBackgroundColor());
             g.fillRect(labelLayout.getBackgroundX(), labelLayout
@@ -1,6 +1,7 @@
 package net.sourceforge.barbecue.output;
 
 import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
 
 public abstract class LabelLayout {
 	static final int NOT_SET = -1;
@@ -10,6 +11,7 @@ public abstract class LabelLayout {
 	protected final int width;
 	protected final int height;
 	protected TextLayout textLayout;
+	protected Rectangle2D textBounds;
 	protected float textX;
 	protected float textY;
 	protected int bgX;
@@ -26,6 +28,18 @@ public abstract class LabelLayout {
 
 	public void setTextLayout(TextLayout textLayout) {
 		this.textLayout = textLayout;
+		this.textBounds = textLayout.getBounds();
+		calculate();
+	}
+
+	/**
+	 * Lays out text that was measured without a TextLayout, such as text in
+	 * the {@link BuiltInFont}.
+	 * @param textBounds The bounds of the text relative to the start of its baseline
+	 */
+	public void setTextBounds(Rectangle2D textBounds) {
+		this.textLayout = null;
+		this.textBounds = textBounds;
 		calculate();
 	}
 
@@ -6,9 +6,9 @@ public class MarginLabelLayout extends LabelLayout {
     }
 
     protected void calculate() {
-        textX = x + (width / 2) - ((int) textLayout.getBounds().getWidth() / 2);
+        textX = x + (width / 2) - ((int) textBounds.getWidth() / 2);
         textY = y + (height / 2)
-                + ((int) textLayout.getBounds().getHeight() / 2);
+                + ((int) textBounds.getHeight() / 2);
         bgX = x;
         bgY = y;
         bgHeight = height;
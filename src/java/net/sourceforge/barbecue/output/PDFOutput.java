@@ -0,0 +1,411 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Outputter that writes barcodes as vector graphics in a PDF document,
+ * without any PDF library.
+ * <p/>
+ * Bars are merged into runs and each run becomes a single rectangle in the
+ * page's content stream, which is optionally deflate compressed. Labels are
+ * drawn with the nearest of the standard PDF fonts, so no font is embedded.
+ * <p/>
+ * Barcodes are either placed one per page, with each page sized to fit its
+ * barcode, or laid out in the cells of a {@link SheetLayout}, centred in
+ * each cell and filling as many pages as needed. Each page is written to
+ * the stream as soon as it is full and only the object offsets are kept
+ * until the cross-reference table is written by {@link #endDocument()}, so
+ * the memory used does not grow with the size of the pages already
+ * written. The stream is flushed but never closed.
+ */
+public class PDFOutput extends BarRunOutput {
+    private static final int DECIMALS = 4;
+    private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int RESOURCES = 3;
+
+    private final CountingOutputStream out;
+    private final SheetLayout sheet;
+    private final Deflater deflater;
+    private final TextBuffer buf = new TextBuffer(256);
+    private final TextBuffer body = new TextBuffer(1024);
+    private final TextBuffer content = new TextBuffer(4096);
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    private final Map<String, String> fonts = new LinkedHashMap<String, String>();
+    private long[] offsets = new long[64];
+    private int[] pageObjects = new int[16];
+    private int objectCount = RESOURCES + 1;
+    private int pages;
+    private int cell;
+    private boolean started;
+    private boolean pathOpen;
+    private boolean fontSet;
+
+    /**
+     * Creates a new instance of PDFOutput that writes each barcode on its
+     * own page, with compressed content streams.
+     * 
+     * @param out
+     *            The stream to write the PDF document to
+     */
+    public PDFOutput(OutputStream out) {
+        this(out, DefaultEnvironment.DEFAULT_FONT, Color.black, Color.white, 1.0, null, true);
+    }
+
+    /**
+     * Creates a new instance of PDFOutput.
+     * 
+     * @param out
+     *            The stream to write the PDF document to
+     * @param font
+     *            The font for text rendering, mapped onto the nearest of the
+     *            standard PDF fonts
+     * @param fgColor
+     *            Foreground color
+     * @param bgColor
+     *            Background color, used to clear areas beneath guard bars
+     * @param scalar
+     *            The size in points of one barcode unit
+     * @param sheet
+     *            The layout of the barcodes on each page, in points, or null
+     *            to size each page to its barcode
+     * @param compress
+     *            True to deflate the content streams
+     */
+    public PDFOutput(OutputStream out, Font font, Color fgColor, Color bgColor, double scalar,
+            SheetLayout sheet, boolean compress) {
+        super(font, true, scalar, fgColor, bgColor);
+        this.out = new CountingOutputStream(out);
+        this.sheet = sheet;
+        this.deflater = compress ? new Deflater(Deflater.BEST_COMPRESSION) : null;
+    }
+
+    /**
+     * Returns the number of pages written so far.
+     * 
+     * @return The page count
+     */
+    public int getPageCount() {
+        return pages;
+    }
+
+    /**
+     * From AbstractOutput - starts a new barcode.
+     */
+    public void beginDraw() {
+        body.clear();
+        pathOpen = false;
+        fontSet = false;
+    }
+
+    /**
+     * From AbstractOutput - adds the barcode to the current page, writing
+     * the page out once it is full.
+     * 
+     * @param width
+     *            The output width (in pixels) of the barcode
+     * @param height
+     *            The output height (in pixels) of the barcode
+     */
+    public void endDraw(int width, int height) throws OutputException {
+        flushRun();
+        closePath();
+        double w = width * getScalar();
+        double h = height * getScalar();
+        if (sheet == null) {
+            appendBarcode(0, h);
+            writePage(w, h);
+        } else {
+            double left = sheet.getCellX(cell) + (sheet.getCellWidth() - w) / 2;
+            double top = sheet.getCellY(cell) + (sheet.getCellHeight() - h) / 2;
+            appendBarcode(left, sheet.getPageHeight() - top);
+            if (++cell == sheet.getCellsPerPage()) {
+                writePage(sheet.getPageWidth(), sheet.getPageHeight());
+            }
+        }
+    }
+
+    /**
+     * Adds a run of bars to the current barcode.
+     */
+    protected void drawRun(int x, int y, int width, int height) {
+        body.append(x).append(' ').append(y).append(' ').append(width).append(' ').append(height).append(" re\n");
+        pathOpen = true;
+    }
+
+    /**
+     * Draws the text at the position given by the label layout.
+     */
+    public int drawText(String text, LabelLayout layout) throws OutputException {
+        Font font = getFont();
+        if (font == null || text == null || text.length() == 0) {
+            return 0;
+        }
+        if (BuiltInFont.isBuiltIn(font)) {
+            return drawBuiltInText(text, layout);
+        }
+        flushRun();
+        closePath();
+        layout.setTextLayout(new TextLayout(text, font, FONT_RENDER_CONTEXT));
+        body.append("BT ");
+        if (!fontSet) {
+            body.append('/').append(getFontResource(font)).append(' ').append(font.getSize()).append(" Tf ");
+            fontSet = true;
+        }
+        // Undo the flipped y axis for the glyphs
+        body.append("1 0 0 -1 ").append(layout.getTextX(), DECIMALS).append(' ').append(layout.getTextY(), DECIMALS);
+        body.append(" Tm ").appendLiteral(text).append(" Tj ET\n");
+        return layout.getBackgroundHeight();
+    }
+
+    /**
+     * Paint the background the background colour, based on the height and the
+     * width.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width to be painted
+     * @param height
+     *            the height to be painted
+     */
+    public void paintBackground(int x, int y, int width, int height) {
+        try {
+            flushRun();
+        } catch (OutputException e) {
+            // Runs are only appended to the body buffer
+        }
+        closePath();
+        body.append("q ");
+        appendColour(body, getBackgroundColor());
+        body.append(' ').append(x).append(' ').append(y).append(' ').append(width).append(' ').append(height);
+        body.append(" re f Q\n");
+    }
+
+    /**
+     * Writes out the last page, if it is not empty, followed by the document
+     * catalog and the cross-reference table. No further barcodes may be
+     * output after this has been called.
+     * 
+     * @throws OutputException
+     *             If the document could not be written
+     */
+    public void endDocument() throws OutputException {
+        if (cell > 0) {
+            writePage(sheet.getPageWidth(), sheet.getPageHeight());
+        }
+        try {
+            start();
+            beginObject(RESOURCES);
+            buf.append("<< /ProcSet [/PDF /Text] /Font <<");
+            for (Iterator<Map.Entry<String, String>> i = fonts.entrySet().iterator(); i.hasNext();) {
+                Map.Entry<String, String> font = i.next();
+                buf.append("\n/").append(font.getValue()).append(" << /Type /Font /Subtype /Type1 /BaseFont /");
+                buf.append(font.getKey()).append(" /Encoding /WinAnsiEncoding >>");
+            }
+            buf.append(" >> >>\n");
+            endObject();
+
+            beginObject(PAGES);
+            buf.append("<< /Type /Pages /Count ").append(pages).append(" /Kids [");
+            for (int i = 0; i < pages; i++) {
+                buf.append(i % 10 == 0 ? '\n' : ' ').append(pageObjects[i]).append(" 0 R");
+                if (buf.length() > 4096) {
+                    buf.writeTo(out);
+                    buf.clear();
+                }
+            }
+            buf.append("] >>\n");
+            endObject();
+
+            beginObject(CATALOG);
+            buf.append("<< /Type /Catalog /Pages ").append(PAGES).append(" 0 R >>\n");
+            endObject();
+
+            long xref = out.count;
+            buf.append("xref\n0 ").append(objectCount).append("\n0000000000 65535 f \n");
+            for (int i = 1; i < objectCount; i++) {
+                String offset = Long.toString(offsets[i]);
+                for (int pad = offset.length(); pad < 10; pad++) {
+                    buf.append('0');
+                }
+                buf.append(offset).append(" 00000 n \n");
+                if (buf.length() > 4096) {
+                    buf.writeTo(out);
+                    buf.clear();
+                }
+            }
+            buf.append("trailer\n<< /Size ").append(objectCount).append(" /Root ").append(CATALOG);
+            buf.append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            buf.writeTo(out);
+            buf.clear();
+            out.flush();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private void appendBarcode(double left, double top) {
+        double scalar = getScalar();
+        content.append("q ").append(scalar, DECIMALS).append(" 0 0 ").append(-scalar, DECIMALS);
+        content.append(' ').append(left, DECIMALS).append(' ').append(top, DECIMALS).append(" cm ");
+        appendColour(content, getForegroundColor());
+        content.append('\n').append(body).append("Q\n");
+    }
+
+    private void writePage(double width, double height) throws OutputException {
+        try {
+            start();
+            int contents = objectCount++;
+            int page = objectCount++;
+
+            beginObject(contents);
+            if (deflater == null) {
+                buf.append("<< /Length ").append(content.length()).append(" >>\nstream\n");
+                buf.writeTo(out);
+                content.writeTo(out);
+            } else {
+                compressed.reset();
+                deflater.reset();
+                DeflaterOutputStream deflated = new DeflaterOutputStream(compressed, deflater);
+                content.writeTo(deflated);
+                deflated.finish();
+                buf.append("<< /Length ").append(compressed.size()).append(" /Filter /FlateDecode >>\nstream\n");
+                buf.writeTo(out);
+                compressed.writeTo(out);
+            }
+            buf.clear();
+            buf.append("\nendstream\n");
+            endObject();
+
+            beginObject(page);
+            buf.append("<< /Type /Page /Parent ").append(PAGES).append(" 0 R /MediaBox [0 0 ");
+            buf.append(width, DECIMALS).append(' ').append(height, DECIMALS).append("] /Resources ");
+            buf.append(RESOURCES).append(" 0 R /Contents ").append(contents).append(" 0 R >>\n");
+            endObject();
+            out.flush();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        }
+        if (pages == pageObjects.length) {
+            int[] grown = new int[pages * 2];
+            System.arraycopy(pageObjects, 0, grown, 0, pages);
+            pageObjects = grown;
+        }
+        pageObjects[pages++] = objectCount - 1;
+        content.clear();
+        cell = 0;
+    }
+
+    private void start() throws IOException {
+        if (!started) {
+            started = true;
+            // The comment of high bytes marks the file as binary
+            buf.append("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+            buf.writeTo(out);
+            buf.clear();
+        }
+    }
+
+    private void beginObject(int number) throws IOException {
+        if (number >= offsets.length) {
+            long[] grown = new long[Math.max(offsets.length * 2, number + 1)];
+            System.arraycopy(offsets, 0, grown, 0, offsets.length);
+            offsets = grown;
+        }
+        offsets[number] = out.count + buf.length();
+        buf.append(number).append(" 0 obj\n");
+    }
+
+    private void endObject() throws IOException {
+        buf.append("endobj\n");
+        buf.writeTo(out);
+        buf.clear();
+    }
+
+    private void closePath() {
+        if (pathOpen) {
+            body.append("f\n");
+            pathOpen = false;
+        }
+    }
+
+    private String getFontResource(Font font) {
+        String name = EPSOutput.getPostScriptFontName(font);
+        String resource = fonts.get(name);
+        if (resource == null) {
+            resource = "F" + (fonts.size() + 1);
+            fonts.put(name, resource);
+        }
+        return resource;
+    }
+
+    private static void appendColour(TextBuffer target, Color c) {
+        target.append(c.getRed() / 255.0, 3).append(' ').append(c.getGreen() / 255.0, 3).append(' ');
+        target.append(c.getBlue() / 255.0, 3).append(" rg");
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
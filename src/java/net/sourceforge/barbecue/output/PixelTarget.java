@@ -0,0 +1,496 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A rectangle of pixels that a barcode can be rendered into with
+ * {@link RasterOutput}. Every pixel is either dark or light, and each target
+ * knows what those two values are in its own pixel format.
+ * <p/>
+ * The static <code>wrap</code> methods adapt an existing image, raster,
+ * pixel array or buffer without copying it, so that a barcode can be drawn
+ * straight into a region of a label being composed. Pixels outside the
+ * region are never touched.
+ */
+public abstract class PixelTarget {
+
+    public abstract int getWidth();
+
+    public abstract int getHeight();
+
+    /**
+     * Fills a rectangle, clipped to the target, with dark or light pixels.
+     * 
+     * @param x
+     *            The x coordinate
+     * @param y
+     *            The y coordinate
+     * @param w
+     *            The width
+     * @param h
+     *            The height
+     * @param dark
+     *            True to fill with dark pixels, false for light
+     */
+    public abstract void fill(int x, int y, int w, int h, boolean dark);
+
+    /**
+     * Copies the dark pixels of a bitmap onto this target, clipped to the
+     * target. Light pixels of the bitmap are left alone.
+     * 
+     * @param src
+     *            The bitmap to copy
+     * @param x
+     *            The x coordinate of the top left corner of the copy
+     * @param y
+     *            The y coordinate of the top left corner of the copy
+     */
+    public void draw(Bitmap src, int x, int y) {
+        for (int row = 0; row < src.getHeight(); row++) {
+            int start = -1;
+            for (int col = 0; col <= src.getWidth(); col++) {
+                boolean dark = col < src.getWidth() && src.get(col, row);
+                if (dark && start < 0) {
+                    start = col;
+                } else if (!dark && start >= 0) {
+                    fill(x + start, y + row, col - start, 1, true);
+                    start = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a view of this target rotated clockwise by a multiple of 90
+     * degrees. Drawing into the view draws into this target with every
+     * rectangle turned, so with 90 or 270 degrees vertical bars become runs
+     * along this target's rows. The mapping is exact, so edges stay on the
+     * same pixel boundaries as an unrotated rendering, and nothing is
+     * allocated per pixel.
+     * 
+     * @param degrees
+     *            The clockwise rotation: 0, 90, 180 or 270, or the same
+     *            angles given as negative values
+     * @return The rotated view, which is this target itself for 0
+     */
+    public PixelTarget rotate(int degrees) {
+        int quadrants = normalizeRotation(degrees) / 90;
+        return quadrants == 0 ? this : new RotatedTarget(this, quadrants);
+    }
+
+    /**
+     * Returns a view of a rectangle of this target. Drawing into the view
+     * draws into this target offset by the rectangle's position, clipped to
+     * the rectangle, so a barcode can be rendered into one box of a larger
+     * label without disturbing the rest of it.
+     * 
+     * @param x
+     *            The x coordinate of the region
+     * @param y
+     *            The y coordinate of the region
+     * @param width
+     *            The width of the region
+     * @param height
+     *            The height of the region
+     * @return The view
+     */
+    public PixelTarget region(int x, int y, int width, int height) {
+        return new SubTarget(this, x, y, width, height);
+    }
+
+    /**
+     * Converts a rotation to 0, 90, 180 or 270 degrees.
+     * 
+     * @param degrees
+     *            A multiple of 90 degrees
+     * @return The same rotation between 0 and 270
+     */
+    static int normalizeRotation(int degrees) {
+        if (degrees % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90 degrees, not " + degrees);
+        }
+        return ((degrees % 360) + 360) % 360;
+    }
+
+    /**
+     * Wraps a region of an image. Images with integer RGB pixels or byte
+     * gray pixels are written through their pixel arrays directly, which
+     * stops Java2D from caching them in video memory; other image types are
+     * written pixel by pixel through their raster.
+     * 
+     * @param image
+     *            The image to draw into
+     * @param x
+     *            The x coordinate of the region
+     * @param y
+     *            The y coordinate of the region
+     * @param width
+     *            The width of the region
+     * @param height
+     *            The height of the region
+     * @param dark
+     *            The colour of dark pixels
+     * @param light
+     *            The colour of light pixels
+     * @return The target
+     */
+    public static PixelTarget wrap(BufferedImage image, int x, int y, int width, int height, Color dark, Color light) {
+        ColorModel model = image.getColorModel();
+        return wrap(image.getRaster(), x, y, width, height, model.getDataElements(dark.getRGB(), null),
+                model.getDataElements(light.getRGB(), null));
+    }
+
+    /**
+     * Wraps a region of a raster.
+     * 
+     * @param raster
+     *            The raster to draw into
+     * @param x
+     *            The x coordinate of the region
+     * @param y
+     *            The y coordinate of the region
+     * @param width
+     *            The width of the region
+     * @param height
+     *            The height of the region
+     * @param darkPixel
+     *            The data elements of a dark pixel, as returned by
+     *            <code>ColorModel.getDataElements()</code>
+     * @param lightPixel
+     *            The data elements of a light pixel
+     * @return The target
+     */
+    public static PixelTarget wrap(WritableRaster raster, int x, int y, int width, int height, Object darkPixel,
+            Object lightPixel) {
+        if (!raster.getBounds().contains(new Rectangle(x, y, width, height))) {
+            throw new IllegalArgumentException("Region " + x + "," + y + " " + width + "x" + height
+                    + " is outside the raster");
+        }
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel model = raster.getSampleModel();
+        int sx = x - raster.getSampleModelTranslateX();
+        int sy = y - raster.getSampleModelTranslateY();
+        if (buffer instanceof DataBufferInt && buffer.getNumBanks() == 1
+                && model instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel packed = (SinglePixelPackedSampleModel) model;
+            return new IntTarget(((DataBufferInt) buffer).getData(), buffer.getOffset() + packed.getOffset(sx, sy),
+                    packed.getScanlineStride(), width, height, ((int[]) darkPixel)[0], ((int[]) lightPixel)[0]);
+        }
+        if (buffer instanceof DataBufferByte && buffer.getNumBanks() == 1 && model instanceof ComponentSampleModel
+                && model.getNumBands() == 1 && ((ComponentSampleModel) model).getPixelStride() == 1) {
+            ComponentSampleModel component = (ComponentSampleModel) model;
+            return new ByteTarget(((DataBufferByte) buffer).getData(), buffer.getOffset()
+                    + component.getOffset(sx, sy), component.getScanlineStride(), width, height,
+                    ((byte[]) darkPixel)[0], ((byte[]) lightPixel)[0]);
+        }
+        return new RasterTarget(raster, x, y, width, height, darkPixel, lightPixel);
+    }
+
+    /**
+     * Wraps an array of integer pixels, such as ARGB image data.
+     * 
+     * @param pixels
+     *            The pixel array
+     * @param offset
+     *            The index of the top left pixel
+     * @param scanline
+     *            The number of pixels from the start of one row to the next
+     * @param width
+     *            The width of the region
+     * @param height
+     *            The height of the region
+     * @param dark
+     *            The value of dark pixels
+     * @param light
+     *            The value of light pixels
+     * @return The target
+     */
+    public static PixelTarget wrap(int[] pixels, int offset, int scanline, int width, int height, int dark,
+            int light) {
+        checkRegion(pixels.length, offset, scanline, width, height);
+        return new IntTarget(pixels, offset, scanline, width, height, dark, light);
+    }
+
+    /**
+     * Wraps an array of byte pixels, such as 8 bit gray image data.
+     * 
+     * @param pixels
+     *            The pixel array
+     * @param offset
+     *            The index of the top left pixel
+     * @param scanline
+     *            The number of pixels from the start of one row to the next
+     * @param width
+     *            The width of the region
+     * @param height
+     *            The height of the region
+     * @param dark
+     *            The value of dark pixels
+     * @param light
+     *            The value of light pixels
+     * @return The target
+     */
+    public static PixelTarget wrap(byte[] pixels, int offset, int scanline, int width, int height, byte dark,
+            byte light) {
+        checkRegion(pixels.length, offset, scanline, width, height);
+        return new ByteTarget(pixels, offset, scanline, width, height, dark, light);
+    }
+
+    /**
+     * Wraps a buffer of byte pixels, such as a memory mapped frame buffer or
+     * print band. The pixels are written with absolute puts, so the buffer's
+     * position and limit are left alone.
+     * 
+     * @param buffer
+     *            The pixel buffer
+     * @param offset
+     *            The index of the top left pixel
+     * @param scanline
+     *            The number of bytes from the start of one row to the next
+     * @param width
+     *            The width of the region
+     * @param height
+     *            The height of the region
+     * @param dark
+     *            The value of dark pixels
+     * @param light
+     *            The value of light pixels
+     * @return The target
+     */
+    public static PixelTarget wrap(ByteBuffer buffer, int offset, int scanline, int width, int height, byte dark,
+            byte light) {
+        checkRegion(buffer.capacity(), offset, scanline, width, height);
+        if (buffer.hasArray()) {
+            return new ByteTarget(buffer.array(), buffer.arrayOffset() + offset, scanline, width, height, dark,
+                    light);
+        }
+        return new BufferTarget(buffer, offset, scanline, width, height, dark, light);
+    }
+
+    private static void checkRegion(int length, int offset, int scanline, int width, int height) {
+        if (width < 0 || height < 0 || offset < 0 || scanline < width
+                || (height > 0 && offset + (long) (height - 1) * scanline + width > length)) {
+            throw new IllegalArgumentException("Region " + width + "x" + height + " at " + offset + ", scanline "
+                    + scanline + " does not fit in " + length + " pixels");
+        }
+    }
+
+    /**
+     * Base class for targets that clip fills to a fixed size.
+     */
+    private abstract static class Region extends PixelTarget {
+        final int width;
+        final int height;
+
+        Region(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public void fill(int x, int y, int w, int h, boolean dark) {
+            int x0 = Math.max(x, 0);
+            int x1 = Math.min(x + w, width);
+            int y0 = Math.max(y, 0);
+            int y1 = Math.min(y + h, height);
+            if (x0 < x1 && y0 < y1) {
+                fillClipped(x0, y0, x1, y1, dark);
+            }
+        }
+
+        abstract void fillClipped(int x0, int y0, int x1, int y1, boolean dark);
+    }
+
+    private static final class RotatedTarget extends PixelTarget {
+        private final PixelTarget target;
+        private final int quadrants;
+
+        RotatedTarget(PixelTarget target, int quadrants) {
+            this.target = target;
+            this.quadrants = quadrants;
+        }
+
+        public int getWidth() {
+            return quadrants == 2 ? target.getWidth() : target.getHeight();
+        }
+
+        public int getHeight() {
+            return quadrants == 2 ? target.getHeight() : target.getWidth();
+        }
+
+        public void fill(int x, int y, int w, int h, boolean dark) {
+            switch (quadrants) {
+            case 1:
+                target.fill(target.getWidth() - y - h, x, h, w, dark);
+                break;
+            case 2:
+                target.fill(target.getWidth() - x - w, target.getHeight() - y - h, w, h, dark);
+                break;
+            default:
+                target.fill(y, target.getHeight() - x - w, h, w, dark);
+                break;
+            }
+        }
+    }
+
+    private static final class SubTarget extends Region {
+        private final PixelTarget target;
+        private final int x;
+        private final int y;
+
+        SubTarget(PixelTarget target, int x, int y, int width, int height) {
+            super(width, height);
+            this.target = target;
+            this.x = x;
+            this.y = y;
+        }
+
+        void fillClipped(int x0, int y0, int x1, int y1, boolean dark) {
+            target.fill(x + x0, y + y0, x1 - x0, y1 - y0, dark);
+        }
+    }
+
+    private static final class IntTarget extends Region {
+        private final int[] pixels;
+        private final int offset;
+        private final int scanline;
+        private final int dark;
+        private final int light;
+
+        IntTarget(int[] pixels, int offset, int scanline, int width, int height, int dark, int light) {
+            super(width, height);
+            this.pixels = pixels;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.dark = dark;
+            this.light = light;
+        }
+
+        void fillClipped(int x0, int y0, int x1, int y1, boolean isDark) {
+            int value = isDark ? dark : light;
+            for (int row = offset + y0 * scanline; y0 < y1; y0++, row += scanline) {
+                Arrays.fill(pixels, row + x0, row + x1, value);
+            }
+        }
+    }
+
+    private static final class ByteTarget extends Region {
+        private final byte[] pixels;
+        private final int offset;
+        private final int scanline;
+        private final byte dark;
+        private final byte light;
+
+        ByteTarget(byte[] pixels, int offset, int scanline, int width, int height, byte dark, byte light) {
+            super(width, height);
+            this.pixels = pixels;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.dark = dark;
+            this.light = light;
+        }
+
+        void fillClipped(int x0, int y0, int x1, int y1, boolean isDark) {
+            byte value = isDark ? dark : light;
+            for (int row = offset + y0 * scanline; y0 < y1; y0++, row += scanline) {
+                Arrays.fill(pixels, row + x0, row + x1, value);
+            }
+        }
+    }
+
+    private static final class BufferTarget extends Region {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int scanline;
+        private final byte dark;
+        private final byte light;
+
+        BufferTarget(ByteBuffer buffer, int offset, int scanline, int width, int height, byte dark, byte light) {
+            super(width, height);
+            this.buffer = buffer;
+            this.offset = offset;
+            this.scanline = scanline;
+            this.dark = dark;
+            this.light = light;
+        }
+
+        void fillClipped(int x0, int y0, int x1, int y1, boolean isDark) {
+            byte value = isDark ? dark : light;
+            for (int row = offset + y0 * scanline; y0 < y1; y0++, row += scanline) {
+                for (int i = row + x0; i < row + x1; i++) {
+                    buffer.put(i, value);
+                }
+            }
+        }
+    }
+
+    private static final class RasterTarget extends Region {
+        private final WritableRaster raster;
+        private final int x;
+        private final int y;
+        private final Object dark;
+        private final Object light;
+
+        RasterTarget(WritableRaster raster, int x, int y, int width, int height, Object dark, Object light) {
+            super(width, height);
+            this.raster = raster;
+            this.x = x;
+            this.y = y;
+            this.dark = dark;
+            this.light = light;
+        }
+
+        void fillClipped(int x0, int y0, int x1, int y1, boolean isDark) {
+            Object value = isDark ? dark : light;
+            for (int row = y0; row < y1; row++) {
+                for (int col = x0; col < x1; col++) {
+                    raster.setDataElements(x + col, y + row, value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.awt.*;
+import java.io.Writer;
+
+/**
+ * Outputter that writes any number of barcodes to a single PostScript
+ * document, one barcode per page.
+ * <p/>
+ * The document header and prologue are written before the first page and
+ * each page is written to the Writer as soon as its barcode is complete, so
+ * thousands of labels can be spooled to a printer or a file without being
+ * held in memory. Pages are either sized to fit their barcode or are all the
+ * same fixed size, with each barcode centred on its page. Call
+ * {@link #endDocument()} after the last barcode to write the trailer; the
+ * Writer itself is left open.
+ */
+public class PostScriptOutput extends EPSOutput {
+    private final double pageWidth;
+    private final double pageHeight;
+    private boolean started;
+    private int pages;
+
+    /**
+     * Creates a new instance of PostScriptOutput whose pages are sized to fit
+     * each barcode.
+     * 
+     * @param writer
+     *            The Writer to output the PostScript text to
+     */
+    public PostScriptOutput(Writer writer) {
+        this(writer, DefaultEnvironment.DEFAULT_FONT, Color.black, Color.white, 1.0, 0, 0);
+    }
+
+    /**
+     * Creates a new instance of PostScriptOutput.
+     * 
+     * @param writer
+     *            The Writer to output the PostScript text to
+     * @param font
+     *            The font for text rendering
+     * @param fgColor
+     *            Foreground color
+     * @param bgColor
+     *            Background color
+     * @param scalar
+     *            The size in points of one barcode unit
+     * @param pageWidth
+     *            The width of every page in points, or zero to size each page
+     *            to its barcode
+     * @param pageHeight
+     *            The height of every page in points, or zero to size each
+     *            page to its barcode
+     */
+    public PostScriptOutput(Writer writer, Font font, Color fgColor, Color bgColor, double scalar,
+            double pageWidth, double pageHeight) {
+        super(writer, font, fgColor, bgColor, scalar);
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+    }
+
+    /**
+     * Returns the number of pages written so far.
+     * 
+     * @return The page count
+     */
+    public int getPageCount() {
+        return pages;
+    }
+
+    /**
+     * From AbstractOutput - writes the barcode as the next page of the
+     * document.
+     * 
+     * @param width
+     *            The output width (in pixels) of the barcode
+     * @param height
+     *            The output height (in pixels) of the barcode
+     */
+    public void endDraw(int width, int height) throws OutputException {
+        flushRun();
+        TextBuffer buf = getBuffer();
+        buf.clear();
+        if (!started) {
+            appendHeader(buf);
+        }
+        pages++;
+        buf.append("%%Page: ").append(pages).append(' ').append(pages).append('\n');
+        double w = width * getScalar();
+        double h = height * getScalar();
+        if (isFixedPageSize()) {
+            appendBarcode((pageWidth - w) / 2, pageHeight - (pageHeight - h) / 2);
+        } else {
+            appendBoundingBox("%%PageBoundingBox: ", "%%PageHiResBoundingBox: ", width, height);
+            buf.append("%%BeginPageSetup\n");
+            appendPageSize(buf, w, h);
+            buf.append("%%EndPageSetup\n");
+            appendBarcode(0, h);
+        }
+        buf.append("showpage\n");
+        buf.append("%%PageTrailer\n");
+        write(buf);
+    }
+
+    /**
+     * Writes the document trailer. No further barcodes may be output after
+     * this has been called.
+     * 
+     * @throws OutputException
+     *             If the trailer could not be written
+     */
+    public void endDocument() throws OutputException {
+        TextBuffer buf = getBuffer();
+        buf.clear();
+        if (!started) {
+            appendHeader(buf);
+        }
+        buf.append("%%Trailer\n");
+        buf.append("%%Pages: ").append(pages).append('\n');
+        buf.append("%%EOF\n");
+        write(buf);
+    }
+
+    private boolean isFixedPageSize() {
+        return pageWidth > 0 && pageHeight > 0;
+    }
+
+    private void appendHeader(TextBuffer buf) {
+        started = true;
+        buf.append("%!PS-Adobe-3.0\n");
+        buf.append("%%Creator: barbecue\n");
+        buf.append("%%Pages: (atend)\n");
+        buf.append("%%LanguageLevel: 2\n");
+        if (isFixedPageSize()) {
+            buf.append("%%DocumentMedia: Label ").append(pageWidth, 4).append(' ').append(pageHeight, 4);
+            buf.append(" 0 () ()\n");
+        }
+        buf.append("%%EndComments\n");
+        appendPrologue();
+        if (isFixedPageSize()) {
+            buf.append("%%BeginSetup\n");
+            appendPageSize(buf, pageWidth, pageHeight);
+            buf.append("%%EndSetup\n");
+        }
+    }
+
+    private void appendPageSize(TextBuffer buf, double width, double height) {
+        buf.append("<< /PageSize [").append(width, 4).append(' ').append(height, 4);
+        buf.append("] >> setpagedevice\n");
+    }
+}
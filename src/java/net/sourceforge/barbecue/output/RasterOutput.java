@@ -0,0 +1,201 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Outputter that draws a barcode straight into a caller supplied
+ * {@link PixelTarget}, such as a region of an existing image or a pixel
+ * buffer, with no intermediate image.
+ * <p/>
+ * The barcode's origin is the top left corner of the target, and anything
+ * falling outside the target is clipped. Bar edges are rounded to whole
+ * pixels after scaling, as in {@link BitmapOutput}. Text is drawn without
+ * anti-aliasing through a small per-thread scratch bitmap that is reused
+ * from one label to the next.
+ */
+public class RasterOutput extends AbstractOutput {
+    private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, false, false);
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>();
+
+    private final PixelTarget target;
+    private boolean inverted;
+
+    /**
+     * Creates a new instance of RasterOutput.
+     * 
+     * @param target
+     *            The pixels to draw into
+     * @param font
+     *            The font for text rendering, or null for no text
+     * @param scalar
+     *            The number of pixels for each barcode unit
+     */
+    public RasterOutput(PixelTarget target, Font font, double scalar) {
+        super(font, true, scalar, Color.black, Color.white);
+        this.target = target;
+    }
+
+    public PixelTarget getTarget() {
+        return target;
+    }
+
+    /**
+     * From AbstractOutput - clears the whole target to light pixels.
+     */
+    public void beginDraw() {
+        inverted = false;
+        target.fill(0, 0, target.getWidth(), target.getHeight(), false);
+    }
+
+    /**
+     * From AbstractOutput - does nothing, as everything has been drawn.
+     * 
+     * @param width
+     *            The output width (in pixels) of the barcode
+     * @param height
+     *            The output height (in pixels) of the barcode
+     */
+    public void endDraw(int width, int height) {
+    }
+
+    /**
+     * From AbstractOutput - draws a bar at the given coordinates.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width
+     * @param height
+     *            the height
+     * @param paintWithForegroundColor
+     *            if true, use the foreground color, otherwise use the
+     *            background color
+     * @return the width of the bar drawn
+     */
+    public int drawBar(int x, int y, int width, int height, boolean paintWithForegroundColor) {
+        fill(x, y, width, height, paintWithForegroundColor != inverted);
+        return width;
+    }
+
+    /**
+     * Tracks blank modules, which draw their bars in the opposite colour.
+     */
+    public void toggleDrawingColor() {
+        inverted = !inverted;
+    }
+
+    public int drawText(String text, LabelLayout layout) throws OutputException {
+        if (getFont() == null || text == null || text.length() == 0) {
+            return 0;
+        }
+        if (BuiltInFont.isBuiltIn(getFont())) {
+            layout.setTextBounds(BuiltInFont.getBounds(text, getFont()));
+            fill(layout.getBackgroundX(), layout.getBackgroundY(), layout.getBackgroundWidth(),
+                    layout.getBackgroundHeight(), false);
+            BuiltInFont.draw(text, Math.round(layout.getTextX()), Math.round(layout.getTextY()), getFont(),
+                    new BuiltInFont.Painter() {
+                        public void fill(int x, int y, int width, int height) {
+                            RasterOutput.this.fill(x, y, width, height, true);
+                        }
+                    });
+            return layout.getBackgroundHeight();
+        }
+        TextLayout textLayout = new TextLayout(text, getFont(), FONT_RENDER_CONTEXT);
+        layout.setTextLayout(textLayout);
+        fill(layout.getBackgroundX(), layout.getBackgroundY(), layout.getBackgroundWidth(),
+                layout.getBackgroundHeight(), false);
+        drawText(target, textLayout, layout.getTextX(), layout.getTextY(), getScalar());
+        return layout.getBackgroundHeight();
+    }
+
+    /**
+     * Paint the background the background colour, based on the height and the
+     * width.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width to be painted
+     * @param height
+     *            the height to be painted
+     */
+    public void paintBackground(int x, int y, int width, int height) {
+        fill(x, y, width, height, false);
+    }
+
+    private void fill(int x, int y, int width, int height, boolean dark) {
+        double scalar = getScalar();
+        int x0 = (int) Math.round(x * scalar);
+        int y0 = (int) Math.round(y * scalar);
+        target.fill(x0, y0, (int) Math.round((x + width) * scalar) - x0,
+                (int) Math.round((y + height) * scalar) - y0, dark);
+    }
+
+    /**
+     * Rasterizes text into the scratch bitmap of the current thread and
+     * copies its dark pixels onto the target.
+     */
+    static void drawText(PixelTarget target, TextLayout text, float x, float y, double scalar) {
+        Rectangle2D bounds = text.getBounds();
+        int left = (int) Math.floor((x + bounds.getX()) * scalar) - 1;
+        int top = (int) Math.floor((y + bounds.getY()) * scalar) - 1;
+        int width = (int) Math.ceil((x + bounds.getMaxX()) * scalar) + 1 - left;
+        int height = (int) Math.ceil((y + bounds.getMaxY()) * scalar) + 1 - top;
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int stride = (width + 7) >> 3;
+        byte[] bits = SCRATCH.get();
+        if (bits == null || bits.length < stride * height) {
+            bits = new byte[stride * height];
+            SCRATCH.set(bits);
+        } else {
+            Arrays.fill(bits, 0, stride * height, (byte) 0);
+        }
+        Bitmap scratch = new Bitmap(width, height, stride, bits);
+        Graphics2D g = scratch.toImage().createGraphics();
+        try {
+            g.translate(-left, -top);
+            g.scale(scalar, scalar);
+            g.setColor(Color.black);
+            text.draw(g, x, y);
+        } finally {
+            g.dispose();
+        }
+        target.draw(scratch, left, top);
+    }
+}
@@ -0,0 +1,334 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outputter that records the drawing calls made by a barcode into a compact
+ * display list, so that one encode can be replayed into any number of other
+ * outputs.
+ * <p/>
+ * Every call is stored as an opcode followed by its integer arguments in a
+ * single int array; label text is kept in a side table. Since all drawing
+ * calls are in barcode units and each output applies its own scalar, the
+ * same recording can be replayed into a 1x, 2x or 3x {@link BitmapOutput},
+ * an SVG output and a PDF output without encoding the barcode again:
+ * <pre>
+ * RecordingOutput recording = new RecordingOutput(font);
+ * barcode.output(recording);
+ * recording.replay(new BitmapOutput(font, 2));
+ * recording.replay(new StreamingSVGOutput(writer, font, fg, bg, 1, "px"));
+ * </pre>
+ * The height returned for each label is measured with the recording's own
+ * font, so replay targets should use the same font to get the same layout.
+ * Label layouts of the standard types are rebuilt from their parameters on
+ * every replay, which makes it safe to replay a finished recording from
+ * several threads at once.
+ */
+public class RecordingOutput extends AbstractOutput {
+    private static final FontRenderContext DEFAULT_FONT_RENDER_CONTEXT = new FontRenderContext(null, false, false);
+
+    private static final int BEGIN = 0;
+    private static final int END = 1;
+    private static final int BAR = 2;
+    private static final int TOGGLE = 3;
+    private static final int BACKGROUND = 4;
+    private static final int TEXT = 5;
+
+    private static final int CENTERED_LAYOUT = 0;
+    private static final int MARGIN_LAYOUT = 1;
+    private static final int ORIGIN_LAYOUT = 2;
+    private static final int OTHER_LAYOUT = 3;
+
+    private final FontRenderContext fontRenderContext;
+    private int[] ops = new int[256];
+    private int length;
+    private final List<String> texts = new ArrayList<String>();
+    private final List<LabelLayout> layouts = new ArrayList<LabelLayout>();
+    private int width;
+    private int height;
+
+    /**
+     * Creates a new instance of RecordingOutput that measures text the way
+     * an unhinted Graphics2D would.
+     * 
+     * @param font
+     *            The font the replay targets will draw text with, or null for
+     *            no text
+     */
+    public RecordingOutput(Font font) {
+        this(font, DEFAULT_FONT_RENDER_CONTEXT);
+    }
+
+    /**
+     * Creates a new instance of RecordingOutput.
+     * 
+     * @param font
+     *            The font the replay targets will draw text with, or null for
+     *            no text
+     * @param fontRenderContext
+     *            The context to measure text in
+     */
+    public RecordingOutput(Font font, FontRenderContext fontRenderContext) {
+        super(font, true, 1.0, Color.black, Color.white);
+        this.fontRenderContext = fontRenderContext;
+    }
+
+    /**
+     * Returns the width of the barcode most recently recorded.
+     * 
+     * @return The width in barcode units
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the barcode most recently recorded.
+     * 
+     * @return The height in barcode units
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns true if nothing has been recorded yet.
+     * 
+     * @return True if the display list is empty
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * Discards everything recorded so far.
+     */
+    public void reset() {
+        length = 0;
+        texts.clear();
+        layouts.clear();
+        width = 0;
+        height = 0;
+    }
+
+    /**
+     * Replays every recorded call, in order, into the given output. A
+     * recording may hold several barcodes, each of which is replayed with
+     * its own beginDraw and endDraw.
+     * 
+     * @param output
+     *            The output to draw into
+     * @throws OutputException
+     *             If the output fails
+     */
+    public void replay(Output output) throws OutputException {
+        int i = 0;
+        while (i < length) {
+            switch (ops[i]) {
+            case BEGIN:
+                output.beginDraw();
+                i += 1;
+                break;
+            case END:
+                output.endDraw(ops[i + 1], ops[i + 2]);
+                i += 3;
+                break;
+            case BAR:
+                output.drawBar(ops[i + 1], ops[i + 2], ops[i + 3], ops[i + 4], ops[i + 5] != 0);
+                i += 6;
+                break;
+            case TOGGLE:
+                output.toggleDrawingColor();
+                i += 1;
+                break;
+            case BACKGROUND:
+                output.paintBackground(ops[i + 1], ops[i + 2], ops[i + 3], ops[i + 4]);
+                i += 5;
+                break;
+            case TEXT:
+                output.drawText(texts.get(ops[i + 1]), createLayout(i + 2));
+                i += 7;
+                break;
+            default:
+                throw new IllegalStateException("Corrupt display list at " + i);
+            }
+        }
+    }
+
+    /**
+     * From AbstractOutput - records the start of a barcode.
+     */
+    public void beginDraw() {
+        append(BEGIN);
+    }
+
+    /**
+     * From AbstractOutput - records the end of a barcode.
+     * 
+     * @param width
+     *            The output width (in pixels) of the barcode
+     * @param height
+     *            The output height (in pixels) of the barcode
+     */
+    public void endDraw(int width, int height) {
+        append(END, width, height);
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * From AbstractOutput - records a bar.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width
+     * @param height
+     *            the height
+     * @param paintWithForegroundColor
+     *            if true, use the foreground color, otherwise use the
+     *            background color
+     * @return the width of the bar drawn
+     */
+    public int drawBar(int x, int y, int width, int height, boolean paintWithForegroundColor) {
+        append(BAR, x, y, width, height, paintWithForegroundColor ? 1 : 0);
+        return width;
+    }
+
+    /**
+     * Records the colour swap; the recording itself has no colours to swap.
+     */
+    public void toggleDrawingColor() {
+        append(TOGGLE);
+    }
+
+    /**
+     * Records a background fill.
+     * 
+     * @param x
+     *            the x coordinate
+     * @param y
+     *            the y coordinate
+     * @param width
+     *            the width to be painted
+     * @param height
+     *            the height to be painted
+     */
+    public void paintBackground(int x, int y, int width, int height) {
+        append(BACKGROUND, x, y, width, height);
+    }
+
+    /**
+     * Records the text and its layout, and measures it with the recording's
+     * font so the barcode can size itself as it would for a real output.
+     */
+    public int drawText(String text, LabelLayout layout) throws OutputException {
+        int index = texts.size();
+        texts.add(text);
+        if (layout instanceof CenteredLabelLayout) {
+            append(TEXT, index, CENTERED_LAYOUT, layout.x, layout.y, layout.width, 0);
+        } else if (layout instanceof MarginLabelLayout) {
+            append(TEXT, index, MARGIN_LAYOUT, layout.x, layout.y, layout.width, layout.height);
+        } else if (layout instanceof DefaultLabelLayout) {
+            append(TEXT, index, ORIGIN_LAYOUT, layout.x, layout.y, 0, 0);
+        } else {
+            append(TEXT, index, OTHER_LAYOUT, layouts.size(), 0, 0, 0);
+            layouts.add(layout);
+        }
+        if (getFont() == null || text == null || text.length() == 0) {
+            return 0;
+        }
+        if (BuiltInFont.isBuiltIn(getFont())) {
+            layout.setTextBounds(BuiltInFont.getBounds(text, getFont()));
+        } else {
+            layout.setTextLayout(new TextLayout(text, getFont(), fontRenderContext));
+        }
+        return layout.getBackgroundHeight();
+    }
+
+    private LabelLayout createLayout(int i) {
+        switch (ops[i]) {
+        case CENTERED_LAYOUT:
+            return new CenteredLabelLayout(ops[i + 1], ops[i + 2], ops[i + 3]);
+        case MARGIN_LAYOUT:
+            return new MarginLabelLayout(ops[i + 1], ops[i + 2], ops[i + 3], ops[i + 4]);
+        case ORIGIN_LAYOUT:
+            return new DefaultLabelLayout(ops[i + 1], ops[i + 2]);
+        default:
+            return layouts.get(ops[i + 1]);
+        }
+    }
+
+    private void append(int op) {
+        ensureCapacity(1);
+        ops[length++] = op;
+    }
+
+    private void append(int op, int a, int b) {
+        ensureCapacity(3);
+        ops[length++] = op;
+        ops[length++] = a;
+        ops[length++] = b;
+    }
+
+    private void append(int op, int a, int b, int c, int d) {
+        ensureCapacity(5);
+        ops[length++] = op;
+        ops[length++] = a;
+        ops[length++] = b;
+        ops[length++] = c;
+        ops[length++] = d;
+    }
+
+    private void append(int op, int a, int b, int c, int d, int e) {
+        append(op, a, b, c, d);
+        ensureCapacity(1);
+        ops[length++] = e;
+    }
+
+    private void append(int op, int a, int b, int c, int d, int e, int f) {
+        append(op, a, b, c, d, e);
+        ensureCapacity(1);
+        ops[length++] = f;
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > ops.length) {
+            int[] grown = new int[ops.length * 2];
+            System.arraycopy(ops, 0, grown, 0, length);
+            ops = grown;
+        }
+    }
+}
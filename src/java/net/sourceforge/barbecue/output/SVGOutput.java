@@ -39,6 +39,10 @@ import java.awt.*;
 
 /**
  * SVG outputter to output barcodes as SVG files.
+ * <p/>
+ * This outputter builds a JDOM document with one element per bar and so
+ * requires JDOM at runtime. {@link StreamingSVGOutput} writes smaller SVG
+ * directly to the Writer and has no dependencies.
  *
  * Contributed by Ryan Martell.
  *
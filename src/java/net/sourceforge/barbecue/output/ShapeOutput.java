@@ -0,0 +1,157 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+
+/**
+ * Outputter that turns a barcode into a {@link BarcodeShape} for fast
+ * compositing onto any Graphics2D, including printer graphics.
+ * <p/>
+ * Adjacent bars are merged into runs (see {@link BarRunOutput}) and appended
+ * to a single path, and the label is converted to glyph outlines once, so
+ * painting the result is a single fill rather than a colour change and a
+ * fillRect for every bar. The shape is built in barcode units and scaled
+ * once when the barcode is complete.
+ */
+public class ShapeOutput extends BarRunOutput {
+    private static final FontRenderContext DEFAULT_FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
+    private final FontRenderContext fontRenderContext;
+    private GeneralPath bars;
+    private GeneralPath text;
+    private BarcodeShape shape;
+
+    /**
+     * Creates a new instance of ShapeOutput with anti-aliased text metrics.
+     * 
+     * @param font
+     *            The font for text rendering, or null for no text
+     * @param scalar
+     *            The scaling factor from barcode units to shape units
+     */
+    public ShapeOutput(Font font, double scalar) {
+        this(font, scalar, DEFAULT_FONT_RENDER_CONTEXT);
+    }
+
+    /**
+     * Creates a new instance of ShapeOutput that lays text out for the given
+     * rendering context, such as <code>g.getFontRenderContext()</code> of the
+     * graphics the shapes will be painted onto.
+     * 
+     * @param font
+     *            The font for text rendering, or null for no text
+     * @param scalar
+     *            The scaling factor from barcode units to shape units
+     * @param fontRenderContext
+     *            The context to lay text out in
+     */
+    public ShapeOutput(Font font, double scalar, FontRenderContext fontRenderContext) {
+        super(font, true, scalar, Color.black, Color.white);
+        this.fontRenderContext = fontRenderContext;
+    }
+
+    /**
+     * Returns the shape of the barcode most recently drawn.
+     * 
+     * @return The shape, or null if no barcode has been drawn yet
+     */
+    public BarcodeShape getBarcodeShape() {
+        return shape;
+    }
+
+    /**
+     * From AbstractOutput - starts a new pair of paths.
+     */
+    public void beginDraw() {
+        bars = new GeneralPath(GeneralPath.WIND_NON_ZERO);
+        text = new GeneralPath(GeneralPath.WIND_NON_ZERO);
+    }
+
+    /**
+     * From AbstractOutput - scales the paths and builds the shape.
+     * 
+     * @param width
+     *            The output width (in pixels) of the barcode
+     * @param height
+     *            The output height (in pixels) of the barcode
+     */
+    public void endDraw(int width, int height) throws OutputException {
+        flushRun();
+        double scalar = getScalar();
+        if (scalar != 1) {
+            AffineTransform scale = AffineTransform.getScaleInstance(scalar, scalar);
+            bars.transform(scale);
+            text.transform(scale);
+        }
+        GeneralPath all = new GeneralPath(bars);
+        all.append(text, false);
+        shape = new BarcodeShape(all, bars, text, width * scalar, height * scalar);
+        bars = null;
+        text = null;
+    }
+
+    protected void drawRun(int x, int y, int width, int height) {
+        bars.moveTo(x, y);
+        bars.lineTo(x + width, y);
+        bars.lineTo(x + width, y + height);
+        bars.lineTo(x, y + height);
+        bars.closePath();
+    }
+
+    public int drawText(String text, LabelLayout layout) throws OutputException {
+        if (getFont() == null || text == null || text.length() == 0) {
+            return 0;
+        }
+        if (BuiltInFont.isBuiltIn(getFont())) {
+            layout.setTextBounds(BuiltInFont.getBounds(text, getFont()));
+            BuiltInFont.draw(text, Math.round(layout.getTextX()), Math.round(layout.getTextY()), getFont(),
+                    new BuiltInFont.Painter() {
+                        public void fill(int x, int y, int width, int height) {
+                            ShapeOutput.this.text.append(new Rectangle(x, y, width, height), false);
+                        }
+                    });
+            return layout.getBackgroundHeight();
+        }
+        layout.setTextLayout(new TextLayout(text, getFont(), fontRenderContext));
+        GlyphVector glyphs = getFont().createGlyphVector(fontRenderContext, text);
+        this.text.append(glyphs.getOutline(layout.getTextX(), layout.getTextY()), false);
+        return layout.getBackgroundHeight();
+    }
+
+    /**
+     * The background is left to the caller, see
+     * {@link BarcodeShape#paint(Graphics2D, double, double, Color, Color)}.
+     */
+    public void paintBackground(int x, int y, int width, int height) {
+    }
+}
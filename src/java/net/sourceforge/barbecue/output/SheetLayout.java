@@ -0,0 +1,162 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+/**
+ * Describes a sheet of labels: a page divided into a grid of equally sized
+ * cells, with margins around the grid and gaps between its cells. The layout
+ * does not care about units; outputs use it in whatever units they draw in,
+ * points for PDF, pixels for rasters.
+ * <p/>
+ * Cells are numbered from zero, left to right and then top to bottom. Cell
+ * positions are measured from the top left corner of the page.
+ */
+public class SheetLayout {
+    private final double pageWidth;
+    private final double pageHeight;
+    private final int columns;
+    private final int rows;
+    private final double marginX;
+    private final double marginY;
+    private final double gapX;
+    private final double gapY;
+    private final double cellWidth;
+    private final double cellHeight;
+
+    /**
+     * Creates a sheet with no margins or gaps.
+     * 
+     * @param pageWidth
+     *            The width of the page
+     * @param pageHeight
+     *            The height of the page
+     * @param columns
+     *            The number of cells across the page
+     * @param rows
+     *            The number of cells down the page
+     */
+    public SheetLayout(double pageWidth, double pageHeight, int columns, int rows) {
+        this(pageWidth, pageHeight, columns, rows, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates a sheet layout.
+     * 
+     * @param pageWidth
+     *            The width of the page
+     * @param pageHeight
+     *            The height of the page
+     * @param columns
+     *            The number of cells across the page
+     * @param rows
+     *            The number of cells down the page
+     * @param marginX
+     *            The margin at the left and at the right of the page
+     * @param marginY
+     *            The margin at the top and at the bottom of the page
+     * @param gapX
+     *            The horizontal gap between neighbouring cells
+     * @param gapY
+     *            The vertical gap between neighbouring cells
+     * @throws IllegalArgumentException
+     *             If there is no room left for the cells
+     */
+    public SheetLayout(double pageWidth, double pageHeight, int columns, int rows,
+            double marginX, double marginY, double gapX, double gapY) {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("A sheet must have at least one row and one column");
+        }
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.columns = columns;
+        this.rows = rows;
+        this.marginX = marginX;
+        this.marginY = marginY;
+        this.gapX = gapX;
+        this.gapY = gapY;
+        this.cellWidth = (pageWidth - 2 * marginX - (columns - 1) * gapX) / columns;
+        this.cellHeight = (pageHeight - 2 * marginY - (rows - 1) * gapY) / rows;
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            throw new IllegalArgumentException("The margins and gaps leave no room for the cells");
+        }
+    }
+
+    public double getPageWidth() {
+        return pageWidth;
+    }
+
+    public double getPageHeight() {
+        return pageHeight;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public double getCellWidth() {
+        return cellWidth;
+    }
+
+    public double getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * Returns the number of cells on each page.
+     * 
+     * @return The number of cells
+     */
+    public int getCellsPerPage() {
+        return columns * rows;
+    }
+
+    /**
+     * Returns the position of the left edge of the given cell.
+     * 
+     * @param cell
+     *            The cell number on its page
+     * @return The distance from the left edge of the page
+     */
+    public double getCellX(int cell) {
+        return marginX + (cell % columns) * (cellWidth + gapX);
+    }
+
+    /**
+     * Returns the position of the top edge of the given cell.
+     * 
+     * @param cell
+     *            The cell number on its page
+     * @return The distance from the top edge of the page
+     */
+    public double getCellY(int cell) {
+        return marginY + ((cell / columns) % rows) * (cellHeight + gapY);
+    }
+}
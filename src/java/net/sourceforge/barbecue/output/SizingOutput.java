@@ -27,6 +27,7 @@
 package net.sourceforge.barbecue.output;
 
 import java.awt.*;
+import java.awt.font.TextLayout;
 
 
 /**
@@ -76,12 +77,26 @@ public class SizingOutput extends AbstractOutput {
     public void endDraw(int width, int height) {
     }
 
+	/**
+	 * Measures the text as the painting outputs would lay it out. Text in the
+	 * {@link BuiltInFont} is measured exactly from its own metrics, other text
+	 * only when font metrics were given.
+	 * @param text The text to measure
+	 * @param labelLayout The label layout to measure the text with
+	 * @return The height of the text background
+	 */
 	public int drawText(String text, LabelLayout labelLayout) throws OutputException {
-		if(getFont() == null || fm == null) {
-            return 0;
-        }
-		// TODO: This is incorrect
-		return fm.getAscent() + fm.getDescent() + fm.getLeading();
+		if (getFont() == null || text == null || text.length() == 0) {
+			return 0;
+		}
+		if (BuiltInFont.isBuiltIn(getFont())) {
+			labelLayout.setTextBounds(BuiltInFont.getBounds(text, getFont()));
+		} else if (fm != null) {
+			labelLayout.setTextLayout(new TextLayout(text, getFont(), fm.getFontRenderContext()));
+		} else {
+			return 0;
+		}
+		return labelLayout.getBackgroundHeight();
 	}
 
 	/**
@@ -0,0 +1,274 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SVG outputter that streams compact SVG straight to a Writer, without
+ * building a document model.
+ * <p/>
+ * The bars of a barcode are merged into runs and written as a single
+ * <code>&lt;path&gt;</code> in unscaled barcode units, with a
+ * <code>viewBox</code> mapping those units onto the requested physical size.
+ * Colours and numbers are formatted once into a reusable buffer rather than
+ * per bar.
+ * <p/>
+ * Used on its own, each barcode drawn produces a complete SVG document. To
+ * put several barcodes in one document, call
+ * {@link #startDocument(int, int)}, then {@link #setOrigin(int, int)} before
+ * outputting each barcode, then {@link #endDocument()}. Within a document,
+ * a barcode identical to one already written is emitted as a
+ * <code>&lt;use&gt;</code> reference to the earlier one.
+ * <p/>
+ * The Writer is flushed at the end of each document but never closed.
+ */
+public class StreamingSVGOutput extends BarRunOutput {
+    private static final String DEFAULT_FAMILY = "Arial";
+    private static final int DEFAULT_SIZE = 20;
+    private static final int DECIMALS = 4;
+    private static final FontRenderContext FONT_RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
+    private final Writer writer;
+    private final String units;
+    private final TextBuffer buf = new TextBuffer(1024);
+    private final TextBuffer body = new TextBuffer(1024);
+    private final TextBuffer path = new TextBuffer(1024);
+    private final Map<String, String> written = new HashMap<String, String>();
+    private boolean inDocument;
+    private int originX;
+    private int originY;
+    private int pathX;
+    private int pathY;
+
+    /**
+     * Creates a new instance of StreamingSVGOutput.
+     * @param writer The Writer to output the SVG text to
+     * @param font The font for text rendering (only if Barcode has drawText set to true)
+     * @param fgColor Foreground color
+     * @param bgColor Background color
+     * @param scalar The scalar value to convert to units. If barWidth is 1, and you want the
+     * smallest bar to be 1/128 of an inch, this should be set to 1.0/128, and units
+     * should be set to "in"
+     * @param units The units for the scalar, above. "in", "cm", "mm", "px" are acceptable values.
+     */
+    public StreamingSVGOutput(Writer writer, Font font, Color fgColor, Color bgColor, double scalar, String units) {
+        super(font, true, scalar, fgColor, bgColor);
+        this.writer = writer;
+        this.units = units;
+    }
+
+    /**
+     * Starts an SVG document that several barcodes will be drawn into.
+     * @param width The document width, in barcode units
+     * @param height The document height, in barcode units
+     */
+    public void startDocument(int width, int height) throws OutputException {
+        buf.clear();
+        appendHeader(width, height);
+        write(buf);
+        inDocument = true;
+        written.clear();
+    }
+
+    /**
+     * Sets the position within the document at which the next barcode will
+     * be drawn.
+     * @param x The horizontal offset, in barcode units
+     * @param y The vertical offset, in barcode units
+     */
+    public void setOrigin(int x, int y) {
+        originX = x;
+        originY = y;
+    }
+
+    /**
+     * Completes the document started with {@link #startDocument(int, int)}.
+     */
+    public void endDocument() throws OutputException {
+        buf.clear();
+        buf.append("</svg>\n");
+        write(buf);
+        flush();
+        inDocument = false;
+        written.clear();
+    }
+
+    /**
+     * From AbstractOutput - starts a new barcode.
+     */
+    public void beginDraw() {
+        body.clear();
+        path.clear();
+    }
+
+    /**
+     * From AbstractOutput - writes the barcode, as a complete document or as
+     * a group within the current document.
+     * @param width The output width (in pixels) of the barcode
+     * @param height The output height (in pixels) of the barcode.
+     */
+    public void endDraw(int width, int height) throws OutputException {
+        closePath();
+        buf.clear();
+        if (!inDocument) {
+            appendHeader(width, height);
+        } else {
+            buf.append("<g transform=\"translate(").append(originX).append(' ').append(originY).append(")\">");
+        }
+        Color bg = getBackgroundColor();
+        if (bg != null) {
+            buf.append("<rect width=\"").append(width).append("\" height=\"").append(height);
+            buf.append("\" fill=\"").appendHexColour(bg.getRGB()).append("\"/>");
+        }
+        if (!inDocument) {
+            buf.append(body);
+            buf.append("</svg>\n");
+        } else {
+            String key = body.toString();
+            String id = written.get(key);
+            if (id != null) {
+                buf.append("<use xlink:href=\"#").append(id).append("\"/>");
+            } else {
+                id = "b" + written.size();
+                written.put(key, id);
+                buf.append("<g id=\"").append(id).append("\">").append(body).append("</g>");
+            }
+            buf.append("</g>\n");
+        }
+        write(buf);
+        if (!inDocument) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds a run of bars to the path for the current barcode. Each run is a
+     * closed rectangle moved to relative to the start of the previous one.
+     */
+    protected void drawRun(int x, int y, int width, int height) {
+        if (path.length() == 0) {
+            path.append('M').append(x).append(' ').append(y);
+        } else {
+            path.append('m').append(x - pathX).append(' ').append(y - pathY);
+        }
+        path.append('h').append(width).append('v').append(height).append('h').append(-width).append('z');
+        pathX = x;
+        pathY = y;
+    }
+
+    public int drawText(String text, LabelLayout layout) throws OutputException {
+        if (BuiltInFont.isBuiltIn(getFont())) {
+            return drawBuiltInText(text, layout);
+        }
+        closePath();
+        String family = DEFAULT_FAMILY;
+        int size = DEFAULT_SIZE;
+        int style = Font.PLAIN;
+        float x = layout.getBackgroundX();
+        float y = layout.getBackgroundY();
+
+        Font font = getFont();
+        if (font != null) {
+            family = font.getFamily();
+            size = font.getSize();
+            style = font.getStyle();
+            layout.setTextLayout(new TextLayout(text, font, FONT_RENDER_CONTEXT));
+            x = layout.getTextX();
+            y = layout.getTextY();
+        }
+
+        body.append("<text x=\"").append(x, DECIMALS).append("\" y=\"").append(y, DECIMALS);
+        body.append("\" font-family=\"").appendEscaped(family).append("\" font-size=\"").append(size);
+        if ((style & Font.BOLD) != 0) {
+            body.append("\" font-weight=\"bold");
+        }
+        if ((style & Font.ITALIC) != 0) {
+            body.append("\" font-style=\"italic");
+        }
+        body.append("\" fill=\"").appendHexColour(getForegroundColor().getRGB()).append("\">");
+        body.appendEscaped(text).append("</text>");
+        return font == null ? 0 : layout.getBackgroundHeight();
+    }
+
+    /**
+     * Paints the area in the background colour, over anything drawn before.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param width the width to be painted
+     * @param height the height to be painted
+     */
+    public void paintBackground(int x, int y, int width, int height) {
+        try {
+            closePath();
+        } catch (OutputException e) {
+            // Closing a path only appends to the body buffer
+        }
+        body.append("<rect x=\"").append(x).append("\" y=\"").append(y).append("\" width=\"").append(width);
+        body.append("\" height=\"").append(height).append("\" fill=\"").appendHexColour(getBackgroundColor().getRGB());
+        body.append("\"/>");
+    }
+
+    private void closePath() throws OutputException {
+        flushRun();
+        if (path.length() > 0) {
+            body.append("<path fill=\"").appendHexColour(getForegroundColor().getRGB()).append("\" d=\"");
+            body.append(path).append("\"/>");
+            path.clear();
+        }
+    }
+
+    private void appendHeader(int width, int height) {
+        buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        buf.append("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\"");
+        buf.append(" width=\"").append(width * getScalar(), DECIMALS).append(units);
+        buf.append("\" height=\"").append(height * getScalar(), DECIMALS).append(units);
+        buf.append("\" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">\n");
+    }
+
+    private void write(TextBuffer text) throws OutputException {
+        try {
+            text.writeTo(writer);
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        }
+    }
+
+    private void flush() throws OutputException {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.image.TIFFWriter;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Outputter that writes barcodes as a bilevel TIFF file compressed with CCITT
+ * Group 4, the format expected by most document imaging systems.
+ * <p/>
+ * Barcodes are either written one per page, each page the size of its
+ * barcode, or placed centred in the cells of a {@link SheetLayout}, given
+ * in pixels, filling as many pages as needed. Pages are compressed and
+ * written as they are completed; see {@link TIFFWriter}. Call
+ * {@link #endDocument()} after the last barcode. The stream is flushed but
+ * never closed.
+ */
+public class TIFFOutput extends BitmapOutput {
+    private final TIFFWriter writer;
+    private final SheetLayout sheet;
+    private Bitmap page;
+    private int cell;
+
+    /**
+     * Creates a new instance of TIFFOutput that writes each barcode as its own
+     * page.
+     * 
+     * @param out
+     *            The stream to write the TIFF file to
+     * @param font
+     *            The font for text rendering, or null for no text
+     * @param scalar
+     *            The number of pixels for each barcode unit
+     * @param resolution
+     *            The resolution recorded in the file, in dots per inch
+     */
+    public TIFFOutput(OutputStream out, Font font, double scalar, int resolution) {
+        this(out, font, scalar, resolution, null);
+    }
+
+    /**
+     * Creates a new instance of TIFFOutput that lays barcodes out on sheets.
+     * 
+     * @param out
+     *            The stream to write the TIFF file to
+     * @param font
+     *            The font for text rendering, or null for no text
+     * @param scalar
+     *            The number of pixels for each barcode unit
+     * @param resolution
+     *            The resolution recorded in the file, in dots per inch
+     * @param sheet
+     *            The layout of each page, in pixels, or null for one
+     *            barcode per page
+     */
+    public TIFFOutput(OutputStream out, Font font, double scalar, int resolution, SheetLayout sheet) {
+        super(font, scalar);
+        this.writer = new TIFFWriter(out, resolution);
+        this.sheet = sheet;
+    }
+
+    /**
+     * Returns the number of pages started so far.
+     * 
+     * @return The page count
+     */
+    public int getPageCount() {
+        return writer.getPageCount() + (page == null ? 0 : 1);
+    }
+
+    /**
+     * Writes the barcode as a page, or adds it to the current sheet.
+     */
+    protected Bitmap completed(Bitmap bitmap) throws OutputException {
+        if (sheet == null) {
+            writePage(bitmap);
+            return bitmap;
+        }
+        if (page == null) {
+            page = new Bitmap((int) Math.ceil(sheet.getPageWidth()), (int) Math.ceil(sheet.getPageHeight()));
+        }
+        int x = (int) Math.round(sheet.getCellX(cell) + (sheet.getCellWidth() - bitmap.getWidth()) / 2);
+        int y = (int) Math.round(sheet.getCellY(cell) + (sheet.getCellHeight() - bitmap.getHeight()) / 2);
+        page.draw(bitmap, x, y);
+        if (++cell == sheet.getCellsPerPage()) {
+            writePage(page);
+            page = null;
+            cell = 0;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Writes out the last page. No further barcodes may be output after this
+     * has been called.
+     * 
+     * @throws OutputException
+     *             If the file could not be written
+     */
+    public void endDocument() throws OutputException {
+        if (page != null) {
+            writePage(page);
+            page = null;
+        }
+        try {
+            writer.finish();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        }
+    }
+
+    private void writePage(Bitmap bitmap) throws OutputException {
+        try {
+            writer.writePage(bitmap.getBits(), bitmap.getWidth(), bitmap.getHeight(), bitmap.getStride());
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        }
+    }
+}
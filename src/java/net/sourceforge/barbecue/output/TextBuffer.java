@@ -0,0 +1,210 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Growable character buffer used by the text based outputs to format
+ * numbers and markup without creating intermediate strings.
+ */
+final class TextBuffer {
+    private static final long[] POWERS = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private char[] chars;
+    private int    length;
+
+    TextBuffer(int capacity) {
+        chars = new char[capacity];
+    }
+
+    int length() {
+        return length;
+    }
+
+    void clear() {
+        length = 0;
+    }
+
+    TextBuffer append(char c) {
+        ensure(1);
+        chars[length++] = c;
+        return this;
+    }
+
+    TextBuffer append(String s) {
+        int n = s.length();
+        ensure(n);
+        s.getChars(0, n, chars, length);
+        length += n;
+        return this;
+    }
+
+    TextBuffer append(TextBuffer other) {
+        ensure(other.length);
+        System.arraycopy(other.chars, 0, chars, length, other.length);
+        length += other.length;
+        return this;
+    }
+
+    /**
+     * Appends the decimal representation of the value.
+     */
+    TextBuffer append(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return append(Long.toString(value));
+            }
+            append('-');
+            value = -value;
+        }
+        ensure(20);
+        int start = length;
+        do {
+            chars[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = chars[i];
+            chars[i] = chars[j];
+            chars[j] = c;
+        }
+        return this;
+    }
+
+    /**
+     * Appends the value rounded to at most the given number of decimal
+     * places, without trailing zeros.
+     */
+    TextBuffer append(double value, int decimals) {
+        long scale = POWERS[decimals];
+        long scaled = Math.round(value * scale);
+        if (scaled < 0) {
+            append('-');
+            scaled = -scaled;
+        }
+        append(scaled / scale);
+        long fraction = scaled % scale;
+        if (fraction != 0) {
+            append('.');
+            for (int i = decimals - 1; i >= 0 && fraction != 0; i--) {
+                append((char) ('0' + fraction / POWERS[i]));
+                fraction %= POWERS[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends the colour as a hexadecimal #RRGGBB string.
+     */
+    TextBuffer appendHexColour(int rgb) {
+        append('#');
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            append(Character.toUpperCase(Character.forDigit((rgb >> shift) & 0xf, 16)));
+        }
+        return this;
+    }
+
+    /**
+     * Appends the text with the XML special characters escaped.
+     */
+    TextBuffer appendEscaped(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '<':
+                append("&lt;");
+                break;
+            case '>':
+                append("&gt;");
+                break;
+            case '&':
+                append("&amp;");
+                break;
+            case '"':
+                append("&quot;");
+                break;
+            default:
+                append(c);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends the text as a PostScript or PDF string literal, including the
+     * enclosing parentheses. Characters outside printable ASCII are written
+     * as octal escapes of their ISO-8859-1 codes.
+     */
+    TextBuffer appendLiteral(String s) {
+        append('(');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                append('\\').append(c);
+            } else if (c < 32 || c > 126) {
+                int code = c > 255 ? '?' : c;
+                append('\\').append((char) ('0' + (code >> 6))).append((char) ('0' + ((code >> 3) & 7)))
+                        .append((char) ('0' + (code & 7)));
+            } else {
+                append(c);
+            }
+        }
+        return append(')');
+    }
+
+    void writeTo(Writer writer) throws IOException {
+        writer.write(chars, 0, length);
+    }
+
+    /**
+     * Writes the buffer as ISO-8859-1 bytes, which is what the PostScript
+     * and PDF outputs require.
+     */
+    void writeTo(OutputStream out) throws IOException {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) chars[i];
+        }
+        out.write(bytes);
+    }
+
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > chars.length) {
+            char[] grown = new char[Math.max(chars.length * 2, length + extra)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Outputter that sends barcodes to Zebra compatible thermal printers as ZPL
+ * graphic fields.
+ * <p/>
+ * Each barcode is rasterized at one printer dot per pixel times the scalar
+ * and written as a complete label containing a single <code>^GF</code>
+ * field. The field data uses the printer's ASCII compression scheme: runs
+ * of a repeated hex digit are replaced by a repeat count, the remainder of
+ * a row that is entirely light or entirely dark is replaced by a single
+ * character, and a row that repeats the row above is a single colon. Since
+ * barcodes are mostly made of identical rows this is usually far smaller
+ * than the raw raster. The Writer is flushed but never closed.
+ * <p/>
+ * {@link net.sourceforge.barbecue.formatter.ZPLFormatter} uses the
+ * printer's own barcode commands instead where it can.
+ */
+public class ZPLOutput extends BitmapOutput {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Writer writer;
+    private final TextBuffer buf = new TextBuffer(4096);
+    private int originX;
+    private int originY;
+
+    /**
+     * Creates a new instance of ZPLOutput.
+     * 
+     * @param writer
+     *            The Writer to output the ZPL to
+     * @param font
+     *            The font for text rendering, or null for no text
+     * @param scalar
+     *            The number of printer dots for each barcode unit
+     */
+    public ZPLOutput(Writer writer, Font font, double scalar) {
+        super(font, scalar);
+        this.writer = writer;
+    }
+
+    /**
+     * Sets the position of the barcode on the label.
+     * 
+     * @param x
+     *            The distance from the left of the label, in dots
+     * @param y
+     *            The distance from the top of the label, in dots
+     */
+    public void setOrigin(int x, int y) {
+        this.originX = x;
+        this.originY = y;
+    }
+
+    /**
+     * Writes the rasterized barcode as a label.
+     */
+    protected Bitmap completed(Bitmap bitmap) throws OutputException {
+        buf.clear();
+        buf.append("^XA\n^FO").append(originX).append(',').append(originY);
+        appendGraphicField(buf, bitmap);
+        buf.append("^FS\n^XZ\n");
+        try {
+            buf.writeTo(writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new OutputException(e.getMessage(), e);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Appends a compressed <code>^GFA</code> command for the bitmap.
+     */
+    static void appendGraphicField(TextBuffer buf, Bitmap bitmap) {
+        int rowBytes = (bitmap.getWidth() + 7) >> 3;
+        int total = rowBytes * bitmap.getHeight();
+        buf.append("^GFA,").append(total).append(',').append(total).append(',').append(rowBytes).append(',');
+        byte[] bits = bitmap.getBits();
+        int stride = bitmap.getStride();
+        for (int y = 0; y < bitmap.getHeight(); y++) {
+            int row = y * stride;
+            if (y > 0 && sameRow(bits, row - stride, row, rowBytes)) {
+                buf.append(':');
+                continue;
+            }
+            appendRow(buf, bits, row, rowBytes);
+        }
+    }
+
+    private static boolean sameRow(byte[] bits, int a, int b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bits[a + i] != bits[b + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendRow(TextBuffer buf, byte[] bits, int row, int rowBytes) {
+        int digits = rowBytes * 2;
+        int i = 0;
+        while (i < digits) {
+            char digit = digit(bits, row, i);
+            int run = 1;
+            while (i + run < digits && digit(bits, row, i + run) == digit) {
+                run++;
+            }
+            if (i + run == digits && (digit == '0' || digit == 'F')) {
+                // The rest of the row is all light or all dark
+                buf.append(digit == '0' ? ',' : '!');
+                return;
+            }
+            appendCount(buf, run);
+            buf.append(digit);
+            i += run;
+        }
+    }
+
+    private static char digit(byte[] bits, int row, int index) {
+        int b = bits[row + (index >> 1)];
+        return HEX[(index & 1) == 0 ? (b >> 4) & 0xf : b & 0xf];
+    }
+
+    /**
+     * Appends a repeat count: g to z stand for 20 to 400 in steps of 20 and
+     * G to Y for 1 to 19, and are summed when combined.
+     */
+    private static void appendCount(TextBuffer buf, int count) {
+        if (count == 1) {
+            return;
+        }
+        while (count >= 400) {
+            buf.append('z');
+            count -= 400;
+        }
+        if (count >= 20) {
+            buf.append((char) ('g' + count / 20 - 1));
+            count %= 20;
+        }
+        if (count > 0) {
+            buf.append((char) ('G' + count - 1));
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.pack;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Properties;
+
+/**
+ * Read only view of a barcode pack file written by {@link BarcodePackWriter}.
+ * <p/>
+ * A pack file consists of a header, an offset table sorted by key hash, and
+ * the pre-rendered barcode blobs. The header and offset table are memory
+ * mapped, so a lookup is a binary search over mapped memory followed by a
+ * single key comparison, also in mapped memory for packs under 2 GB. Blobs are never copied onto the heap when served
+ * through {@link #transferTo(Entry, WritableByteChannel)}, which uses
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ * <p/>
+ * Instances are safe for use by multiple threads.
+ */
+public class BarcodePack {
+    /** The magic number that starts every pack file */
+    static final long MAGIC = 0x4242515041434b01L; // "BBQPACK\1"
+    /** The size of the fixed part of the header, in bytes */
+    static final int HEADER_SIZE = 24;
+    /** The size of one offset table entry, in bytes */
+    static final int ENTRY_SIZE = 24;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ByteBuffer index;
+    private final MappedByteBuffer blobs;
+    private final Properties properties;
+    private final int count;
+
+    /**
+     * Opens the given pack file.
+     * @param f The pack file
+     * @throws IOException If the file cannot be read or is not a pack file
+     */
+    public BarcodePack(File f) throws IOException {
+        file = new RandomAccessFile(f, "r");
+        try {
+            channel = file.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getLong() != MAGIC) {
+                throw new IOException("Not a barcode pack: " + f);
+            }
+            count = header.getInt();
+            int metaLength = header.getInt();
+            long indexOffset = header.getLong();
+
+            byte[] meta = new byte[metaLength];
+            channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, metaLength).get(meta);
+            properties = new Properties();
+            properties.load(new ByteArrayInputStream(meta));
+
+            index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) count * ENTRY_SIZE);
+            // Map the whole file too when it fits, so blobs can be sliced
+            // without a read; larger packs fall back to positional reads
+            blobs = channel.size() <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) : null;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of barcodes in this pack.
+     * @return The number of entries
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns a property recorded by the writer when the pack was built, for
+     * example the content type or barcode type of the blobs.
+     * @param name The property name
+     * @return The property value, or null if it was not recorded
+     */
+    public String getProperty(String name) {
+        return properties.getProperty(name);
+    }
+
+    /**
+     * Returns the MIME type of the blobs in this pack.
+     * @return The content type
+     */
+    public String getContentType() {
+        return properties.getProperty(BarcodePackWriter.CONTENT_TYPE);
+    }
+
+    /**
+     * Looks up the barcode rendered for the given key.
+     * @param key The key the barcode was added with
+     * @return The entry, or null if the pack has no barcode for the key
+     * @throws IOException If the pack cannot be read
+     */
+    public Entry find(String key) throws IOException {
+        byte[] keyBytes = BarcodePackWriter.encode(key);
+        long hash = BarcodePackWriter.hash(keyBytes);
+
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = hashAt(mid);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                // Walk back to the first entry with this hash, then check
+                // every colliding entry's key
+                while (mid > 0 && hashAt(mid - 1) == hash) {
+                    mid--;
+                }
+                for (; mid < count && hashAt(mid) == hash; mid++) {
+                    Entry entry = entryAt(mid);
+                    if (entry.keyLength == keyBytes.length && matches(entry, keyBytes)) {
+                        return entry;
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a read only buffer holding the blob for the given entry. For
+     * packs that fit in a single mapping this is a view of the mapped file;
+     * otherwise the blob is read into a new buffer.
+     * @param entry The entry to read
+     * @return The blob
+     * @throws IOException If the pack cannot be read
+     */
+    public ByteBuffer getBlob(Entry entry) throws IOException {
+        long start = entry.offset + entry.keyLength;
+        if (blobs != null) {
+            ByteBuffer view = blobs.duplicate();
+            view.position((int) start);
+            view.limit((int) start + entry.length);
+            return view.slice().asReadOnlyBuffer();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        read(buffer, start);
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the blob for the given entry to the target channel without
+     * copying it through the Java heap where the platform allows it.
+     * @param entry The entry to write
+     * @param target The channel to write to
+     * @throws IOException If the blob cannot be transferred
+     */
+    public void transferTo(Entry entry, WritableByteChannel target) throws IOException {
+        long position = entry.offset + entry.keyLength;
+        long remaining = entry.length;
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, remaining, target);
+            if (sent <= 0) {
+                throw new IOException("Pack file truncated");
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    /**
+     * Closes the pack file. Buffers returned by {@link #getBlob(Entry)} must
+     * not be used after this.
+     * @throws IOException If the file cannot be closed
+     */
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private long hashAt(int i) {
+        return index.getLong(i * ENTRY_SIZE);
+    }
+
+    private Entry entryAt(int i) {
+        int base = i * ENTRY_SIZE;
+        return new Entry(index.getLong(base + 8), index.getInt(base + 16), index.getInt(base + 20));
+    }
+
+    private boolean matches(Entry entry, byte[] key) throws IOException {
+        if (blobs != null) {
+            // Absolute gets leave the shared mapping's position alone
+            int start = (int) entry.offset;
+            for (int i = 0; i < key.length; i++) {
+                if (blobs.get(start + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        ByteBuffer stored = ByteBuffer.allocate(entry.keyLength);
+        read(stored, entry.offset);
+        stored.flip();
+        return ByteBuffer.wrap(key).equals(stored);
+    }
+
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Pack file truncated");
+            }
+        }
+    }
+
+    /**
+     * The location of a single barcode within a pack.
+     */
+    public static final class Entry {
+        private final long offset;
+        private final int keyLength;
+        private final int length;
+
+        Entry(long offset, int keyLength, int length) {
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.length = length;
+        }
+
+        /**
+         * Returns the size of the barcode blob.
+         * @return The blob length in bytes
+         */
+        public int getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.pack;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeImageHandler;
+import net.sourceforge.barbecue.env.EnvironmentFactory;
+import net.sourceforge.barbecue.formatter.SVGFormatter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+
+/**
+ * Builds a barcode pack file that can be served with {@link BarcodePack}.
+ * <p/>
+ * Barcodes are streamed to a temporary data file as they are added, so only
+ * the offset table (24 bytes per barcode) is held in memory. On
+ * {@link #close()} the table is sorted by key hash and the finished pack is
+ * written as the header, the table and then the data.
+ * <p/>
+ * This class also provides a command line tool to pre-render a catalog:
+ * <pre>java net.sourceforge.barbecue.pack.BarcodePackWriter -type Code128B -format png -in skus.txt -o catalog.pack</pre>
+ * The input file holds one barcode's data per line. The barcodes are rendered
+ * headless, without text, exactly as {@link net.sourceforge.barbecue.BarcodeServlet}
+ * renders them when given only the type and data parameters.
+ */
+public class BarcodePackWriter {
+    /** The property holding the MIME type of the blobs */
+    public static final String CONTENT_TYPE = "contentType";
+    /** The property holding the barcode type the blobs were rendered as */
+    public static final String BARCODE_TYPE = "type";
+
+    private static final String KEY_ENCODING = "UTF-8";
+
+    private final File target;
+    private final File dataFile;
+    private final FileOutputStream data;
+    private final Properties properties = new Properties();
+    private long dataLength;
+    private int count;
+    private long[] hashes = new long[1024];
+    private long[] offsets = new long[1024];
+    private int[] keyLengths = new int[1024];
+    private int[] lengths = new int[1024];
+
+    /**
+     * Creates a writer for a new pack file.
+     * @param target The pack file to create
+     * @param contentType The MIME type of the blobs that will be added
+     * @throws IOException If the temporary data file cannot be created
+     */
+    public BarcodePackWriter(File target, String contentType) throws IOException {
+        this.target = target;
+        File dir = target.getAbsoluteFile().getParentFile();
+        this.dataFile = File.createTempFile(target.getName(), ".data", dir);
+        this.data = new FileOutputStream(dataFile);
+        properties.setProperty(CONTENT_TYPE, contentType);
+    }
+
+    /**
+     * Records a property in the pack header.
+     * @param name The property name
+     * @param value The property value
+     */
+    public void setProperty(String name, String value) {
+        properties.setProperty(name, value);
+    }
+
+    /**
+     * Adds a pre-rendered barcode to the pack.
+     * @param key The key the barcode will be looked up by
+     * @param blob The rendered barcode
+     * @throws IOException If the blob cannot be written
+     */
+    public void add(String key, byte[] blob) throws IOException {
+        byte[] keyBytes = encode(key);
+        if (count == hashes.length) {
+            grow();
+        }
+        hashes[count] = hash(keyBytes);
+        offsets[count] = dataLength;
+        keyLengths[count] = keyBytes.length;
+        lengths[count] = blob.length;
+        count++;
+
+        data.write(keyBytes);
+        data.write(blob);
+        dataLength += keyBytes.length + blob.length;
+    }
+
+    /**
+     * Writes the header and offset table and completes the pack file.
+     * @throws IOException If the pack cannot be written
+     */
+    public void close() throws IOException {
+        data.close();
+        try {
+            sort(0, count - 1);
+
+            ByteArrayOutputStream metaBytes = new ByteArrayOutputStream();
+            properties.store(metaBytes, null);
+            byte[] meta = metaBytes.toByteArray();
+            // Keep the offset table 8 byte aligned
+            long indexOffset = (BarcodePack.HEADER_SIZE + meta.length + 7) & ~7L;
+            long dataOffset = indexOffset + (long) count * BarcodePack.ENTRY_SIZE;
+
+            RandomAccessFile out = new RandomAccessFile(target, "rw");
+            try {
+                out.setLength(0);
+                FileChannel channel = out.getChannel();
+                ByteBuffer header = ByteBuffer.allocate((int) indexOffset);
+                header.putLong(BarcodePack.MAGIC);
+                header.putInt(count);
+                header.putInt(meta.length);
+                header.putLong(indexOffset);
+                header.put(meta);
+                header.rewind();
+                write(channel, header, 0);
+
+                ByteBuffer table = ByteBuffer.allocate(64 * BarcodePack.ENTRY_SIZE);
+                long position = indexOffset;
+                for (int i = 0; i < count; i++) {
+                    if (!table.hasRemaining()) {
+                        table.flip();
+                        position += write(channel, table, position);
+                        table.clear();
+                    }
+                    table.putLong(hashes[i]);
+                    table.putLong(dataOffset + offsets[i]);
+                    table.putInt(keyLengths[i]);
+                    table.putInt(lengths[i]);
+                }
+                table.flip();
+                write(channel, table, position);
+
+                FileChannel in = new FileInputStream(dataFile).getChannel();
+                try {
+                    long copied = 0;
+                    while (copied < dataLength) {
+                        copied += in.transferTo(copied, dataLength - copied, channel.position(dataOffset + copied));
+                    }
+                } finally {
+                    in.close();
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            dataFile.delete();
+        }
+    }
+
+    static byte[] encode(String key) {
+        try {
+            return key.getBytes(KEY_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(KEY_ENCODING + " is not supported");
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the key bytes.
+     */
+    static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length; i++) {
+            h ^= key[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private void grow() {
+        int size = hashes.length * 2;
+        long[] h = new long[size];
+        long[] o = new long[size];
+        int[] k = new int[size];
+        int[] l = new int[size];
+        System.arraycopy(hashes, 0, h, 0, count);
+        System.arraycopy(offsets, 0, o, 0, count);
+        System.arraycopy(keyLengths, 0, k, 0, count);
+        System.arraycopy(lengths, 0, l, 0, count);
+        hashes = h;
+        offsets = o;
+        keyLengths = k;
+        lengths = l;
+    }
+
+    /**
+     * Quicksort of the parallel offset table arrays by hash.
+     */
+    private void sort(int low, int high) {
+        while (low < high) {
+            long pivot = hashes[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (hashes[i] < pivot) {
+                    i++;
+                }
+                while (hashes[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        long h = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = h;
+        long o = offsets[i];
+        offsets[i] = offsets[j];
+        offsets[j] = o;
+        int k = keyLengths[i];
+        keyLengths[i] = keyLengths[j];
+        keyLengths[j] = k;
+        int l = lengths[i];
+        lengths[i] = lengths[j];
+        lengths[j] = l;
+    }
+
+    /**
+     * Pre-renders every barcode listed in a file into a pack.
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        String type = "Code128B";
+        String format = "png";
+        String in = null;
+        String out = null;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("-type")) {
+                type = args[++i];
+            } else if (args[i].equals("-format")) {
+                format = args[++i];
+            } else if (args[i].equals("-in")) {
+                in = args[++i];
+            } else if (args[i].equals("-o")) {
+                out = args[++i];
+            }
+        }
+        if (in == null || out == null) {
+            System.err.println("Usage: BarcodePackWriter {-type <type>} {-format png|svg} -in <data file> -o <pack file>");
+            return;
+        }
+
+        try {
+            EnvironmentFactory.setHeadlessMode();
+            Method factory = getFactoryMethod(type);
+            boolean svg = format.equals("svg");
+            BarcodePackWriter writer = new BarcodePackWriter(new File(out), svg ? "image/svg+xml" : "image/png");
+            writer.setProperty(BARCODE_TYPE, type);
+
+            BufferedReader reader = new BufferedReader(new FileReader(in));
+            try {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() == 0) {
+                        continue;
+                    }
+                    Barcode barcode = (Barcode) factory.invoke(null, new Object[] {line});
+                    barcode.setDrawingText(false);
+                    buf.reset();
+                    if (svg) {
+                        buf.write(SVGFormatter.formatAsSVG(barcode).getBytes("UTF-8"));
+                    } else {
+                        BarcodeImageHandler.writePNG(barcode, buf);
+                    }
+                    writer.add(line, buf.toByteArray());
+                }
+            } finally {
+                reader.close();
+            }
+            writer.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Method getFactoryMethod(String type) throws NoSuchMethodException {
+        Method[] methods = BarcodeFactory.class.getMethods();
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            if (method.getParameterTypes().length == 1 && method.getName().equalsIgnoreCase("create" + type)) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException("Invalid barcode type: " + type);
+    }
+}
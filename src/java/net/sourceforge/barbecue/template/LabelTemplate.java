@@ -0,0 +1,506 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.template;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeException;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.env.EnvironmentFactory;
+import net.sourceforge.barbecue.output.Bitmap;
+import net.sourceforge.barbecue.output.BitmapOutput;
+import net.sourceforge.barbecue.output.MarginLabelLayout;
+import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.output.PixelTarget;
+import net.sourceforge.barbecue.output.RasterOutput;
+
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A label with a fixed layout, such as a shipping label, rendered as bilevel
+ * bitmaps in printer pixels. The template is made of static elements (boxes,
+ * logos, text and barcodes that are the same on every label) and named
+ * fields that are filled in for each label.
+ * <p/>
+ * The static elements are rendered once, the first time a label is
+ * rendered, and kept. Each label starts as a copy of that static layer, and
+ * only its own barcodes and text are drawn on top, through
+ * {@link RasterOutput} and {@link MarginLabelLayout}. Once built, a template
+ * may be used by any number of threads at once, see
+ * {@link #render(List, ExecutorService)}.
+ */
+public class LabelTemplate {
+    private final int width;
+    private final int height;
+    private final Font font;
+    private final List<Element> elements = new ArrayList<Element>();
+    private final List<Field> fields = new ArrayList<Field>();
+    private Layers layers;
+
+    /**
+     * Creates a blank template that draws text in the environment's default
+     * font.
+     * 
+     * @param width
+     *            The width of the label in pixels
+     * @param height
+     *            The height of the label in pixels
+     */
+    public LabelTemplate(int width, int height) {
+        this(width, height, EnvironmentFactory.getEnvironment().getDefaultFont());
+    }
+
+    /**
+     * Creates a blank template.
+     * 
+     * @param width
+     *            The width of the label in pixels
+     * @param height
+     *            The height of the label in pixels
+     * @param font
+     *            The font for all text on the label, or null for no text
+     */
+    public LabelTemplate(int width, int height, Font font) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Label size must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.font = font;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Adds the outline of a box to the static layer.
+     * 
+     * @param x
+     *            The x coordinate of the box
+     * @param y
+     *            The y coordinate of the box
+     * @param width
+     *            The outside width of the box
+     * @param height
+     *            The outside height of the box
+     * @param thickness
+     *            The thickness of the lines
+     */
+    public synchronized void addBox(final int x, final int y, final int width, final int height,
+            final int thickness) {
+        add(new Element() {
+            void draw(Bitmap layer) {
+                layer.fill(x, y, width, thickness, true);
+                layer.fill(x, y + height - thickness, width, thickness, true);
+                layer.fill(x, y, thickness, height, true);
+                layer.fill(x + width - thickness, y, thickness, height, true);
+            }
+        });
+    }
+
+    /**
+     * Adds an image, such as a logo, to the static layer. Pixels that are
+     * mostly opaque and darker than mid grey are drawn dark; the rest of the
+     * image is left transparent.
+     * 
+     * @param image
+     *            The image, which is not read until the static layer is
+     *            rendered
+     * @param x
+     *            The x coordinate of the image
+     * @param y
+     *            The y coordinate of the image
+     */
+    public synchronized void addImage(final BufferedImage image, final int x, final int y) {
+        add(new Element() {
+            void draw(Bitmap layer) {
+                int[] row = new int[image.getWidth()];
+                for (int j = 0; j < image.getHeight(); j++) {
+                    image.getRGB(0, j, row.length, 1, row, 0, row.length);
+                    int start = -1;
+                    for (int i = 0; i <= row.length; i++) {
+                        boolean dark = i < row.length && isDark(row[i]);
+                        if (dark && start < 0) {
+                            start = i;
+                        } else if (!dark && start >= 0) {
+                            layer.fill(x + start, y + j, i - start, 1, true);
+                            start = -1;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds text, centred in a box, to the static layer.
+     * 
+     * @param text
+     *            The text
+     * @param x
+     *            The x coordinate of the box
+     * @param y
+     *            The y coordinate of the box
+     * @param width
+     *            The width of the box
+     * @param height
+     *            The height of the box
+     */
+    public synchronized void addText(final String text, final int x, final int y, final int width,
+            final int height) {
+        add(new Element() {
+            void draw(Bitmap layer) throws OutputException {
+                drawText(layer, text, x, y, width, height);
+            }
+        });
+    }
+
+    /**
+     * Adds a barcode to the static layer, drawn at its own bar width and
+     * height.
+     * 
+     * @param barcode
+     *            The barcode, which is not drawn until the static layer is
+     *            rendered
+     * @param x
+     *            The x coordinate of the barcode
+     * @param y
+     *            The y coordinate of the barcode
+     */
+    public synchronized void addBarcode(final Barcode barcode, final int x, final int y) {
+        add(new Element() {
+            void draw(Bitmap layer) throws OutputException {
+                BitmapOutput output = new BitmapOutput(font, 1);
+                barcode.output(output);
+                layer.draw(output.getBitmap(), x, y);
+            }
+        });
+    }
+
+    /**
+     * Adds a field for text that differs from label to label. The text is
+     * centred in its box, and the box is cleared first.
+     * 
+     * @param name
+     *            The name of the field's value
+     * @param x
+     *            The x coordinate of the box
+     * @param y
+     *            The y coordinate of the box
+     * @param width
+     *            The width of the box
+     * @param height
+     *            The height of the box
+     */
+    public synchronized void addTextField(String name, int x, int y, int width, int height) {
+        addField(new Field(name, null, x, y, width, height));
+    }
+
+    /**
+     * Adds a field for a barcode that differs from label to label. Each
+     * barcode is sized to fill its box with the widest whole pixel bars
+     * that fit, see {@link Barcode#fitToBox(int, int)}, and the box is
+     * cleared first.
+     * 
+     * @param name
+     *            The name of the field's value, which is the data to encode
+     * @param type
+     *            The barcode type, which is the name of one of the
+     *            single argument <code>create</code> methods on
+     *            {@link BarcodeFactory} without the prefix, such as "Code128"
+     *            or "PDF417"; case is ignored
+     * @param x
+     *            The x coordinate of the box
+     * @param y
+     *            The y coordinate of the box
+     * @param width
+     *            The width of the box
+     * @param height
+     *            The height of the box
+     * @throws IllegalArgumentException
+     *             If there is no such barcode type
+     */
+    public void addBarcodeField(String name, String type, int x, int y, int width, int height) {
+        addBarcodeField(name, new FactoryCreator(type), x, y, width, height);
+    }
+
+    /**
+     * Adds a field for a barcode that differs from label to label, created
+     * by the given creator. Each barcode is sized to fill its box as for
+     * {@link #addBarcodeField(String, String, int, int, int, int)}.
+     * 
+     * @param name
+     *            The name of the field's value, which is the data to encode
+     * @param creator
+     *            Creates the barcode for each value
+     * @param x
+     *            The x coordinate of the box
+     * @param y
+     *            The y coordinate of the box
+     * @param width
+     *            The width of the box
+     * @param height
+     *            The height of the box
+     */
+    public synchronized void addBarcodeField(String name, BarcodeCreator creator, int x, int y, int width,
+            int height) {
+        if (creator == null) {
+            throw new IllegalArgumentException("A barcode field needs a barcode creator");
+        }
+        addField(new Field(name, creator, x, y, width, height));
+    }
+
+    /**
+     * Returns the static layer, rendering it if the template has changed
+     * since it was last rendered.
+     * 
+     * @return The static layer, which is shared and must not be modified
+     * @throws OutputException
+     *             If a static element could not be drawn
+     */
+    public Bitmap getStaticLayer() throws OutputException {
+        return getLayers().layer;
+    }
+
+    /**
+     * Renders one label.
+     * 
+     * @param values
+     *            The value of every field, by name
+     * @return The label, a new bitmap owned by the caller
+     * @throws BarcodeException
+     *             If a value is missing or cannot be encoded
+     * @throws OutputException
+     *             If a barcode does not fit its box or cannot be drawn
+     */
+    public Bitmap render(Map<String, String> values) throws BarcodeException, OutputException {
+        Layers layers = getLayers();
+        Bitmap label = new Bitmap(width, height, layers.layer.getStride(), layers.layer.getBits().clone());
+        for (int i = 0; i < layers.fields.length; i++) {
+            Field field = layers.fields[i];
+            String value = values.get(field.name);
+            if (value == null) {
+                throw new BarcodeException("No value for the field: " + field.name);
+            }
+            if (field.creator == null) {
+                drawText(label, value, field.x, field.y, field.width, field.height);
+            } else {
+                drawBarcode(label, field, value);
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Renders many labels in parallel. The static layer is rendered once
+     * before any of them.
+     * 
+     * @param labels
+     *            The values of the fields of each label
+     * @param executor
+     *            The executor to render the labels on
+     * @return The labels, in the same order as their values
+     * @throws BarcodeException
+     *             If any value is missing or cannot be encoded
+     * @throws OutputException
+     *             If any barcode does not fit its box or cannot be drawn
+     * @throws InterruptedException
+     *             If the calling thread is interrupted while waiting
+     */
+    public List<Bitmap> render(List<? extends Map<String, String>> labels, ExecutorService executor)
+            throws BarcodeException, OutputException, InterruptedException {
+        getLayers();
+        List<Future<Bitmap>> futures = new ArrayList<Future<Bitmap>>(labels.size());
+        for (final Map<String, String> values : labels) {
+            futures.add(executor.submit(new Callable<Bitmap>() {
+                public Bitmap call() throws Exception {
+                    return render(values);
+                }
+            }));
+        }
+        List<Bitmap> rendered = new ArrayList<Bitmap>(labels.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                rendered.add(futures.get(i).get());
+            }
+        } catch (ExecutionException e) {
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).cancel(true);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof BarcodeException) {
+                throw (BarcodeException) cause;
+            } else if (cause instanceof OutputException) {
+                throw (OutputException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return rendered;
+    }
+
+    private void drawBarcode(Bitmap label, Field field, String value) throws BarcodeException, OutputException {
+        Barcode barcode = field.creator.createBarcode(value);
+        barcode.setFont(font);
+        barcode.setDrawingText(font != null);
+        if (!barcode.fitToBox(field.width, field.height)) {
+            throw new OutputException("The barcode for " + value + " does not fit the field: " + field.name);
+        }
+        // Centre the barcode across the box, which the output clears first
+        int offset = (field.width - barcode.getPreferredSize().width) / 2;
+        label.fill(field.x, field.y, offset, field.height, false);
+        barcode.output(new RasterOutput(label.region(field.x + offset, field.y, field.width - offset, field.height),
+                font, 1));
+    }
+
+    private void drawText(PixelTarget target, String text, int x, int y, int width, int height)
+            throws OutputException {
+        target.fill(x, y, width, height, false);
+        new RasterOutput(target, font, 1).drawText(text, new MarginLabelLayout(x, y, width, height));
+    }
+
+    private synchronized Layers getLayers() throws OutputException {
+        if (layers == null) {
+            Bitmap layer = new Bitmap(width, height);
+            for (int i = 0; i < elements.size(); i++) {
+                elements.get(i).draw(layer);
+            }
+            layers = new Layers(layer, fields.toArray(new Field[fields.size()]));
+        }
+        return layers;
+    }
+
+    private void add(Element element) {
+        elements.add(element);
+        layers = null;
+    }
+
+    private void addField(Field field) {
+        fields.add(field);
+        layers = null;
+    }
+
+    private static boolean isDark(int argb) {
+        int alpha = argb >>> 24;
+        int luminance = (((argb >> 16) & 0xff) * 299 + ((argb >> 8) & 0xff) * 587 + (argb & 0xff) * 114) / 1000;
+        return alpha >= 128 && luminance < 128;
+    }
+
+    /**
+     * Something drawn on the static layer.
+     */
+    private abstract static class Element {
+        abstract void draw(Bitmap layer) throws OutputException;
+    }
+
+    /**
+     * A box filled in for each label, with text when there is no creator.
+     */
+    private static final class Field {
+        final String name;
+        final BarcodeCreator creator;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+
+        Field(String name, BarcodeCreator creator, int x, int y, int width, int height) {
+            this.name = name;
+            this.creator = creator;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Creates barcodes with one of the <code>create</code> methods on
+     * {@link BarcodeFactory}, found by name.
+     */
+    private static final class FactoryCreator implements BarcodeCreator {
+        private final Method method;
+
+        FactoryCreator(String type) {
+            Method[] methods = BarcodeFactory.class.getMethods();
+            for (int i = 0; i < methods.length; i++) {
+                Class<?>[] parameters = methods[i].getParameterTypes();
+                if (parameters.length == 1 && parameters[0] == String.class
+                        && methods[i].getName().equalsIgnoreCase("create" + type)) {
+                    this.method = methods[i];
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("Unknown barcode type: " + type);
+        }
+
+        public Barcode createBarcode(String data) throws BarcodeException {
+            try {
+                return (Barcode) method.invoke(null, new Object[] {data});
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof BarcodeException) {
+                    throw (BarcodeException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * The rendered static layer with the fields it was rendered with.
+     */
+    private static final class Layers {
+        final Bitmap layer;
+        final Field[] fields;
+
+        Layers(Bitmap layer, Field[] fields) {
+            this.layer = layer;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod;
+
+import java.util.Arrays;
+
+/**
+ * An immutable grid of dark and light modules, as drawn by a two dimensional
+ * barcode. Each row is packed into longs with the leftmost module in the most
+ * significant bit, so a matrix costs one bit per module and whole rows are
+ * compared and scanned a word at a time.
+ */
+public final class ModuleMatrix {
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final long[] bits;
+
+    /**
+     * Creates a matrix from packed rows. The array is copied.
+     * 
+     * @param width
+     *            The width of the matrix in modules
+     * @param height
+     *            The height of the matrix in modules
+     * @param bits
+     *            The rows, {@link #getStride(int)} longs each, with set bits
+     *            for the dark modules
+     * @throws IllegalArgumentException
+     *             If the array is too short for the size given
+     */
+    public ModuleMatrix(int width, int height, long[] bits) {
+        if (width < 0 || height < 0 || bits.length < getStride(width) * height) {
+            throw new IllegalArgumentException("Not enough bits for a " + width + "x" + height + " matrix");
+        }
+        this.width = width;
+        this.height = height;
+        this.stride = getStride(width);
+        this.bits = new long[stride * height];
+        System.arraycopy(bits, 0, this.bits, 0, this.bits.length);
+        // Keep the padding clear so that equal matrices have equal bits
+        if ((width & 63) != 0) {
+            long mask = -1L << (64 - (width & 63));
+            for (int i = stride - 1; i < this.bits.length; i += stride) {
+                this.bits[i] &= mask;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of longs used for each row of a matrix.
+     * 
+     * @param width
+     *            The width of the matrix in modules
+     * @return The number of longs in each row
+     */
+    public static int getStride(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    /**
+     * Sets modules in packed rows that are being built up for a new matrix.
+     * 
+     * @param bits
+     *            The packed rows
+     * @param stride
+     *            The number of longs in each row
+     * @param x
+     *            The column of the first module
+     * @param y
+     *            The row
+     * @param pattern
+     *            The modules to set, in the low bits with the leftmost
+     *            module highest
+     * @param length
+     *            The number of modules in the pattern, at most 64
+     */
+    public static void set(long[] bits, int stride, int x, int y, long pattern, int length) {
+        int i = y * stride + (x >>> 6);
+        int shift = 64 - (x & 63) - length;
+        if (shift >= 0) {
+            bits[i] |= pattern << shift;
+        } else {
+            bits[i] |= pattern >>> -shift;
+            bits[i + 1] |= pattern << (64 + shift);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Indicates whether a module is dark.
+     * 
+     * @param x
+     *            The column
+     * @param y
+     *            The row
+     * @return True if the module is dark
+     */
+    public boolean get(int x, int y) {
+        return (bits[y * stride + (x >>> 6)] & (1L << (63 - (x & 63)))) != 0;
+    }
+
+    /**
+     * Splits a row into runs of modules of one colour. The runs alternate
+     * between light and dark and always start with a light run, which is
+     * empty if the row starts with a dark module.
+     * 
+     * @param row
+     *            The row
+     * @param runs
+     *            The array to put the run lengths into, with room for at
+     *            least one more run than there are columns
+     * @return The number of runs
+     */
+    public int getRuns(int row, int[] runs) {
+        int offset = row * stride;
+        int count = 0;
+        int x = 0;
+        boolean dark = false;
+        while (x < width) {
+            int end = findChange(offset, x, dark);
+            runs[count++] = end - x;
+            x = end;
+            dark = !dark;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first column at or after x whose colour is not the one
+     * given, or the width if there is none.
+     */
+    private int findChange(int offset, int x, boolean dark) {
+        int i = x >>> 6;
+        long word = dark ? ~bits[offset + i] : bits[offset + i];
+        word &= -1L >>> (x & 63);
+        while (word == 0 && ++i < stride) {
+            word = dark ? ~bits[offset + i] : bits[offset + i];
+        }
+        if (word == 0) {
+            return width;
+        }
+        return Math.min(width, (i << 6) + Long.numberOfLeadingZeros(word));
+    }
+
+    /**
+     * See Object.
+     */
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ModuleMatrix)) {
+            return false;
+        }
+        ModuleMatrix matrix = (ModuleMatrix) o;
+        return width == matrix.width && height == matrix.height && Arrays.equals(bits, matrix.bits);
+    }
+
+    /**
+     * See Object.
+     */
+    public int hashCode() {
+        return 31 * width + Arrays.hashCode(bits);
+    }
+}
@@ -0,0 +1,193 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeException;
+import net.sourceforge.barbecue.Module;
+import net.sourceforge.barbecue.output.Output;
+import net.sourceforge.barbecue.output.OutputException;
+
+import java.awt.Dimension;
+
+/**
+ * Base class for two dimensional barcodes. Subclasses encode their data into
+ * a {@link ModuleMatrix}, which is kept until the encoding changes; drawing
+ * walks the runs of each row and draws every dark run once, merged with the
+ * same run in the rows below it. The bar width is the width of one module.
+ * Two dimensional barcodes have their own height, so the bar height is
+ * ignored, and they do not draw any text.
+ */
+public abstract class TwoDimensionalBarcode extends Barcode {
+    private transient ModuleMatrix matrix;
+
+    protected TwoDimensionalBarcode(String data) throws BarcodeException {
+        super(data);
+    }
+
+    /**
+     * Returns the symbol's modules, encoding the data the first time.
+     * 
+     * @return The module matrix
+     * @throws BarcodeException
+     *             If the data cannot be encoded
+     */
+    public ModuleMatrix getMatrix() throws BarcodeException {
+        if (matrix == null) {
+            matrix = encodeMatrix();
+        }
+        return matrix;
+    }
+
+    /**
+     * Encodes the data into the symbol's modules.
+     * 
+     * @return The module matrix
+     * @throws BarcodeException
+     *             If the data cannot be encoded
+     */
+    protected abstract ModuleMatrix encodeMatrix() throws BarcodeException;
+
+    /**
+     * Returns the height of each row of the matrix, in module widths.
+     * 
+     * @return The row height
+     */
+    protected int getRowHeight() {
+        return 1;
+    }
+
+    /**
+     * Returns the width of the light margin around the symbol, in module
+     * widths.
+     * 
+     * @return The quiet zone
+     */
+    protected int getQuietZone() {
+        return 2;
+    }
+
+    /**
+     * Discards the encoded matrix and updates the component. Subclasses call
+     * this when a setting that changes the encoding is changed.
+     */
+    protected void encodingChanged() {
+        matrix = null;
+        update();
+    }
+
+    @Override
+    public boolean isDrawingText() {
+        return false;
+    }
+
+    @Override
+    protected Dimension draw(Output output, int x, int y, int barWidth, int barHeight) throws OutputException {
+        ModuleMatrix matrix;
+        try {
+            matrix = getMatrix();
+        } catch (BarcodeException e) {
+            throw new OutputException(e);
+        }
+        int quietZone = getQuietZone() * barWidth;
+        int rowHeight = getRowHeight() * barWidth;
+        int width = matrix.getWidth() * barWidth + 2 * quietZone;
+        int height = matrix.getHeight() * rowHeight + 2 * quietZone;
+        int left = x + quietZone;
+        int top = y + quietZone;
+
+        output.beginDraw();
+        output.drawBar(x, y, width, height, false);
+
+        // The dark runs still open from the rows above: start, end and first row
+        int[] runs = new int[matrix.getWidth() + 1];
+        int[] open = new int[matrix.getWidth() * 3];
+        int[] next = new int[open.length];
+        int openCount = 0;
+        for (int row = 0; row <= matrix.getHeight(); row++) {
+            int runCount = row < matrix.getHeight() ? matrix.getRuns(row, runs) : 0;
+            int nextCount = 0;
+            int i = 0;
+            int start = runs[0];
+            int j = 1;
+            while (i < openCount || j < runCount) {
+                if (i < openCount && (j >= runCount || open[i] <= start)) {
+                    if (j < runCount && open[i] == start && open[i + 1] == start + runs[j]) {
+                        // The same run continues into this row
+                        System.arraycopy(open, i, next, nextCount, 3);
+                        nextCount += 3;
+                        start += runs[j] + (j + 1 < runCount ? runs[j + 1] : 0);
+                        j += 2;
+                    } else {
+                        output.drawBar(left + open[i] * barWidth, top + open[i + 2] * rowHeight,
+                                (open[i + 1] - open[i]) * barWidth, (row - open[i + 2]) * rowHeight, true);
+                    }
+                    i += 3;
+                } else {
+                    next[nextCount++] = start;
+                    next[nextCount++] = start + runs[j];
+                    next[nextCount++] = row;
+                    start += runs[j] + (j + 1 < runCount ? runs[j + 1] : 0);
+                    j += 2;
+                }
+            }
+            int[] swap = open;
+            open = next;
+            next = swap;
+            openCount = nextCount;
+        }
+
+        Dimension size = new Dimension(width, height);
+        output.endDraw(width, height);
+        return size;
+    }
+
+    /**
+     * Two dimensional barcodes are not made of modules.
+     * 
+     * @return An empty array
+     */
+    @Override
+    protected Module[] encodeData() {
+        return new Module[0];
+    }
+
+    @Override
+    protected Module calculateChecksum() {
+        return null;
+    }
+
+    @Override
+    protected Module getPreAmble() {
+        return null;
+    }
+
+    @Override
+    protected Module getPostAmble() {
+        return null;
+    }
+}
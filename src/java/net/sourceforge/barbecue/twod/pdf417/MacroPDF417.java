@@ -0,0 +1,262 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import net.sourceforge.barbecue.BarcodeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits a payload too large for one PDF417 symbol across a sequence of Macro
+ * PDF417 symbols. Each symbol's data ends with a control block holding the
+ * file ID shared by the whole sequence and the symbol's segment index, and
+ * the last symbol's control block is marked as the last. A reader joins the
+ * segments back together in index order.
+ * <p/>
+ * The payload is read from a stream a segment at a time, so only as much of
+ * it as fits in one symbol is held in memory. Each segment takes as many
+ * bytes as fit in a symbol of the configured shape after compaction.
+ * <pre>
+ * MacroPDF417 macro = new MacroPDF417(in, "123456");
+ * PDF417Barcode segment;
+ * while ((segment = macro.nextSegment()) != null) {
+ *     // Print the segment
+ * }
+ * </pre>
+ */
+public class MacroPDF417 {
+    private static final int CONTROL_BLOCK = 928;
+    private static final int TERMINATOR = 922;
+    /** The segment index is five digits */
+    private static final int MAX_SEGMENTS = 100000;
+    /** Numeric compaction holds fewer than three bytes per codeword */
+    private static final int MAX_BYTES_PER_CODEWORD = 3;
+
+    private final InputStream in;
+    private final int[] fileId;
+    private int errorCorrectionLevel = PDF417ErrorCorrection.MIN_LEVEL;
+    private int columns = PDF417Barcode.DEFAULT_COLUMNS;
+    private int rows;
+    private boolean compact;
+
+    private byte[] buffer;
+    private int count;
+    private boolean eof;
+    private int segmentIndex;
+
+    /**
+     * Creates a sequence of symbols for the payload in the given stream.
+     * 
+     * @param in
+     *            The payload, which is read as segments are asked for
+     * @param fileId
+     *            The file ID, as groups of three digits from 000 to 899;
+     *            every symbol in the sequence carries it
+     * @throws IllegalArgumentException
+     *             If the file ID is not in groups of three digits below 900
+     */
+    public MacroPDF417(InputStream in, String fileId) {
+        if (fileId.length() == 0 || fileId.length() % 3 != 0) {
+            throw new IllegalArgumentException("The file ID must be groups of three digits: " + fileId);
+        }
+        this.in = in;
+        this.fileId = new int[fileId.length() / 3];
+        for (int i = 0; i < this.fileId.length; i++) {
+            String group = fileId.substring(i * 3, i * 3 + 3);
+            for (int j = 0; j < 3; j++) {
+                if (!Character.isDigit(group.charAt(j))) {
+                    throw new IllegalArgumentException("The file ID must be groups of three digits: " + fileId);
+                }
+            }
+            this.fileId[i] = Integer.parseInt(group);
+            if (this.fileId[i] >= 900) {
+                throw new IllegalArgumentException("The file ID groups must be below 900: " + fileId);
+            }
+        }
+    }
+
+    /**
+     * Sets the error correction level of every symbol.
+     * 
+     * @param level
+     *            The error correction level, from 0 to 8
+     * @see PDF417Barcode#setErrorCorrectionLevel(int)
+     */
+    public void setErrorCorrectionLevel(int level) {
+        if (level < PDF417ErrorCorrection.MIN_LEVEL || level > PDF417ErrorCorrection.MAX_LEVEL) {
+            throw new IllegalArgumentException("Error correction level must be between "
+                    + PDF417ErrorCorrection.MIN_LEVEL + " and " + PDF417ErrorCorrection.MAX_LEVEL);
+        }
+        this.errorCorrectionLevel = level;
+    }
+
+    /**
+     * Sets the number of data columns of every symbol.
+     * 
+     * @param columns
+     *            The number of data columns from 1 to 30, or 0 to choose them
+     * @see PDF417Barcode#setColumns(int)
+     */
+    public void setColumns(int columns) {
+        if (columns < 0 || columns > PDF417Encoder.MAX_COLUMNS) {
+            throw new IllegalArgumentException("Columns must be between 1 and " + PDF417Encoder.MAX_COLUMNS
+                    + ", or 0 for automatic");
+        }
+        this.columns = columns;
+    }
+
+    /**
+     * Sets the most rows of every symbol. Every symbol but the last is
+     * filled to this size.
+     * 
+     * @param rows
+     *            The number of rows from 3 to 90, or 0 for up to 90
+     * @see PDF417Barcode#setRows(int)
+     */
+    public void setRows(int rows) {
+        if (rows != 0 && (rows < PDF417Encoder.MIN_ROWS || rows > PDF417Encoder.MAX_ROWS)) {
+            throw new IllegalArgumentException("Rows must be between " + PDF417Encoder.MIN_ROWS + " and "
+                    + PDF417Encoder.MAX_ROWS + ", or 0 for automatic");
+        }
+        this.rows = rows;
+    }
+
+    /**
+     * Sets whether every symbol is compact PDF417.
+     * 
+     * @param compact
+     *            True for compact symbols
+     * @see PDF417Barcode#setCompact(boolean)
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * Reads the next segment of the payload and returns its symbol. The bar
+     * width and row height of the symbol may be changed, but not its shape
+     * or error correction level, which the segment was sized for.
+     * 
+     * @return The next symbol, or null once the payload has been used up
+     * @throws IOException
+     *             If the payload cannot be read
+     * @throws BarcodeException
+     *             If not even one byte fits in a symbol of the configured
+     *             shape, or there are more than 99999 segments
+     */
+    public PDF417Barcode nextSegment() throws IOException, BarcodeException {
+        // The length descriptor, the error correction and the largest control block
+        int available = PDF417Encoder.getCapacity(columns, rows) - 1
+                - PDF417ErrorCorrection.getCodewordCount(errorCorrectionLevel) - (4 + fileId.length);
+        if (buffer == null) {
+            buffer = new byte[Math.max(1, available * MAX_BYTES_PER_CODEWORD)];
+        }
+        fill();
+        if (count == 0) {
+            return null;
+        }
+        if (segmentIndex == MAX_SEGMENTS) {
+            throw new BarcodeException("Macro PDF417 allows at most " + MAX_SEGMENTS + " segments");
+        }
+
+        // The longest run of bytes that compacts into the space available
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int length = (low + high + 1) / 2;
+            if (new PDF417Compaction(toString(length)).compact().length <= available) {
+                low = length;
+            } else {
+                high = length - 1;
+            }
+        }
+        if (low == 0) {
+            throw new BarcodeException("A symbol of " + columns + " columns and " + rows
+                    + " rows has no room for data at error correction level " + errorCorrectionLevel);
+        }
+
+        PDF417Barcode barcode = new PDF417Barcode(toString(low));
+        System.arraycopy(buffer, low, buffer, 0, count - low);
+        count -= low;
+        fill();
+        barcode.setErrorCorrectionLevel(errorCorrectionLevel);
+        barcode.setColumns(columns);
+        barcode.setRows(rows);
+        barcode.setCompact(compact);
+        barcode.setMacroControlBlock(createControlBlock(segmentIndex++, count == 0));
+        return barcode;
+    }
+
+    /**
+     * Returns the number of segments made so far.
+     * 
+     * @return The number of segments
+     */
+    public int getSegmentCount() {
+        return segmentIndex;
+    }
+
+    private void fill() throws IOException {
+        while (!eof && count < buffer.length) {
+            int read = in.read(buffer, count, buffer.length - count);
+            if (read < 0) {
+                eof = true;
+            } else {
+                count += read;
+            }
+        }
+    }
+
+    /**
+     * Returns the first bytes of the buffer as ISO-8859-1 characters.
+     */
+    private String toString(int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer[i] & 0xff);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Creates the control block: the marker, the segment index as five digits
+     * in numeric compaction, the file ID and, for the last segment, the
+     * terminator.
+     */
+    private int[] createControlBlock(int index, boolean last) {
+        int[] block = new int[3 + fileId.length + (last ? 1 : 0)];
+        block[0] = CONTROL_BLOCK;
+        block[1] = (MAX_SEGMENTS + index) / 900;
+        block[2] = (MAX_SEGMENTS + index) % 900;
+        System.arraycopy(fileId, 0, block, 3, fileId.length);
+        if (last) {
+            block[block.length - 1] = TERMINATOR;
+        }
+        return block;
+    }
+}
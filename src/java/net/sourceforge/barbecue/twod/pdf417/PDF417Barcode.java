@@ -27,15 +27,8 @@ POSSIBILITY OF SUCH DAMAGE.
 package net.sourceforge.barbecue.twod.pdf417;
 
 import net.sourceforge.barbecue.BarcodeException;
-import net.sourceforge.barbecue.BlankModule;
-import net.sourceforge.barbecue.Module;
-import net.sourceforge.barbecue.linear.LinearBarcode;
-import net.sourceforge.barbecue.output.Output;
-import net.sourceforge.barbecue.output.GraphicsOutput;
-import net.sourceforge.barbecue.output.OutputException;
-
-import java.awt.*;
-import java.awt.image.BufferedImage;
+import net.sourceforge.barbecue.twod.ModuleMatrix;
+import net.sourceforge.barbecue.twod.TwoDimensionalBarcode;
 
 /**
  * Implementation of the PDF417 two dimensional barcode format.
@@ -45,11 +38,21 @@ import java.awt.image.BufferedImage;
  * 
  * @author <a href="mailto:opensource@ianbourke.com">Ian Bourke</a>
  */
-// TODO: Make this extend TwoDimensionalBarcode (and implement that) - NOT
-// linear barcode
-public class PDF417Barcode extends LinearBarcode {
-    
-    private PDF417Module module;
+public class PDF417Barcode extends TwoDimensionalBarcode {
+    /** The number of data columns used unless the shape is changed */
+    public static final int DEFAULT_COLUMNS = 12;
+    /** The width over the height of symbols with an automatic shape */
+    public static final double DEFAULT_ASPECT_RATIO = 2.0;
+    /** The row height, in module widths */
+    public static final int DEFAULT_ROW_HEIGHT = 3;
+
+    private int errorCorrectionLevel = PDF417ErrorCorrection.MIN_LEVEL;
+    private int columns = DEFAULT_COLUMNS;
+    private int rows;
+    private double aspectRatio = DEFAULT_ASPECT_RATIO;
+    private int rowHeight = DEFAULT_ROW_HEIGHT;
+    private boolean compact;
+    private int[] macroControlBlock;
 
     /**
      * Constructs a new new PDF417 barcode with the specified data.
@@ -61,91 +64,208 @@ public class PDF417Barcode extends LinearBarcode {
      */
     public PDF417Barcode(String data) throws BarcodeException {
         super(data);
-        setBarWidth(1);
-        setDrawingText(false);
     }
 
-    @Override
-    public boolean isDrawingText() {
-        return false;
+    public int getErrorCorrectionLevel() {
+        return errorCorrectionLevel;
     }
-    
-    @Override
-    public int getBarWidth() {
-        return 1;
+
+    /**
+     * Sets the error correction level. Level n adds 2<sup>n+1</sup> error
+     * correction codewords to the symbol, from 2 at level 0 to 512 at level
+     * 8. The default is level 0.
+     * 
+     * @param level
+     *            The error correction level, from 0 to 8
+     * @throws IllegalArgumentException
+     *             If the level is out of range
+     */
+    public void setErrorCorrectionLevel(int level) {
+        if (level < PDF417ErrorCorrection.MIN_LEVEL || level > PDF417ErrorCorrection.MAX_LEVEL) {
+            throw new IllegalArgumentException("Error correction level must be between "
+                    + PDF417ErrorCorrection.MIN_LEVEL + " and " + PDF417ErrorCorrection.MAX_LEVEL);
+        }
+        if (level != errorCorrectionLevel) {
+            errorCorrectionLevel = level;
+            encodingChanged();
+        }
     }
-    
-    @Override
-    protected int getResolution() {
-        return 1;
+
+    public int getColumns() {
+        return columns;
     }
 
     /**
-     * Returns the minimum allowed height for the barcode for the given
-     * resolution.
+     * Sets the number of data columns, each one codeword wide. The number of
+     * rows is then whatever the data needs, unless it is also set. The
+     * default is 12 columns.
      * 
-     * @param resolution
-     *            The output resolution
-     * @return The minimum allowed barcode height
+     * @param columns
+     *            The number of data columns from 1 to 30, or 0 to choose them
+     *            from the rows or the aspect ratio
+     * @throws IllegalArgumentException
+     *             If the number of columns is out of range
      */
-    @Override
-    protected int calculateMinimumBarHeight(int resolution) {
-        initBarcode(getData());
-        return module.getBarcodeHeight();
+    public void setColumns(int columns) {
+        if (columns < 0 || columns > PDF417Encoder.MAX_COLUMNS) {
+            throw new IllegalArgumentException("Columns must be between 1 and " + PDF417Encoder.MAX_COLUMNS
+                    + ", or 0 for automatic");
+        }
+        if (columns != this.columns) {
+            this.columns = columns;
+            encodingChanged();
+        }
+    }
+
+    public int getRows() {
+        return rows;
     }
 
     /**
-     * Returns the encoded data for the barcode.
+     * Sets the number of rows. If the columns are automatic, the symbol has
+     * as few columns as fit the data in these rows. Data that does not fit
+     * the rows and columns causes a <code>BarcodeException</code> when the
+     * barcode is encoded.
      * 
-     * @return An array of modules that represent the data as a barcode
+     * @param rows
+     *            The number of rows from 3 to 90, or 0 for as many as the
+     *            data needs
+     * @throws IllegalArgumentException
+     *             If the number of rows is out of range
      */
-    @Override
-    protected Module[] encodeData() {
-        initBarcode(getData());
-        return new Module[] { new PDF417Module(getData()) };
+    public void setRows(int rows) {
+        if (rows != 0 && (rows < PDF417Encoder.MIN_ROWS || rows > PDF417Encoder.MAX_ROWS)) {
+            throw new IllegalArgumentException("Rows must be between " + PDF417Encoder.MIN_ROWS + " and "
+                    + PDF417Encoder.MAX_ROWS + ", or 0 for automatic");
+        }
+        if (rows != this.rows) {
+            this.rows = rows;
+            encodingChanged();
+        }
+    }
+
+    public double getAspectRatio() {
+        return aspectRatio;
+    }
+
+    /**
+     * Sets the width over the height that the symbol should come closest
+     * to, quiet zones aside, and makes the columns and rows automatic.
+     * 
+     * @param aspectRatio
+     *            The aspect ratio
+     * @throws IllegalArgumentException
+     *             If the aspect ratio is not positive
+     */
+    public void setAspectRatio(double aspectRatio) {
+        if (!(aspectRatio > 0)) {
+            throw new IllegalArgumentException("Aspect ratio must be positive");
+        }
+        if (aspectRatio != this.aspectRatio || columns != 0 || rows != 0) {
+            this.aspectRatio = aspectRatio;
+            this.columns = 0;
+            this.rows = 0;
+            encodingChanged();
+        }
     }
 
     /**
-     * Returns the checksum for the barcode, pre-encoded as a Module.
+     * Returns the height of each row of the symbol, in module widths.
      * 
-     * @return A blank module
+     * @return The row height
      */
     @Override
-    protected Module calculateChecksum() {
-        return new BlankModule(0);
+    public int getRowHeight() {
+        return rowHeight;
     }
 
     /**
-     * Returns the pre-amble for the barcode.
+     * Sets the height of each row of the symbol. The default is 3.
      * 
-     * @return A blank module
+     * @param rowHeight
+     *            The row height, in module widths
+     * @throws IllegalArgumentException
+     *             If the row height is less than 1
      */
-    protected Module getPreAmble() {
-        return new BlankModule(0);
+    public void setRowHeight(int rowHeight) {
+        if (rowHeight < 1) {
+            throw new IllegalArgumentException("Row height must be at least 1");
+        }
+        if (rowHeight != this.rowHeight) {
+            this.rowHeight = rowHeight;
+            encodingChanged();
+        }
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Sets whether to draw compact PDF417, also known as truncated PDF417.
+     * Compact symbols leave out the right row indicators and most of the
+     * stop pattern, which makes them 34 modules narrower, at the cost of
+     * being less robust.
+     * 
+     * @param compact
+     *            True for compact symbols
+     */
+    public void setCompact(boolean compact) {
+        if (compact != this.compact) {
+            this.compact = compact;
+            encodingChanged();
+        }
+    }
+
+    /**
+     * Returns whether this symbol is one segment of a Macro PDF417 sequence.
+     * 
+     * @return True for a segment made by {@link MacroPDF417}
+     */
+    public boolean isMacroSegment() {
+        return macroControlBlock != null;
+    }
+
+    int[] getMacroControlBlock() {
+        return macroControlBlock;
+    }
+
+    void setMacroControlBlock(int[] controlBlock) {
+        this.macroControlBlock = controlBlock;
+        encodingChanged();
+    }
+
+    /**
+     * Returns the number of data columns in the encoded symbol, which is
+     * the configured number unless the columns are automatic.
+     * 
+     * @return The number of data columns
+     * @throws BarcodeException
+     *             If the data cannot be encoded
+     */
+    public int getEncodedColumns() throws BarcodeException {
+        return (getMatrix().getWidth() - 1) / 17 - (compact ? 2 : 4);
     }
 
     /**
-     * Returns the post-amble for the barcode.
+     * Returns the number of rows in the encoded symbol.
      * 
-     * @return A blank module
+     * @return The number of rows
+     * @throws BarcodeException
+     *             If the data cannot be encoded
      */
+    public int getEncodedRows() throws BarcodeException {
+        return getMatrix().getHeight();
+    }
+
     @Override
-    protected Module getPostAmble() {
-        return new BlankModule(0);
-    }
-
-    private void initBarcode(String data) {
-        if (module == null) {
-            this.module = new PDF417Module(data);
-            Output params = new GraphicsOutput((Graphics2D) new BufferedImage(
-                    1000, 1000, BufferedImage.TYPE_BYTE_GRAY).getGraphics(),
-                    null, Color.black, Color.white);
-            try {
-                module.draw(params, 0, 0, getBarWidth(),
-                        getPreferredBarHeight());
-            } catch (OutputException e) {
-                // TODO: Something
-            }
+    protected ModuleMatrix encodeMatrix() throws BarcodeException {
+        PDF417Encoder encoder = new PDF417Encoder(getData(), errorCorrectionLevel);
+        encoder.setGeometry(columns, rows, aspectRatio, rowHeight);
+        encoder.setCompact(compact);
+        if (macroControlBlock != null) {
+            encoder.setMacroControlBlock(macroControlBlock);
         }
+        return encoder.encode();
     }
 }
@@ -0,0 +1,390 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import net.sourceforge.barbecue.BarcodeException;
+
+/**
+ * Turns data into PDF417 data codewords using the text, byte and numeric
+ * compaction modes. The data is split into segments by a shortest path search
+ * over every character: the states are the text submodes (with whether half a
+ * codeword is left over), the position within a group of six bytes and the
+ * position within a group of 44 digits, so the mix of modes and text submodes
+ * chosen is the most compact one, latches and shifts included.
+ * <p/>
+ * Numeric groups are converted to base 900 with a small multi-word
+ * multiplication rather than with <code>BigInteger</code>.
+ */
+final class PDF417Compaction {
+    private static final int TEXT_LATCH = 900;
+    private static final int BYTE_LATCH = 901;
+    private static final int NUMERIC_LATCH = 902;
+    private static final int BYTE_SHIFT = 913;
+    private static final int BYTE_LATCH_6 = 924;
+
+    private static final int ALPHA = 0;
+    private static final int LOWER = 1;
+    private static final int MIXED = 2;
+    private static final int PUNCTUATION = 3;
+    /** Punctuation shift, in the alpha, lower and mixed submodes */
+    private static final int PS = 29;
+    /** Alpha shift, in the lower submode */
+    private static final int AS = 27;
+    /** The text values that latch from one submode to another */
+    private static final int[][][] TEXT_LATCHES = {
+        {null, {27}, {28}, {28, 25}},
+        {{28, 28}, null, {28}, {28, 25}},
+        {{28}, {27}, null, {25}},
+        {{29}, {29, 27}, {29, 28}, null}};
+    private static final String MIXED_CHARS = "0123456789&\r\t,:#-.$/+%*=^\0 ";
+    private static final String PUNCTUATION_CHARS = ";<>@[\\]_`~!\r\t,:\n-.$/\"|*()?{}'";
+    /** The value of each ASCII character in each text submode, or -1 */
+    private static final byte[][] TEXT_VALUES = new byte[4][128];
+
+    /** States 0 to 7 are the text submodes times two, plus one if half a codeword is used */
+    private static final int TEXT = 0;
+    /** States 8 to 13 are the number of bytes in the current group of six */
+    private static final int BYTE = 8;
+    /** States 14 to 57 are the number of digits in the current group of 44 */
+    private static final int NUMERIC = 14;
+    private static final int NUMERIC_GROUP = 44;
+    private static final int STATES = NUMERIC + NUMERIC_GROUP;
+
+    private static final int DIRECT = 0;
+    private static final int SHIFT = 1;
+    private static final int LATCH = 2;
+    private static final int SHIFT_BYTE = 3;
+    private static final int ADD_BYTE = 4;
+    private static final int ADD_DIGIT = 5;
+    /** Added to an action that starts a new segment */
+    private static final int SWITCHED = 8;
+
+    static {
+        for (int s = 0; s < TEXT_VALUES.length; s++) {
+            java.util.Arrays.fill(TEXT_VALUES[s], (byte) -1);
+        }
+        for (int i = 0; i < 26; i++) {
+            TEXT_VALUES[ALPHA]['A' + i] = (byte) i;
+            TEXT_VALUES[LOWER]['a' + i] = (byte) i;
+        }
+        TEXT_VALUES[ALPHA][' '] = 26;
+        TEXT_VALUES[LOWER][' '] = 26;
+        for (int i = 0; i < MIXED_CHARS.length(); i++) {
+            if (MIXED_CHARS.charAt(i) != 0) {
+                TEXT_VALUES[MIXED][MIXED_CHARS.charAt(i)] = (byte) i;
+            }
+        }
+        for (int i = 0; i < PUNCTUATION_CHARS.length(); i++) {
+            TEXT_VALUES[PUNCTUATION][PUNCTUATION_CHARS.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final String data;
+    /** Costs are counted in half codewords, the size of one text value */
+    private final int[] cost = new int[STATES];
+    private final int[] next = new int[STATES];
+    private byte[] from;
+    private byte[] how;
+    private int position;
+
+    private int[] codewords;
+    private int length;
+    private int[] values;
+    private int valueCount;
+
+    /**
+     * Creates a compactor for the given data.
+     * 
+     * @param data
+     *            The data, in ISO-8859-1
+     */
+    PDF417Compaction(String data) {
+        this.data = data;
+    }
+
+    /**
+     * Compacts the data.
+     * 
+     * @return The data codewords, not including the symbol length descriptor
+     * @throws BarcodeException
+     *             If the data has a character outside ISO-8859-1
+     */
+    int[] compact() throws BarcodeException {
+        int n = data.length();
+        from = new byte[n * STATES];
+        how = new byte[n * STATES];
+        java.util.Arrays.fill(cost, Integer.MAX_VALUE);
+        // A symbol starts in the alpha submode of text compaction
+        cost[TEXT + ALPHA * 2] = 0;
+        for (position = 0; position < n; position++) {
+            char c = data.charAt(position);
+            if (c > 255) {
+                throw new BarcodeException("PDF417 cannot encode the character '" + c + "'");
+            }
+            java.util.Arrays.fill(next, Integer.MAX_VALUE);
+            for (int state = 0; state < STATES; state++) {
+                if (cost[state] != Integer.MAX_VALUE) {
+                    step(state, cost[state], c);
+                }
+            }
+            System.arraycopy(next, 0, cost, 0, STATES);
+        }
+
+        int best = 0;
+        for (int state = 1; state < STATES; state++) {
+            if (finalCost(state) < finalCost(best)) {
+                best = state;
+            }
+        }
+        int[] states = new int[n + 1];
+        states[n] = best;
+        for (int i = n - 1; i >= 0; i--) {
+            states[i] = from[i * STATES + states[i + 1]];
+        }
+        emit(states);
+
+        int[] result = new int[length];
+        System.arraycopy(codewords, 0, result, 0, length);
+        return result;
+    }
+
+    private int finalCost(int state) {
+        if (cost[state] == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        // A last odd text value is padded to a whole codeword
+        return cost[state] + (state < BYTE ? state & 1 : 0);
+    }
+
+    /**
+     * Tries every way of encoding the character from the given state.
+     */
+    private void step(int state, int base, char c) {
+        boolean digit = c >= '0' && c <= '9';
+        if (state < BYTE) {
+            int odd = state & 1;
+            text(state >> 1, odd, base, state, 0, c);
+            relax(state - odd, base + odd + 4, state, SHIFT_BYTE);
+            relax(BYTE + 1, base + odd + 4, state, ADD_BYTE + SWITCHED);
+            if (digit) {
+                relax(NUMERIC + 1, base + odd + 4, state, ADD_DIGIT + SWITCHED);
+            }
+        } else if (state < NUMERIC) {
+            int bytes = state - BYTE;
+            // Six bytes take five codewords
+            relax(BYTE + (bytes + 1) % 6, base + (bytes < 5 ? 2 : 0), state, ADD_BYTE);
+            text(ALPHA, 0, base + 2, state, SWITCHED, c);
+            if (digit) {
+                relax(NUMERIC + 1, base + 4, state, ADD_DIGIT + SWITCHED);
+            }
+        } else {
+            if (digit) {
+                // A group of n digits takes n / 3 + 1 codewords
+                int digits = state - NUMERIC + 1;
+                relax(NUMERIC + digits % NUMERIC_GROUP, base + (digits == 1 || digits % 3 == 0 ? 2 : 0), state,
+                        ADD_DIGIT);
+            }
+            text(ALPHA, 0, base + 2, state, SWITCHED, c);
+            relax(BYTE + 1, base + 4, state, ADD_BYTE + SWITCHED);
+        }
+    }
+
+    private void text(int submode, int odd, int base, int state, int switched, char c) {
+        if (c >= 128) {
+            return;
+        }
+        for (int target = 0; target < 4; target++) {
+            if (TEXT_VALUES[target][c] >= 0) {
+                int count = target == submode ? 1 : TEXT_LATCHES[submode][target].length + 1;
+                relax(TEXT + target * 2 + ((odd + count) & 1), base + count, state,
+                        (target == submode ? DIRECT : LATCH) + switched);
+            }
+        }
+        if ((submode != PUNCTUATION && TEXT_VALUES[PUNCTUATION][c] >= 0)
+                || (submode == LOWER && TEXT_VALUES[ALPHA][c] >= 0 && c != ' ')) {
+            relax(TEXT + submode * 2 + odd, base + 2, state, SHIFT + switched);
+        }
+    }
+
+    private void relax(int state, int newCost, int previous, int action) {
+        if (newCost < next[state]) {
+            next[state] = newCost;
+            from[position * STATES + state] = (byte) previous;
+            how[position * STATES + state] = (byte) action;
+        }
+    }
+
+    /**
+     * Writes the codewords for the path through the states.
+     */
+    private void emit(int[] states) {
+        int n = data.length();
+        codewords = new int[n + 16];
+        values = new int[3 * n];
+        int mode = TEXT;
+        int submode = ALPHA;
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+            int state = states[i + 1];
+            int action = how[i * STATES + state];
+            char c = data.charAt(i);
+            if ((action & SWITCHED) != 0) {
+                flush(mode, start, i);
+                mode = state < BYTE ? TEXT : state < NUMERIC ? BYTE : NUMERIC;
+                start = i;
+                if (mode == TEXT) {
+                    add(TEXT_LATCH);
+                    submode = ALPHA;
+                }
+            }
+            switch (action & ~SWITCHED) {
+            case DIRECT:
+                addValue(TEXT_VALUES[submode][c]);
+                break;
+            case LATCH:
+                int target = state >> 1;
+                int[] latch = TEXT_LATCHES[submode][target];
+                for (int j = 0; j < latch.length; j++) {
+                    addValue(latch[j]);
+                }
+                addValue(TEXT_VALUES[target][c]);
+                submode = target;
+                break;
+            case SHIFT:
+                if (submode != PUNCTUATION && TEXT_VALUES[PUNCTUATION][c] >= 0) {
+                    addValue(PS);
+                    addValue(TEXT_VALUES[PUNCTUATION][c]);
+                } else {
+                    addValue(AS);
+                    addValue(TEXT_VALUES[ALPHA][c]);
+                }
+                break;
+            case SHIFT_BYTE:
+                flushText();
+                add(BYTE_SHIFT);
+                add(c);
+                break;
+            default:
+                // Bytes and digits are written a segment at a time
+                break;
+            }
+        }
+        flush(mode, start, n);
+    }
+
+    private void flush(int mode, int start, int end) {
+        if (mode == TEXT) {
+            flushText();
+        } else if (mode == BYTE) {
+            addBytes(start, end);
+        } else {
+            add(NUMERIC_LATCH);
+            for (int i = start; i < end; i += NUMERIC_GROUP) {
+                addDigits(i, Math.min(end, i + NUMERIC_GROUP));
+            }
+        }
+    }
+
+    /**
+     * Pairs up the text values into codewords, padding an odd one out.
+     */
+    private void flushText() {
+        for (int i = 0; i < valueCount; i += 2) {
+            add(30 * values[i] + (i + 1 < valueCount ? values[i + 1] : PS));
+        }
+        valueCount = 0;
+    }
+
+    private void addBytes(int start, int end) {
+        add((end - start) % 6 == 0 ? BYTE_LATCH_6 : BYTE_LATCH);
+        int i = start;
+        for (; i + 6 <= end; i += 6) {
+            // Six bytes as a base 256 number, written in base 900
+            long value = 0;
+            for (int j = i; j < i + 6; j++) {
+                value = (value << 8) | data.charAt(j);
+            }
+            for (int j = 4; j >= 0; j--) {
+                codewords[length + j] = (int) (value % 900);
+                value /= 900;
+            }
+            length += 5;
+            ensureCapacity();
+        }
+        for (; i < end; i++) {
+            add(data.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a group of up to 44 digits, with a leading 1, in base 900. The
+     * number is built up in base 900 words, four digits at a time.
+     */
+    private void addDigits(int start, int end) {
+        int[] words = new int[NUMERIC_GROUP / 3 + 1];
+        words[0] = 1;
+        int count = 1;
+        for (int i = start; i < end; i += 4) {
+            int chunkEnd = Math.min(end, i + 4);
+            int multiplier = 1;
+            int carry = 0;
+            for (int j = i; j < chunkEnd; j++) {
+                multiplier *= 10;
+                carry = carry * 10 + data.charAt(j) - '0';
+            }
+            for (int j = 0; j < count; j++) {
+                int value = words[j] * multiplier + carry;
+                words[j] = value % 900;
+                carry = value / 900;
+            }
+            while (carry > 0) {
+                words[count++] = carry % 900;
+                carry /= 900;
+            }
+        }
+        for (int j = count - 1; j >= 0; j--) {
+            add(words[j]);
+        }
+    }
+
+    private void addValue(int value) {
+        values[valueCount++] = value;
+    }
+
+    private void add(int codeword) {
+        codewords[length++] = codeword;
+        ensureCapacity();
+    }
+
+    private void ensureCapacity() {
+        if (length + 5 >= codewords.length) {
+            int[] larger = new int[codewords.length * 2];
+            System.arraycopy(codewords, 0, larger, 0, length);
+            codewords = larger;
+        }
+    }
+}
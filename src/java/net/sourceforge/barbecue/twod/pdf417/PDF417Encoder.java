@@ -0,0 +1,282 @@
+/***********************************************************************************************************************
+Copyright (c) 2003, International Barcode Consortium
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without modification,
+are permitted provided that the following conditions are met:
+
+ * Redistributions of source code must retain the above copyright notice, this list of
+      conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+      conditions and the following disclaimer in the documentation and/or other materials
+      provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+      or promote products derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import net.sourceforge.barbecue.BarcodeException;
+import net.sourceforge.barbecue.twod.ModuleMatrix;
+
+/**
+ * Encodes data into the modules of a PDF417 symbol, using the most compact
+ * mix of text, byte and numeric compaction. The number of data columns and
+ * rows may be fixed, or chosen to give the symbol an aspect ratio.
+ * 
+ * <p/>
+ * Contributed by Alex Ferrer <alex@ftconsult.com>
+ * 
+ * @author Alex Ferrer
+ * @author <a href="mailto:opensource@ianbourke.com">Ian Bourke</a>
+ */
+class PDF417Encoder {
+
+    static final int         MAX_COLUMNS   = 30;
+    static final int         MIN_ROWS      = 3;
+    static final int         MAX_ROWS      = 90;
+    /** The most codewords a symbol can hold, error correction included */
+    static final int         MAX_CODEWORDS = 928;
+    /** The number of modules in each codeword pattern */
+    private static final int PATTERN_WIDTH = 17;
+
+    private final String     data;
+    private final int        ecLevel;
+    private int              columns       = 12;
+    private int              rows;
+    private double           aspectRatio;
+    private int              rowHeight     = 3;
+    private boolean          compact;
+    private int[]            controlBlock  = new int[0];
+    private int              datacols;
+    private int[]            out;
+    private int              outlen;
+    private int              outrows;
+
+    /**
+     * Constructs an encoder for the specified data.
+     * 
+     * @param data
+     *            The data to encode
+     * @param ecLevel
+     *            The error correction level, from 0 to 8
+     */
+    PDF417Encoder(String data, int ecLevel) {
+        this.data = data;
+        this.ecLevel = ecLevel;
+    }
+
+    /**
+     * Sets the shape of the symbol. A fixed number of columns takes
+     * precedence over a fixed number of rows, which takes precedence over
+     * the aspect ratio.
+     * 
+     * @param columns
+     *            The number of data columns, or 0 to choose them
+     * @param rows
+     *            The number of rows, or 0 for as many as the data needs
+     * @param aspectRatio
+     *            The width of the symbol over its height, used when neither
+     *            the columns nor the rows are fixed
+     * @param rowHeight
+     *            The height of each row, in module widths
+     */
+    void setGeometry(int columns, int rows, double aspectRatio, int rowHeight) {
+        this.columns = columns;
+        this.rows = rows;
+        this.aspectRatio = aspectRatio;
+        this.rowHeight = rowHeight;
+    }
+
+    /**
+     * Sets whether to leave out the right row indicators and shorten the
+     * stop pattern to the termination bar, as compact (truncated) PDF417
+     * does.
+     * 
+     * @param compact
+     *            True for compact PDF417
+     */
+    void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * Sets the Macro PDF417 control block that ends the data codewords of a
+     * symbol in a sequence.
+     * 
+     * @param controlBlock
+     *            The control block codewords, starting with 928
+     */
+    void setMacroControlBlock(int[] controlBlock) {
+        this.controlBlock = controlBlock;
+    }
+
+    /**
+     * Returns the most codewords, error correction included, that a symbol of
+     * the given shape can hold.
+     * 
+     * @param columns
+     *            The number of data columns, or 0 for automatic
+     * @param rows
+     *            The number of rows, or 0 for automatic
+     * @return The capacity in codewords
+     */
+    static int getCapacity(int columns, int rows) {
+        if (columns > 0 && rows > 0) {
+            return Math.min(MAX_CODEWORDS, columns * rows);
+        } else if (columns > 0) {
+            return columns * Math.min(MAX_ROWS, MAX_CODEWORDS / columns);
+        } else if (rows > 0) {
+            return rows * Math.min(MAX_COLUMNS, MAX_CODEWORDS / rows);
+        }
+        return MAX_CODEWORDS;
+    }
+
+    /**
+     * Encodes the data. Each row of the matrix is one row of the symbol:
+     * the start pattern, the left row indicator, the data, the right row
+     * indicator and the stop pattern with its termination bar. Compact
+     * symbols end each row with the termination bar after the data.
+     * 
+     * @return The symbol's modules
+     * @throws BarcodeException
+     *             If the data has a character that cannot be encoded, or
+     *             does not fit in the symbol
+     */
+    ModuleMatrix encode() throws BarcodeException {
+        createCodewords();
+        createBits(out, outrows);
+        int columns = datacols + (compact ? 2 : 4);
+        int width = columns * PATTERN_WIDTH + 1;
+        int stride = ModuleMatrix.getStride(width);
+        long[] bits = new long[stride * outrows];
+        for (int row = 0; row < outrows; row++) {
+            for (int i = 0; i < columns; i++) {
+                ModuleMatrix.set(bits, stride, i * PATTERN_WIDTH, row, out[row * columns + i], PATTERN_WIDTH);
+            }
+            ModuleMatrix.set(bits, stride, width - 1, row, 1, 1);
+        }
+        return new ModuleMatrix(width, outrows, bits);
+    }
+
+    private void createCodewords() throws BarcodeException {
+        int ecLength = PDF417ErrorCorrection.getCodewordCount(ecLevel);
+        int[] compacted = new PDF417Compaction(data).compact();
+
+        /* The length descriptor, the data, any control block and the error correction */
+        layout(1 + compacted.length + controlBlock.length + ecLength);
+        outlen = outrows * datacols;
+
+        out = new int[outlen]; // dimension the array
+        out[0] = outlen - ecLength; // 1st value is the number of data codewords, padding included
+        System.arraycopy(compacted, 0, out, 1, compacted.length);
+        int outp = 1 + compacted.length;
+
+        /* Do padding, which goes before a control block */
+        while (outp < outlen - ecLength - controlBlock.length) {
+            out[outp++] = 900;
+        }
+        System.arraycopy(controlBlock, 0, out, outp, controlBlock.length);
+        outp += controlBlock.length;
+
+        PDF417ErrorCorrection.encode(out, outp, ecLevel);
+    }
+
+    /**
+     * Chooses the number of data columns and rows for the codewords.
+     */
+    private void layout(int needed) throws BarcodeException {
+        if (needed > MAX_CODEWORDS) {
+            throw new BarcodeException("The data needs " + needed + " codewords, more than the " + MAX_CODEWORDS
+                    + " a PDF417 symbol can hold");
+        }
+        if (columns > 0) {
+            datacols = columns;
+            outrows = rows > 0 ? rows : Math.max(MIN_ROWS, (needed + columns - 1) / columns);
+        } else if (rows > 0) {
+            outrows = rows;
+            datacols = Math.max(1, (needed + rows - 1) / rows);
+        } else {
+            /* The columns whose symbol is closest to the aspect ratio */
+            double best = Double.MAX_VALUE;
+            for (int c = 1; c <= MAX_COLUMNS; c++) {
+                int r = Math.max(MIN_ROWS, (needed + c - 1) / c);
+                if (r > MAX_ROWS || c * r > MAX_CODEWORDS) {
+                    continue;
+                }
+                int width = (c + (compact ? 2 : 4)) * PATTERN_WIDTH + 1;
+                double distance = Math.abs(Math.log(width / (aspectRatio * r * rowHeight)));
+                if (distance < best) {
+                    best = distance;
+                    datacols = c;
+                    outrows = r;
+                }
+            }
+        }
+        if (datacols > MAX_COLUMNS || outrows > MAX_ROWS || datacols * outrows < needed
+                || datacols * outrows > MAX_CODEWORDS) {
+            throw new BarcodeException("The data needs " + needed + " codewords, which do not fit in " + datacols
+                    + " columns and " + outrows + " rows");
+        }
+    }
+
+    private void createBits(int[] codes, int datarows) {
+        int row, inp, outp;
+        /* Each row has start, left, data, right, stop; compact rows stop after the data */
+        int outlen = datarows * (datacols + (compact ? 2 : 4));
+        int[] out = new int[outlen];
+        outp = 0;
+        inp = 0;
+
+        for (row = 0; row < datarows; ++row) {
+            /* Do each row */
+            int v = datacols - 1;
+            int w = row % 3;
+            int x = row / 3;
+            int y = (datarows - 1) / 3;
+            int z = ecLevel * 3 + (datarows - 1) % 3;
+            out[outp++] = PDF417Data.PDF417_START;
+            switch (w) {
+            case 0:
+                out[outp++] = PDF417Data.PDF417_BITS[w][30 * x + y];
+                break;
+            case 1:
+                out[outp++] = PDF417Data.PDF417_BITS[w][30 * x + z];
+                break;
+            case 2:
+                out[outp++] = PDF417Data.PDF417_BITS[w][30 * x + v];
+                break;
+            }
+            for (int i = 0; i < datacols; ++i) {
+                out[outp++] = PDF417Data.PDF417_BITS[w][codes[inp++]];
+            }
+            if (compact) {
+                continue;
+            }
+            switch (w) {
+            case 0:
+                out[outp++] = PDF417Data.PDF417_BITS[w][30 * x + v];
+                break;
+            case 1:
+                out[outp++] = PDF417Data.PDF417_BITS[w][30 * x + y];
+                break;
+            case 2:
+                out[outp++] = PDF417Data.PDF417_BITS[w][30 * x + z];
+                break;
+            }
+            out[outp++] = PDF417Data.PDF417_STOP;
+        }
+        this.out = out;
+        this.outlen = outlen;
+    }
+}
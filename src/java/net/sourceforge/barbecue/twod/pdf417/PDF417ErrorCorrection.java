@@ -0,0 +1,148 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+/**
+ * Reed-Solomon error correction for PDF417, over the prime field GF(929).
+ * Multiplication goes through log and antilog tables for the primitive
+ * element 3, and the generator polynomial of each error correction level is
+ * built once and kept as the logs of its coefficients, so encoding a
+ * codeword is one table lookup and one addition for each error correction
+ * codeword.
+ */
+final class PDF417ErrorCorrection {
+    /** The lowest error correction level, with two error correction codewords */
+    static final int MIN_LEVEL = 0;
+    /** The highest error correction level, with 512 error correction codewords */
+    static final int MAX_LEVEL = 8;
+
+    private static final int MODULUS = 929;
+    private static final int PRIMITIVE = 3;
+
+    /**
+     * The log given to zero. It is large enough that adding any other log to
+     * it lands in the zeros at the end of the antilog table.
+     */
+    private static final int ZERO_LOG = 2 * (MODULUS - 1);
+
+    /**
+     * The powers of 3, twice over so that two logs can be added without a
+     * modulo, followed by zeros for products with zero
+     */
+    private static final int[] EXP = new int[2 * ZERO_LOG];
+    private static final int[] LOG = new int[MODULUS];
+    /** The logs of the generator polynomial coefficients for each level, highest power first */
+    private static final int[][] GENERATOR_LOGS = new int[MAX_LEVEL + 1][];
+
+    static {
+        LOG[0] = ZERO_LOG;
+        int value = 1;
+        for (int i = 0; i < MODULUS - 1; i++) {
+            EXP[i] = value;
+            EXP[i + MODULUS - 1] = value;
+            LOG[value] = i;
+            value = value * PRIMITIVE % MODULUS;
+        }
+        for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+            GENERATOR_LOGS[level] = createGeneratorLogs(getCodewordCount(level));
+        }
+    }
+
+    private PDF417ErrorCorrection() {
+    }
+
+    /**
+     * Returns the number of error correction codewords for a level.
+     * 
+     * @param level
+     *            The error correction level, from 0 to 8
+     * @return The number of error correction codewords
+     */
+    static int getCodewordCount(int level) {
+        return 2 << level;
+    }
+
+    /**
+     * Calculates the error correction codewords for the data codewords and
+     * puts them straight after the data.
+     * 
+     * @param codewords
+     *            The data codewords, with room after them for the error
+     *            correction codewords
+     * @param length
+     *            The number of data codewords
+     * @param level
+     *            The error correction level, from 0 to 8
+     */
+    static void encode(int[] codewords, int length, int level) {
+        int[] generator = GENERATOR_LOGS[level];
+        int k = generator.length;
+        // The remainder, highest power first, with a zero after it to shift in
+        int[] ec = new int[k + 1];
+        for (int i = 0; i < length; i++) {
+            int feedback = (codewords[i] + ec[0]) % MODULUS;
+            if (feedback == 0) {
+                System.arraycopy(ec, 1, ec, 0, k);
+            } else {
+                int log = LOG[feedback];
+                for (int j = 0; j < k; j++) {
+                    int next = ec[j + 1] - EXP[log + generator[j]];
+                    ec[j] = next < 0 ? next + MODULUS : next;
+                }
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            codewords[length + j] = ec[j] == 0 ? 0 : MODULUS - ec[j];
+        }
+    }
+
+    /**
+     * Multiplies out (x - 3)(x - 3^2)...(x - 3^k), returning the logs of all
+     * but the leading coefficient, which is one, from the highest power down.
+     */
+    private static int[] createGeneratorLogs(int k) {
+        int[] coefficients = new int[k + 1];
+        coefficients[0] = 1;
+        for (int i = 1; i <= k; i++) {
+            int root = MODULUS - EXP[i];
+            // Multiply by (x + root), from the highest power down
+            for (int j = i; j > 0; j--) {
+                coefficients[j] = (coefficients[j - 1] + multiply(coefficients[j], root)) % MODULUS;
+            }
+            coefficients[0] = multiply(coefficients[0], root);
+        }
+        int[] logs = new int[k];
+        for (int j = 0; j < k; j++) {
+            logs[j] = LOG[coefficients[k - 1 - j]];
+        }
+        return logs;
+    }
+
+    private static int multiply(int a, int b) {
+        return a == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+    }
+}
@@ -0,0 +1,105 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import junit.framework.TestCase;
+
+import javax.swing.JList;
+import javax.swing.JTable;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+public class BarcodeCellRendererTest extends TestCase {
+
+	public void testTableCellsPaintTheCachedBarcode() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.setDrawingText(false);
+		JTable table = new JTable(new Object[][] {{barcode}}, new Object[] {"Barcode"});
+		BarcodeCellRenderer renderer = new BarcodeCellRenderer();
+
+		Component component = renderer.getTableCellRendererComponent(table, barcode, false, false, 0, 0);
+		assertSame(renderer, component);
+		assertSame(barcode, renderer.getBarcode());
+		int width = barcode.getPreferredSize().width;
+		renderer.setSize(width + 40, 50);
+		BufferedImage cell = paint(renderer);
+		BufferedImage cached = barcode.getCachedImage(width, 50);
+		for (int x = 0; x < width; x++) {
+			assertEquals("x=" + x, cached.getRGB(x, 10), cell.getRGB(x + 20, 10));
+		}
+
+		// Painting again, selected, reuses the barcode's image
+		renderer.getTableCellRendererComponent(table, barcode, true, true, 0, 0);
+		paint(renderer);
+		assertSame(cached, barcode.getCachedImage(width, 50));
+		assertEquals(table.getSelectionBackground(), renderer.getBackground());
+	}
+
+	public void testHiDPICellsPaintAnImageAtTheDeviceScale() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.setDrawingText(false);
+		JTable table = new JTable(new Object[][] {{barcode}}, new Object[] {"Barcode"});
+		BarcodeCellRenderer renderer = new BarcodeCellRenderer();
+		renderer.getTableCellRendererComponent(table, barcode, false, false, 0, 0);
+		int width = barcode.getPreferredSize().width;
+		renderer.setSize(width + 40, 50);
+
+		// A 2x screen gets an image with a pixel for each device pixel
+		BufferedImage cell = new BufferedImage(renderer.getWidth() * 2, 100, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = cell.createGraphics();
+		g.scale(2, 2);
+		renderer.paint(g);
+		g.dispose();
+		BufferedImage cached = barcode.getCachedImage(width, 50, 2, 2);
+		assertEquals(width * 2, cached.getWidth());
+		assertEquals(100, cached.getHeight());
+		for (int x = 0; x < cached.getWidth(); x++) {
+			assertEquals("x=" + x, cached.getRGB(x, 20), cell.getRGB(x + 40, 20));
+		}
+		assertSame(cached, barcode.getCachedImage(width, 50, 2, 2));
+	}
+
+	public void testListCellsWithoutBarcodesAreBlank() throws Exception {
+		JList list = new JList(new Object[] {"not a barcode"});
+		BarcodeCellRenderer renderer = new BarcodeCellRenderer();
+		renderer.getListCellRendererComponent(list, "not a barcode", 0, false, false);
+		assertNull(renderer.getBarcode());
+		renderer.setSize(30, 10);
+		BufferedImage cell = paint(renderer);
+		assertEquals(list.getBackground().getRGB(), cell.getRGB(15, 5));
+	}
+
+	private BufferedImage paint(Component component) {
+		BufferedImage image = new BufferedImage(component.getWidth(), component.getHeight(),
+				BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		component.paint(g);
+		g.dispose();
+		return image;
+	}
+}
@@ -0,0 +1,172 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import junit.framework.TestCase;
+import net.sourceforge.barbecue.output.SheetLayout;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.print.Pageable;
+import java.awt.print.Printable;
+import java.awt.print.PrinterException;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+public class BarcodePageableTest extends TestCase {
+	private static final SheetLayout SHEET = new SheetLayout(200, 100, 2, 1);
+
+	public void testDrawsWholeDevicePixelBarsInEachCell() throws Exception {
+		List<Barcode> barcodes = createBarcodes(3);
+		int barWidth = barcodes.get(0).getBarWidth();
+		BarcodePageable pageable = new BarcodePageable(barcodes, SHEET);
+		assertEquals(2, pageable.getNumberOfPages());
+
+		// 288 dpi
+		BufferedImage page = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 0));
+		int left = darkRunWidth(page, 0, 400);
+		int right = darkRunWidth(page, 400, 800);
+		assertTrue(left > 1);
+		assertEquals(left, right);
+		assertEquals(barWidth, barcodes.get(0).getBarWidth());
+
+		page = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 1));
+		assertEquals(left, darkRunWidth(page, 0, 400));
+		assertEquals(0, darkRunWidth(page, 400, 800));
+		assertEquals(Printable.NO_SUCH_PAGE, print(pageable, page, 2));
+	}
+
+	public void testTakesBarcodesFromTheIteratorAsPagesArePrinted() throws Exception {
+		final Iterator<Barcode> source = createBarcodes(5).iterator();
+		final int[] taken = new int[1];
+		Iterator<Barcode> counting = new Iterator<Barcode>() {
+			public boolean hasNext() {
+				return source.hasNext();
+			}
+
+			public Barcode next() {
+				taken[0]++;
+				return source.next();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		BarcodePageable pageable = new BarcodePageable(counting, SHEET);
+		assertEquals(Pageable.UNKNOWN_NUMBER_OF_PAGES, pageable.getNumberOfPages());
+
+		BufferedImage page = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 0));
+		assertEquals(2, taken[0]);
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 0));
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 1));
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 2));
+		assertEquals(5, taken[0]);
+		assertEquals(Printable.NO_SUCH_PAGE, print(pageable, page, 3));
+		try {
+			print(pageable, page, 0);
+			fail("The first page should have been discarded");
+		} catch (PrinterException expected) {
+		}
+	}
+
+	public void testListsCanReprintEarlierPagesForEachCopy() throws Exception {
+		BarcodePageable pageable = new BarcodePageable(createBarcodes(5), SHEET);
+		BufferedImage first = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, first, 0));
+		BufferedImage page = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 1));
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, page, 2));
+
+		// A printing system that collates itself starts again for the next copy
+		BufferedImage again = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+		assertEquals(Printable.PAGE_EXISTS, print(pageable, again, 0));
+		for (int x = 0; x < first.getWidth(); x++) {
+			assertEquals("x=" + x, first.getRGB(x, 50), again.getRGB(x, 50));
+		}
+		assertEquals(Printable.NO_SUCH_PAGE, print(pageable, page, 3));
+	}
+
+	public void testSpoolsPostScriptWithoutAPrinter() throws Exception {
+		BarcodePageable pageable = new BarcodePageable(createBarcodes(3), SHEET);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		pageable.writePostScript(out);
+		String ps = new String(out.toByteArray(), "ISO-8859-1");
+		assertTrue(ps.startsWith("%!PS"));
+		assertEquals(2, count(ps, "%%Page:"));
+	}
+
+	private List<Barcode> createBarcodes(int count) throws BarcodeException {
+		List<Barcode> barcodes = new ArrayList<Barcode>();
+		for (int i = 0; i < count; i++) {
+			Barcode barcode = BarcodeFactory.createCode128("LABEL" + i);
+			barcode.setDrawingText(false);
+			barcodes.add(barcode);
+		}
+		return barcodes;
+	}
+
+	private int print(BarcodePageable pageable, BufferedImage page, int pageIndex) throws PrinterException {
+		Graphics2D g = page.createGraphics();
+		g.setColor(Color.white);
+		g.fillRect(0, 0, page.getWidth(), page.getHeight());
+		g.scale(page.getWidth() / SHEET.getPageWidth(), page.getHeight() / SHEET.getPageHeight());
+		try {
+			return pageable.print(g, pageable.getPageFormat(0), pageIndex);
+		} finally {
+			g.dispose();
+		}
+	}
+
+	// The width of the first bar in the middle row between the given columns
+	private int darkRunWidth(BufferedImage page, int from, int to) {
+		int y = page.getHeight() / 2;
+		int x = from;
+		while (x < to && (page.getRGB(x, y) & 0xffffff) != 0) {
+			x++;
+		}
+		int start = x;
+		while (x < to && (page.getRGB(x, y) & 0xffffff) == 0) {
+			x++;
+		}
+		return x - start;
+	}
+
+	private int count(String text, String token) {
+		int count = 0;
+		for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+}
@@ -30,8 +30,12 @@ import net.sourceforge.barbecue.env.EnvironmentFactory;
 import net.sourceforge.barbecue.env.HeadlessEnvironment;
 import net.sourceforge.barbecue.linear.code128.Code128Barcode;
 import net.sourceforge.barbecue.linear.ean.UCCEAN128Barcode;
+import net.sourceforge.barbecue.output.BuiltInFont;
+import net.sourceforge.barbecue.pack.BarcodePackWriter;
 
 import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletInputStream;
 import javax.servlet.ServletOutputStream;
@@ -40,6 +44,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
@@ -198,13 +203,14 @@ public class BarcodeServletTest extends BarcodeTestCase {
         assertTrue(EnvironmentFactory.getEnvironment() instanceof HeadlessEnvironment);
     }
 
-    public void testDrawTextParameterIsIgnoredIfHeadless() throws Exception {
+    public void testDrawTextParameterIsHonouredIfHeadless() throws Exception {
         params.put("type", "Code128");
         params.put("drawText", "true");
         req.setParameters(params);
         servlet.doGet(req, res);
         Barcode barcode = servlet.getBarcode();
-        assertFalse(barcode.isDrawingText());
+        assertTrue(barcode.isDrawingText());
+        assertTrue(BuiltInFont.isBuiltIn(barcode.getFont()));
     }
 
     public void testDrawTextParameterIsNotIgnoredIfNotHeadless()
@@ -227,6 +233,106 @@ public class BarcodeServletTest extends BarcodeTestCase {
         assertTrue(res.hasOutput());
     }
 
+    public void testPackedBarcodeIsServedWithoutRendering() throws Exception {
+        File packFile = createPack();
+        try {
+            servlet.init(new ServletConfigMock(packFile.getPath()));
+            params.put("data", "12345");
+            params.remove("type");
+            params.remove("resolution");
+            req.setParameters(params);
+            servlet.doGet(req, res);
+            assertEquals("image/png", res.getContentType());
+            assertTrue(res.hasOutput());
+            assertNull(servlet.getBarcode());
+        } finally {
+            servlet.destroy();
+            packFile.delete();
+        }
+    }
+
+    public void testPackMissIsRenderedLive() throws Exception {
+        File packFile = createPack();
+        try {
+            servlet.init(new ServletConfigMock(packFile.getPath()));
+            params.put("data", "67890");
+            params.remove("type");
+            params.remove("resolution");
+            req.setParameters(params);
+            servlet.doGet(req, res);
+            assertTrue(res.hasOutput());
+            assertTrue(servlet.getBarcode() instanceof Code128Barcode);
+        } finally {
+            servlet.destroy();
+            packFile.delete();
+        }
+    }
+
+    public void testChecksumAppIdAndNonHeadlessRequestsBypassThePack() throws Exception {
+        File packFile = createPack();
+        try {
+            servlet.init(new ServletConfigMock(packFile.getPath()));
+            params.put("data", "12345");
+            params.remove("type");
+            params.remove("resolution");
+            params.put("checksum", "true");
+            req.setParameters(params);
+            servlet.doGet(req, res);
+            assertTrue(servlet.getBarcode() instanceof Code128Barcode);
+
+            servlet.barcode = null;
+            params.remove("checksum");
+            params.put("appid", "01");
+            req.setParameters(params);
+            servlet.doGet(req, res);
+            assertNotNull(servlet.getBarcode());
+
+            // Packs are rendered headless, so other environments render their own
+            servlet.barcode = null;
+            params.remove("appid");
+            params.put("headless", "false");
+            req.setParameters(params);
+            servlet.doGet(req, res);
+            assertTrue(servlet.getBarcode() instanceof Code128Barcode);
+        } finally {
+            servlet.destroy();
+            packFile.delete();
+        }
+    }
+
+    private File createPack() throws IOException {
+        File packFile = File.createTempFile("servlet", ".pack");
+        BarcodePackWriter writer = new BarcodePackWriter(packFile, "image/png");
+        writer.setProperty(BarcodePackWriter.BARCODE_TYPE, "Code128B");
+        writer.add("12345", new byte[] {1, 2, 3});
+        writer.close();
+        return packFile;
+    }
+
+    class ServletConfigMock implements ServletConfig {
+        private final String pack;
+
+        ServletConfigMock(String pack) {
+            this.pack = pack;
+        }
+
+        public String getInitParameter(String name) {
+            return name.equals("pack") ? pack : null;
+        }
+
+        public Enumeration getInitParameterNames() {
+            return null;
+        }
+
+        public ServletContext getServletContext() {
+            return null;
+        }
+
+        public String getServletName() {
+            return "barbecue";
+        }
+    }
+
     class BarcodeServletMock extends BarcodeServlet {
         Barcode barcode;
 
@@ -239,6 +345,10 @@ public class BarcodeServletTest extends BarcodeTestCase {
         public Barcode getBarcode() {
             return barcode;
         }
+
+        public void log(String msg) {
+            // There is no servlet context to log to
+        }
     }
 
     class HttpServletResponseMock implements HttpServletResponse {
@@ -155,7 +155,7 @@ public class BarcodeTest extends TestCase {
 
 	public void testSettingFontChangesDrawnFont() throws Exception {
 		BarcodeMock barcode = new BarcodeMock("12345");
-		Font font = Font.getFont("Arial");
+		Font font = new Font("Arial", Font.PLAIN, 12);
 		barcode.setFont(font);
 		assertEquals(font, barcode.getFont());
 	}
@@ -195,6 +195,112 @@ public class BarcodeTest extends TestCase {
 		return color.getRGB() == expected.getRGB();
 	}
 
+	public void testXDimensionIsTheLargestWholePixelWidthThatFits() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.setXDimensionInMils(10, 300);
+		assertEquals(3, barcode.getBarWidth());
+		assertEquals(300, barcode.getResolution());
+		barcode.setXDimensionInMils(13, 203);
+		assertEquals(2, barcode.getBarWidth());
+		barcode.setXDimensionInMils(7.5, 400);
+		assertEquals(3, barcode.getBarWidth());
+		barcode.setXDimensionInMils(5, 72);
+		assertEquals(1, barcode.getBarWidth());
+		barcode.setXDimensionInMillimetres(0.33, 600);
+		assertEquals(7, barcode.getBarWidth());
+	}
+
+	public void testFitToBoxPicksWholePixelBars() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.setBarWidth(1);
+		int single = barcode.getPreferredSize().width;
+
+		assertTrue(barcode.fitToBox(single * 3 + 2, 80));
+		assertEquals(3, barcode.getBarWidth());
+		Dimension size = barcode.getPreferredSize();
+		assertTrue(size.width <= single * 3 + 2);
+		assertEquals(80, size.height);
+
+		assertFalse(barcode.fitToBox(single - 1, 80));
+		assertEquals(1, barcode.getBarWidth());
+	}
+
+	public void testDrawingIntoANarrowComponentUsesWholePixelBars() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.setDrawingText(false);
+		barcode.setBarWidth(1);
+		int single = barcode.getPreferredSize().width;
+		barcode.setBarWidth(4);
+		barcode.setSize(single * 3 + 1, 40);
+
+		BufferedImage image = new BufferedImage(single * 4, 40, BufferedImage.TYPE_INT_RGB);
+		barcode.draw(image.createGraphics(), 0, 0);
+		int run = 0;
+		int bars = 0;
+		for (int x = 0; x < image.getWidth(); x++) {
+			if (image.getRGB(x, 5) == 0xff000000) {
+				run++;
+			} else if (run > 0) {
+				assertEquals("Run ending at " + x, 0, run % 3);
+				run = 0;
+				bars++;
+			}
+		}
+		assertTrue(bars > 10);
+	}
+
+	public void testCachedImageIsReusedUntilSomethingChanges() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		BufferedImage image = barcode.getCachedImage(200, 60);
+		assertSame(image, barcode.getCachedImage(200, 60));
+
+		barcode.setDrawingText(barcode.isDrawingText());
+		barcode.setLabel(null);
+		barcode.setBarWidth(barcode.getBarWidth());
+		assertSame(image, barcode.getCachedImage(200, 60));
+
+		assertNotSame(image, barcode.getCachedImage(201, 60));
+		image = barcode.getCachedImage(201, 60);
+		barcode.setBarWidth(1);
+		assertNotSame(image, barcode.getCachedImage(201, 60));
+		image = barcode.getCachedImage(201, 60);
+		barcode.setForeground(Color.blue);
+		assertNotSame(image, barcode.getCachedImage(201, 60));
+	}
+
+	public void testPreferredSizeFollowsChanges() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		Dimension size = barcode.getPreferredSize();
+		size.width = 0;
+		assertTrue(barcode.getPreferredSize().width > 0);
+		barcode.setBarWidth(barcode.getBarWidth() * 2);
+		assertTrue(barcode.getPreferredSize().width > size.width);
+	}
+
+	public void testBatchedChangesUpdateOnce() throws Exception {
+		final int[] updates = new int[1];
+		Barcode barcode = new BarcodeMock("12345") {
+			public void invalidate() {
+				updates[0]++;
+				super.invalidate();
+			}
+		};
+		updates[0] = 0;
+		barcode.beginUpdate();
+		try {
+			barcode.setBarWidth(5);
+			barcode.setLabel("label");
+			barcode.setDrawingQuietSection(false);
+			assertEquals(0, updates[0]);
+		} finally {
+			barcode.endUpdate();
+		}
+		assertEquals(1, updates[0]);
+
+		barcode.setLabel("label");
+		assertEquals(1, updates[0]);
+	}
+
 	public class BarcodeMock extends Barcode {
 		public BarcodeMock(String data) throws BarcodeException {
 			this(data, true);
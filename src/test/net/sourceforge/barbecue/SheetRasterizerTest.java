@@ -0,0 +1,85 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import junit.framework.TestCase;
+import net.sourceforge.barbecue.output.Bitmap;
+import net.sourceforge.barbecue.output.BitmapOutput;
+import net.sourceforge.barbecue.output.BuiltInFont;
+import net.sourceforge.barbecue.output.SheetLayout;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SheetRasterizerTest extends TestCase {
+
+	public void testSheetIsWrittenBandByBand() throws Exception {
+		SheetLayout sheet = new SheetLayout(600, 500, 2, 3, 20, 15, 10, 5);
+		List<Barcode> barcodes = new ArrayList<Barcode>();
+		for (int i = 0; i < 7; i++) {
+			barcodes.add(BarcodeFactory.createCode128("SHEET" + i));
+		}
+		Iterator<Barcode> source = barcodes.iterator();
+		SheetRasterizer rasterizer = new SheetRasterizer(sheet, BuiltInFont.DEFAULT_FONT);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			assertEquals(6, rasterizer.writePNG(source, 300, out, executor));
+		} finally {
+			executor.shutdown();
+		}
+		assertSame(barcodes.get(6), source.next());
+
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(600, image.getWidth());
+		assertEquals(500, image.getHeight());
+		for (int cell = 0; cell < 6; cell++) {
+			BitmapOutput output = new BitmapOutput(BuiltInFont.DEFAULT_FONT, 1);
+			barcodes.get(cell).output(output);
+			Bitmap expected = output.getBitmap();
+			int left = (int) Math.round(sheet.getCellX(cell)) + ((int) sheet.getCellWidth() - expected.getWidth()) / 2;
+			int top = (int) Math.round(sheet.getCellY(cell)) + ((int) sheet.getCellHeight() - expected.getHeight()) / 2;
+			for (int y = 0; y < expected.getHeight(); y++) {
+				for (int x = 0; x < expected.getWidth(); x++) {
+					assertEquals(cell + ": " + x + "," + y, expected.get(x, y) ? 0xff000000 : 0xffffffff,
+							image.getRGB(left + x, top + y));
+				}
+			}
+		}
+		// The margins are blank
+		for (int x = 0; x < 600; x++) {
+			assertEquals(0xffffffff, image.getRGB(x, 3));
+		}
+	}
+}
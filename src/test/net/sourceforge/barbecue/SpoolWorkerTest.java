@@ -0,0 +1,166 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue;
+
+import net.sourceforge.barbecue.env.EnvironmentFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+public class SpoolWorkerTest extends BarcodeTestCase {
+	private File spool;
+	private File out;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		EnvironmentFactory.setHeadlessMode();
+		spool = createTempDir("spool");
+		out = createTempDir("out");
+	}
+
+	protected void tearDown() throws Exception {
+		delete(spool);
+		delete(out);
+		super.tearDown();
+	}
+
+	public void testWorkerRendersAllJobsAndRemovesThem() throws Exception {
+		writeJob("a", "12345", "png");
+		writeJob("b", "67890", "eps");
+		writeJob("c", "ABCDE", "svg");
+		SpoolWorker worker = new SpoolWorker(spool, out, "w1");
+		assertEquals(3, worker.drain());
+		assertTrue(new File(out, "a.png").length() > 0);
+		assertTrue(new File(out, "b.eps").length() > 0);
+		assertTrue(new File(out, "c.svg").length() > 0);
+		assertEquals(0, spool.list().length);
+		assertEquals(3, out.list().length);
+	}
+
+	public void testOnlyOneWorkerCanClaimAJob() throws Exception {
+		writeJob("a", "12345", "png");
+		SpoolWorker first = new SpoolWorker(spool, out, "w1");
+		SpoolWorker second = new SpoolWorker(spool, out, "w2");
+		File lease = first.claimNext();
+		assertNotNull(lease);
+		assertEquals("a.job@w1.lease", lease.getName());
+		assertNull(second.claimNext());
+		assertTrue(first.process(lease));
+		assertFalse(lease.exists());
+	}
+
+	public void testExpiredLeaseOfCrashedWorkerIsRecovered() throws Exception {
+		writeJob("a", "12345", "png");
+		SpoolWorker crashed = new SpoolWorker(spool, out, "crashed");
+		File lease = crashed.claimNext();
+		lease.setLastModified(System.currentTimeMillis() - SpoolWorker.DEFAULT_LEASE_TIMEOUT - 60000);
+
+		SpoolWorker survivor = new SpoolWorker(spool, out, "survivor");
+		assertEquals(1, survivor.drain());
+		assertTrue(new File(out, "a.png").exists());
+		assertEquals(0, spool.list().length);
+	}
+
+	public void testLiveLeaseIsNotRecovered() throws Exception {
+		writeJob("a", "12345", "png");
+		SpoolWorker busy = new SpoolWorker(spool, out, "busy");
+		File lease = busy.claimNext();
+		SpoolWorker other = new SpoolWorker(spool, out, "other");
+		assertEquals(0, other.recoverExpiredLeases());
+		assertEquals(0, other.drain());
+		assertTrue(lease.exists());
+	}
+
+	public void testLongQueuedJobIsNotRecoveredOnceClaimed() throws Exception {
+		writeJob("a", "12345", "png");
+		File job = new File(spool, "a.job");
+		job.setLastModified(System.currentTimeMillis() - SpoolWorker.DEFAULT_LEASE_TIMEOUT - 60000);
+		SpoolWorker first = new SpoolWorker(spool, out, "w1");
+		File lease = first.claimNext();
+		assertEquals(0, new SpoolWorker(spool, out, "w2").recoverExpiredLeases());
+		assertTrue(first.process(lease));
+	}
+
+	public void testLostLeaseIsNotMarkedAsFailed() throws Exception {
+		writeJob("a", "12345", "png");
+		SpoolWorker slow = new SpoolWorker(spool, out, "slow");
+		File lease = slow.claimNext();
+		// Another worker recovers the lease and renders the job
+		assertTrue(lease.renameTo(new File(spool, "a.job")));
+		SpoolWorker other = new SpoolWorker(spool, out, "other");
+		assertEquals(1, other.drain());
+
+		assertFalse(slow.process(lease));
+		assertFalse(new File(spool, "a.error").exists());
+		assertFalse(new File(spool, "a.failed").exists());
+		assertTrue(new File(out, "a.png").exists());
+	}
+
+	public void testInvalidJobIsMarkedAsFailed() throws Exception {
+		writeJob("bad", "12345", "bmp");
+		SpoolWorker worker = new SpoolWorker(spool, out, "w1");
+		assertEquals(0, worker.drain());
+		assertTrue(new File(spool, "bad.failed").exists());
+		assertTrue(new File(spool, "bad.error").exists());
+		assertEquals(0, out.list().length);
+	}
+
+	public void testWorkerIdIsMadeSafeForFileNames() throws Exception {
+		SpoolWorker worker = new SpoolWorker(spool, out, "1234@host.example.com");
+		assertEquals("1234_host_example_com", worker.getWorkerId());
+	}
+
+	private void writeJob(String name, String data, String format) throws IOException {
+		Properties job = new Properties();
+		job.setProperty("data", data);
+		job.setProperty("encoding", "code128");
+		job.setProperty("format", format);
+		FileOutputStream fos = new FileOutputStream(new File(spool, name + SpoolWorker.JOB_SUFFIX));
+		try {
+			job.store(fos, null);
+		} finally {
+			fos.close();
+		}
+	}
+
+	private File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, "");
+		dir.delete();
+		dir.mkdir();
+		return dir;
+	}
+
+	private void delete(File dir) {
+		File[] files = dir.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		dir.delete();
+	}
+}
@@ -26,6 +26,8 @@ POSSIBILITY OF SUCH DAMAGE.
 
 package net.sourceforge.barbecue.env;
 
+import net.sourceforge.barbecue.output.BuiltInFont;
+
 public class HeadlessEnvironmentTest extends EnvironmentTestCase {
 
 	protected Environment createEnvironment() {
@@ -36,7 +38,7 @@ public class HeadlessEnvironmentTest extends EnvironmentTestCase {
 		assertEquals(HeadlessEnvironment.DEFAULT_RESOLUTION, env.getResolution());
 	}
 
-    public void testDefaultFontIsNull() throws Exception {
-        assertNull(env.getDefaultFont());
+    public void testDefaultFontIsTheBuiltInFont() throws Exception {
+        assertTrue(BuiltInFont.isBuiltIn(env.getDefaultFont()));
     }
 }
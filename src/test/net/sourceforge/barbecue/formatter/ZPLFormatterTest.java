@@ -0,0 +1,90 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.formatter;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.twod.pdf417.PDF417Barcode;
+
+import java.io.StringWriter;
+
+public class ZPLFormatterTest extends BarcodeTestCase {
+
+	public void testCode128UsesNativeCommand() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("ABC^123");
+		barcode.setPreferredBarHeight(50);
+		String zpl = ZPLFormatter.formatAsZPL(barcode);
+		assertEquals("^XA\n^FO0,0^BY2\n^BCN,50,Y,N,N,A\n^FH_^FDABC_5E123^FS\n^XZ\n", zpl);
+	}
+
+	public void testEAN13UsesNativeCommand() throws Exception {
+		Barcode barcode = BarcodeFactory.createEAN13("501234567890");
+		barcode.setDrawingText(false);
+		StringWriter writer = new StringWriter();
+		ZPLFormatter formatter = new ZPLFormatter(writer, 3);
+		formatter.setOrigin(5, 6);
+		formatter.format(barcode);
+		String zpl = writer.toString();
+		assertTrue(zpl.startsWith("^XA\n^FO5,6^BY6\n^BEN,"));
+		assertTrue(zpl.indexOf(",N,N\n^FD501234567890^FS\n") > 0);
+	}
+
+	public void testPDF417UsesNativeCommand() throws Exception {
+		String zpl = ZPLFormatter.formatAsZPL(BarcodeFactory.createPDF417("PDF417 data"));
+		assertTrue(zpl.indexOf("^BY2\n^B7N,6,0,12,3,N\n^FDPDF417 data^FS\n") > 0);
+		PDF417Barcode barcode = new PDF417Barcode("PDF417 data");
+		barcode.setErrorCorrectionLevel(5);
+		zpl = ZPLFormatter.formatAsZPL(barcode);
+		assertTrue(zpl.indexOf("^B7N,6,5,12," + barcode.getEncodedRows() + ",N\n") > 0);
+	}
+
+	public void testPDF417CommandFollowsTheSymbolShape() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode("PDF417 data");
+		barcode.setErrorCorrectionLevel(4);
+		barcode.setColumns(4);
+		barcode.setCompact(true);
+		barcode.setRowHeight(5);
+		String zpl = ZPLFormatter.formatAsZPL(barcode);
+		assertTrue(zpl, zpl.indexOf("^B7N,10,4,4," + barcode.getEncodedRows() + ",Y\n") > 0);
+		assertEquals(10, barcode.getEncodedRows());
+	}
+
+	public void testOtherBarcodesAreSentAsGraphics() throws Exception {
+		String zpl = ZPLFormatter.formatAsZPL(BarcodeFactory.createCodabar("A1234B"));
+		assertTrue(zpl.startsWith("^XA\n^FO0,0^GFA,"));
+	}
+
+	public void testNativeCommandsCanBeTurnedOff() throws Exception {
+		StringWriter writer = new StringWriter();
+		ZPLFormatter formatter = new ZPLFormatter(writer);
+		formatter.setNativeCommands(false);
+		formatter.format(BarcodeFactory.createCode128("ABC"));
+		assertTrue(writer.toString().indexOf("^GFA,") > 0);
+		assertEquals(-1, writer.toString().indexOf("^BC"));
+	}
+}
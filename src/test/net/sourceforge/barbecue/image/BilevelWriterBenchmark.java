@@ -0,0 +1,90 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeImageHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+
+/**
+ * Compares the direct bitmap writers with the ImageIO based methods of
+ * {@link BarcodeImageHandler} for a typical small barcode. Run with
+ * <code>java -Djava.awt.headless=true</code> and, optionally, the number of
+ * iterations.
+ */
+public class BilevelWriterBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		Barcode barcode = BarcodeFactory.createCode128("BENCHMARK-0123456789");
+		File file = File.createTempFile("barbecue", ".img");
+		file.deleteOnExit();
+
+		for (int pass = 0; pass < 2; pass++) {
+			// The first pass is a warm up
+			boolean report = pass == 1;
+			time("ImageIO gif (writeGIF)", iterations, barcode, "imageio-gif", null, report);
+			time("ImageIO png (saveImage)", iterations, barcode, "imageio-png", file, report);
+			time("GIFWriter", iterations, barcode, "gif", null, report);
+			time("BMPWriter", iterations, barcode, "bmp", null, report);
+			time("PNMWriter pbm", iterations, barcode, "pbm", null, report);
+			time("PNMWriter pgm", iterations, barcode, "pgm", null, report);
+			time("GIFWriter (saveBitmap)", iterations, barcode, "gif", file, report);
+		}
+	}
+
+	private static void time(String name, int iterations, Barcode barcode, String format, File file, boolean report)
+			throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			out.reset();
+			write(barcode, format, file, out);
+		}
+		long elapsed = System.nanoTime() - start;
+		if (report) {
+			long size = file == null ? out.size() : file.length();
+			System.out.println(name + ": " + (elapsed / iterations / 1000) + " us/image, " + size + " bytes");
+		}
+	}
+
+	private static void write(Barcode barcode, String format, File file, OutputStream out) throws Exception {
+		if (format.equals("imageio-gif")) {
+			BarcodeImageHandler.writeGIF(barcode, out);
+		} else if (format.equals("imageio-png")) {
+			BarcodeImageHandler.saveImage(barcode, "png", file);
+		} else if (file != null) {
+			BarcodeImageHandler.saveBitmap(barcode, format, file);
+		} else {
+			BarcodeImageHandler.writeBitmap(barcode, format, out);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import junit.framework.TestCase;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+public class GIFWriterTest extends TestCase {
+
+	public void testSmallImageDecodes() throws Exception {
+		assertDecodes(new byte[] {(byte) 0x80}, 1, 1, 1);
+		assertDecodes(new byte[] {(byte) 0xa0, 0x40}, 3, 2, 1);
+	}
+
+	public void testNoisyImageFillsTheDictionary() throws Exception {
+		// Random pixels grow the dictionary to 12 bit codes and force clears
+		int width = 300;
+		int height = 200;
+		int stride = 40;
+		byte[] bits = new byte[stride * height];
+		new Random(3).nextBytes(bits);
+		assertDecodes(bits, width, height, stride);
+	}
+
+	public void testBarcodeRowsCompressWell() throws Exception {
+		int width = 400;
+		int height = 100;
+		int stride = width / 8;
+		byte[] bits = new byte[stride * height];
+		for (int y = 0; y < height; y++) {
+			for (int i = 0; i < stride; i += 3) {
+				bits[y * stride + i] = (byte) 0xf0;
+			}
+		}
+		int size = assertDecodes(bits, width, height, stride);
+		assertTrue(size < bits.length / 3);
+	}
+
+	public void testRejectsOversizedImages() throws Exception {
+		try {
+			GIFWriter.write(new byte[0], 70000, 1, 8750, new ByteArrayOutputStream());
+			fail("Too wide for GIF");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	private int assertDecodes(byte[] bits, int width, int height, int stride) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GIFWriter.write(bits, width, height, stride, out);
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(width, image.getWidth());
+		assertEquals(height, image.getHeight());
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				boolean dark = (bits[y * stride + x / 8] & (0x80 >> (x % 8))) != 0;
+				assertEquals(x + "," + y, dark, image.getRGB(x, y) == 0xff000000);
+			}
+		}
+		return out.size();
+	}
+}
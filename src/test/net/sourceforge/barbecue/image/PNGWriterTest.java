@@ -0,0 +1,119 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import junit.framework.TestCase;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PNGWriterTest extends TestCase {
+	private static final int WIDTH = 1001;
+	private static final int HEIGHT = 300;
+
+	public void testSingleImageCanBeRead() throws Exception {
+		byte[] bits = createImage(WIDTH, HEIGHT);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PNGWriter.write(bits, WIDTH, HEIGHT, stride(WIDTH), 300, out);
+		assertPixels(bits, out.toByteArray());
+	}
+
+	public void testBandsCompressedInParallelFormOneImage() throws Exception {
+		byte[] bits = createImage(WIDTH, HEIGHT);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			PNGWriter writer = new PNGWriter(out, WIDTH, HEIGHT, 600, executor);
+			int stride = stride(WIDTH);
+			for (int y = 0; y < HEIGHT; y += 7) {
+				int rows = Math.min(7, HEIGHT - y);
+				writer.writeRows(bits, y * stride, stride, rows);
+			}
+			writer.finish();
+			assertPixels(bits, out.toByteArray());
+
+			// Priming each band with the one before keeps the compression close
+			ByteArrayOutputStream serial = new ByteArrayOutputStream();
+			PNGWriter.write(bits, WIDTH, HEIGHT, stride, 600, serial);
+			assertTrue(out.size() < serial.size() * 2);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testEveryRowMustBeWritten() throws Exception {
+		PNGWriter writer = new PNGWriter(new ByteArrayOutputStream(), 8, 2, 0, null);
+		writer.writeRows(new byte[1], 0, 1, 1);
+		try {
+			writer.finish();
+			fail("The second row is missing");
+		} catch (IllegalStateException expected) {
+		}
+		try {
+			writer.writeRows(new byte[2], 0, 1, 2);
+			fail("There is only room for one more row");
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	private byte[] createImage(int width, int height) {
+		// Vertical bars with some noise, like a sheet of labels
+		Random random = new Random(42);
+		int stride = stride(width);
+		byte[] bits = new byte[stride * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if ((x / 3) % 4 == 0 || random.nextInt(50) == 0) {
+					bits[y * stride + (x >> 3)] |= 0x80 >> (x & 7);
+				}
+			}
+		}
+		return bits;
+	}
+
+	private void assertPixels(byte[] bits, byte[] png) throws Exception {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		assertEquals(WIDTH, image.getWidth());
+		assertEquals(HEIGHT, image.getHeight());
+		int stride = stride(WIDTH);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				boolean black = (bits[y * stride + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+				assertEquals(x + "," + y, black ? 0xff000000 : 0xffffffff, image.getRGB(x, y));
+			}
+		}
+	}
+
+	private int stride(int width) {
+		return (width + 7) >> 3;
+	}
+}
@@ -0,0 +1,58 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+
+public class PNMWriterTest extends TestCase {
+	private final byte[] bits = {(byte) 0xa0, 0x00, 0x40, 0x00};
+
+	public void testPBMCopiesRows() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PNMWriter.writePBM(bits, 3, 2, 2, out);
+		byte[] pbm = out.toByteArray();
+		assertEquals("P4\n3 2\n", new String(pbm, 0, 7, "US-ASCII"));
+		assertEquals(9, pbm.length);
+		assertEquals((byte) 0xa0, pbm[7]);
+		assertEquals(0x40, pbm[8]);
+	}
+
+	public void testPGMExpandsPixels() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PNMWriter.writePGM(bits, 3, 2, 2, out);
+		byte[] pgm = out.toByteArray();
+		String header = "P5\n3 2\n255\n";
+		assertEquals(header, new String(pgm, 0, header.length(), "US-ASCII"));
+		byte[] expected = {0, (byte) 255, 0, (byte) 255, 0, (byte) 255};
+		assertEquals(header.length() + expected.length, pgm.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], pgm[header.length() + i]);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.image;
+
+import junit.framework.TestCase;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.Random;
+
+public class TIFFWriterTest extends TestCase {
+
+	public void testHeaderAndDirectory() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TIFFWriter.write(new byte[2], 10, 1, 2, 300, out);
+		byte[] tiff = out.toByteArray();
+		assertEquals('I', tiff[0]);
+		assertEquals(42, tiff[2]);
+		assertEquals(8, tiff[4]);
+		assertEquals(13, tiff[8]);
+		// The compression tag is the fourth entry
+		assertEquals(259, (tiff[8 + 2 + 36] & 0xff) | (tiff[8 + 2 + 37] & 0xff) << 8);
+		assertEquals(4, tiff[8 + 2 + 36 + 8]);
+	}
+
+	public void testBarcodeRowsCompressWell() throws Exception {
+		int width = 400;
+		int height = 200;
+		int stride = width / 8;
+		byte[] bits = new byte[stride * height];
+		for (int y = 0; y < height; y++) {
+			for (int i = 0; i < stride; i += 3) {
+				bits[y * stride + i] = (byte) 0xf0;
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TIFFWriter.write(bits, width, height, stride, 300, out);
+		// Each row after the first costs a bit per edge
+		assertTrue(out.size() < bits.length / 5);
+		assertDecodes(out.toByteArray(), new byte[][] {bits}, new int[] {width}, new int[] {height});
+	}
+
+	public void testRandomImagesDecodeExactly() throws Exception {
+		Random random = new Random(42);
+		int pages = 4;
+		byte[][] images = new byte[pages][];
+		int[] widths = {1, 13, 3001, 700};
+		int[] heights = {5, 40, 3, 60};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TIFFWriter writer = new TIFFWriter(out, 200);
+		for (int p = 0; p < pages; p++) {
+			int stride = (widths[p] + 7) / 8;
+			images[p] = new byte[stride * heights[p]];
+			for (int y = 0; y < heights[p]; y++) {
+				boolean dark = random.nextBoolean();
+				int x = 0;
+				while (x < widths[p]) {
+					// Mix short runs with runs longer than the largest make up code
+					int run = random.nextInt(10) == 0 ? random.nextInt(3000) : 1 + random.nextInt(8);
+					for (int i = x; i < Math.min(x + run, widths[p]); i++) {
+						if (dark) {
+							images[p][y * stride + i / 8] |= 0x80 >> (i % 8);
+						}
+					}
+					x += run;
+					dark = !dark;
+				}
+				if (y > 0 && random.nextBoolean()) {
+					System.arraycopy(images[p], (y - 1) * stride, images[p], y * stride, stride);
+				}
+			}
+			writer.writePage(images[p], widths[p], heights[p], stride);
+		}
+		writer.finish();
+		assertEquals(pages, writer.getPageCount());
+		assertDecodes(out.toByteArray(), images, widths, heights);
+	}
+
+	public void testRowsCanBeStreamed() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TIFFWriter writer = new TIFFWriter(out, 300);
+		writer.beginPage(8, 2);
+		writer.writeRow(new byte[] {(byte) 0x81}, 0);
+		try {
+			writer.endPage();
+			fail("Page ended early");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		writer.writeRow(new byte[] {(byte) 0x18}, 0);
+		writer.endPage();
+		writer.finish();
+		assertDecodes(out.toByteArray(), new byte[][] {{(byte) 0x81, 0x18}}, new int[] {8}, new int[] {2});
+	}
+
+	public void testPagesMustBeEndedBeforeFinishing() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TIFFWriter writer = new TIFFWriter(out, 300);
+		writer.writePage(new byte[] {(byte) 0x81}, 8, 1, 1);
+		writer.beginPage(8, 1);
+		writer.writeRow(new byte[] {(byte) 0x18}, 0);
+		try {
+			writer.finish();
+			fail("Second page was never ended");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+		writer.endPage();
+		writer.finish();
+		assertDecodes(out.toByteArray(), new byte[][] {{(byte) 0x81}, {0x18}}, new int[] {8, 8}, new int[] {1, 1});
+	}
+
+	/**
+	 * Decodes with the JDK's TIFF reader where there is one, which is Java 9
+	 * and later.
+	 */
+	private void assertDecodes(byte[] tiff, byte[][] images, int[] widths, int[] heights) throws Exception {
+		Iterator readers = ImageIO.getImageReadersByFormatName("tiff");
+		if (!readers.hasNext()) {
+			return;
+		}
+		ImageReader reader = (ImageReader) readers.next();
+		ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(tiff));
+		reader.setInput(in);
+		assertEquals(images.length, reader.getNumImages(true));
+		for (int p = 0; p < images.length; p++) {
+			BufferedImage image = reader.read(p);
+			assertEquals(widths[p], image.getWidth());
+			assertEquals(heights[p], image.getHeight());
+			int stride = (widths[p] + 7) / 8;
+			for (int y = 0; y < heights[p]; y++) {
+				for (int x = 0; x < widths[p]; x++) {
+					boolean dark = (images[p][y * stride + x / 8] & (0x80 >> (x % 8))) != 0;
+					assertEquals("page " + p + " at " + x + "," + y, dark, image.getRGB(x, y) == 0xff000000);
+				}
+			}
+		}
+		reader.dispose();
+	}
+}
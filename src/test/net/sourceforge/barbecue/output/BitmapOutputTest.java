@@ -0,0 +1,113 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+public class BitmapOutputTest extends BarcodeTestCase {
+
+	public void testFillSetsOnlyTheRectangle() throws Exception {
+		Bitmap bitmap = new Bitmap(20, 3);
+		bitmap.fill(3, 1, 12, 1, true);
+		for (int x = 0; x < 20; x++) {
+			assertFalse(bitmap.get(x, 0));
+			assertEquals("x=" + x, x >= 3 && x < 15, bitmap.get(x, 1));
+			assertFalse(bitmap.get(x, 2));
+		}
+		bitmap.fill(5, 0, 2, 3, false);
+		assertTrue(bitmap.get(4, 1));
+		assertFalse(bitmap.get(5, 1));
+		assertFalse(bitmap.get(6, 1));
+		assertTrue(bitmap.get(7, 1));
+	}
+
+	public void testFillIsClipped() throws Exception {
+		Bitmap bitmap = new Bitmap(9, 2);
+		bitmap.fill(-5, -5, 100, 100, true);
+		assertEquals((byte) 0xff, bitmap.getBits()[0]);
+		assertEquals((byte) 0x80, bitmap.getBits()[1]);
+		assertEquals(2, bitmap.getStride());
+	}
+
+	public void testImageSharesPixels() throws Exception {
+		Bitmap bitmap = new Bitmap(10, 10);
+		bitmap.fill(2, 2, 1, 1, true);
+		assertEquals(0xff000000, bitmap.toImage().getRGB(2, 2));
+		assertEquals(0xffffffff, bitmap.toImage().getRGB(3, 2));
+	}
+
+	public void testBarsAreScaledToWholePixels() throws Exception {
+		BitmapOutput output = new BitmapOutput(null, 2);
+		output.beginDraw();
+		output.drawBar(0, 0, 1, 5, true);
+		output.drawBar(1, 0, 1, 5, false);
+		output.toggleDrawingColor();
+		output.drawBar(2, 0, 1, 5, false);
+		output.drawBar(3, 0, 1, 5, true);
+		output.toggleDrawingColor();
+		output.endDraw(4, 5);
+		Bitmap bitmap = output.getBitmap();
+		assertEquals(8, bitmap.getWidth());
+		assertEquals(10, bitmap.getHeight());
+		assertEquals((byte) 0xcc, bitmap.getBits()[0]);
+		assertEquals((byte) 0xcc, bitmap.getBits()[9]);
+	}
+
+	public void testBarcodeWithTextMatchesSize() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("1234");
+		BitmapOutput output = new BitmapOutput(DefaultEnvironment.DEFAULT_FONT, 1);
+		barcode.output(output);
+		Bitmap bitmap = output.getBitmap();
+		assertEquals(barcode.getPreferredSize().width, bitmap.getWidth());
+		assertFalse(bitmap.get(0, 0));
+		boolean dark = false;
+		for (int x = 0; x < bitmap.getWidth(); x++) {
+			dark |= bitmap.get(x, 0);
+		}
+		assertTrue(dark);
+	}
+
+	public void testReusedBufferIsClearedBetweenBarcodes() throws Exception {
+		BitmapOutput output = new BitmapOutput(null, 1);
+		output.setReusingBuffer(true);
+		output.beginDraw();
+		output.drawBar(0, 0, 16, 2, true);
+		output.endDraw(16, 2);
+		byte[] first = output.getBitmap().getBits();
+
+		output.beginDraw();
+		output.drawBar(8, 0, 1, 1, true);
+		output.endDraw(16, 2);
+		assertSame(first, output.getBitmap().getBits());
+		assertEquals(0, first[0]);
+		assertEquals((byte) 0x80, first[1]);
+		assertEquals(0, first[2]);
+	}
+}
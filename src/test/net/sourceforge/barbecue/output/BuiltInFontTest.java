@@ -0,0 +1,92 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+
+public class BuiltInFontTest extends BarcodeTestCase {
+
+	public void testGlyphsAreMonospacedAndScaledByFontSize() throws Exception {
+		Font font = BuiltInFont.createFont(20);
+		assertTrue(BuiltInFont.isBuiltIn(font));
+		assertFalse(BuiltInFont.isBuiltIn(new Font("Arial", Font.PLAIN, 20)));
+		assertFalse(BuiltInFont.isBuiltIn(null));
+		assertEquals(2, BuiltInFont.getScale(font));
+		assertEquals(1, BuiltInFont.getScale(BuiltInFont.createFont(8)));
+
+		assertEquals(new Rectangle2D.Float(0, -14, 46, 14), BuiltInFont.getBounds("0123", font));
+		assertEquals(46.0, BuiltInFont.getBounds("WiLl", font).getWidth(), 0);
+		// Descenders fall below the baseline
+		assertEquals(new Rectangle2D.Float(0, -10, 10, 14), BuiltInFont.getBounds("g", font));
+		assertTrue(BuiltInFont.getBounds("  ", font).isEmpty());
+	}
+
+	public void testRasterTextMatchesGraphicsText() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("Label 42");
+		barcode.setFont(BuiltInFont.DEFAULT_FONT);
+		BitmapOutput output = new BitmapOutput(BuiltInFont.DEFAULT_FONT, 1);
+		barcode.output(output);
+		Bitmap bitmap = output.getBitmap();
+		assertTrue(bitmap.getHeight() > barcode.getPreferredBarHeight());
+
+		BufferedImage image = new BufferedImage(bitmap.getWidth(), bitmap.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		barcode.output(new GraphicsOutput(g, BuiltInFont.DEFAULT_FONT, Color.black, Color.white));
+		g.dispose();
+		int text = 0;
+		for (int y = 0; y < bitmap.getHeight(); y++) {
+			for (int x = 0; x < bitmap.getWidth(); x++) {
+				assertEquals(x + "," + y, bitmap.get(x, y), (image.getRGB(x, y) & 0xffffff) == 0);
+				if (y > barcode.getPreferredBarHeight() && bitmap.get(x, y)) {
+					text++;
+				}
+			}
+		}
+		assertTrue(text > 0);
+	}
+
+	public void testVectorOutputsNeedNoFont() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		StringWriter eps = new StringWriter();
+		barcode.output(new EPSOutput(eps, BuiltInFont.DEFAULT_FONT, Color.black, Color.white, 1));
+		assertEquals(-1, eps.toString().indexOf("findfont"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PDFOutput pdf = new PDFOutput(out, BuiltInFont.DEFAULT_FONT, Color.black, Color.white, 1, null, true);
+		barcode.output(pdf);
+		pdf.endDocument();
+		assertEquals(-1, new String(out.toByteArray(), "ISO-8859-1").indexOf("/Type /Font"));
+	}
+}
@@ -0,0 +1,163 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class EPSOutputTest extends BarcodeTestCase {
+	private StringWriter eps;
+	private EPSOutput output;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		eps = new StringWriter();
+		output = new EPSOutput(eps, null, Color.black, Color.white, 0.5);
+	}
+
+	public void testEmptyBarcodeWritesBoundingBoxAndPrologue() throws Exception {
+		output.beginDraw();
+		output.endDraw(11, 20);
+		String s = eps.toString();
+		assertTrue(s.startsWith("%!PS-Adobe-3.0 EPSF-3.0\n"));
+		assertContains("%%BoundingBox: 0 0 6 10\n", s);
+		assertContains("%%HiResBoundingBox: 0 0 5.5 10\n", s);
+		assertContains("/B { rectfill } bind def\n", s);
+		assertContains("[0.5 0 0 -0.5 0 10] concat\n", s);
+		assertTrue(s.endsWith("%%EOF\n"));
+	}
+
+	public void testAdjacentBarsAreMergedIntoOneRun() throws Exception {
+		output.beginDraw();
+		output.drawBar(10, 0, 2, 50, true);
+		output.drawBar(12, 0, 3, 50, true);
+		output.drawBar(15, 0, 1, 50, false);
+		output.drawBar(16, 0, 1, 50, true);
+		output.endDraw(20, 50);
+		String s = eps.toString();
+		assertContains("\n10 0 5 50 B\n16 0 1 50 B\n", s);
+		assertEquals(-1, s.indexOf("rlineto"));
+	}
+
+	public void testBarcodeRunsMatchDarkAreas() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("1234567890");
+		barcode.setDrawingText(false);
+		barcode.output(output);
+		String s = eps.toString();
+		assertEquals(1, count(s, "%!PS"));
+		assertTrue(count(s, " B\n") > 10);
+		assertEquals(-1, s.indexOf("% Bar"));
+	}
+
+	public void testTextIsCentredAndEscaped() throws Exception {
+		output = new EPSOutput(eps, DefaultEnvironment.DEFAULT_FONT, Color.black, Color.white, 0.5);
+		output.beginDraw();
+		output.drawText("A(1)\\", LabelLayoutFactory.createCenteredLayout(0, 50, 100));
+		output.endDraw(100, 80);
+		String s = eps.toString();
+		assertContains("/Helvetica findfont [20 0 0 -20 0 0] makefont setfont\n", s);
+		assertContains("(A\\(1\\)\\\\) 50 ", s);
+		assertTrue(s.indexOf(" T\n") > s.indexOf("(A"));
+	}
+
+	public void testBackgroundIsPaintedOverBars() throws Exception {
+		output.beginDraw();
+		output.drawBar(0, 0, 5, 50, true);
+		output.paintBackground(0, 40, 5, 10);
+		output.endDraw(5, 50);
+		assertContains("0 0 5 50 B\ngsave 1 1 1 setrgbcolor 0 40 5 10 B grestore\n", eps.toString());
+	}
+
+	public void testWriterIsNotClosed() throws Exception {
+		ClosingWriter writer = new ClosingWriter();
+		output = new EPSOutput(writer);
+		output.beginDraw();
+		output.endDraw(10, 10);
+		assertFalse(writer.closed);
+		assertTrue(writer.flushed);
+	}
+
+	public void testPostScriptWritesOnePagePerBarcode() throws Exception {
+		PostScriptOutput ps = new PostScriptOutput(eps, null, Color.black, Color.white, 1, 200, 100);
+		Barcode barcode = BarcodeFactory.createCode128("ABC");
+		barcode.setDrawingText(false);
+		for (int i = 0; i < 3; i++) {
+			barcode.output(ps);
+		}
+		ps.endDocument();
+
+		String s = eps.toString();
+		assertEquals(3, ps.getPageCount());
+		assertEquals(1, count(s, "%!PS-Adobe-3.0\n"));
+		assertEquals(1, count(s, "/B { rectfill } bind def"));
+		assertEquals(1, count(s, "setpagedevice"));
+		assertContains("%%Page: 3 3\n", s);
+		assertEquals(3, count(s, "showpage\n"));
+		assertTrue(s.endsWith("%%Trailer\n%%Pages: 3\n%%EOF\n"));
+	}
+
+	public void testPostScriptPagesSizedToBarcode() throws Exception {
+		PostScriptOutput ps = new PostScriptOutput(eps);
+		ps.beginDraw();
+		ps.endDraw(30, 40);
+		ps.endDocument();
+		String s = eps.toString();
+		assertContains("%%PageBoundingBox: 0 0 30 40\n", s);
+		assertContains("<< /PageSize [30 40] >> setpagedevice\n", s);
+	}
+
+	private void assertContains(String expected, String actual) {
+		assertTrue("Expected <" + expected + "> in <" + actual + ">", actual.indexOf(expected) >= 0);
+	}
+
+	private int count(String s, String sub) {
+		int n = 0;
+		for (int i = s.indexOf(sub); i >= 0; i = s.indexOf(sub, i + 1)) {
+			n++;
+		}
+		return n;
+	}
+
+	private static class ClosingWriter extends StringWriter {
+		boolean closed;
+		boolean flushed;
+
+		public void close() throws IOException {
+			closed = true;
+		}
+
+		public void flush() {
+			flushed = true;
+		}
+	}
+}
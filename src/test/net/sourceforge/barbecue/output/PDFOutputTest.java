@@ -0,0 +1,162 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.Inflater;
+
+public class PDFOutputTest extends BarcodeTestCase {
+	private ByteArrayOutputStream pdf;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		pdf = new ByteArrayOutputStream();
+	}
+
+	public void testSingleBarcodeWritesSizedPage() throws Exception {
+		PDFOutput output = new PDFOutput(pdf, null, Color.black, Color.white, 0.5, null, false);
+		output.beginDraw();
+		output.drawBar(10, 0, 2, 50, true);
+		output.drawBar(12, 0, 3, 50, true);
+		output.drawBar(15, 0, 1, 50, false);
+		output.drawBar(16, 0, 1, 50, true);
+		output.endDraw(20, 50);
+		output.endDocument();
+
+		String s = toString(pdf);
+		assertTrue(s.startsWith("%PDF-1.4\n"));
+		assertContains("/MediaBox [0 0 10 25]", s);
+		assertContains("q 0.5 0 0 -0.5 0 25 cm 0 0 0 rg\n10 0 5 50 re\n16 0 1 50 re\nf\nQ\n", s);
+		assertTrue(s.endsWith("%%EOF\n"));
+		assertEquals(1, output.getPageCount());
+	}
+
+	public void testCrossReferenceTablePointsAtObjects() throws Exception {
+		PDFOutput output = new PDFOutput(pdf);
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.output(output);
+		barcode.output(output);
+		output.endDocument();
+
+		String s = toString(pdf);
+		int xref = Integer.parseInt(s.substring(s.lastIndexOf("startxref\n") + 10, s.lastIndexOf("\n%%EOF")));
+		assertTrue(s.startsWith("xref\n0 ", xref));
+		String[] lines = s.substring(xref).split("\n");
+		int size = Integer.parseInt(lines[1].substring(2));
+		for (int i = 1; i < size; i++) {
+			int offset = Integer.parseInt(lines[2 + i].substring(0, 10));
+			assertTrue("Object " + i, s.startsWith(i + " 0 obj\n", offset));
+		}
+		assertContains("/Type /Pages /Count 2 ", s);
+	}
+
+	public void testGridFillsPagesInTurn() throws Exception {
+		SheetLayout sheet = new SheetLayout(200, 300, 2, 3, 10, 10, 5, 5);
+		PDFOutput output = new PDFOutput(pdf, null, Color.black, Color.white, 1, sheet, false);
+		Barcode barcode = BarcodeFactory.createCode128("A");
+		barcode.setDrawingText(false);
+		for (int i = 0; i < 7; i++) {
+			barcode.output(output);
+		}
+		assertEquals(1, output.getPageCount());
+		output.endDocument();
+		assertEquals(2, output.getPageCount());
+
+		String s = toString(pdf);
+		assertEquals(2, count(s, "/Type /Page "));
+		assertEquals(7, count(s, " cm "));
+		assertEquals(2, count(s, "/MediaBox [0 0 200 300]"));
+	}
+
+	public void testContentIsCompressed() throws Exception {
+		PDFOutput output = new PDFOutput(pdf, null, Color.black, Color.white, 1, null, true);
+		Barcode barcode = BarcodeFactory.createCode128("1234567890");
+		barcode.setDrawingText(false);
+		barcode.output(output);
+		output.endDocument();
+
+		byte[] bytes = pdf.toByteArray();
+		String s = toString(pdf);
+		assertContains("/Filter /FlateDecode", s);
+		int start = s.indexOf("stream\n") + 7;
+		int end = s.indexOf("\nendstream");
+		Inflater inflater = new Inflater();
+		inflater.setInput(bytes, start, end - start);
+		byte[] content = new byte[65536];
+		int length = inflater.inflate(content);
+		assertTrue(inflater.finished());
+		String ops = new String(content, 0, length, "ISO-8859-1");
+		assertTrue(count(ops, " re\n") > 10);
+		assertEquals(1, count(ops, "f\n"));
+	}
+
+	public void testTextUsesStandardFont() throws Exception {
+		PDFOutput output = new PDFOutput(pdf, DefaultEnvironment.DEFAULT_FONT, Color.black, Color.white, 1, null, false);
+		output.beginDraw();
+		output.drawText("A(1)", LabelLayoutFactory.createCenteredLayout(0, 50, 100));
+		output.endDraw(100, 80);
+		output.endDocument();
+
+		String s = toString(pdf);
+		assertContains("BT /F1 20 Tf 1 0 0 -1 ", s);
+		assertContains("(A\\(1\\)) Tj ET\n", s);
+		assertContains("/F1 << /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>", s);
+	}
+
+	public void testStreamIsNotClosed() throws Exception {
+		final boolean[] closed = new boolean[1];
+		PDFOutput output = new PDFOutput(new ByteArrayOutputStream() {
+			public void close() {
+				closed[0] = true;
+			}
+		});
+		output.endDocument();
+		assertFalse(closed[0]);
+	}
+
+	private String toString(ByteArrayOutputStream bytes) throws Exception {
+		return new String(bytes.toByteArray(), "ISO-8859-1");
+	}
+
+	private void assertContains(String expected, String actual) {
+		assertTrue("Expected <" + expected + "> in <" + actual + ">", actual.indexOf(expected) >= 0);
+	}
+
+	private int count(String s, String sub) {
+		int n = 0;
+		for (int i = s.indexOf(sub); i >= 0; i = s.indexOf(sub, i + 1)) {
+			n++;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,172 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import junit.framework.TestCase;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+public class PixelTargetTest extends TestCase {
+
+	public void testIntPixelsAreFilledInsideTheRegionOnly() throws Exception {
+		int[] pixels = new int[10 * 4];
+		PixelTarget target = PixelTarget.wrap(pixels, 12, 10, 5, 2, 1, 2);
+		target.fill(-1, 0, 3, 5, true);
+		target.fill(2, 0, 100, 1, false);
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 10; x++) {
+				int expected = 0;
+				if (y >= 1 && y <= 2 && x >= 2 && x < 7) {
+					int col = x - 2;
+					expected = col < 2 ? 1 : y == 1 ? 2 : 0;
+				}
+				assertEquals(x + "," + y, expected, pixels[y * 10 + x]);
+			}
+		}
+	}
+
+	public void testByteBufferKeepsItsPosition() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+		buffer.position(3);
+		PixelTarget target = PixelTarget.wrap(buffer, 4, 4, 2, 2, (byte) 0, (byte) -1);
+		target.fill(0, 0, 2, 2, false);
+		target.fill(1, 1, 1, 1, true);
+		assertEquals(3, buffer.position());
+		assertEquals(-1, buffer.get(4));
+		assertEquals(-1, buffer.get(5));
+		assertEquals(-1, buffer.get(8));
+		assertEquals(0, buffer.get(9));
+		assertEquals(0, buffer.get(6));
+	}
+
+	public void testRegionMustFit() throws Exception {
+		try {
+			PixelTarget.wrap(new byte[10], 0, 4, 4, 3, (byte) 0, (byte) 1);
+			fail("Region runs past the end of the array");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		try {
+			PixelTarget.wrap(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), 2, 2, 3, 1, Color.black,
+					Color.white);
+			fail("Region runs past the edge of the image");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	public void testImagesOfEveryTypeAreDrawnInto() throws Exception {
+		int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY,
+				BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_3BYTE_BGR};
+		for (int i = 0; i < types.length; i++) {
+			BufferedImage image = new BufferedImage(8, 8, types[i]);
+			Graphics2D g = image.createGraphics();
+			g.setColor(Color.white);
+			g.fillRect(0, 0, 8, 8);
+			g.dispose();
+			PixelTarget target = PixelTarget.wrap(image.getSubimage(1, 1, 6, 6), 1, 2, 4, 3, Color.black,
+					Color.white);
+			target.fill(0, 0, 2, 3, true);
+			for (int y = 0; y < 8; y++) {
+				for (int x = 0; x < 8; x++) {
+					boolean dark = x >= 2 && x < 4 && y >= 3 && y < 6;
+					assertEquals("type " + types[i] + " at " + x + "," + y, dark ? 0xff000000 : 0xffffffff,
+							image.getRGB(x, y));
+				}
+			}
+		}
+	}
+
+	public void testBitmapsAreCopiedThroughFills() throws Exception {
+		Bitmap src = new Bitmap(3, 2);
+		src.fill(0, 0, 1, 1, true);
+		src.fill(2, 1, 1, 1, true);
+		int[] pixels = new int[16];
+		PixelTarget.wrap(pixels, 0, 4, 4, 4, 1, 0).draw(src, 1, 2);
+		assertEquals(1, pixels[9]);
+		assertEquals(0, pixels[10]);
+		assertEquals(1, pixels[15]);
+		int sum = 0;
+		for (int i = 0; i < pixels.length; i++) {
+			sum += pixels[i];
+		}
+		assertEquals(2, sum);
+	}
+
+	public void testRotatedViewsTurnRectangles() throws Exception {
+		// A 3x2 view with its top row and bottom left pixel dark
+		String[] expected = {
+				"DDD\nD..\n", // 0: the view as drawn
+				"DD\n.D\n.D\n", // 90 clockwise
+				"..D\nDDD\n", // 180
+				"D.\nD.\nDD\n"}; // 270
+		for (int q = 0; q < 4; q++) {
+			int width = q % 2 == 0 ? 3 : 2;
+			int height = q % 2 == 0 ? 2 : 3;
+			int[] pixels = new int[6];
+			PixelTarget view = PixelTarget.wrap(pixels, 0, width, width, height, 1, 0).rotate(q * 90);
+			assertEquals(3, view.getWidth());
+			assertEquals(2, view.getHeight());
+			view.fill(0, 0, 3, 1, true);
+			view.fill(0, 1, 1, 1, true);
+			StringBuffer buf = new StringBuffer();
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					buf.append(pixels[y * width + x] == 1 ? 'D' : '.');
+				}
+				buf.append('\n');
+			}
+			assertEquals("rotation " + q * 90, expected[q], buf.toString());
+		}
+	}
+
+	public void testRotationMustBeAQuarterTurn() throws Exception {
+		Bitmap bitmap = new Bitmap(2, 2);
+		assertSame(bitmap, bitmap.rotate(-360));
+		assertEquals(2, bitmap.rotate(-90).getWidth());
+		try {
+			bitmap.rotate(45);
+			fail("Only quarter turns are supported");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+	}
+
+	public void testRegionViewsAreOffsetAndClipped() throws Exception {
+		Bitmap bitmap = new Bitmap(10, 10);
+		PixelTarget region = bitmap.region(2, 3, 4, 4);
+		assertEquals(4, region.getWidth());
+		assertEquals(4, region.getHeight());
+		region.fill(-5, 1, 20, 1, true);
+		for (int x = 0; x < 10; x++) {
+			assertEquals(String.valueOf(x), x >= 2 && x < 6, bitmap.get(x, 4));
+		}
+		assertFalse(bitmap.get(2, 3));
+	}
+}
@@ -0,0 +1,130 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeImageHandler;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class RasterOutputTest extends BarcodeTestCase {
+
+	public void testPixelsMatchBitmapOutput() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("Raster 77");
+		for (int scalar = 1; scalar <= 2; scalar++) {
+			BitmapOutput reference = new BitmapOutput(DefaultEnvironment.DEFAULT_FONT, scalar);
+			barcode.output(reference);
+			Bitmap bitmap = reference.getBitmap();
+
+			int width = bitmap.getWidth();
+			int height = bitmap.getHeight();
+			int[] pixels = new int[width * height];
+			barcode.output(new RasterOutput(PixelTarget.wrap(pixels, 0, width, width, height, 1, 0),
+					DefaultEnvironment.DEFAULT_FONT, scalar));
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					assertEquals(x + "," + y, bitmap.get(x, y) ? 1 : 0, pixels[y * width + x]);
+				}
+			}
+		}
+	}
+
+	public void testBarcodeIsDrawnIntoARegionOfAnImage() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("1234");
+		barcode.setDrawingText(false);
+		Dimension size = barcode.getPreferredSize();
+		BufferedImage label = new BufferedImage(size.width + 20, size.height + 20, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = label.createGraphics();
+		g.setColor(Color.red);
+		g.fillRect(0, 0, label.getWidth(), label.getHeight());
+		g.dispose();
+
+		BarcodeImageHandler.drawImage(barcode, label, 10, 10);
+		Bitmap bitmap = BarcodeImageHandler.getBitmap(barcode);
+		for (int y = 0; y < label.getHeight(); y++) {
+			for (int x = 0; x < label.getWidth(); x++) {
+				int expected = 0xffff0000;
+				if (x >= 10 && y >= 10 && x < 10 + size.width && y < 10 + size.height) {
+					expected = bitmap.get(x - 10, y - 10) ? 0xff000000 : 0xffffffff;
+				}
+				assertEquals(x + "," + y, expected, label.getRGB(x, y));
+			}
+		}
+	}
+
+	public void testDrawingIsClippedToTheTarget() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("1234");
+		byte[] pixels = new byte[12 * 5];
+		BarcodeImageHandler.draw(barcode, PixelTarget.wrap(pixels, 12, 12, 10, 3, (byte) 1, (byte) 2));
+		for (int i = 0; i < pixels.length; i++) {
+			int x = i % 12;
+			int y = i / 12;
+			boolean inside = y >= 1 && y < 4 && x < 10;
+			assertEquals(i + "", inside, pixels[i] != 0);
+		}
+	}
+
+	public void testRotatedBitmapsArePixelExact() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("Rotate 90");
+		barcode.setFont(DefaultEnvironment.DEFAULT_FONT);
+		Bitmap upright = BarcodeImageHandler.getBitmap(barcode);
+		int width = upright.getWidth();
+		int height = upright.getHeight();
+		for (int rotation = 90; rotation < 360; rotation += 90) {
+			Bitmap rotated = BarcodeImageHandler.getBitmap(barcode, rotation);
+			BufferedImage image = BarcodeImageHandler.getImage(barcode, rotation);
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					String at = rotation + " at " + x + "," + y;
+					Point p = rotate(x, y, width, height, rotation);
+					assertEquals(at, upright.get(x, y), rotated.get(p.x, p.y));
+					// The image is sized from the preferred size, which estimates the text height
+					int imageHeight = rotation == 180 ? image.getHeight() : image.getWidth();
+					if (y < imageHeight) {
+						p = rotate(x, y, width, imageHeight, rotation);
+						assertEquals(at, upright.get(x, y), image.getRGB(p.x, p.y) == 0xff000000);
+					}
+				}
+			}
+		}
+	}
+
+	private Point rotate(int x, int y, int width, int height, int rotation) {
+		switch (rotation) {
+		case 90:
+			return new Point(height - 1 - y, x);
+		case 180:
+			return new Point(width - 1 - x, height - 1 - y);
+		default:
+			return new Point(y, width - 1 - x);
+		}
+	}
+}
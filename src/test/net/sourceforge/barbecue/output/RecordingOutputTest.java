@@ -0,0 +1,121 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class RecordingOutputTest extends BarcodeTestCase {
+
+	public void testReplayMatchesDirectBitmapAtAnyScale() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("Replay 42");
+		RecordingOutput recording = new RecordingOutput(DefaultEnvironment.DEFAULT_FONT);
+		barcode.output(recording);
+		for (int scalar = 1; scalar <= 3; scalar++) {
+			assertSameBitmap(barcode, recording, scalar);
+		}
+	}
+
+	public void testMarginLayoutsAreReplayed() throws Exception {
+		Barcode barcode = BarcodeFactory.createEAN13("123456789012");
+		RecordingOutput recording = new RecordingOutput(DefaultEnvironment.DEFAULT_FONT);
+		barcode.output(recording);
+		assertSameBitmap(barcode, recording, 2);
+	}
+
+	public void testReplayMatchesDirectVectorOutput() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("Replay 42");
+		barcode.setDrawingText(false);
+		RecordingOutput recording = new RecordingOutput(null);
+		barcode.output(recording);
+
+		StringWriter direct = new StringWriter();
+		barcode.output(new EPSOutput(direct));
+		StringWriter replayed = new StringWriter();
+		recording.replay(new EPSOutput(replayed));
+		assertEquals(direct.toString(), replayed.toString());
+	}
+
+	public void testRecordsSeveralBarcodes() throws Exception {
+		RecordingOutput recording = new RecordingOutput(null);
+		assertTrue(recording.isEmpty());
+		BarcodeFactory.createCode128("one").output(recording);
+		Barcode two = BarcodeFactory.createCode128("two two two");
+		two.output(recording);
+		assertEquals(two.getPreferredSize().width, recording.getWidth());
+
+		final int[] count = new int[1];
+		BitmapOutput output = new BitmapOutput(null, 1) {
+			protected Bitmap completed(Bitmap bitmap) {
+				count[0]++;
+				return bitmap;
+			}
+		};
+		recording.replay(output);
+		assertEquals(2, count[0]);
+		assertEquals(recording.getWidth(), output.getBitmap().getWidth());
+
+		recording.reset();
+		assertTrue(recording.isEmpty());
+	}
+
+	public void testCustomLayoutsAreKept() throws Exception {
+		LabelLayout layout = new LabelLayout(0, 0, 0, 0) {
+			protected void calculate() {
+				bgHeight = 7;
+			}
+		};
+		RecordingOutput recording = new RecordingOutput(DefaultEnvironment.DEFAULT_FONT);
+		recording.beginDraw();
+		assertEquals(7, recording.drawText("x", layout));
+		recording.endDraw(1, 1);
+
+		final LabelLayout[] replayed = new LabelLayout[1];
+		recording.replay(new SizingOutput(null, null, null) {
+			public int drawText(String text, LabelLayout labelLayout) {
+				replayed[0] = labelLayout;
+				return 0;
+			}
+		});
+		assertSame(layout, replayed[0]);
+	}
+
+	private void assertSameBitmap(Barcode barcode, RecordingOutput recording, int scalar) throws Exception {
+		BitmapOutput direct = new BitmapOutput(DefaultEnvironment.DEFAULT_FONT, scalar);
+		barcode.output(direct);
+		BitmapOutput replayed = new BitmapOutput(DefaultEnvironment.DEFAULT_FONT, scalar);
+		recording.replay(replayed);
+		assertEquals(direct.getBitmap().getWidth(), replayed.getBitmap().getWidth());
+		assertEquals(direct.getBitmap().getHeight(), replayed.getBitmap().getHeight());
+		assertTrue("scalar " + scalar, Arrays.equals(direct.getBitmap().getBits(), replayed.getBitmap().getBits()));
+	}
+}
@@ -0,0 +1,134 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.awt.*;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+
+public class ShapeOutputTest extends BarcodeTestCase {
+
+	public void testAdjacentBarsBecomeOneRectangle() throws Exception {
+		ShapeOutput output = new ShapeOutput(null, 2);
+		output.beginDraw();
+		output.drawBar(0, 0, 1, 5, true);
+		output.drawBar(1, 0, 2, 5, true);
+		output.drawBar(3, 0, 1, 5, false);
+		output.drawBar(4, 0, 1, 5, true);
+		output.endDraw(5, 5);
+		BarcodeShape shape = output.getBarcodeShape();
+		assertEquals(10.0, shape.getWidth(), 0);
+		assertEquals(10.0, shape.getHeight(), 0);
+		assertEquals(2, countSubpaths(shape.getShape()));
+		assertEquals(new Rectangle(0, 0, 10, 10), shape.getBars().getBounds());
+		assertTrue(shape.getShape().contains(5, 5));
+		assertFalse(shape.getShape().contains(7, 5));
+	}
+
+	public void testShapesCannotBeChangedThroughTheGetters() throws Exception {
+		ShapeOutput output = new ShapeOutput(null, 1);
+		output.beginDraw();
+		output.drawBar(0, 0, 2, 2, true);
+		output.endDraw(4, 2);
+		BarcodeShape shape = output.getBarcodeShape();
+		((GeneralPath) shape.getShape()).append(new Rectangle(2, 0, 2, 2), false);
+		((GeneralPath) shape.getBars()).append(new Rectangle(2, 0, 2, 2), false);
+		((GeneralPath) shape.getText()).append(new Rectangle(2, 0, 2, 2), false);
+		assertFalse(shape.getShape().contains(3, 1));
+		assertFalse(shape.getBars().contains(3, 1));
+		assertTrue(shape.getText().getBounds().isEmpty());
+
+		BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		shape.paint(g, 0, 0, Color.black, Color.white);
+		g.dispose();
+		assertEquals(0xffffffff, image.getRGB(3, 1));
+	}
+
+	public void testShapeMatchesBitmapRendering() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("Shape 0123");
+		barcode.setDrawingText(false);
+		ShapeOutput shapes = new ShapeOutput(null, 1);
+		barcode.output(shapes);
+		BitmapOutput bitmaps = new BitmapOutput(null, 1);
+		barcode.output(bitmaps);
+
+		BarcodeShape shape = shapes.getBarcodeShape();
+		Bitmap bitmap = bitmaps.getBitmap();
+		BufferedImage image = new BufferedImage(bitmap.getWidth(), bitmap.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		shape.paint(g, 0, 0, Color.black, Color.white);
+		g.dispose();
+		for (int y = 0; y < bitmap.getHeight(); y++) {
+			for (int x = 0; x < bitmap.getWidth(); x++) {
+				assertEquals(x + "," + y, bitmap.get(x, y), image.getRGB(x, y) == 0xff000000);
+			}
+		}
+	}
+
+	public void testLabelIsPartOfTheShape() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("Shape 0123");
+		ShapeOutput output = new ShapeOutput(DefaultEnvironment.DEFAULT_FONT, 1);
+		barcode.output(output);
+		BarcodeShape shape = output.getBarcodeShape();
+		Rectangle bars = shape.getBars().getBounds();
+		Rectangle text = shape.getText().getBounds();
+		assertFalse(text.isEmpty());
+		assertTrue(text.y >= bars.y + bars.height);
+		assertTrue(shape.getShape().getBounds().contains(text));
+	}
+
+	public void testPaintLeavesGraphicsUnchanged() throws Exception {
+		ShapeOutput output = new ShapeOutput(null, 1);
+		output.beginDraw();
+		output.drawBar(0, 0, 2, 2, true);
+		output.endDraw(4, 2);
+		Graphics2D g = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB).createGraphics();
+		g.setColor(Color.red);
+		output.getBarcodeShape().paint(g, 3, 3, Color.black, Color.white);
+		assertEquals(Color.red, g.getColor());
+		assertTrue(g.getTransform().isIdentity());
+		g.dispose();
+	}
+
+	private int countSubpaths(Shape shape) {
+		int count = 0;
+		double[] coords = new double[6];
+		for (PathIterator i = shape.getPathIterator(null); !i.isDone(); i.next()) {
+			if (i.currentSegment(coords) == PathIterator.SEG_MOVETO) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
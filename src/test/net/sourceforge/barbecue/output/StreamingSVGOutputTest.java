@@ -0,0 +1,148 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.env.DefaultEnvironment;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class StreamingSVGOutputTest extends BarcodeTestCase {
+	private StringWriter svg;
+	private StreamingSVGOutput output;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		svg = new StringWriter();
+		output = new StreamingSVGOutput(svg, null, Color.black, Color.white, 0.5, "mm");
+	}
+
+	public void testEmptyBarcodeWritesSizedDocument() throws Exception {
+		output.beginDraw();
+		output.endDraw(10, 20);
+		assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+				+ " width=\"5mm\" height=\"10mm\" viewBox=\"0 0 10 20\">\n"
+				+ "<rect width=\"10\" height=\"20\" fill=\"#FFFFFF\"/></svg>\n", svg.toString());
+	}
+
+	public void testAdjacentBarsAreMergedIntoOneRun() throws Exception {
+		output.beginDraw();
+		output.drawBar(10, 0, 2, 50, true);
+		output.drawBar(12, 0, 3, 50, true);
+		output.drawBar(15, 0, 1, 50, false);
+		output.drawBar(16, 0, 1, 50, true);
+		output.endDraw(20, 50);
+		assertContains("<path fill=\"#000000\" d=\"M10 0h5v50h-5zm6 0h1v50h-1z\"/>", svg.toString());
+	}
+
+	public void testBarsInBlankModulesAreNotPainted() throws Exception {
+		output.beginDraw();
+		output.toggleDrawingColor();
+		output.drawBar(0, 0, 10, 50, true);
+		output.toggleDrawingColor();
+		output.drawBar(10, 0, 1, 50, true);
+		output.endDraw(11, 50);
+		assertContains("d=\"M10 0h1v50h-1z\"", svg.toString());
+	}
+
+	public void testBarcodeIsOnePathRegardlessOfBarCount() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("1234567890");
+		barcode.setDrawingText(false);
+		barcode.output(output);
+		String s = svg.toString();
+		assertEquals(1, count(s, "<path"));
+		assertEquals(1, count(s, "<rect"));
+		assertEquals(-1, s.indexOf("<rect x="));
+	}
+
+	public void testTextIsWrittenWithFontAndEscaped() throws Exception {
+		output = new StreamingSVGOutput(svg, DefaultEnvironment.DEFAULT_FONT, Color.black, Color.white, 1, "px");
+		output.beginDraw();
+		output.drawText("A&B", LabelLayoutFactory.createCenteredLayout(0, 50, 100));
+		output.endDraw(100, 80);
+		String s = svg.toString();
+		assertContains("font-family=\"" + DefaultEnvironment.DEFAULT_FONT.getFamily() + "\" font-size=\"20\"", s);
+		assertContains(">A&amp;B</text>", s);
+	}
+
+	public void testWriterIsNotClosed() throws Exception {
+		ClosingWriter writer = new ClosingWriter();
+		output = new StreamingSVGOutput(writer, null, Color.black, Color.white, 1, "px");
+		output.beginDraw();
+		output.endDraw(10, 10);
+		assertFalse(writer.closed);
+		assertTrue(writer.flushed);
+	}
+
+	public void testSeveralBarcodesShareOneDocument() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("ABC");
+		barcode.setDrawingText(false);
+		output.startDocument(400, 200);
+		output.setOrigin(0, 0);
+		barcode.output(output);
+		output.setOrigin(0, 100);
+		barcode.output(output);
+		output.endDocument();
+
+		String s = svg.toString();
+		assertEquals(1, count(s, "<svg"));
+		assertEquals(1, count(s, "</svg>"));
+		assertEquals(1, count(s, "<path"));
+		assertContains("<g transform=\"translate(0 100)\">", s);
+		assertContains("<use xlink:href=\"#b0\"/>", s);
+	}
+
+	private void assertContains(String expected, String actual) {
+		assertTrue("Expected <" + expected + "> in <" + actual + ">", actual.indexOf(expected) >= 0);
+	}
+
+	private int count(String s, String sub) {
+		int n = 0;
+		for (int i = s.indexOf(sub); i >= 0; i = s.indexOf(sub, i + 1)) {
+			n++;
+		}
+		return n;
+	}
+
+	private static class ClosingWriter extends StringWriter {
+		boolean closed;
+		boolean flushed;
+
+		public void close() throws IOException {
+			closed = true;
+		}
+
+		public void flush() {
+			flushed = true;
+		}
+	}
+}
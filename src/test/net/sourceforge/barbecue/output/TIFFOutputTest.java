@@ -0,0 +1,76 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+
+import java.io.ByteArrayOutputStream;
+
+public class TIFFOutputTest extends BarcodeTestCase {
+
+	public void testOnePagePerBarcode() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TIFFOutput output = new TIFFOutput(out, null, 1, 300);
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.output(output);
+		barcode.output(output);
+		output.endDocument();
+		assertEquals(2, output.getPageCount());
+		assertEquals('I', out.toByteArray()[0]);
+	}
+
+	public void testSheetFillsPages() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		SheetLayout sheet = new SheetLayout(850, 1100, 2, 5, 20, 20, 10, 10);
+		TIFFOutput output = new TIFFOutput(out, null, 1, 100, sheet);
+		Barcode barcode = BarcodeFactory.createCode128("12345");
+		barcode.setDrawingText(false);
+		for (int i = 0; i < 11; i++) {
+			barcode.output(output);
+		}
+		assertEquals(2, output.getPageCount());
+		output.endDocument();
+		assertEquals(2, output.getPageCount());
+	}
+
+	public void testDrawCopiesDarkPixelsAtAnyAlignment() throws Exception {
+		Bitmap src = new Bitmap(10, 2);
+		src.fill(0, 0, 1, 1, true);
+		src.fill(9, 1, 1, 1, true);
+		for (int x = -3; x < 12; x++) {
+			Bitmap dst = new Bitmap(17, 3);
+			dst.draw(src, x, 1);
+			for (int px = 0; px < 17; px++) {
+				assertEquals("x=" + x + " px=" + px, px == x, dst.get(px, 1));
+				assertEquals("x=" + x + " px=" + px, px == x + 9, dst.get(px, 2));
+				assertFalse(dst.get(px, 0));
+			}
+		}
+	}
+}
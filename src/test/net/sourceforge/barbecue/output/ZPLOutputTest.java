@@ -0,0 +1,111 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.output;
+
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.BarcodeTestCase;
+
+import java.io.StringWriter;
+
+public class ZPLOutputTest extends BarcodeTestCase {
+
+	public void testRowsAreCompressed() throws Exception {
+		Bitmap bitmap = new Bitmap(32, 4);
+		bitmap.fill(0, 0, 8, 1, true);
+		bitmap.fill(8, 1, 24, 2, true);
+		TextBuffer buf = new TextBuffer(64);
+		ZPLOutput.appendGraphicField(buf, bitmap);
+		assertEquals("^GFA,16,16,4,HF,H0!:,", buf.toString());
+	}
+
+	public void testLongRunsUseCombinedCounts() throws Exception {
+		Bitmap bitmap = new Bitmap(8 * 300, 1);
+		bitmap.fill(0, 0, 4, 1, true);
+		bitmap.fill(8 * 299 + 4, 0, 4, 1, true);
+		TextBuffer buf = new TextBuffer(64);
+		ZPLOutput.appendGraphicField(buf, bitmap);
+		// F, then 400 + 180 + 18 zeros, then the row ends dark
+		assertEquals("^GFA,300,300,300,FzoX0!", buf.toString());
+	}
+
+	public void testGraphicFieldDecodesToBitmap() throws Exception {
+		Barcode barcode = BarcodeFactory.createCode128("ZPL 0123");
+		barcode.setDrawingText(false);
+		StringWriter zpl = new StringWriter();
+		ZPLOutput output = new ZPLOutput(zpl, null, 2);
+		output.setOrigin(10, 20);
+		barcode.output(output);
+
+		String s = zpl.toString();
+		assertTrue(s.startsWith("^XA\n^FO10,20^GFA,"));
+		assertTrue(s.endsWith("^FS\n^XZ\n"));
+		Bitmap bitmap = output.getBitmap();
+		String[] fields = s.substring(s.indexOf("^GFA,") + 5, s.indexOf("^FS")).split(",", 4);
+		int rowBytes = Integer.parseInt(fields[2]);
+		assertEquals(rowBytes * bitmap.getHeight(), Integer.parseInt(fields[0]));
+		byte[] decoded = decode(fields[3], rowBytes, bitmap.getHeight());
+		for (int i = 0; i < decoded.length; i++) {
+			assertEquals("byte " + i, bitmap.getBits()[i], decoded[i]);
+		}
+		assertTrue(fields[3].length() < rowBytes * 2 * bitmap.getHeight() / 10);
+	}
+
+	private byte[] decode(String data, int rowBytes, int rows) {
+		char[] hex = new char[rowBytes * 2 * rows];
+		int out = 0;
+		int count = 0;
+		for (int i = 0; i < data.length(); i++) {
+			char c = data.charAt(i);
+			int row = out / (rowBytes * 2);
+			int rowEnd = (row + 1) * rowBytes * 2;
+			if (c >= 'G' && c <= 'Y') {
+				count += c - 'G' + 1;
+			} else if (c >= 'g' && c <= 'z') {
+				count += (c - 'g' + 1) * 20;
+			} else if (c == ',' || c == '!') {
+				while (out < rowEnd) {
+					hex[out++] = c == ',' ? '0' : 'F';
+				}
+			} else if (c == ':') {
+				System.arraycopy(hex, out - rowBytes * 2, hex, out, rowBytes * 2);
+				out += rowBytes * 2;
+			} else {
+				for (int n = Math.max(count, 1); n > 0; n--) {
+					hex[out++] = c;
+				}
+				count = 0;
+			}
+		}
+		assertEquals(hex.length, out);
+		byte[] bytes = new byte[hex.length / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(new String(hex, i * 2, 2), 16);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,143 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.pack;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+public class BarcodePackTest extends TestCase {
+	private File file;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = File.createTempFile("barcodes", ".pack");
+	}
+
+	protected void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testEveryAddedBarcodeCanBeFound() throws Exception {
+		BarcodePackWriter writer = new BarcodePackWriter(file, "image/png");
+		for (int i = 0; i < 5000; i++) {
+			writer.add("SKU" + i, blob(i));
+		}
+		writer.close();
+
+		BarcodePack pack = new BarcodePack(file);
+		try {
+			assertEquals(5000, pack.size());
+			for (int i = 0; i < 5000; i++) {
+				BarcodePack.Entry entry = pack.find("SKU" + i);
+				assertNotNull(entry);
+				assertEquals(ByteBuffer.wrap(blob(i)), pack.getBlob(entry));
+			}
+		} finally {
+			pack.close();
+		}
+	}
+
+	public void testMissingKeyIsNotFound() throws Exception {
+		BarcodePackWriter writer = new BarcodePackWriter(file, "image/png");
+		writer.add("12345", blob(1));
+		writer.close();
+
+		BarcodePack pack = new BarcodePack(file);
+		try {
+			assertNull(pack.find("1234"));
+			assertNull(pack.find("123456"));
+		} finally {
+			pack.close();
+		}
+	}
+
+	public void testEmptyPackCanBeRead() throws Exception {
+		new BarcodePackWriter(file, "image/png").close();
+		BarcodePack pack = new BarcodePack(file);
+		try {
+			assertEquals(0, pack.size());
+			assertNull(pack.find("12345"));
+		} finally {
+			pack.close();
+		}
+	}
+
+	public void testPropertiesAreRecordedInHeader() throws Exception {
+		BarcodePackWriter writer = new BarcodePackWriter(file, "image/svg+xml");
+		writer.setProperty(BarcodePackWriter.BARCODE_TYPE, "EAN13");
+		writer.close();
+
+		BarcodePack pack = new BarcodePack(file);
+		try {
+			assertEquals("image/svg+xml", pack.getContentType());
+			assertEquals("EAN13", pack.getProperty(BarcodePackWriter.BARCODE_TYPE));
+		} finally {
+			pack.close();
+		}
+	}
+
+	public void testTransferWritesBlob() throws Exception {
+		BarcodePackWriter writer = new BarcodePackWriter(file, "image/png");
+		writer.add("a", blob(7));
+		writer.add("b", blob(300));
+		writer.close();
+
+		BarcodePack pack = new BarcodePack(file);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			pack.transferTo(pack.find("b"), Channels.newChannel(out));
+			assertEquals(ByteBuffer.wrap(blob(300)), ByteBuffer.wrap(out.toByteArray()));
+		} finally {
+			pack.close();
+		}
+	}
+
+	public void testNonPackFileIsRejected() throws Exception {
+		java.io.FileOutputStream fos = new java.io.FileOutputStream(file);
+		fos.write(new byte[64]);
+		fos.close();
+		try {
+			new BarcodePack(file);
+			fail();
+		} catch (java.io.IOException e) {
+			// Good
+		}
+	}
+
+	private byte[] blob(int seed) {
+		byte[] b = new byte[seed % 97 + 1];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = (byte) (seed + i);
+		}
+		return b;
+	}
+}
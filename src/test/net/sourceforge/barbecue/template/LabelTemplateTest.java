@@ -0,0 +1,172 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.template;
+
+import junit.framework.TestCase;
+import net.sourceforge.barbecue.Barcode;
+import net.sourceforge.barbecue.BarcodeException;
+import net.sourceforge.barbecue.BarcodeFactory;
+import net.sourceforge.barbecue.output.Bitmap;
+import net.sourceforge.barbecue.output.BuiltInFont;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class LabelTemplateTest extends TestCase {
+
+	public void testStaticLayerIsRenderedOnceAndCopiedForEachLabel() throws Exception {
+		LabelTemplate template = createTemplate();
+		Bitmap layer = template.getStaticLayer();
+		byte[] before = layer.getBits().clone();
+		assertTrue(layer.get(0, 0));
+		assertTrue(layer.get(305, 5));
+
+		Bitmap label = template.render(values("1234567890", "Alice"));
+		assertSame(layer, template.getStaticLayer());
+		assertTrue(Arrays.equals(before, layer.getBits()));
+		assertTrue(label.get(0, 0));
+		assertTrue(label.get(305, 5));
+		assertTrue(countDark(label, 10, 40, 380, 100) > 0);
+		assertTrue(countDark(label, 10, 150, 380, 40) > 0);
+
+		// Changing the template renders the static layer again
+		template.addBox(0, 0, 20, 20, 1);
+		assertNotSame(layer, template.getStaticLayer());
+	}
+
+	public void testFieldsAreStampedIntoTheirBoxes() throws Exception {
+		LabelTemplate template = createTemplate();
+		Bitmap first = template.render(values("1234567890", "Alice"));
+		Bitmap second = template.render(values("1234567890", "Bob"));
+		assertTrue(Arrays.equals(rows(first, 0, 150), rows(second, 0, 150)));
+		assertFalse(Arrays.equals(rows(first, 150, 40), rows(second, 150, 40)));
+
+		Bitmap other = template.render(values("9876543210", "Alice"));
+		assertFalse(Arrays.equals(rows(first, 40, 100), rows(other, 40, 100)));
+	}
+
+	public void testLabelsRenderInParallel() throws Exception {
+		LabelTemplate template = createTemplate();
+		List<Map<String, String>> labels = new ArrayList<Map<String, String>>();
+		for (int i = 0; i < 40; i++) {
+			labels.add(values(String.valueOf(1000000 + i), "Parcel " + i));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Bitmap> rendered = template.render(labels, executor);
+			assertEquals(labels.size(), rendered.size());
+			for (int i = 0; i < labels.size(); i++) {
+				assertTrue(Arrays.equals(template.render(labels.get(i)).getBits(), rendered.get(i).getBits()));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	public void testBarcodeFieldsTakeAnyFactoryTypeOrCreator() throws Exception {
+		LabelTemplate template = new LabelTemplate(400, 300, BuiltInFont.DEFAULT_FONT);
+		template.addBarcodeField("manifest", "PDF417", 10, 10, 380, 140);
+		template.addBarcodeField("part", new BarcodeCreator() {
+			public Barcode createBarcode(String data) throws BarcodeException {
+				return BarcodeFactory.createCode39(data, true);
+			}
+		}, 10, 160, 380, 100);
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("manifest", "SHIP 0012345678 TO 4711");
+		values.put("part", "PART42");
+		Bitmap label = template.render(values);
+		assertTrue(countDark(label, 10, 10, 380, 140) > 0);
+		assertTrue(countDark(label, 10, 160, 380, 100) > 0);
+		try {
+			template.addBarcodeField("other", "NoSuchBarcode", 0, 0, 10, 10);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testMissingValuesAreReported() throws Exception {
+		LabelTemplate template = createTemplate();
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("tracking", "1234");
+		try {
+			template.render(values);
+			fail("The name field has no value");
+		} catch (BarcodeException expected) {
+		}
+	}
+
+	private LabelTemplate createTemplate() throws BarcodeException {
+		LabelTemplate template = new LabelTemplate(400, 200, BuiltInFont.DEFAULT_FONT);
+		template.addBox(0, 0, 400, 200, 2);
+		BufferedImage logo = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 20; y++) {
+			for (int x = y; x < 20; x++) {
+				logo.setRGB(x, y, 0xff000000);
+			}
+		}
+		template.addImage(logo, 300, 5);
+		template.addText("FROM: BARBECUE", 10, 5, 200, 30);
+		Barcode route = BarcodeFactory.createCode128("R1");
+		route.setDrawingText(false);
+		route.setPreferredBarHeight(20);
+		template.addBarcode(route, 220, 10);
+		template.addBarcodeField("tracking", "code128", 10, 40, 380, 100);
+		template.addTextField("name", 10, 150, 380, 40);
+		return template;
+	}
+
+	private Map<String, String> values(String tracking, String name) {
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("tracking", tracking);
+		values.put("name", name);
+		return values;
+	}
+
+	private byte[] rows(Bitmap bitmap, int y, int height) {
+		byte[] rows = new byte[bitmap.getStride() * height];
+		System.arraycopy(bitmap.getBits(), y * bitmap.getStride(), rows, 0, rows.length);
+		return rows;
+	}
+
+	private int countDark(Bitmap bitmap, int x, int y, int width, int height) {
+		int count = 0;
+		for (int j = y; j < y + height; j++) {
+			for (int i = x; i < x + width; i++) {
+				if (bitmap.get(i, j)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
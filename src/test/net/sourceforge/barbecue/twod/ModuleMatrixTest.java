@@ -0,0 +1,81 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod;
+
+import junit.framework.TestCase;
+
+public class ModuleMatrixTest extends TestCase {
+
+	public void testPatternsCanStraddleWords() throws Exception {
+		int stride = ModuleMatrix.getStride(100);
+		assertEquals(2, stride);
+		long[] bits = new long[stride * 2];
+		ModuleMatrix.set(bits, stride, 60, 1, 0x1fda8, 17);
+		ModuleMatrix matrix = new ModuleMatrix(100, 2, bits);
+		for (int x = 0; x < 100; x++) {
+			assertFalse(matrix.get(x, 0));
+			boolean expected = x >= 60 && x < 77 && (0x1fda8 & (1 << (76 - x))) != 0;
+			assertEquals("" + x, expected, matrix.get(x, 1));
+		}
+	}
+
+	public void testRowsAreSplitIntoRuns() throws Exception {
+		int stride = ModuleMatrix.getStride(130);
+		long[] bits = new long[stride * 3];
+		ModuleMatrix.set(bits, stride, 0, 0, 0x7, 3);
+		ModuleMatrix.set(bits, stride, 62, 0, 0xf, 4);
+		ModuleMatrix.set(bits, stride, 127, 0, 0x7, 3);
+		ModuleMatrix.set(bits, stride, 5, 1, 0x1, 1);
+		ModuleMatrix matrix = new ModuleMatrix(130, 3, bits);
+		int[] runs = new int[131];
+
+		assertEquals(6, matrix.getRuns(0, runs));
+		assertRuns(new int[] {0, 3, 59, 4, 61, 3}, runs);
+		assertEquals(3, matrix.getRuns(1, runs));
+		assertRuns(new int[] {5, 1, 124}, runs);
+		assertEquals(1, matrix.getRuns(2, runs));
+		assertRuns(new int[] {130}, runs);
+	}
+
+	public void testMatricesAreImmutableAndComparedByValue() throws Exception {
+		long[] bits = new long[] {-1L, -1L};
+		ModuleMatrix matrix = new ModuleMatrix(10, 2, bits);
+		bits[0] = 0;
+		assertTrue(matrix.get(0, 0));
+		// Bits beyond the width are not part of the matrix
+		long[] other = new long[] {0xffc0000000000000L, 0xffc0000000000000L};
+		assertEquals(matrix, new ModuleMatrix(10, 2, other));
+		assertEquals(matrix.hashCode(), new ModuleMatrix(10, 2, other).hashCode());
+		assertFalse(matrix.equals(new ModuleMatrix(10, 1, other)));
+	}
+
+	private void assertRuns(int[] expected, int[] runs) {
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals("run " + i, expected[i], runs[i]);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import junit.framework.TestCase;
+import net.sourceforge.barbecue.BarcodeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class MacroPDF417Test extends TestCase {
+
+	public void testPayloadIsSplitIntoNumberedSegments() throws Exception {
+		byte[] payload = createPayload(10000);
+		MacroPDF417 macro = new MacroPDF417(new ByteArrayInputStream(payload), "017053");
+		macro.setErrorCorrectionLevel(2);
+		List<PDF417Barcode> segments = new ArrayList<PDF417Barcode>();
+		PDF417Barcode segment;
+		while ((segment = macro.nextSegment()) != null) {
+			segments.add(segment);
+		}
+		assertTrue(segments.size() > 3);
+		assertEquals(segments.size(), macro.getSegmentCount());
+
+		StringBuffer joined = new StringBuffer();
+		for (int i = 0; i < segments.size(); i++) {
+			segment = segments.get(i);
+			assertTrue(segment.isMacroSegment());
+			assertEquals(2, segment.getErrorCorrectionLevel());
+			// Every segment fits in its symbol
+			assertTrue(segment.getEncodedRows() <= 90);
+			joined.append(segment.getData());
+
+			int[] block = segment.getMacroControlBlock();
+			boolean last = i == segments.size() - 1;
+			assertEquals(928, block[0]);
+			assertEquals(100000 + i, block[1] * 900 + block[2]);
+			assertEquals(17, block[3]);
+			assertEquals(53, block[4]);
+			assertEquals(last ? 6 : 5, block.length);
+			if (last) {
+				assertEquals(922, block[5]);
+			}
+		}
+		assertEquals(new String(payload, "ISO-8859-1"), joined.toString());
+		assertNull(macro.nextSegment());
+	}
+
+	public void testPayloadIsReadASegmentAtATime() throws Exception {
+		final int[] read = new int[1];
+		InputStream in = new ByteArrayInputStream(createPayload(50000)) {
+			public synchronized int read(byte[] b, int off, int len) {
+				int n = super.read(b, off, len);
+				read[0] += Math.max(0, n);
+				return n;
+			}
+		};
+		MacroPDF417 macro = new MacroPDF417(in, "123");
+		macro.setColumns(10);
+		macro.setRows(20);
+		PDF417Barcode first = macro.nextSegment();
+		assertEquals(20, first.getEncodedRows());
+		assertEquals(10, first.getEncodedColumns());
+		assertTrue(read[0] + " bytes read", read[0] < 1000);
+	}
+
+	public void testSymbolsTooSmallForAnyDataFail() throws Exception {
+		MacroPDF417 macro = new MacroPDF417(new ByteArrayInputStream(createPayload(100)), "000");
+		macro.setErrorCorrectionLevel(8);
+		macro.setColumns(30);
+		macro.setRows(17);
+		try {
+			macro.nextSegment();
+			fail();
+		} catch (BarcodeException expected) {
+		}
+	}
+
+	public void testFileIdIsGroupsOfThreeDigitsBelow900() throws IOException {
+		String[] invalid = {"", "12", "12a", "900"};
+		for (int i = 0; i < invalid.length; i++) {
+			try {
+				new MacroPDF417(new ByteArrayInputStream(new byte[1]), invalid[i]);
+				fail(invalid[i]);
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+	}
+
+	private static byte[] createPayload(int length) {
+		Random random = new Random(length);
+		byte[] payload = new byte[length];
+		for (int i = 0; i < length; i++) {
+			int kind = (i / 40) % 3;
+			if (kind == 0) {
+				payload[i] = (byte) ('0' + random.nextInt(10));
+			} else if (kind == 1) {
+				payload[i] = (byte) ('A' + random.nextInt(26));
+			} else {
+				payload[i] = (byte) random.nextInt(256);
+			}
+		}
+		return payload;
+	}
+}
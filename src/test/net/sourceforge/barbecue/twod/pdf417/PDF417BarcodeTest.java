@@ -0,0 +1,233 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import net.sourceforge.barbecue.BarcodeException;
+import net.sourceforge.barbecue.BarcodeImageHandler;
+import net.sourceforge.barbecue.BarcodeTestCase;
+import net.sourceforge.barbecue.NullOutput;
+import net.sourceforge.barbecue.output.Bitmap;
+import net.sourceforge.barbecue.output.BitmapOutput;
+import net.sourceforge.barbecue.output.OutputException;
+import net.sourceforge.barbecue.twod.ModuleMatrix;
+
+import java.awt.Dimension;
+
+public class PDF417BarcodeTest extends BarcodeTestCase {
+	private static final String DATA = "A longer piece of text that needs several rows of a PDF417 symbol";
+
+	public void testRowsAreDrawnAsRunsAtFullRowHeight() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode(DATA);
+		final int[] calls = new int[1];
+		final int[] area = new int[1];
+		barcode.output(new NullOutput() {
+			public int drawBar(int x, int y, int width, int height, boolean foregroundColor) {
+				calls[0]++;
+				if (foregroundColor) {
+					assertTrue(height >= 6);
+				} else {
+					area[0] += width * height;
+				}
+				return width;
+			}
+		});
+		// Every pixel used to be a separate call
+		assertTrue(calls[0] * 50 < area[0]);
+	}
+
+	public void testMatrixIsEncodedOnce() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode(DATA);
+		ModuleMatrix matrix = barcode.getMatrix();
+		assertSame(matrix, barcode.getMatrix());
+		assertEquals(16 * 17 + 1, matrix.getWidth());
+		barcode.setBarWidth(3);
+		assertSame(matrix, barcode.getMatrix());
+		assertEquals(matrix, new PDF417Barcode(DATA).getMatrix());
+		assertEquals((matrix.getWidth() + 4) * 3, barcode.getPreferredSize().width);
+	}
+
+	public void testSettingUnchangedValuesKeepsTheMatrix() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode(DATA);
+		barcode.setColumns(10);
+		barcode.setRows(20);
+		ModuleMatrix matrix = barcode.getMatrix();
+		barcode.setColumns(10);
+		barcode.setRows(20);
+		barcode.setRowHeight(barcode.getRowHeight());
+		barcode.setCompact(barcode.isCompact());
+		barcode.setErrorCorrectionLevel(barcode.getErrorCorrectionLevel());
+		assertSame(matrix, barcode.getMatrix());
+
+		// The aspect ratio also makes the columns and rows automatic
+		barcode.setAspectRatio(barcode.getAspectRatio());
+		assertNotSame(matrix, barcode.getMatrix());
+		matrix = barcode.getMatrix();
+		barcode.setAspectRatio(barcode.getAspectRatio());
+		assertSame(matrix, barcode.getMatrix());
+	}
+
+	public void testStartPatternSpansEveryRow() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode(DATA);
+		BitmapOutput output = new BitmapOutput(null, 1);
+		barcode.output(output);
+		Bitmap bitmap = output.getBitmap();
+		assertEquals(554, bitmap.getWidth());
+
+		int rows = barcode.getMatrix().getHeight();
+		assertTrue(rows > 3);
+		int height = 8 + rows * 6;
+		assertEquals(height, barcode.getPreferredSize().height);
+		// The bar height does not clip the symbol
+		assertEquals(height, bitmap.getHeight());
+		for (int y = 0; y < height; y++) {
+			boolean inSymbol = y >= 4 && y < height - 4;
+			// Seven dark modules, two pixels each, after the quiet zone
+			for (int x = 0; x < 4; x++) {
+				assertFalse(bitmap.get(x, y));
+			}
+			for (int x = 4; x < 18; x++) {
+				assertEquals(x + "," + y, inSymbol, bitmap.get(x, y));
+			}
+			assertFalse(bitmap.get(18, y));
+			// The termination bar before the right quiet zone
+			assertEquals(inSymbol, bitmap.get(548, y));
+			assertFalse(bitmap.get(550, y));
+		}
+	}
+
+	public void testColumnsAndRowsShapeTheSymbol() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode(DATA);
+		barcode.setColumns(5);
+		ModuleMatrix matrix = barcode.getMatrix();
+		assertEquals((5 + 4) * 17 + 1, matrix.getWidth());
+		assertEquals(5, barcode.getEncodedColumns());
+		barcode.setRows(40);
+		assertEquals(40, barcode.getMatrix().getHeight());
+		barcode.setColumns(0);
+		barcode.setRows(4);
+		assertEquals(4, barcode.getEncodedRows());
+		// As few columns as hold the data in four rows
+		int columns = barcode.getEncodedColumns();
+		barcode.setColumns(columns - 1);
+		try {
+			barcode.getMatrix();
+			fail("The data does not fit in " + (columns - 1) + " columns of 4 rows");
+		} catch (BarcodeException expected) {
+		}
+		try {
+			barcode.setColumns(31);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	public void testCompactSymbolsLeaveOutTheRightOfEachRow() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode(DATA);
+		ModuleMatrix full = barcode.getMatrix();
+		barcode.setCompact(true);
+		ModuleMatrix compact = barcode.getMatrix();
+		assertEquals(full.getWidth() - 34, compact.getWidth());
+		assertEquals(full.getHeight(), compact.getHeight());
+		assertEquals(12, barcode.getEncodedColumns());
+		for (int y = 0; y < compact.getHeight(); y++) {
+			for (int x = 0; x < compact.getWidth() - 1; x++) {
+				assertEquals(full.get(x, y), compact.get(x, y));
+			}
+			assertTrue(compact.get(compact.getWidth() - 1, y));
+		}
+	}
+
+	public void testAspectRatioChoosesTheColumns() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode(DATA + DATA + DATA);
+		barcode.setErrorCorrectionLevel(3);
+		double[] ratios = {0.5, 1, 2, 4};
+		for (int i = 0; i < ratios.length; i++) {
+			barcode.setAspectRatio(ratios[i]);
+			ModuleMatrix matrix = barcode.getMatrix();
+			double ratio = matrix.getWidth() / (3.0 * matrix.getHeight());
+			assertTrue(ratios[i] + " was " + ratio, ratio > ratios[i] * 0.7 && ratio < ratios[i] / 0.7);
+		}
+	}
+
+	public void testDataTooLargeForASymbolFailsLoudly() throws Exception {
+		StringBuffer data = new StringBuffer();
+		for (int i = 0; i < 1200; i++) {
+			data.append((char) (128 + i % 128));
+		}
+		PDF417Barcode barcode = new PDF417Barcode(data.toString());
+		try {
+			barcode.getMatrix();
+			fail();
+		} catch (BarcodeException expected) {
+			assertTrue(expected.getMessage().indexOf("928") > 0);
+		}
+		try {
+			barcode.output(new NullOutput());
+			fail();
+		} catch (OutputException expected) {
+		}
+	}
+
+	public void testImagesOfDataTooLargeForASymbolFailWithTheEncodersMessage() throws Exception {
+		StringBuffer data = new StringBuffer();
+		for (int i = 0; i < 3000; i++) {
+			data.append((char) ('A' + i % 26));
+		}
+		PDF417Barcode barcode = new PDF417Barcode(data.toString());
+		try {
+			BarcodeImageHandler.getImage(barcode);
+			fail();
+		} catch (OutputException expected) {
+			assertTrue(expected.getCause() instanceof BarcodeException);
+			assertTrue(expected.getMessage().indexOf("928") > 0);
+		}
+		try {
+			barcode.fitToBox(10000, 10000);
+			fail();
+		} catch (OutputException expected) {
+			assertTrue(expected.getCause() instanceof BarcodeException);
+		}
+	}
+
+	public void testFitToBoxKeepsTheSymbolWithinTheHeight() throws Exception {
+		StringBuffer data = new StringBuffer();
+		while (data.length() < 360) {
+			data.append(DATA);
+		}
+		PDF417Barcode barcode = new PDF417Barcode(data.substring(0, 360));
+		// Wide enough for three pixel modules, but only one pixel modules are short enough
+		assertTrue(barcode.fitToBox(1000, 100));
+		assertEquals(1, barcode.getBarWidth());
+		Dimension size = barcode.getPreferredSize();
+		assertTrue(size.width <= 1000 && size.height <= 100);
+
+		int height = size.height;
+		assertTrue(barcode.fitToBox(1000, height * 2));
+		assertEquals(2, barcode.getBarWidth());
+		assertFalse(barcode.fitToBox(1000, height - 1));
+	}
+}
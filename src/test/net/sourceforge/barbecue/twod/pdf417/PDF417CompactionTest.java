@@ -0,0 +1,211 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import junit.framework.TestCase;
+import net.sourceforge.barbecue.BarcodeException;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+public class PDF417CompactionTest extends TestCase {
+
+	private static final String MIXED = "0123456789&\r\t,:#-.$/+%*=^";
+	private static final String PUNCTUATION = ";<>@[\\]_`~!\r\t,:\n-.$/\"|*()?{}'";
+
+	public void testNumericGroupsAreConvertedToBase900() throws Exception {
+		String digits = "12345678901234567890123456789012345678901234";
+		assertEquals("[902, 491, 81, 137, 450, 302, 67, 15, 174, 492, 862, 667, 475, 869, 12, 434]", toString(new PDF417Compaction(digits).compact()));
+		// 902 and six codewords; a first digit in text then 14 in numeric is as short
+		int[] codewords = new PDF417Compaction("000213298174000").compact();
+		assertEquals(7, codewords.length);
+		assertEquals("000213298174000", decode(codewords));
+	}
+
+	public void testLongNumbersAreSplitIntoGroupsOf44Digits() throws Exception {
+		StringBuffer digits = new StringBuffer();
+		Random random = new Random(44);
+		for (int i = 0; i < 100; i++) {
+			digits.append(random.nextInt(10));
+		}
+		int[] codewords = new PDF417Compaction(digits.toString()).compact();
+		// 902, then 15 + 15 + 5 codewords for 44 + 44 + 12 digits
+		assertEquals(1 + 15 + 15 + 5, codewords.length);
+		assertEquals(digits.toString(), decode(codewords));
+	}
+
+	public void testTextIsTwoCharactersPerCodeword() throws Exception {
+		// The symbol starts in text compaction, so no latch is needed
+		assertEquals("[1, 63, 125, 187, 265]", toString(new PDF417Compaction("ABCDEFGHIZ").compact()));
+		assertEquals(10, new PDF417Compaction("PART NUMBER ABC XYZ").compact().length);
+	}
+
+	public void testMixedPayloadsAreSmallerThanByteCompaction() throws Exception {
+		String data = "SHIP TO 4711 PALLET 00012345678901234567 QTY 48";
+		int[] codewords = new PDF417Compaction(data).compact();
+		int byteCompaction = 1 + data.length() / 6 * 5 + data.length() % 6;
+		assertTrue(codewords.length + " codewords", codewords.length * 3 < byteCompaction * 2);
+		assertEquals(data, decode(codewords));
+	}
+
+	public void testSingleBytesAreShiftedInText() throws Exception {
+		int[] codewords = new PDF417Compaction("AB\u00e9CD").compact();
+		assertEquals("[1, 913, 233, 63]", toString(codewords));
+	}
+
+	public void testRandomDataRoundTrips() throws Exception {
+		Random random = new Random(417);
+		String[] alphabets = {"ABCDEFGHIJKLMNOPQRSTUVWXYZ ", "abcdefghijklmnopqrstuvwxyz ", "0123456789", MIXED,
+				PUNCTUATION};
+		for (int n = 0; n < 500; n++) {
+			StringBuffer data = new StringBuffer();
+			int length = 1 + random.nextInt(80);
+			while (data.length() < length) {
+				int kind = random.nextInt(alphabets.length + 1);
+				int run = 1 + random.nextInt(random.nextBoolean() ? 3 : 20);
+				for (int i = 0; i < run; i++) {
+					if (kind == alphabets.length) {
+						data.append((char) random.nextInt(256));
+					} else {
+						data.append(alphabets[kind].charAt(random.nextInt(alphabets[kind].length())));
+					}
+				}
+			}
+			assertEquals(data.toString(), decode(new PDF417Compaction(data.toString()).compact()));
+		}
+	}
+
+	public void testCharactersOutsideLatin1AreRejected() throws Exception {
+		try {
+			new PDF417Compaction("ABC\u20ac").compact();
+			fail();
+		} catch (BarcodeException e) {
+			// Expected
+		}
+	}
+
+	private static String toString(int[] codewords) {
+		StringBuffer buf = new StringBuffer("[");
+		for (int i = 0; i < codewords.length; i++) {
+			buf.append(i == 0 ? "" : ", ").append(codewords[i]);
+		}
+		return buf.append("]").toString();
+	}
+
+	/**
+	 * Decodes text, byte and numeric compaction as a reader would.
+	 */
+	private static String decode(int[] codewords) {
+		StringBuffer result = new StringBuffer();
+		int mode = 900;
+		int submode = 0;
+		int i = 0;
+		while (i < codewords.length) {
+			int codeword = codewords[i];
+			if (codeword >= 900 && codeword != 913) {
+				mode = codeword;
+				submode = 0;
+				i++;
+			}
+			int end = i;
+			while (end < codewords.length && (codewords[end] < 900 || (mode == 900 && codewords[end] == 913))) {
+				end += codewords[end] == 913 ? 2 : 1;
+			}
+			if (mode == 900) {
+				int shift = -1;
+				for (; i < end; i++) {
+					if (codewords[i] == 913) {
+						result.append((char) codewords[++i]);
+						shift = -1;
+						continue;
+					}
+					int[] values = {codewords[i] / 30, codewords[i] % 30};
+					for (int j = 0; j < 2; j++) {
+						int current = shift >= 0 ? shift : submode;
+						shift = -1;
+						int value = values[j];
+						if (current == 3) {
+							if (value == 29) {
+								submode = 0;
+							} else {
+								result.append(PUNCTUATION.charAt(value));
+							}
+						} else if (value == 26) {
+							result.append(' ');
+						} else if (value == 29) {
+							shift = 3;
+						} else if (current == 2) {
+							if (value < 25) {
+								result.append(MIXED.charAt(value));
+							} else {
+								submode = value == 25 ? 3 : value == 27 ? 1 : 0;
+							}
+						} else if (value < 26) {
+							result.append((char) ((current == 0 ? 'A' : 'a') + value));
+						} else if (value == 27) {
+							if (current == 0) {
+								submode = 1;
+							} else {
+								shift = 0;
+							}
+						} else {
+							submode = 2;
+						}
+					}
+				}
+			} else if (mode == 902) {
+				for (; i < end; i += 15) {
+					BigInteger value = BigInteger.ZERO;
+					for (int j = i; j < Math.min(end, i + 15); j++) {
+						value = value.multiply(BigInteger.valueOf(900)).add(BigInteger.valueOf(codewords[j]));
+					}
+					result.append(value.toString().substring(1));
+				}
+			} else {
+				// A group of five is six bytes, unless it is the tail after 901
+				for (; i < end; i += 5) {
+					if (end - i >= (mode == 924 ? 5 : 6)) {
+						long value = 0;
+						for (int j = i; j < i + 5; j++) {
+							value = value * 900 + codewords[j];
+						}
+						for (int j = 5; j >= 0; j--) {
+							result.append((char) ((value >> (8 * j)) & 0xff));
+						}
+					} else {
+						for (int j = i; j < end; j++) {
+							result.append((char) codewords[j]);
+						}
+						i = end;
+					}
+				}
+			}
+			i = end;
+		}
+		return result.toString();
+	}
+}
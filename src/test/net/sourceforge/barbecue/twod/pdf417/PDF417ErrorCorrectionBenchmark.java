@@ -0,0 +1,101 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import java.util.Random;
+
+/**
+ * Times the table driven error correction at level 8, the most expensive
+ * level, against the same Reed-Solomon division done with a modulo at every
+ * step. Run with <code>java</code> and, optionally, the number of
+ * iterations.
+ */
+public class PDF417ErrorCorrectionBenchmark {
+	private static final int LEVEL = 8;
+	private static final int EC_LENGTH = 512;
+	private static final int DATA_LENGTH = 928 - EC_LENGTH;
+
+	public static void main(String[] args) throws Exception {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int[] codewords = new int[DATA_LENGTH + EC_LENGTH];
+		Random random = new Random(8);
+		for (int i = 0; i < DATA_LENGTH; i++) {
+			codewords[i] = random.nextInt(929);
+		}
+		int[] generator = createGenerator(EC_LENGTH);
+
+		for (int pass = 0; pass < 2; pass++) {
+			// The first pass is a warm up
+			boolean report = pass == 1;
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				PDF417ErrorCorrection.encode(codewords, DATA_LENGTH, LEVEL);
+			}
+			long tables = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				encodeWithModulo(codewords, DATA_LENGTH, generator);
+			}
+			long modulo = System.nanoTime() - start;
+			if (report) {
+				System.out.println("Tables: " + (tables / iterations / 1000) + " us/symbol");
+				System.out.println("Modulo: " + (modulo / iterations / 1000) + " us/symbol");
+			}
+		}
+	}
+
+	private static void encodeWithModulo(int[] codewords, int length, int[] generator) {
+		int k = generator.length;
+		int[] ec = new int[k];
+		for (int i = 0; i < length; i++) {
+			int t1 = (codewords[i] + ec[k - 1]) % 929;
+			for (int j = k - 1; j > 0; j--) {
+				ec[j] = (ec[j - 1] + 929 - t1 * generator[j] % 929) % 929;
+			}
+			ec[0] = (929 - t1 * generator[0] % 929) % 929;
+		}
+		for (int j = 0; j < k; j++) {
+			codewords[length + j] = ec[k - 1 - j] == 0 ? 0 : 929 - ec[k - 1 - j];
+		}
+	}
+
+	private static int[] createGenerator(int k) {
+		int[] coefficients = new int[k + 1];
+		coefficients[0] = 1;
+		int root = 1;
+		for (int i = 1; i <= k; i++) {
+			root = root * 3 % 929;
+			for (int j = i; j > 0; j--) {
+				coefficients[j] = (coefficients[j - 1] + coefficients[j] * (929 - root)) % 929;
+			}
+			coefficients[0] = coefficients[0] * (929 - root) % 929;
+		}
+		int[] generator = new int[k];
+		System.arraycopy(coefficients, 0, generator, 0, k);
+		return generator;
+	}
+}
@@ -0,0 +1,97 @@
+/***********************************************************************************************************************
+ * Copyright (c) 2003, International Barcode Consortium
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * Neither the name of the International Barcode Consortium nor the names of any contributors may be used to endorse
+ * or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ ***********************************************************************************************************************/
+
+package net.sourceforge.barbecue.twod.pdf417;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class PDF417ErrorCorrectionTest extends TestCase {
+
+	public void testLevelZeroMatchesTheOriginalEncoder() throws Exception {
+		Random random = new Random(2);
+		for (int n = 0; n < 100; n++) {
+			int[] codewords = new int[2 + random.nextInt(100)];
+			for (int i = 0; i < codewords.length - 2; i++) {
+				codewords[i] = random.nextInt(929);
+			}
+			PDF417ErrorCorrection.encode(codewords, codewords.length - 2, 0);
+
+			// The modulo arithmetic the encoder used for (x - 3)(x - 9)
+			int b0 = 0;
+			int b1 = 0;
+			for (int i = 0; i < codewords.length - 2; i++) {
+				int wrap = (b1 + codewords[i]) % 929;
+				if (wrap != 0) {
+					wrap = 929 - wrap;
+				}
+				b1 = (b0 + 917 * wrap) % 929;
+				b0 = (27 * wrap) % 929;
+			}
+			assertEquals(b1 == 0 ? 0 : 929 - b1, codewords[codewords.length - 2]);
+			assertEquals(b0 == 0 ? 0 : 929 - b0, codewords[codewords.length - 1]);
+		}
+	}
+
+	public void testCodewordsAreDivisibleByTheGeneratorAtEveryLevel() throws Exception {
+		Random random = new Random(929);
+		for (int level = PDF417ErrorCorrection.MIN_LEVEL; level <= PDF417ErrorCorrection.MAX_LEVEL; level++) {
+			int k = PDF417ErrorCorrection.getCodewordCount(level);
+			assertEquals(2 << level, k);
+			int length = Math.max(1, 928 - k - random.nextInt(200));
+			int[] codewords = new int[length + k];
+			for (int i = 0; i < length; i++) {
+				codewords[i] = random.nextInt(929);
+			}
+			PDF417ErrorCorrection.encode(codewords, length, level);
+			// Every root of the generator, 3^1 to 3^k, is a root of the codeword
+			int root = 1;
+			for (int i = 1; i <= k; i++) {
+				root = root * 3 % 929;
+				int value = 0;
+				for (int j = 0; j < codewords.length; j++) {
+					value = (value * root + codewords[j]) % 929;
+				}
+				assertEquals("level " + level + ", root " + i, 0, value);
+			}
+		}
+	}
+
+	public void testLevelIsSelectablePerBarcode() throws Exception {
+		PDF417Barcode barcode = new PDF417Barcode("Carrier label 0123456789");
+		int rows = barcode.getMatrix().getHeight();
+		barcode.setErrorCorrectionLevel(5);
+		assertEquals(5, barcode.getErrorCorrectionLevel());
+		// 62 more error correction codewords need more rows of 12
+		assertTrue(barcode.getMatrix().getHeight() >= rows + 4);
+		try {
+			barcode.setErrorCorrectionLevel(9);
+			fail("There is no level 9");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
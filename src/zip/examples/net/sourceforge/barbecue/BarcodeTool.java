@@ -32,15 +32,23 @@ POSSIBILITY OF SUCH DAMAGE.
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
+import java.awt.Image;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.WindowAdapter;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileWriter;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
@@ -48,6 +56,9 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
@@ -57,6 +68,11 @@ import net.sourceforge.barbecue.formatter.SVGFormatter;
 
 /**
  * Contributed by Ryan Martell.
+ * <p/>
+ * Barcodes are created and rendered on a background thread so that typing
+ * never waits for them. Edits are debounced, a newer edit supersedes any
+ * render still queued or running, and only the image for the latest input is
+ * shown.
  * 
  * @author rmartell
  * @author <a href="mailto:opensource@ianbourke.com">Ian Bourke</a>
@@ -96,11 +112,23 @@ public class BarcodeTool extends JFrame {
             "Creates a Codabar barcode.", "PDF417",
             "Creates a PDF417 (2 dimensional) barcode." };
 
+    /** How long to wait after the last edit before rendering */
+    private static final int      RENDER_DELAY = 150;
+
     private JLabel                appIDLabel;
     private JTextField            appIDTextField;
     private JComboBox             barcodeSelection;
     private JTextField            dataField;
     private JPanel                barcodePanel;
+    private JLabel                barcodeImage;
+    private JLabel                statusLabel;
+
+    private final Timer           renderTimer;
+    private final ExecutorService renderer;
+    private Future<?>             pendingRender;
+    /** The number of the latest render requested; only ever changed on the EDT */
+    private volatile int          generation;
+    private Barcode               barcode;
 
     private String[] getBarcodeTypes() {
         String[] result = new String[barcodeData.length / 2];
@@ -111,77 +139,128 @@ public class BarcodeTool extends JFrame {
     }
 
     public BarcodeTool() {
+        renderer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "BarcodeTool renderer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        renderTimer = new Timer(RENDER_DELAY, new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                startRender();
+            }
+        });
+        renderTimer.setRepeats(false);
         createGUI();
         addQuitListener();
         addDataListener();
     }
 
     private void addDataListener() {
-        dataField.getDocument().addDocumentListener(new DocumentListener() {
+        DocumentListener listener = new DocumentListener() {
             public void insertUpdate(DocumentEvent evt) {
-                try {
-                    syncBarcode();
-                } catch (BarcodeException e) {
-                    throw new RuntimeException(e.getMessage(), e);
-                }
+                syncBarcode();
             }
 
             public void removeUpdate(DocumentEvent evt) {
-                try {
-                    syncBarcode();
-                } catch (BarcodeException e) {
-                    throw new RuntimeException(e.getMessage(), e);
-                }
+                syncBarcode();
             }
 
             public void changedUpdate(DocumentEvent e) {
                 // Nothing to do
             }
-        });
+        };
+        dataField.getDocument().addDocumentListener(listener);
+        appIDTextField.getDocument().addDocumentListener(listener);
     }
 
-    private void setBarcode(final Barcode bar) {
-        barcodePanel.removeAll();
-        barcodePanel.add(bar, BorderLayout.CENTER);
-        barcodePanel.updateUI();
-    }
-
-    void syncBarcode() throws BarcodeException {
-        String currentValue = (String) barcodeSelection.getSelectedItem();
-        String barcodeText = dataField.getText();
-
-        if ((barcodeText == null) || (barcodeText.length() == 0)) {
-            barcodeText = " ";
-        }
-
-        boolean appIDVisible = currentValue.equals("UCC128");
+    /**
+     * Schedules a render of the current input once the user pauses typing.
+     * Must be called on the EDT.
+     */
+    void syncBarcode() {
+        boolean appIDVisible = "UCC128".equals(barcodeSelection.getSelectedItem());
         if (appIDVisible != appIDTextField.isVisible()) {
             appIDTextField.setVisible(appIDVisible);
             appIDLabel.setVisible(appIDVisible);
         }
+        renderTimer.restart();
+    }
 
-        if (currentValue.equals("UCC128")) {
-            Barcode b = BarcodeFactory.createUCC128(appIDTextField.getText(),
-                    barcodeText);
-            setBarcode(b);
-        } else if (currentValue.equals("Code39")) {
-            Barcode b = BarcodeFactory.createCode39(barcodeText, true);
-            setBarcode(b);
-        } else {
-            try {
-                Class<?> factory = net.sourceforge.barbecue.BarcodeFactory.class;
-                Method createMethod = factory.getMethod(
-                        "create" + currentValue, new Class[] { "".getClass() });
-                Object result = createMethod.invoke(null,
-                        new Object[] { barcodeText });
-                setBarcode((Barcode) result);
-            } catch (NoSuchMethodException e) {
-                // throw new RuntimeException(e.getMessage(), e);
-            } catch (IllegalAccessException e) {
-                // throw new RuntimeException(e.getMessage(), e);
-            } catch (java.lang.reflect.InvocationTargetException e) {
-                // throw new RuntimeException(e.getMessage(), e);
+    /**
+     * Hands the current input to the render thread, cancelling any render
+     * that has not finished yet. Runs on the EDT.
+     */
+    private void startRender() {
+        final int requested = ++generation;
+        final String type = (String) barcodeSelection.getSelectedItem();
+        final String appID = appIDTextField.getText();
+        String text = dataField.getText();
+        final String barcodeText = (text == null || text.length() == 0) ? " " : text;
+
+        if (pendingRender != null) {
+            pendingRender.cancel(true);
+        }
+        statusLabel.setText("Rendering...");
+        pendingRender = renderer.submit(new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                Barcode result = null;
+                BufferedImage image = null;
+                String error = null;
+                try {
+                    result = createBarcode(type, barcodeText, appID);
+                    if (requested != generation) {
+                        return;
+                    }
+                    Dimension size = result.getPreferredSize();
+                    image = result.getCachedImage(size.width, size.height);
+                } catch (Exception e) {
+                    error = e.getMessage();
+                }
+                publish(requested, result, image, error, (System.nanoTime() - start) / 1000000);
+            }
+        });
+    }
+
+    /**
+     * Shows a finished render on the EDT, unless a newer one was requested
+     * while it was running.
+     */
+    private void publish(final int requested, final Barcode result, final Image image,
+            final String error, final long millis) {
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (requested != generation) {
+                    return;
+                }
+                barcode = result;
+                barcodeImage.setIcon(image == null ? null : new ImageIcon(image));
+                if (error != null) {
+                    statusLabel.setText("Cannot encode: " + error);
+                } else {
+                    statusLabel.setText("Rendered in " + millis + " ms");
+                }
             }
+        });
+    }
+
+    static Barcode createBarcode(String type, String barcodeText, String appID) throws Exception {
+        if (type.equals("UCC128")) {
+            return BarcodeFactory.createUCC128(appID, barcodeText);
+        } else if (type.equals("Code39")) {
+            return BarcodeFactory.createCode39(barcodeText, true);
+        }
+        Class<?> factory = net.sourceforge.barbecue.BarcodeFactory.class;
+        Method createMethod = factory.getMethod("create" + type, new Class[] { "".getClass() });
+        try {
+            return (Barcode) createMethod.invoke(null, new Object[] { barcodeText });
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
         }
     }
 
@@ -204,6 +283,11 @@ public class BarcodeTool extends JFrame {
     private JPanel createBarcodePanel() {
         barcodePanel = new JPanel(new BorderLayout());
         barcodePanel.setPreferredSize(new Dimension(200, 200));
+        barcodeImage = new JLabel();
+        barcodeImage.setHorizontalAlignment(SwingConstants.CENTER);
+        barcodePanel.add(barcodeImage, BorderLayout.CENTER);
+        statusLabel = new JLabel(" ");
+        barcodePanel.add(statusLabel, BorderLayout.SOUTH);
         return barcodePanel;
     }
 
@@ -312,19 +396,16 @@ public class BarcodeTool extends JFrame {
     }
 
     void barcodeSelected() {
-        try {
-            syncBarcode();
-        } catch (BarcodeException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        syncBarcode();
     }
 
     void quit() {
+        renderer.shutdownNow();
         System.exit(0);
     }
 
     void saveAs() {
-        if (barcodePanel.getComponentCount() < 1) {
+        if (barcode == null) {
             return;
         }
         JFileChooser chooser = new JFileChooser();
@@ -332,7 +413,7 @@ public class BarcodeTool extends JFrame {
         chooser.setMultiSelectionEnabled(false);
         int retVal = chooser.showSaveDialog(null);
         if (retVal == JFileChooser.APPROVE_OPTION) {
-            Barcode b = (Barcode) barcodePanel.getComponent(0);
+            Barcode b = barcode;
             File f = chooser.getSelectedFile();
             try {
                 save(b, f);